@@ -11,7 +11,15 @@ except ImportError:
 
 
 class NBLWriter:
-    def __init__(self, filepath, fps, total_frames, texture_list, keyframe_interval=60):
+    def __init__(
+        self,
+        filepath,
+        fps,
+        total_frames,
+        texture_list,
+        keyframe_interval=60,
+        bounds_interval=1,
+    ):
         if not HAS_ZSTD:
             raise RuntimeError("zstandard library missing.")
 
@@ -24,6 +32,14 @@ class NBLWriter:
             else ["minecraft:textures/particle/glitter_7.png"]
         )
         self.keyframe_interval = keyframe_interval
+        # 每个包围盒表项覆盖的帧数 (1 = 逐帧，设为 keyframe_interval 即逐 GOP)
+        self.bounds_interval = max(1, int(bounds_interval))
+        self.bounds_count = (
+            self.total_frames + self.bounds_interval - 1
+        ) // self.bounds_interval
+        # 空表项保持 min > max，播放器合并时会忽略
+        self.frame_bounds_min = np.full((self.bounds_count, 3), np.inf, dtype=np.float32)
+        self.frame_bounds_max = np.full((self.bounds_count, 3), -np.inf, dtype=np.float32)
 
         self.frames_index = []
         self.keyframes = []
@@ -58,7 +74,7 @@ class NBLWriter:
         f.write(struct.pack("<H", self.fps))
         f.write(struct.pack("<I", self.total_frames))
         f.write(struct.pack("<H", len(self.texture_list)))
-        f.write(struct.pack("<H", 3))
+        f.write(struct.pack("<H", 0x01 | 0x02 | 0x04))  # Alpha | Size | FrameBounds
         self.bbox_pos = f.tell()
         f.write(b"\x00" * 28)  # BBox + Reserved
 
@@ -74,6 +90,11 @@ class NBLWriter:
         f.write(struct.pack("<I", 0))
         f.write(b"\x00" * (4 * self.total_frames))
 
+        # 逐帧包围盒表: [u32 每项帧数][u32 项数][项数 * f32[6]]
+        self.bounds_table_pos = f.tell()
+        f.write(struct.pack("<II", self.bounds_interval, self.bounds_count))
+        f.write(b"\x00" * (24 * self.bounds_count))
+
     def write_frame(self, pos, col, size, tex_id, seq_idx, pids):
         N = len(pids)
         payload = None
@@ -113,6 +134,11 @@ class NBLWriter:
             self.bbox_min = np.minimum(self.bbox_min, f_min)
             self.bbox_max = np.maximum(self.bbox_max, f_max)
 
+            entry = self.current_frame_idx // self.bounds_interval
+            if entry < self.bounds_count:
+                self.frame_bounds_min[entry] = np.minimum(self.frame_bounds_min[entry], f_min)
+                self.frame_bounds_max[entry] = np.maximum(self.frame_bounds_max[entry], f_max)
+
         self._update_prev_map(pos, col, size, tex_id, seq_idx, pids)
         self.current_frame_idx += 1
 
@@ -275,6 +301,19 @@ class NBLWriter:
             self.bbox_max[:] = 0
         f.write(struct.pack("<fff", *self.bbox_min))
         f.write(struct.pack("<fff", *self.bbox_max))
+        f.write(struct.pack("<I", self.bounds_table_pos))  # Reserved -> FrameBoundsOffset
+
+        # 无穷大无法保证被所有读取端正确处理，空表项改写为 FLT_MAX 反转盒
+        f.seek(self.bounds_table_pos + 8)
+        flt_max = np.finfo(np.float32).max
+        bounds = np.concatenate(
+            [
+                np.nan_to_num(self.frame_bounds_min, posinf=flt_max),
+                np.nan_to_num(self.frame_bounds_max, neginf=-flt_max),
+            ],
+            axis=1,
+        )
+        f.write(bounds.astype("<f4").tobytes())
 
         print(
             f"NBL Export Finished: {self.total_frames} frames, {len(self.keyframes)} keyframes."
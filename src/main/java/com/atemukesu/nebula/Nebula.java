@@ -57,6 +57,8 @@ public class Nebula implements ModInitializer {
 	public static final String MOD_ID = "nebula";
 	public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 	public static final String MOD_VERSION = getModVersion();
+	/** 当前运行的服务器（供后台线程回调使用），未运行时为 null */
+	private static volatile net.minecraft.server.MinecraftServer runningServer;
 
 	public static String getModVersion() {
 		return FabricLoader.getInstance().getModContainer(MOD_ID)
@@ -75,6 +77,11 @@ public class Nebula implements ModInitializer {
 		extractAnimationsIfNeeded();
 		LOGGER.info("Animations extracted.");
 
+		// 建立动画索引并监听目录变化
+		com.atemukesu.nebula.particle.loader.AnimationLoader.discoverAnimations();
+		com.atemukesu.nebula.particle.loader.AnimationLoader.startWatching();
+		com.atemukesu.nebula.particle.loader.AnimationLoader.addChangeListener(Nebula::onAnimationsChanged);
+
 		// 注册命令
 		CommandRegistrationCallback.EVENT
 				.register((dispatcher, registryAccess, environment) -> NebulaCommand.register(dispatcher));
@@ -82,11 +89,19 @@ public class Nebula implements ModInitializer {
 		// 注册网络包
 		ModPackets.registerC2SPackets();
         ModPackets.registerCommon();
+		com.atemukesu.nebula.server.ServerAnimationSyncer.registerReceivers();
+		com.atemukesu.nebula.server.AnimationTransferService.getInstance().register();
+		com.atemukesu.nebula.server.PlayBroadcaster.getInstance().register();
+		com.atemukesu.nebula.server.PreloadCoordinator.getInstance().register();
 
 		// 注册服务端事件
 		net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents.SERVER_STARTING.register(server -> {
-			com.atemukesu.nebula.server.ServerAnimationSyncer.reload();
+			com.atemukesu.nebula.server.ServerConfig.load();
+			// [优化] 哈希在后台线程池计算，不阻塞服务器启动
+			com.atemukesu.nebula.server.ServerAnimationSyncer.reloadAsync();
 		});
+		net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents.SERVER_STARTED.register(server -> runningServer = server);
+		net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents.SERVER_STOPPING.register(server -> runningServer = null);
 
 		net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
 			com.atemukesu.nebula.server.ServerAnimationSyncer.sendToPlayer(handler.getPlayer());
@@ -95,6 +110,26 @@ public class Nebula implements ModInitializer {
 		LOGGER.info("Nebula initialized. Animation directory: .minecraft/nebula/animations/");
 	}
 
+	/**
+	 * 动画目录发生变化（在监听线程上调用）
+	 * [优化] 只让变化的动画失效；哈希缓存按大小和修改时间命中，重载时只重新计算变化的文件。
+	 * 这里只刷新服务端清单，不向在线玩家推送同步（文件可能仍在复制中），
+	 * 玩家在下次加入或执行 /nebula reload 时拿到新清单。
+	 */
+	private static void onAnimationsChanged(java.util.Set<String> names) {
+		for (String name : names) {
+			com.atemukesu.nebula.server.AnimationMetadataCache.getInstance().invalidate(name);
+		}
+		if (runningServer == null) {
+			return;
+		}
+		com.atemukesu.nebula.server.ServerAnimationSyncer.reloadAsync().whenComplete((manifest, error) -> {
+			if (error != null) {
+				LOGGER.error("Failed to refresh animation manifest after directory change", error);
+			}
+		});
+	}
+
 	/**
 	 * 自动释放 Jar 内的动画文件到 游戏目录/nebula/animations
 	 */
@@ -42,16 +42,22 @@ import com.atemukesu.nebula.client.enums.BlendMode;
 import com.atemukesu.nebula.client.enums.CullingBehavior;
 import com.atemukesu.nebula.client.gui.tools.PerformanceStats;
 import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.client.loader.ClientAnimationLoader;
+import com.atemukesu.nebula.client.loader.FrameRing;
 import com.atemukesu.nebula.client.loader.NblStreamer;
+import com.atemukesu.nebula.client.loader.PlaybackClock;
+import com.atemukesu.nebula.client.render.AdaptiveQualityController;
 import com.atemukesu.nebula.client.render.AnimationFrame;
+import com.atemukesu.nebula.client.render.GpuFrameDecoder;
 import com.atemukesu.nebula.client.render.GpuParticleRenderer;
+import com.atemukesu.nebula.client.render.ParticleBudgetManager;
 import com.atemukesu.nebula.client.render.ParticleTextureManager;
 import com.atemukesu.nebula.client.render.SharedTextureResource;
+import com.atemukesu.nebula.client.render.TextureAtlasMap;
 import com.atemukesu.nebula.client.render.TextureCacheSystem;
-import com.atemukesu.nebula.client.util.IrisUtil;
 import com.atemukesu.nebula.client.util.CurrentTimeUtil;
+import com.atemukesu.nebula.client.util.FrameSnapshot;
 import com.atemukesu.nebula.client.config.ModConfig;
-import com.atemukesu.nebula.particle.loader.AnimationLoader;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.Camera;
 import net.minecraft.client.render.Frustum;
@@ -67,10 +73,10 @@ import org.lwjgl.opengl.GL30;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 客户端动画管理器
@@ -81,9 +87,14 @@ public class ClientAnimationManager {
     private static final ClientAnimationManager INSTANCE = new ClientAnimationManager();
     // 活跃的动画实例列表
     private final List<AnimationInstance> activeInstances = new ArrayList<>();
+    // 延迟开始的播放（批量播放包中 Tick 偏移大于 0 的条目，只在主线程访问）
+    private final List<ScheduledPlay> scheduledPlays = new ArrayList<>();
     // 统计信息
     private int currentInstanceCount = 0;
     private int currentParticleCount = 0;
+    private int currentRenderedInstanceCount = 0;
+    // 全局粒子预算 (只在渲染线程使用)
+    private final ParticleBudgetManager<PendingDraw> budgetManager = new ParticleBudgetManager<>();
 
     // 日志控制：避免刷屏
     private boolean hasLoggedIrisRenderPath = false;
@@ -103,14 +114,23 @@ public class ClientAnimationManager {
      * 播放动画
      */
     public void playAnimation(String name, Vec3d origin) {
+        playAnimation(name, origin, 0);
+    }
+
+    /**
+     * 从指定进度开始播放动画（迟到加入），播放时钟会按代价模型 Seek 到对应帧
+     *
+     * @param elapsedSeconds 动画已经播放的时长 (秒)
+     */
+    public void playAnimation(String name, Vec3d origin, double elapsedSeconds) {
 
         if (!MinecraftClient.getInstance().isOnThread()) {
-            MinecraftClient.getInstance().execute(() -> playAnimation(name, origin));
+            MinecraftClient.getInstance().execute(() -> playAnimation(name, origin, elapsedSeconds));
             Nebula.LOGGER.error("[Nebula/Animation] playAnimation called on wrong thread, deferring to main thread.");
             return;
         }
 
-        Path animationPath = AnimationLoader.getAnimationPath(name);
+        Path animationPath = ClientAnimationLoader.getAnimationPath(name);
         if (animationPath == null) {
             Nebula.LOGGER.warn("Animation not found: {}", name);
             return;
@@ -138,7 +158,7 @@ public class ClientAnimationManager {
             // 注意：resource 引用计数已由 acquire 增加 (ref=1)
             // AnimationInstance 会持有这个引用，直到销毁
             AnimationInstance instance = new AnimationInstance(file, origin, resource);
-            instance.start();
+            instance.start(elapsedSeconds);
 
             synchronized (activeInstances) {
                 activeInstances.add(instance);
@@ -150,12 +170,39 @@ public class ClientAnimationManager {
         }
     }
 
+    /**
+     * 延迟指定 Tick 数后播放动画（仅在主线程调用）
+     *
+     * @param delayTicks 负数表示动画已经开始了这么多 Tick
+     */
+    public void schedulePlay(String name, Vec3d origin, int delayTicks) {
+        if (delayTicks <= 0) {
+            playAnimation(name, origin, -delayTicks / 20.0);
+            return;
+        }
+        scheduledPlays.add(new ScheduledPlay(name, origin, delayTicks));
+    }
+
     /**
      * 游戏 Tick 更新（常规模式）
      * 
      * @param client Minecraft 客户端实例
      */
     public void tick(MinecraftClient client) {
+        if (!scheduledPlays.isEmpty()) {
+            List<ScheduledPlay> due = new ArrayList<>();
+            scheduledPlays.removeIf(play -> {
+                if (--play.remainingTicks > 0) {
+                    return false;
+                }
+                due.add(play);
+                return true;
+            });
+            for (ScheduledPlay play : due) {
+                playAnimation(play.name, play.origin);
+            }
+        }
+
         // 清理已完成的动画实例
         synchronized (activeInstances) {
             activeInstances.removeIf(AnimationInstance::isFinished);
@@ -180,9 +227,11 @@ public class ClientAnimationManager {
         if (client.world == null || client.player == null)
             return;
 
+        // 本帧的时间 / 渲染状态 / Iris 状态只查询一次，所有实例共用
+        FrameSnapshot snapshot = FrameSnapshot.capture();
         ModConfig config = ModConfig.getInstance();
-        // 开始帧计时
-        boolean shouldCollectStats = config.getShowDebugHud();
+        // 开始帧计时 (自适应画质也依赖该计时)
+        boolean shouldCollectStats = config.getShowDebugHud() || config.getAdaptiveQuality();
         PerformanceStats stats = null;
         if (shouldCollectStats) {
             stats = PerformanceStats.getInstance();
@@ -190,7 +239,7 @@ public class ClientAnimationManager {
         }
 
         // [Config Control] 如果不在 Replay 渲染模式且配置关闭了游戏内渲染，则跳过
-        if (!CurrentTimeUtil.isRendering() && !config.shouldRenderInGame()) {
+        if (!snapshot.isRendering() && !config.shouldRenderInGame()) {
             return;
         }
 
@@ -210,9 +259,6 @@ public class ClientAnimationManager {
 
         Vec3d cameraPos = camera.getPos();
 
-        int totalParticles = 0;
-        int renderedInstancesCount = 0;
-
         // 定义一个矩阵变量
         Matrix4f mvMatrix;
 
@@ -234,132 +280,10 @@ public class ClientAnimationManager {
             Nebula.LOGGER.info("[Matrix Debug - Mixin] Built View Rotation Matrix:\n{}", mvMatrix.toString());
         }
 
-        // 创建渲染列表副本，避免长时间持有锁阻塞主线程
-        List<AnimationInstance> renderList;
-        synchronized (activeInstances) {
-            renderList = new ArrayList<>(activeInstances);
-        }
-
-        // Global OIT Setup or Standard Batch Setup
-        boolean isOIT = config.getBlendMode() == BlendMode.OIT;
-        CullingBehavior behavior = config.getCullingBehavior();
-        double now = CurrentTimeUtil.getCurrentAnimationTime();
-        int targetFboId = -1;
-        if (!renderList.isEmpty()) {
-            if (isOIT) {
-                targetFboId = GL11.glGetInteger(GL30.GL_FRAMEBUFFER_BINDING);
-                GpuParticleRenderer.beginOIT(targetFboId, client.getWindow().getFramebufferWidth(),
-                        client.getWindow().getFramebufferHeight());
-            } else {
-                int currentFbo = GL11.glGetInteger(GL30.GL_FRAMEBUFFER_BINDING);
-                GpuParticleRenderer.beginStandardRendering(mvMatrix, projectionMatrix,
-                        currentFbo);
-            }
-        }
-
-        for (AnimationInstance instance : renderList) {
-            boolean isVisible = true;
-            // 视锥剔除
-            if (frustum != null) {
-                Box worldBbox = instance.getWorldBoundingBox();
-                if (worldBbox != null && !frustum.isVisible(worldBbox)) {
-                    isVisible = false;
-                }
-            }
-            // 确保纹理已加载（第一次渲染时）
-            instance.ensureTexturesLoaded();
-
-            // [核心] 智能休眠控制
-            if (!isVisible) {
-                // Determine behavior based on config
-                if (behavior == CullingBehavior.PAUSE_AND_HIDE) {
-                    continue;
-                }
-            }
-
-            // [核心] 唤醒与同步
-            // 当再次可见时，检查是否需要 Seek
-            double elapsed = now - instance.startSeconds;
-            int expectedFrame = (int) (elapsed * instance.targetFps);
-
-            if (Math.abs(instance.renderedFrames - expectedFrame) > 5) {
-                instance.streamer.seek(expectedFrame);
-                instance.renderedFrames = expectedFrame;
-            }
-
-            ByteBuffer frameData = instance.getNextFrame();
-
-            if (isVisible && frameData != null && frameData.remaining() > 0) {
-                renderedInstancesCount++;
-                ByteBuffer readBuffer = frameData.slice();
-
-                int particleCount = readBuffer.remaining() / AnimationFrame.BYTES_PER_PARTICLE;
-                totalParticles += particleCount;
-
-                Vec3d origin = instance.getOrigin();
-
-                // 计算粒子系统原点相对于相机的偏移
-                float relX = (float) (origin.x - cameraPos.x);
-                float relY = (float) (origin.y - cameraPos.y);
-                float relZ = (float) (origin.z - cameraPos.z);
-
-                // 计算插值系数
-                // (now, elapsed 均已在上文计算)
-                double currentFrameFloat = elapsed * instance.targetFps;
-
-                float partialTicks = (float) (currentFrameFloat - (instance.renderedFrames - 1));
-                if (partialTicks < 0)
-                    partialTicks = 0;
-                if (partialTicks > 1)
-                    partialTicks = 1;
-
-                // 使用 GPU 渲染器绘制
-                if (isOIT) {
-                    GpuParticleRenderer.renderOITBatch(
-                            readBuffer,
-                            particleCount,
-                            mvMatrix,
-                            projectionMatrix,
-                            relX,
-                            relY,
-                            relZ,
-                            true,
-                            instance.getTextureId(),
-                            partialTicks);
-                } else {
-                    GpuParticleRenderer.renderStandardBatch(
-                            readBuffer,
-                            particleCount,
-                            relX,
-                            relY,
-                            relZ,
-                            true,
-                            instance.getTextureId(),
-                            partialTicks);
-                }
-            }
-        }
-
-        currentParticleCount = totalParticles;
+        renderInstances(client, config, mvMatrix, projectionMatrix, cameraPos, frustum);
 
         if (shouldCollectStats && stats != null) {
-            // 更新性能统计
-            stats.setParticleCount(totalParticles);
-            stats.setInstanceCount(renderedInstancesCount);
-            float effectiveEmissive = IrisUtil.isIrisRenderingActive()
-                    ? config.getEmissiveStrength()
-                    : 1.0f;
-
-            stats.setEmissiveStrength(effectiveEmissive);
-            stats.endFrame();
-        }
-
-        if (!renderList.isEmpty()) {
-            if (isOIT) {
-                GpuParticleRenderer.endOITAndComposite(targetFboId);
-            } else {
-                GpuParticleRenderer.endStandardRendering();
-            }
+            updateFrameStats(stats, config);
         }
     }
 
@@ -376,9 +300,11 @@ public class ClientAnimationManager {
         if (client.world == null || client.player == null)
             return;
 
+        // 本帧的时间 / 渲染状态 / Iris 状态只查询一次，所有实例共用
+        FrameSnapshot snapshot = FrameSnapshot.capture();
         ModConfig config = ModConfig.getInstance();
-        // 开始帧计时
-        boolean shouldCollectStats = config.getShowDebugHud();
+        // 开始帧计时 (自适应画质也依赖该计时)
+        boolean shouldCollectStats = config.getShowDebugHud() || config.getAdaptiveQuality();
         PerformanceStats stats = null;
         if (shouldCollectStats) {
             stats = PerformanceStats.getInstance();
@@ -386,7 +312,7 @@ public class ClientAnimationManager {
         }
 
         // [Config Control] 如果不在 Replay 渲染模式且配置关闭了游戏内渲染，则跳过
-        if (!CurrentTimeUtil.isRendering() && !config.shouldRenderInGame()) {
+        if (!snapshot.isRendering() && !config.shouldRenderInGame()) {
             return;
         }
 
@@ -397,7 +323,7 @@ public class ClientAnimationManager {
 
         // [Iris 兼容] 如果 Iris 正在渲染，跳过此事件回调
         // 渲染由 MixinWorldRenderer 在正确的时机处理
-        if (IrisUtil.isIrisRenderingActive()) {
+        if (snapshot.isIrisActive()) {
             return;
         }
 
@@ -440,6 +366,25 @@ public class ClientAnimationManager {
         RenderSystem.depthFunc(GL11.GL_LEQUAL);
         RenderSystem.depthMask(false);
 
+        // 获取视锥用于剔除
+        Frustum frustum = context.frustum();
+
+        renderInstances(client, config, modelViewMatrix, projMatrix, cameraPos, frustum);
+
+        if (shouldCollectStats && stats != null) {
+            updateFrameStats(stats, config);
+        }
+    }
+
+    /**
+     * 推进并绘制所有活跃实例 (Mixin 与原版入口共用)
+     * <p>
+     * 可见实例只是提交到 GpuParticleRenderer 的合并批次，
+     * 真正的上传与绘制在 end 时按纹理数组分组一次完成。
+     * </p>
+     */
+    private void renderInstances(MinecraftClient client, ModConfig config, Matrix4f modelViewMatrix,
+            Matrix4f projMatrix, Vec3d cameraPos, Frustum frustum) {
         int totalParticles = 0;
         int renderedInstancesCount = 0;
 
@@ -449,71 +394,75 @@ public class ClientAnimationManager {
             renderList = new ArrayList<>(activeInstances);
         }
 
+        AdaptiveQualityController quality = AdaptiveQualityController.getInstance();
+        if (!config.getAdaptiveQuality()) {
+            quality.reset();
+        }
+        budgetManager.begin(quality.getEffectiveBudget(config.getParticleBudget()));
+        if (renderList.isEmpty()) {
+            currentParticleCount = 0;
+            currentRenderedInstanceCount = 0;
+            return;
+        }
+
         // Global OIT Setup or Standard Batch Setup
-        boolean isOIT = config.getBlendMode() == BlendMode.OIT;
+        // 自适应画质的低档位禁用 OIT，回退到标准混合
+        boolean isOIT = config.getBlendMode() == BlendMode.OIT && quality.allowOit();
+        boolean depthSort = !isOIT && config.getDepthSort();
+        // 视线方向 = 视图矩阵第三行取反
+        float fwdX = -modelViewMatrix.m02();
+        float fwdY = -modelViewMatrix.m12();
+        float fwdZ = -modelViewMatrix.m22();
         CullingBehavior behavior = config.getCullingBehavior();
-        double now = CurrentTimeUtil.getCurrentAnimationTime();
-        int targetFboId = -1;
-        if (!renderList.isEmpty()) {
-            if (isOIT) {
-                targetFboId = GL11.glGetInteger(GL30.GL_FRAMEBUFFER_BINDING);
-                GpuParticleRenderer.beginOIT(targetFboId, client.getWindow().getFramebufferWidth(),
-                        client.getWindow().getFramebufferHeight());
-            } else {
-                int currentFbo = GL11.glGetInteger(GL30.GL_FRAMEBUFFER_BINDING);
-                GpuParticleRenderer.beginStandardRendering(modelViewMatrix, projMatrix,
-                        // 移除 cameraRight 和 cameraUp 参数
-                        // cameraRight, cameraUp,
-                        currentFbo);
-            }
+        // [优化] 距离 LOD：包围盒投影半径 (像素) = 半对角线 / 距离 * lodPixelScale
+        boolean lodEnabled = config.getLodEnabled();
+        int lodFullPixels = Math.max(1, quality.getEffectiveLodPixels(config.getLodFullDetailPixels()));
+        int lodMaxStride = Integer.highestOneBit(Math.max(1, config.getLodMaxStride()));
+        double lodPixelScale = projMatrix.m11() * client.getWindow().getFramebufferHeight() * 0.5;
+        FrameSnapshot snapshot = FrameSnapshot.current();
+        double now = snapshot.getAnimationTime();
+        int targetFboId = GL11.glGetInteger(GL30.GL_FRAMEBUFFER_BINDING);
+        if (isOIT) {
+            GpuParticleRenderer.beginOIT(targetFboId, client.getWindow().getFramebufferWidth(),
+                    client.getWindow().getFramebufferHeight(), modelViewMatrix, projMatrix);
+        } else {
+            GpuParticleRenderer.beginStandardRendering(modelViewMatrix, projMatrix, targetFboId);
         }
 
-        // 获取视锥用于剔除
-        Frustum frustum = context.frustum();
-
         for (AnimationInstance instance : renderList) {
             boolean isVisible = true;
 
-            // 【视锥剔除】检查动画的 AABB 是否在视锥内
-            Box worldBbox = instance.getWorldBoundingBox();
-            if (frustum != null && worldBbox != null) {
-                if (!frustum.isVisible(worldBbox)) {
-                    // AABB 不在视锥内
-                    isVisible = false;
-                }
+            // 按时间计算当前应播放的帧 (剔除和同步共用)
+            double elapsed = now - instance.startSeconds;
+            int expectedFrame = instance.clock.getCurrentFrame(now);
+
+            // 【视锥剔除】检查动画当前帧的 AABB 是否在视锥内
+            // 使用按时间推算的帧号而不是已渲染帧号：暂停中的实例也要在粒子飞入视野时被唤醒
+            Box worldBbox = instance.getWorldBoundingBox(expectedFrame);
+            if (frustum != null && worldBbox != null && !frustum.isVisible(worldBbox)) {
+                isVisible = false;
             }
 
+            // 【距离 LOD】按屏幕大小选择抽稀步长，最终步长由预算分配决定
+            instance.updateLod(worldBbox, cameraPos, lodPixelScale, lodEnabled ? lodFullPixels : 0, lodMaxStride);
+
             // 确保纹理已加载（第一次渲染时）
             instance.ensureTexturesLoaded();
 
             // [核心] 智能休眠控制
             if (!isVisible) {
+                // 不可见的实例不参与预算分配，只保留 LOD 步长
+                instance.streamer.setDecimationStride(instance.lodStride);
                 // Determine behavior based on config
                 if (behavior == CullingBehavior.PAUSE_AND_HIDE) {
                     continue;
                 }
             }
 
-            // [核心] 唤醒与同步
-            // 当再次可见时，检查是否需要 Seek
-            double elapsed = now - instance.startSeconds;
-            int expectedFrame = (int) (elapsed * instance.targetFps);
-
-            if (Math.abs(instance.renderedFrames - expectedFrame) > 5) {
-                instance.streamer.seek(expectedFrame);
-                instance.renderedFrames = expectedFrame;
-            }
-
-            ByteBuffer frameData = instance.getNextFrame();
-
-            // 使用 slice() 创建缓冲区视图
-            if (isVisible && frameData != null && frameData.remaining() > 0) {
-                renderedInstancesCount++;
-                ByteBuffer readBuffer = frameData.slice();
-
-                int particleCount = readBuffer.remaining() / AnimationFrame.BYTES_PER_PARTICLE;
-                totalParticles += particleCount;
+            // [核心] 唤醒与同步：追帧还是 Seek 由实例的播放时钟统一决定
+            AnimationFrame frame = instance.getNextFrame(snapshot);
 
+            if (isVisible && frame != null && frame.particleCount > 0) {
                 Vec3d origin = instance.getOrigin();
 
                 // 计算粒子系统原点相对于相机的偏移
@@ -521,63 +470,72 @@ public class ClientAnimationManager {
                 float relY = (float) (origin.y - cameraPos.y);
                 float relZ = (float) (origin.z - cameraPos.z);
 
-                // 计算插值系数
-                // (now, elapsed 均已在上文计算)
-                double currentFrameFloat = elapsed * instance.targetFps;
-
-                float partialTicks = (float) (currentFrameFloat - (instance.renderedFrames - 1));
-                if (partialTicks < 0)
-                    partialTicks = 0;
-                if (partialTicks > 1)
-                    partialTicks = 1;
-
-                // 使用 GPU 渲染器绘制
-                if (isOIT) {
-                    GpuParticleRenderer.renderOITBatch(
-                            readBuffer,
-                            particleCount,
-                            modelViewMatrix,
-                            projMatrix,
-                            relX,
-                            relY,
-                            relZ,
-                            true,
-                            instance.getTextureId(),
-                            partialTicks);
-                } else {
-                    GpuParticleRenderer.renderStandardBatch(
-                            readBuffer,
-                            particleCount,
-                            relX,
-                            relY,
-                            relZ,
-                            true,
-                            instance.getTextureId(),
-                            partialTicks);
+                // [优化] 把视角交给解码线程，用于之后帧的深度排序
+                if (depthSort) {
+                    instance.streamer.updateSortView(-relX, -relY, -relZ, fwdX, fwdY, fwdZ);
                 }
+
+                // 计算插值系数
+                float partialTicks = instance.clock.getPartialTicks(now);
+
+                // 登记到预算，分配完成后再按优先级提交
+                budgetManager.add(new PendingDraw(instance, frame, relX, relY, relZ, partialTicks),
+                        instance.streamer, frame.sourceParticleCount, instance.lodStride,
+                        instance.projectedPixels, instance.cameraDistance, elapsed);
             }
         }
 
+        // 【粒子预算】按优先级分配份额并设置之后帧的抽稀步长，本帧超出预算的低优先级实例直接跳过
+        budgetManager.allocate();
+        for (int i = 0; i < budgetManager.size(); i++) {
+            PendingDraw draw = budgetManager.get(i).getOwner();
+            if (!budgetManager.tryConsume(draw.frame.particleCount))
+                continue;
+
+            renderedInstancesCount++;
+            totalParticles += draw.frame.particleCount;
+
+            // 提交到合并批次
+            GpuParticleRenderer.submitInstance(
+                    draw.frame,
+                    draw.relX,
+                    draw.relY,
+                    draw.relZ,
+                    true,
+                    draw.instance.getTextureId(),
+                    draw.instance.getLayerBase(),
+                    draw.instance.hasBinaryAlpha(),
+                    draw.partialTicks);
+        }
+        budgetManager.end();
+
         currentParticleCount = totalParticles;
+        currentRenderedInstanceCount = renderedInstancesCount;
 
-        if (!renderList.isEmpty()) {
-            if (isOIT) {
-                GpuParticleRenderer.endOITAndComposite(targetFboId);
-            } else {
-                GpuParticleRenderer.endStandardRendering();
-            }
+        if (isOIT) {
+            GpuParticleRenderer.endOITAndComposite(targetFboId);
+        } else {
+            GpuParticleRenderer.endStandardRendering();
         }
+    }
 
-        if (shouldCollectStats && stats != null) {
-            // 更新性能统计
-            stats.setParticleCount(totalParticles);
-            stats.setInstanceCount(renderedInstancesCount);
-            float effectiveEmissive = IrisUtil.isIrisRenderingActive()
-                    ? config.getEmissiveStrength()
-                    : 1.0f;
-
-            stats.setEmissiveStrength(effectiveEmissive);
-            stats.endFrame();
+    private void updateFrameStats(PerformanceStats stats, ModConfig config) {
+        // 更新性能统计
+        stats.setParticleCount(currentParticleCount);
+        stats.setInstanceCount(currentRenderedInstanceCount);
+        stats.setParticleBudget(budgetManager.getBudget(), budgetManager.getTotalDemand(),
+                budgetManager.getDropped());
+        float effectiveEmissive = FrameSnapshot.current().isIrisActive()
+                ? config.getEmissiveStrength()
+                : 1.0f;
+
+        stats.setEmissiveStrength(effectiveEmissive);
+        stats.endFrame();
+
+        // [自适应] 把本帧耗时交给画质控制器
+        if (config.getAdaptiveQuality()) {
+            AdaptiveQualityController.getInstance().onFrame(stats.getRenderTimeMs(), currentParticleCount,
+                    config.getAdaptiveTargetMs());
         }
     }
 
@@ -585,6 +543,7 @@ public class ClientAnimationManager {
      * 清除所有动画实例
      */
     public void clearAllInstances() {
+        scheduledPlays.clear();
         synchronized (activeInstances) {
             for (AnimationInstance instance : activeInstances) {
                 instance.stop();
@@ -605,6 +564,41 @@ public class ClientAnimationManager {
         return currentParticleCount;
     }
 
+    /**
+     * 等待开始的延迟播放
+     */
+    private static class ScheduledPlay {
+        final String name;
+        final Vec3d origin;
+        int remainingTicks;
+
+        ScheduledPlay(String name, Vec3d origin, int remainingTicks) {
+            this.name = name;
+            this.origin = origin;
+            this.remainingTicks = remainingTicks;
+        }
+    }
+
+    /**
+     * 等待预算分配后提交的绘制
+     */
+    private static class PendingDraw {
+        final AnimationInstance instance;
+        final AnimationFrame frame;
+        final float relX, relY, relZ;
+        final float partialTicks;
+
+        PendingDraw(AnimationInstance instance, AnimationFrame frame, float relX, float relY, float relZ,
+                float partialTicks) {
+            this.instance = instance;
+            this.frame = frame;
+            this.relX = relX;
+            this.relY = relY;
+            this.relZ = relZ;
+            this.partialTicks = partialTicks;
+        }
+    }
+
     /**
      * 动画实例类
      */
@@ -615,15 +609,30 @@ public class ClientAnimationManager {
         private Thread streamerThread;
         // 时间控制
         private double startSeconds;
-        private int renderedFrames;
+        private PlaybackClock clock;
         private int targetFps;
         // 状态
         private boolean isStarted = false;
         private volatile boolean isFinished = false;
         private boolean texturesLoaded = false;
+        // 逐帧包围盒的临时数组 (只在渲染线程使用)
+        private final float[] frameBoundsMin = new float[3];
+        private final float[] frameBoundsMax = new float[3];
+        // 包围盒表只记录粒子中心，外扩以覆盖粒子本身的尺寸；尚未解码出尺寸时使用的最小外扩
+        private static final double FRAME_BOUNDS_PADDING = 1.0;
+        // 离线渲染时等待单帧解码的最长时间
+        private static final long OFFLINE_WAIT_TIMEOUT_NS = 5_000_000_000L;
+        // LOD 回落到更精细档位前要求投影尺寸多出的比例，避免在档位边界来回切换
+        private static final double LOD_HYSTERESIS = 1.25;
+        // 最近一次计算的 LOD 步长、投影半径 (像素) 与相机距离，供预算分配使用
+        private int lodStride = 1;
+        private double projectedPixels;
+        private double cameraDistance;
 
         // 缓存的帧数据
-        private ByteBuffer lastFrameData;
+        private AnimationFrame lastFrameData;
+        // GPU 解码模式下的解码器 (首次收到原始帧时在渲染线程创建)
+        private GpuFrameDecoder decoder;
 
         // 【架构变更】持有共享纹理资源
         private final SharedTextureResource textureResource;
@@ -640,21 +649,24 @@ public class ClientAnimationManager {
             this.targetFps = streamer.getTargetFps();
         }
 
-        public void start() {
+        /**
+         * @param elapsedSeconds 起始进度 (秒)，大于 0 时解码线程直接从对应关键帧开始
+         */
+        public void start(double elapsedSeconds) {
             if (isStarted)
                 return;
-            startStreamer();
+            startStreamer(Math.max(0, elapsedSeconds));
             isStarted = true;
         }
 
         // 抽取启动逻辑，方便重启
-        private void startStreamer() {
+        private void startStreamer(double elapsedSeconds) {
             if (streamerThread != null && streamerThread.isAlive()) {
                 streamer.stop();
             }
             // 重置之前可能存在的 lastFrameData (归还 Buffer)
             if (lastFrameData != null) {
-                NblStreamer.releaseBuffer(lastFrameData);
+                NblStreamer.releaseFrame(lastFrameData);
                 lastFrameData = null;
             }
 
@@ -669,14 +681,22 @@ public class ClientAnimationManager {
                 return;
             }
 
+            // 更新时间锚点 (迟到加入时提前)
+            double now = CurrentTimeUtil.getCurrentAnimationTime();
+            this.startSeconds = now - elapsedSeconds;
+            this.clock = new PlaybackClock(startSeconds, targetFps, streamer.getTotalFrames());
+            this.isFinished = false;
+
+            // [优化] 迟到加入：解码线程启动前就设定 Seek 目标，首帧即从关键帧开始，不从第 0 帧解起
+            int startFrame = clock.getCurrentFrame(now);
+            if (startFrame > 0 && startFrame < streamer.getTotalFrames()) {
+                streamer.seek(startFrame);
+                clock.expectSeek(startFrame, now);
+            }
+
             streamerThread = new Thread(streamer, "Nbl-Streamer-" + file.getName());
             streamerThread.setDaemon(true);
             streamerThread.start();
-
-            // 更新时间锚点
-            this.startSeconds = CurrentTimeUtil.getCurrentAnimationTime();
-            this.renderedFrames = 0;
-            this.isFinished = false;
         }
 
         public void ensureTexturesLoaded() {
@@ -690,12 +710,25 @@ public class ClientAnimationManager {
             return textureResource != null ? textureResource.getGlTextureId() : 0;
         }
 
-        public ByteBuffer getNextFrame() {
+        public int getLayerBase() {
+            return textureResource != null ? textureResource.getLayerBase() : 0;
+        }
+
+        public boolean hasBinaryAlpha() {
+            return textureResource != null && textureResource.getMap().hasBinaryAlpha();
+        }
+
+        /**
+         * 推进播放并返回当前应显示的帧
+         *
+         * @param snapshot 本帧的环境快照
+         */
+        public AnimationFrame getNextFrame(FrameSnapshot snapshot) {
             if (!isStarted || isFinished)
                 return null;
 
-            Double replayTime = CurrentTimeUtil.getReplayTime();
-            double now = CurrentTimeUtil.getCurrentAnimationTime();
+            Double replayTime = snapshot.getReplayTime();
+            double now = snapshot.getAnimationTime();
             double elapsed = now - startSeconds;
 
             int totalFrames = streamer.getTotalFrames();
@@ -717,79 +750,193 @@ public class ClientAnimationManager {
                 return null;
             }
 
-            // Standard Playback Logic
-            int expectedFrame = (int) Math.ceil(elapsed * targetFps);
-            if (expectedFrame < 0)
-                expectedFrame = 0;
-            if (expectedFrame >= totalFrames)
-                expectedFrame = totalFrames;
+            // 离线渲染 + CPU 解码：按帧号从帧环取出视频帧对应的那一帧
+            boolean blocking = snapshot.isRendering();
+            if (blocking && !streamer.isGpuDecode()) {
+                AnimationFrame offlineFrame = acquireOfflineFrame(now);
+                if (offlineFrame != null) {
+                    if (lastFrameData != null && lastFrameData != offlineFrame) {
+                        NblStreamer.releaseFrame(lastFrameData);
+                    }
+                    lastFrameData = offlineFrame;
+                    clock.onFramePresented(offlineFrame.frameIndex, now);
+                }
+                return lastFrameData;
+            }
+            if (!blocking) {
+                // 离开离线渲染后帧环里剩下的帧作废
+                streamer.getOfflineRing().clear();
+            }
 
-            // Simple Seek for jumps (forward or backward large jumps)
-            if (Math.abs(renderedFrames - expectedFrame) > 30) {
-                streamer.seek(expectedFrame);
-                renderedFrames = expectedFrame;
-                return lastFrameData; // Wait for seek
+            // 由播放时钟决定本 Tick 消费多少帧 (必要时它会发出 Seek)
+            // GPU 解码的逐帧渲染模式阻塞等待，保证每一帧都精确
+            int budget = clock.plan(now, streamer, blocking);
+            int targetCount = clock.getTargetCount(now);
+            if (targetCount >= totalFrames && !isFinished) {
+                // 播放到末尾时继续取帧，直到读到 EOF
+                budget = Math.max(budget, 1);
             }
 
-            ByteBuffer newData = null;
+            AnimationFrame newData = null;
+            int consumed = 0;
+            while (consumed < budget) {
+                AnimationFrame temp;
+                try {
+                    temp = blocking ? takeFrame() : pollFrame();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (newData != null)
+                        dropFrame(newData);
+                    return null;
+                }
+                if (temp == null)
+                    break;
 
-            if (CurrentTimeUtil.isRendering()) {
-                // Rendering mode: Block wait
-                if (renderedFrames < expectedFrame) {
-                    try {
-                        newData = streamer.getQueue().take();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        return null;
-                    }
+                if (temp == AnimationFrame.EOF) {
+                    if (newData != null)
+                        dropFrame(newData);
+                    stop(); // Finish
+                    return null;
                 }
-            } else {
-                // Standard mode: Non-blocking poll
-                int framesToCatchUp = expectedFrame - renderedFrames;
-                if (expectedFrame >= totalFrames && !isFinished) {
-                    framesToCatchUp = Math.max(framesToCatchUp, 1);
+
+                // Seek 之前已入队的旧帧直接丢弃，不计入本 Tick 的消费
+                if (clock.isStale(temp.frameIndex)) {
+                    dropFrame(temp);
+                    continue;
                 }
-                int maxCatchUp = Math.min(framesToCatchUp, 5);
-
-                for (int i = 0; i < maxCatchUp; i++) {
-                    try {
-                        ByteBuffer temp = streamer.getQueue().poll();
-                        if (temp != null) {
-                            if (newData != null) {
-                                NblStreamer.releaseBuffer(newData);
-                                renderedFrames++;
-                            }
-                            newData = temp;
-                        } else {
-                            break;
-                        }
-                    } catch (Exception e) {
-                        break;
-                    }
+
+                // 追帧时只显示最新的一帧
+                if (newData != null) {
+                    clock.onFrameSkipped(newData.frameIndex);
+                    dropFrame(newData);
                 }
+                newData = temp;
+                consumed++;
+                if (newData.frameIndex + 1 >= targetCount)
+                    break;
             }
 
             // 处理新数据
             if (newData != null) {
-                if (newData.capacity() == 0) {
-                    // EOF buffer
-                    stop(); // Finish
-                    NblStreamer.releaseBuffer(newData); // Release EOF buffer
-                    return null;
+                int frameIndex = newData.frameIndex;
+
+                // GPU 解码：应用到 GPU 状态，实例当前帧改为解码器的输出
+                if (newData.encoded) {
+                    decodeFrame(newData, true);
+                    newData = decoder.getOutput();
                 }
 
                 // [CRITICAL] 切换到新帧时，归还旧帧的 Buffer
-                if (lastFrameData != null) {
-                    NblStreamer.releaseBuffer(lastFrameData);
+                if (lastFrameData != null && lastFrameData != newData) {
+                    NblStreamer.releaseFrame(lastFrameData);
                 }
 
                 lastFrameData = newData;
-                renderedFrames++;
+                clock.onFramePresented(frameIndex, now);
             }
 
             return lastFrameData;
         }
 
+        /**
+         * 离线渲染时取出当前视频帧对应的动画帧
+         * <p>
+         * 解码线程按视频帧率预先解码并把需要的帧按帧号放进帧环，这里直接按帧号取出，
+         * 不再按 FIFO 顺序逐个 take。只有所需的帧确实还没解码完时才会等待 (为了导出结果确定)，
+         * 解码线程错过了该帧 (采样预测失误) 时回退为一次 Seek。
+         * </p>
+         *
+         * @param now 当前动画时间 (秒)
+         * @return 新的帧，保持当前帧时返回 null
+         */
+        private AnimationFrame acquireOfflineFrame(double now) {
+            int targetIndex = clock.getTargetCount(now) - 1;
+            int presentedIndex = clock.getRenderedFrames() - 1;
+            if (targetIndex < 0 || targetIndex == presentedIndex)
+                return null;
+
+            // 刚进入离线渲染时，队列里的实时帧作废
+            AnimationFrame stale;
+            while ((stale = pollFrame()) != null) {
+                if (stale != AnimationFrame.EOF)
+                    dropFrame(stale);
+            }
+
+            streamer.requestOfflineFrame(targetIndex, clock.getPosition(now));
+            FrameRing ring = streamer.getOfflineRing();
+            ring.releaseBefore(targetIndex);
+
+            // 倒带或远距离跳转直接 Seek
+            boolean seekIssued = false;
+            if (targetIndex < presentedIndex
+                    || targetIndex > streamer.getDecodePosition() + NblStreamer.FAST_FORWARD_LIMIT) {
+                streamer.seek(targetIndex);
+                seekIssued = true;
+            }
+
+            long deadline = System.nanoTime() + OFFLINE_WAIT_TIMEOUT_NS;
+            while (isStarted && !isFinished) {
+                AnimationFrame frame = ring.take(targetIndex);
+                if (frame != null)
+                    return frame;
+
+                // 解码位置已越过目标帧却没有输出：回到该帧重新解码
+                if (!seekIssued && streamer.getDecodePosition() > targetIndex) {
+                    streamer.seek(targetIndex);
+                    seekIssued = true;
+                }
+
+                if (System.nanoTime() > deadline) {
+                    Nebula.LOGGER.warn("[ClientAnimationManager] Offline frame {} of {} not ready in time, keeping previous frame",
+                            targetIndex, file.getName());
+                    return null;
+                }
+                LockSupport.parkNanos(200_000L);
+            }
+            return null;
+        }
+
+        /**
+         * 取出下一个要显示的帧；GPU 解码模式下顺带按顺序应用快进中的帧
+         */
+        private AnimationFrame pollFrame() {
+            while (true) {
+                AnimationFrame frame = streamer.getQueue().poll();
+                if (frame == null || !frame.decodeOnly)
+                    return frame;
+                decodeFrame(frame, false);
+            }
+        }
+
+        private AnimationFrame takeFrame() throws InterruptedException {
+            while (true) {
+                AnimationFrame frame = streamer.getQueue().take();
+                if (!frame.decodeOnly)
+                    return frame;
+                decodeFrame(frame, false);
+            }
+        }
+
+        /**
+         * 丢弃一个不显示的帧 (追帧)。GPU 解码模式下状态在 GPU 上，仍需应用该帧。
+         */
+        private void dropFrame(AnimationFrame frame) {
+            if (frame.encoded) {
+                decodeFrame(frame, false);
+            } else {
+                NblStreamer.releaseFrame(frame);
+            }
+        }
+
+        private void decodeFrame(AnimationFrame frame, boolean writeOutput) {
+            if (decoder == null) {
+                decoder = new GpuFrameDecoder(
+                        textureResource != null ? textureResource.getMap() : TextureAtlasMap.EMPTY);
+            }
+            decoder.apply(frame, writeOutput, streamer.getDecimationStride());
+            NblStreamer.releaseFrame(frame);
+        }
+
         public void stop() {
             if (isFinished)
                 return;
@@ -800,9 +947,18 @@ public class ClientAnimationManager {
             }
             // 停止时归还持有的 Buffer
             if (lastFrameData != null) {
-                NblStreamer.releaseBuffer(lastFrameData);
+                NblStreamer.releaseFrame(lastFrameData);
                 lastFrameData = null;
             }
+            if (decoder != null) {
+                GpuFrameDecoder toDestroy = decoder;
+                decoder = null;
+                if (RenderSystem.isOnRenderThread()) {
+                    toDestroy.destroy();
+                } else {
+                    MinecraftClient.getInstance().execute(toDestroy::destroy);
+                }
+            }
 
             // 释放纹理资源引用 (Reference Counting)
             // 只有当实例彻底销毁时才释放
@@ -819,9 +975,83 @@ public class ClientAnimationManager {
             return origin;
         }
 
-        public Box getWorldBoundingBox() {
+        /**
+         * 按包围盒的屏幕投影尺寸更新 LOD 步长
+         * <p>
+         * 步长取 2 的幂：投影半径每缩小一半步长翻倍，保证不同档位保留的粒子子集互相嵌套。
+         * 相机位于包围盒内时始终保持完整细节。结果只记录在实例上，由预算分配统一下发给解码线程。
+         * </p>
+         *
+         * @param worldBbox  当前帧的世界坐标包围盒，可为 null
+         * @param cameraPos  相机位置
+         * @param pixelScale 单位距离上 1 格对应的像素数
+         * @param fullPixels 保持完整细节的最小投影半径，0 表示关闭 LOD
+         * @param maxStride  最大步长 (2 的幂)
+         */
+        public void updateLod(Box worldBbox, Vec3d cameraPos, double pixelScale, int fullPixels, int maxStride) {
+            if (worldBbox == null) {
+                lodStride = 1;
+                projectedPixels = 0;
+                cameraDistance = origin.distanceTo(cameraPos);
+                return;
+            }
+
+            double dx = worldBbox.getLengthX() * 0.5;
+            double dy = worldBbox.getLengthY() * 0.5;
+            double dz = worldBbox.getLengthZ() * 0.5;
+            double radius = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            cameraDistance = Math.sqrt(worldBbox.getCenter().squaredDistanceTo(cameraPos));
+            // 相机在包围盒内时视为铺满屏幕
+            projectedPixels = worldBbox.contains(cameraPos)
+                    ? pixelScale
+                    : radius / Math.max(cameraDistance, 1.0e-3) * pixelScale;
+
+            if (fullPixels <= 0 || worldBbox.contains(cameraPos)) {
+                lodStride = 1;
+                return;
+            }
+
+            double ratio = fullPixels / Math.max(projectedPixels, 1.0e-3);
+            int stride = strideFor(ratio, maxStride);
+            if (stride < lodStride) {
+                // 变精细时要求多出一段余量，抵消包围盒逐帧抖动
+                stride = Math.min(lodStride, strideFor(ratio * LOD_HYSTERESIS, maxStride));
+            }
+            lodStride = stride;
+        }
+
+        private static int strideFor(double ratio, int maxStride) {
+            if (ratio < 2.0)
+                return 1;
+            int stride = Integer.highestOneBit((int) Math.min(ratio, maxStride));
+            return Math.max(1, stride);
+        }
+
+        /**
+         * 获取某一帧的世界坐标包围盒
+         * <p>
+         * 文件带有逐帧包围盒表时使用该帧附近的紧凑包围盒，按见过的最大粒子尺寸与当前 LOD 放大系数外扩
+         * (不小于 {@link #FRAME_BOUNDS_PADDING})，否则退回头部记录的整段动画包围盒。
+         * </p>
+         *
+         * @param frameIndex 帧号
+         */
+        public Box getWorldBoundingBox(int frameIndex) {
             if (streamer == null)
                 return null;
+            if (streamer.getFrameBounds(frameIndex, frameBoundsMin, frameBoundsMax)) {
+                // 面向相机的方形粒子四角到中心的距离为 size / sqrt(2)，抽稀后尺寸再乘 sqrt(stride)
+                double padding = Math.max(FRAME_BOUNDS_PADDING,
+                        streamer.getMaxParticleSize() * Math.sqrt(streamer.getDecimationStride() / 2.0));
+                return new Box(
+                        origin.x + frameBoundsMin[0] - padding,
+                        origin.y + frameBoundsMin[1] - padding,
+                        origin.z + frameBoundsMin[2] - padding,
+                        origin.x + frameBoundsMax[0] + padding,
+                        origin.y + frameBoundsMax[1] + padding,
+                        origin.z + frameBoundsMax[2] + padding);
+            }
+
             float[] bboxMin = streamer.getBboxMin();
             float[] bboxMax = streamer.getBboxMax();
             if (bboxMin == null || bboxMax == null)
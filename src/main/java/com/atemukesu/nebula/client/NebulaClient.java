@@ -42,12 +42,19 @@ import com.atemukesu.nebula.client.command.NebulaToolsCommand;
 import com.atemukesu.nebula.Nebula;
 import com.atemukesu.nebula.client.enums.BlendMode;
 import com.atemukesu.nebula.client.gui.screen.NblSyncScreen;
+import com.atemukesu.nebula.client.loader.AnimationDownloader;
+import com.atemukesu.nebula.client.loader.AnimationPreloader;
+import com.atemukesu.nebula.client.loader.AnimationStore;
 import com.atemukesu.nebula.client.loader.ClientAnimationLoader;
 import com.atemukesu.nebula.client.render.GpuParticleRenderer;
 import com.atemukesu.nebula.client.config.ConfigManager;
 import com.atemukesu.nebula.client.config.ModConfig;
+import com.atemukesu.nebula.client.util.AnimationIdRegistry;
 import com.atemukesu.nebula.client.util.CurrentTimeUtil;
+import com.atemukesu.nebula.client.util.ManifestCache;
+import com.atemukesu.nebula.networking.AnimationManifest;
 import com.atemukesu.nebula.networking.ModPackets;
+import com.atemukesu.nebula.networking.PlayBatch;
 import com.atemukesu.nebula.client.gui.DebugHud;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
@@ -63,6 +70,7 @@ import net.minecraft.text.Text;
 /*import net.minecraft.util.math.Vec3d;
 *///? }
 
+import java.io.IOException;
 import java.util.Map;
 
 public class NebulaClient implements ClientModInitializer {
@@ -78,7 +86,10 @@ public class NebulaClient implements ClientModInitializer {
         ClientLifecycleEvents.CLIENT_STOPPING.register(client -> ClientAnimationLoader.shutdownExecutor());
 
         // 负责驱动"常规模式"下的动画更新
-        ClientTickEvents.END_CLIENT_TICK.register(client -> ClientAnimationManager.getInstance().tick(client));
+        ClientTickEvents.END_CLIENT_TICK.register(client -> {
+            ClientAnimationManager.getInstance().tick(client);
+            AnimationPreloader.getInstance().tick();
+        });
 
         // 【渲染路径分离】
         // 原版模式：使用 WorldRenderEvents.LAST 事件进行渲染
@@ -107,6 +118,12 @@ public class NebulaClient implements ClientModInitializer {
                     client.execute(() -> ClientAnimationManager.getInstance().playAnimation(animationName, origin));
                 });
 
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.PLAY_BATCH_S2C,
+                (client, handler, buf, responseSender) -> {
+                    byte[] data = buf.readByteArray();
+                    client.execute(() -> handlePlayBatch(data));
+                });
+
         ClientPlayNetworking.registerGlobalReceiver(ModPackets.CLEAR_ANIMATIONS_S2C,
                 (client, handler, buf, responseSender) -> client.execute(() -> ClientAnimationManager.getInstance().clearAllInstances()));
 
@@ -145,7 +162,7 @@ public class NebulaClient implements ClientModInitializer {
                         }));
 
 
-        ClientPlayNetworking.registerGlobalReceiver(ModPackets.SYNC_DATA,
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.MANIFEST_SUMMARY_S2C,
                 (client, handler, buf, responseSender) -> {
                     if (CurrentTimeUtil.isInReplay()) {
                         return;
@@ -155,26 +172,14 @@ public class NebulaClient implements ClientModInitializer {
                         Nebula.LOGGER.info("Singleplayer mode detected and sync disabled in config, skipping animation sync.");
                         return;
                     }
-                    int count = buf.readInt();
-                    java.util.Map<String, String> hashes = new java.util.HashMap<>();
-                    for (int i = 0; i < count; i++) {
-                        String name = buf.readString();
-                        String hash = buf.readString();
-                        hashes.put(name, hash);
-                    }
-                    client.execute(() -> {
-                        if (NebulaClient.isReloading) {
-                            pendingSyncHashes = hashes;
-                            return;
-                        }
-                        if (client.player != null) {
-                            // 一切正常，打开界面
-                            openSyncScreenIfNecessary(client, hashes);
-                        } else {
-                            // 玩家还没进服（登录中），存起来等 JOIN 事件
-                            pendingSyncHashes = hashes;
-                        }
-                    });
+                    byte[] data = buf.readByteArray();
+                    client.execute(() -> handleManifestSummary(client, data));
+                });
+
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.MANIFEST_ENTRIES_S2C,
+                (client, handler, buf, responseSender) -> {
+                    byte[] data = buf.readByteArray();
+                    client.execute(() -> handleManifestEntries(client, data));
                 });
 
         *///? } else {
@@ -184,6 +189,10 @@ public class NebulaClient implements ClientModInitializer {
                 ClientAnimationManager.getInstance().playAnimation(payload.animationName(), payload.origin())
         ));
 
+        // 1b. Play Batch
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.PlayBatchPayload.ID, (payload, context) ->
+                context.client().execute(() -> handlePlayBatch(payload.data())));
+
         // 2. Clear Animations
         ClientPlayNetworking.registerGlobalReceiver(ModPackets.ClearAnimationsPayload.ID, (payload, context) -> context.client().execute(() ->
                 ClientAnimationManager.getInstance().clearAllInstances()
@@ -218,8 +227,8 @@ public class NebulaClient implements ClientModInitializer {
                             });
                 }));
 
-        // 4. Sync Data
-        ClientPlayNetworking.registerGlobalReceiver(ModPackets.SyncDataPayload.ID, (payload, context) -> {
+        // 4. Manifest Summary
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.ManifestSummaryPayload.ID, (payload, context) -> {
             // 检测到 Replay 环境直接跳过同步
             if (CurrentTimeUtil.isInReplay()) {
                 return;
@@ -229,25 +238,17 @@ public class NebulaClient implements ClientModInitializer {
                 Nebula.LOGGER.info("Singleplayer mode detected and sync disabled in config, skipping animation sync.");
                 return;
             }
-            java.util.Map<String, String> hashes = payload.hashes();
-
-            context.client().execute(() -> {
-                if (NebulaClient.isReloading) {
-                    Nebula.LOGGER.info("Client is reloading, queuing sync data until finished.");
-                    pendingSyncHashes = hashes;
-                    return;
-                }
-                if (context.client().player != null) {
-                    openSyncScreenIfNecessary(context.client(), hashes);
-                } else {
-                    pendingSyncHashes = hashes;
-                    Nebula.LOGGER.info("Received sync data during login, queued for JOIN event.");
-                }
-            });
-
+            context.client().execute(() -> handleManifestSummary(context.client(), payload.data()));
         });
+
+        // 5. Manifest Entries
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.ManifestEntriesPayload.ID, (payload, context) ->
+                context.client().execute(() -> handleManifestEntries(context.client(), payload.data())));
         //? }
 
+        AnimationDownloader.getInstance().registerReceivers();
+        AnimationPreloader.getInstance().registerReceivers();
+
         ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
             if (ModConfig.getInstance().getBlendMode() == BlendMode.OIT) {
                 int w = client.getWindow().getFramebufferWidth();
@@ -261,7 +262,135 @@ public class NebulaClient implements ClientModInitializer {
             }
         });
 
-        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> pendingSyncHashes = null);
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
+            pendingSyncHashes = null;
+            ManifestCache.getInstance().reset();
+            AnimationIdRegistry.getInstance().reset();
+            AnimationDownloader.getInstance().cancelAll();
+            AnimationPreloader.getInstance().releaseAll();
+            AnimationStore.getInstance().clearActiveView();
+        });
+    }
+
+    /**
+     * 处理批量播放包：先登记新的 ID 定义，再逐条播放（有 Tick 偏移的延后开始）
+     */
+    private void handlePlayBatch(byte[] data) {
+        PlayBatch.Decoded batch;
+        try {
+            batch = PlayBatch.decode(data);
+        } catch (IOException e) {
+            Nebula.LOGGER.error("Failed to decode play batch", e);
+            return;
+        }
+        AnimationIdRegistry registry = AnimationIdRegistry.getInstance();
+        batch.definitions().forEach(registry::define);
+        ClientAnimationManager manager = ClientAnimationManager.getInstance();
+        for (PlayBatch.Play play : batch.plays()) {
+            String name = registry.getName(play.id());
+            if (name == null) {
+                Nebula.LOGGER.warn("Received play for unknown animation id {}", play.id());
+                continue;
+            }
+            manager.schedulePlay(name, play.origin(), play.tickOffset());
+        }
+    }
+
+    /**
+     * 处理清单摘要：与本地缓存比对，决定跳过、直接使用缓存，还是请求差异桶
+     */
+    private void handleManifestSummary(MinecraftClient client, byte[] data) {
+        AnimationManifest.Summary summary;
+        try {
+            summary = AnimationManifest.decodeSummary(data);
+        } catch (IOException e) {
+            Nebula.LOGGER.error("Failed to decode manifest summary", e);
+            return;
+        }
+        if (summary.bucketDigests() == null) {
+            Nebula.LOGGER.warn("Server manifest format {} is not supported (expected {}), skipping animation sync.",
+                    summary.version(), AnimationManifest.FORMAT_VERSION);
+            return;
+        }
+
+        ManifestCache cache = ManifestCache.getInstance();
+        String serverKey = getServerKey(client);
+        cache.begin(serverKey);
+        long mask = cache.onSummary(summary);
+        if (mask == 0) {
+            AnimationStore.getInstance().activateView(serverKey, cache.getCurrent());
+            AnimationIdRegistry.getInstance().loadFrom(cache.getCurrent());
+            if (cache.isCurrentVerified() && cache.localFilesMatch()) {
+                Nebula.LOGGER.info("Animation manifest unchanged and already verified ({} entries), skipping sync.",
+                        summary.count());
+                return;
+            }
+            deliverSyncHashes(client, cache.getCurrent().toHashes());
+            return;
+        }
+        Nebula.LOGGER.info("Animation manifest changed, requesting {} of {} buckets.",
+                Long.bitCount(mask), AnimationManifest.BUCKETS);
+        sendManifestRequest(summary.digest(), mask);
+    }
+
+    /**
+     * 处理服务端返回的清单条目，合并成功后进入同步流程
+     */
+    private void handleManifestEntries(MinecraftClient client, byte[] data) {
+        AnimationManifest.EntriesChunk chunk;
+        try {
+            chunk = AnimationManifest.decodeEntries(data);
+        } catch (IOException e) {
+            Nebula.LOGGER.error("Failed to decode manifest entries", e);
+            return;
+        }
+        chunk = ManifestCache.getInstance().collectPart(chunk);
+        if (chunk == null) {
+            return;
+        }
+        AnimationManifest merged = ManifestCache.getInstance().onEntries(chunk);
+        if (merged == null) {
+            sendManifestRequest(chunk.digest(), AnimationManifest.ALL_BUCKETS);
+            return;
+        }
+        AnimationStore.getInstance().activateView(getServerKey(client), merged);
+        AnimationIdRegistry.getInstance().loadFrom(merged);
+        deliverSyncHashes(client, merged.toHashes());
+    }
+
+    private void deliverSyncHashes(MinecraftClient client, Map<String, String> hashes) {
+        if (NebulaClient.isReloading) {
+            Nebula.LOGGER.info("Client is reloading, queuing sync data until finished.");
+            pendingSyncHashes = hashes;
+            return;
+        }
+        if (client.player != null) {
+            openSyncScreenIfNecessary(client, hashes);
+        } else {
+            // 玩家还没进服（登录中），存起来等 JOIN 事件
+            pendingSyncHashes = hashes;
+            Nebula.LOGGER.info("Received sync data during login, queued for JOIN event.");
+        }
+    }
+
+    //? if >=1.21 {
+    private static void sendManifestRequest(long digest, long bucketMask) {
+        ClientPlayNetworking.send(new ModPackets.ManifestRequestPayload(digest, bucketMask));
+    }
+    //? } else {
+    /*private static void sendManifestRequest(long digest, long bucketMask) {
+        net.minecraft.network.PacketByteBuf buf = net.fabricmc.fabric.api.networking.v1.PacketByteBufs.create();
+        buf.writeVarLong(digest);
+        buf.writeVarLong(bucketMask);
+        ClientPlayNetworking.send(ModPackets.MANIFEST_REQUEST_C2S, buf);
+    }
+    *///? }
+
+    private static String getServerKey(MinecraftClient client) {
+        if (client.getCurrentServerEntry() != null) {
+            return client.getCurrentServerEntry().address;
+        }
+        return "singleplayer";
     }
 
     /**
@@ -45,6 +45,9 @@ import net.irisshaders.iris.api.v0.IrisApi;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL30;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Map;
@@ -64,6 +67,13 @@ public class IrisBridge {
     private Method getTranslucentFbMethod; // getTranslucentFramebuffer
     private Method bindFbMethod; // GlFramebuffer.bind
 
+    // 每帧调用的 Sodium 路径预先解析成方法句柄 (Object -> Object / void)
+    private Class<?> irisPipelineClass;
+    private MethodHandle getPipelineHandle; // () -> pipeline (已绑定 PipelineManager)
+    private MethodHandle getSodiumPipelineHandle;
+    private MethodHandle getTranslucentFbHandle;
+    private MethodHandle bindFbHandle;
+
     // Reflection handles (Util usage)
     private Class<?> irisInternalClass;
     private Method getPipelineManagerMethod;
@@ -124,7 +134,19 @@ public class IrisBridge {
 
                 Class<?> fbClass = Class.forName("net.irisshaders.iris.gl.framebuffer.GlFramebuffer");
                 bindFbMethod = fbClass.getMethod("bind");
-            } catch (ClassNotFoundException | NoSuchMethodException e) {
+
+                if (irisPipelineManager != null && getPipelineMethod != null) {
+                    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                    MethodType getter = MethodType.methodType(Object.class, Object.class);
+                    irisPipelineClass = pipelineClass;
+                    getPipelineHandle = lookup.unreflect(getPipelineMethod).bindTo(irisPipelineManager)
+                            .asType(MethodType.methodType(Object.class));
+                    getSodiumPipelineHandle = lookup.unreflect(getSodiumPipelineMethod).asType(getter);
+                    getTranslucentFbHandle = lookup.unreflect(getTranslucentFbMethod).asType(getter);
+                    bindFbHandle = lookup.unreflect(bindFbMethod)
+                            .asType(MethodType.methodType(void.class, Object.class));
+                }
+            } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
                 // Ignore specific pipeline failures, might be different version or setup
                 // Logic will degrade gracefully
                 Nebula.LOGGER.debug("[Nebula/IrisBridge] Specific pipeline methods not found: " + e.getMessage());
@@ -160,24 +182,24 @@ public class IrisBridge {
             return false;
         initReflection(); // Ensure init
 
-        if (irisPipelineManager == null || getPipelineMethod == null ||
-                getSodiumPipelineMethod == null || getTranslucentFbMethod == null || bindFbMethod == null) {
+        if (getPipelineHandle == null || getSodiumPipelineHandle == null ||
+                getTranslucentFbHandle == null || bindFbHandle == null) {
             return false;
         }
 
         try {
-            Object pipeline = getPipelineMethod.invoke(irisPipelineManager);
-            if (pipeline != null && pipeline.getClass().getName().contains("IrisRenderingPipeline")) {
-                Object sodiumPipeline = getSodiumPipelineMethod.invoke(pipeline);
+            Object pipeline = (Object) getPipelineHandle.invokeExact();
+            if (irisPipelineClass.isInstance(pipeline)) {
+                Object sodiumPipeline = (Object) getSodiumPipelineHandle.invokeExact(pipeline);
                 if (sodiumPipeline != null) {
-                    Object framebuffer = getTranslucentFbMethod.invoke(sodiumPipeline);
+                    Object framebuffer = (Object) getTranslucentFbHandle.invokeExact(sodiumPipeline);
                     if (framebuffer != null) {
-                        bindFbMethod.invoke(framebuffer);
+                        bindFbHandle.invokeExact(framebuffer);
                         return true;
                     }
                 }
             }
-        } catch (Exception e) {
+        } catch (Throwable e) {
             Nebula.LOGGER.warn("[Nebula/IrisBridge] Failed to bind Sodium FBO: " + e.getMessage());
         }
         return false;
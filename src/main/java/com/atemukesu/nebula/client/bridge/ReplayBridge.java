@@ -0,0 +1,172 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.bridge;
+
+import com.atemukesu.nebula.Nebula;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Replay Mod 桥接
+ * <p>
+ * 第一次使用时把 {@code ReplayModReplay.instance -> getReplayHandler() -> getReplaySender() -> currentTimeStamp()}
+ * 这条反射链解析成 {@link MethodHandle} (按声明的返回类型解析，与运行时实现类无关)，之后每次查询只是几次句柄调用，
+ * 不再有 Class.forName / getMethod。没有安装 Replay Mod 或签名不匹配时永久标记为不可用。
+ * </p>
+ */
+public class ReplayBridge {
+
+    private static final ReplayBridge INSTANCE = new ReplayBridge();
+
+    private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class);
+    private static final MethodType OBJECT_METHOD = MethodType.methodType(Object.class, Object.class);
+
+    private boolean initialized = false;
+    private boolean available = false;
+    private boolean hasLoggedFailure = false;
+
+    // () -> ReplayModReplay
+    private MethodHandle instanceGetter;
+    // (ReplayModReplay) -> ReplayHandler
+    private MethodHandle getReplayHandler;
+    // (ReplayHandler) -> ReplaySender
+    private MethodHandle getReplaySender;
+    // (ReplaySender) -> Number (毫秒)
+    private MethodHandle currentTimeStamp;
+
+    private ReplayBridge() {
+    }
+
+    public static ReplayBridge getInstance() {
+        return INSTANCE;
+    }
+
+    private void init() {
+        if (initialized)
+            return;
+        initialized = true;
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> replayModClass = Class.forName("com.replaymod.replay.ReplayModReplay");
+            instanceGetter = lookup.unreflectGetter(replayModClass.getField("instance")).asType(OBJECT_GETTER);
+
+            java.lang.reflect.Method handlerMethod = replayModClass.getMethod("getReplayHandler");
+            getReplayHandler = lookup.unreflect(handlerMethod).asType(OBJECT_METHOD);
+
+            java.lang.reflect.Method senderMethod = handlerMethod.getReturnType().getMethod("getReplaySender");
+            getReplaySender = lookup.unreflect(senderMethod).asType(OBJECT_METHOD);
+
+            java.lang.reflect.Method timeMethod = senderMethod.getReturnType().getMethod("currentTimeStamp");
+            currentTimeStamp = lookup.unreflect(timeMethod).asType(OBJECT_METHOD);
+
+            available = true;
+            Nebula.LOGGER.info("[ReplayBridge] Replay Mod handles resolved.");
+        } catch (ClassNotFoundException e) {
+            // Replay Mod 未安装，静默忽略
+        } catch (Exception e) {
+            Nebula.LOGGER.warn("[ReplayBridge] Unsupported Replay Mod version: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return Replay Mod 是否可用
+     */
+    public boolean isAvailable() {
+        init();
+        return available;
+    }
+
+    /**
+     * @return 当前的 ReplayHandler，不在回放中时为 null
+     */
+    private Object getReplayHandler() throws Throwable {
+        Object instance = instanceGetter.invokeExact();
+        if (instance == null)
+            return null;
+        return (Object) getReplayHandler.invokeExact(instance);
+    }
+
+    /**
+     * 获取回放的当前时间
+     *
+     * @return 秒，不在回放中时返回 null
+     */
+    public Double getReplayTime() {
+        if (!isAvailable())
+            return null;
+        try {
+            Object handler = getReplayHandler();
+            if (handler == null)
+                return null;
+            Object sender = (Object) getReplaySender.invokeExact(handler);
+            if (sender == null)
+                return null;
+            Object time = (Object) currentTimeStamp.invokeExact(sender);
+            if (time instanceof Number number)
+                return number.doubleValue() / 1000.0;
+        } catch (Throwable t) {
+            logFailure(t);
+        }
+        return null;
+    }
+
+    /**
+     * @return 是否在 Replay 回放环境中
+     */
+    public boolean isInReplay() {
+        if (!isAvailable())
+            return false;
+        try {
+            return getReplayHandler() != null;
+        } catch (Throwable t) {
+            logFailure(t);
+            return false;
+        }
+    }
+
+    private void logFailure(Throwable t) {
+        if (!hasLoggedFailure) {
+            Nebula.LOGGER.debug("[ReplayBridge] Failed to query Replay Mod: {}", t.getMessage());
+            hasLoggedFailure = true;
+        }
+    }
+}
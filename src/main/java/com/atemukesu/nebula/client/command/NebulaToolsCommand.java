@@ -128,7 +128,7 @@ public class NebulaToolsCommand {
                                                                                                         .exists()) {
                                                                                                 try {
                                                                                                         String hash = com.atemukesu.nebula.util.NebulaHashUtils
-                                                                                                                        .getSecureSampleHash(
+                                                                                                                        .getContentHash(
                                                                                                                                         path);
                                                                                                         context.getSource()
                                                                                                                         .sendFeedback(Text
@@ -58,6 +58,16 @@ public class ModConfig {
     private BlendMode blendMode;
     private float emissiveStrength;
     private CullingBehavior cullingBehavior;
+    private boolean gpuDecode;
+    private boolean depthSort;
+    private boolean gpuCulling;
+    private boolean lodEnabled;
+    private int lodFullDetailPixels;
+    private int lodMaxStride;
+    private int particleBudget;
+    private boolean adaptiveQuality;
+    private float adaptiveTargetMs;
+    private int storeQuotaMb;
     
     // 测试选项
     private boolean syncSingleplayerAnimations;
@@ -74,6 +84,23 @@ public class ModConfig {
         // 默认使用用户自定义的亮度
         this.emissiveStrength = 2.0f;
         this.cullingBehavior = CullingBehavior.SIMULATE_ONLY;
+        // 默认使用 GPU 解码 (不支持 Compute Shader 时自动回退到 CPU)
+        this.gpuDecode = true;
+        // 默认关闭深度排序 (只在标准混合模式下生效)
+        this.depthSort = false;
+        // 默认开启 GPU 逐粒子剔除 (不支持 Compute Shader 时自动关闭)
+        this.gpuCulling = true;
+        // 默认开启距离 LOD：包围盒投影半径小于 256 像素后开始抽稀，最多只保留 1/8
+        this.lodEnabled = true;
+        this.lodFullDetailPixels = 256;
+        this.lodMaxStride = 8;
+        // 每帧最多绘制 200 万粒子，0 表示不限制
+        this.particleBudget = 2_000_000;
+        // 自适应画质：把 Nebula 每帧的渲染耗时控制在 6ms 以内
+        this.adaptiveQuality = true;
+        this.adaptiveTargetMs = 6.0f;
+        // 内容寻址仓库配额 8 GB，超出后按 LRU 回收，0 表示不限制
+        this.storeQuotaMb = 8192;
         // 默认关闭单人模式动画同步（测试用）
         this.syncSingleplayerAnimations = false;
     }
@@ -182,6 +209,158 @@ public class ModConfig {
         this.cullingBehavior = cullingBehavior;
     }
     
+    /**
+     * 获取是否使用 Compute Shader 在 GPU 上解码帧数据
+     * <p>
+     * 只影响之后新开始播放的动画。
+     * </p>
+     *
+     * @return GPU 解码开关
+     */
+    public boolean getGpuDecode() {
+        return gpuDecode;
+    }
+
+    /**
+     * 设置是否使用 Compute Shader 在 GPU 上解码帧数据
+     *
+     * @param gpuDecode GPU 解码开关
+     */
+    public void setGpuDecode(Boolean gpuDecode) {
+        this.gpuDecode = gpuDecode;
+    }
+
+    /**
+     * 获取是否在标准混合模式下按视深从远到近排序粒子
+     * <p>
+     * 只作用于 CPU 解码路径；OIT 模式不需要排序。
+     * </p>
+     *
+     * @return 深度排序开关
+     */
+    public boolean getDepthSort() {
+        return depthSort;
+    }
+
+    /**
+     * 设置是否在标准混合模式下按视深排序粒子
+     *
+     * @param depthSort 深度排序开关
+     */
+    public void setDepthSort(Boolean depthSort) {
+        this.depthSort = depthSort;
+    }
+
+    /**
+     * 获取是否使用 Compute Shader 逐粒子剔除视锥外和过小的粒子
+     *
+     * @return GPU 剔除开关
+     */
+    public boolean getGpuCulling() {
+        return gpuCulling;
+    }
+
+    /**
+     * 设置是否使用 Compute Shader 逐粒子剔除
+     *
+     * @param gpuCulling GPU 剔除开关
+     */
+    public void setGpuCulling(Boolean gpuCulling) {
+        this.gpuCulling = gpuCulling;
+    }
+
+    /**
+     * 获取是否按屏幕大小对远处的动画抽稀输出 (LOD)
+     *
+     * @return LOD 开关
+     */
+    public boolean getLodEnabled() {
+        return lodEnabled;
+    }
+
+    public void setLodEnabled(Boolean lodEnabled) {
+        this.lodEnabled = lodEnabled;
+    }
+
+    /**
+     * 获取保持完整细节的最小投影半径 (像素)
+     * <p>
+     * 动画包围盒在屏幕上的半径小于该值时，每缩小一半抽稀步长翻倍。
+     * </p>
+     *
+     * @return 像素数
+     */
+    public int getLodFullDetailPixels() {
+        return lodFullDetailPixels;
+    }
+
+    public void setLodFullDetailPixels(Integer lodFullDetailPixels) {
+        this.lodFullDetailPixels = lodFullDetailPixels;
+    }
+
+    /**
+     * 获取最大抽稀步长 (向下取整到 2 的幂)
+     *
+     * @return 最大步长，1 表示不抽稀
+     */
+    public int getLodMaxStride() {
+        return lodMaxStride;
+    }
+
+    public void setLodMaxStride(Integer lodMaxStride) {
+        this.lodMaxStride = lodMaxStride;
+    }
+
+    /**
+     * 获取每帧的全局粒子预算
+     * <p>
+     * 所有可见实例的粒子总数超过预算时，按屏幕覆盖、距离和播放时长分配份额并抽稀输出。
+     * </p>
+     *
+     * @return 每帧粒子上限，0 表示不限制
+     */
+    public int getParticleBudget() {
+        return particleBudget;
+    }
+
+    public void setParticleBudget(Integer particleBudget) {
+        this.particleBudget = particleBudget;
+    }
+
+    /**
+     * 获取是否根据实测渲染耗时自动调整画质
+     *
+     * @return 自适应画质开关
+     */
+    public boolean getAdaptiveQuality() {
+        return adaptiveQuality;
+    }
+
+    public void setAdaptiveQuality(Boolean adaptiveQuality) {
+        this.adaptiveQuality = adaptiveQuality;
+    }
+
+    /**
+     * 获取自适应画质的目标渲染耗时
+     *
+     * @return 每帧毫秒数
+     */
+    public float getAdaptiveTargetMs() {
+        return adaptiveTargetMs;
+    }
+
+    public void setAdaptiveTargetMs(Float adaptiveTargetMs) {
+        this.adaptiveTargetMs = adaptiveTargetMs;
+    }
+
+    public int getStoreQuotaMb() {
+        return storeQuotaMb;
+    }
+
+    public void setStoreQuotaMb(Integer storeQuotaMb) {
+        this.storeQuotaMb = storeQuotaMb;
+    }
+
     /**
      * 获取单人模式是否启用动画同步
      * 
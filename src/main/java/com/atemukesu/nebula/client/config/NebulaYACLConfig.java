@@ -45,6 +45,7 @@ import dev.isxander.yacl3.api.*;
 import dev.isxander.yacl3.api.controller.BooleanControllerBuilder;
 import dev.isxander.yacl3.api.controller.EnumControllerBuilder;
 import dev.isxander.yacl3.api.controller.FloatSliderControllerBuilder;
+import dev.isxander.yacl3.api.controller.IntegerSliderControllerBuilder;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.text.Text;
 
@@ -97,6 +98,18 @@ public class NebulaYACLConfig {
                                                                                 config::setShowCharts)
                                                                 .controller(BooleanControllerBuilder::create)
                                                                 .build())
+                                                .option(Option.<Integer>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.store_quota_mb"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.store_quota_mb.desc")))
+                                                                .binding(8192, config::getStoreQuotaMb,
+                                                                                config::setStoreQuotaMb)
+                                                                .controller(opt -> IntegerSliderControllerBuilder
+                                                                                .create(opt)
+                                                                                .range(0, 65536)
+                                                                                .step(512))
+                                                                .build())
                                                 .option(Option.<Boolean>createBuilder()
                                                                 .name(Text.translatable(
                                                                                 "gui.nebula.config.sync_singleplayer"))
@@ -150,6 +163,99 @@ public class NebulaYACLConfig {
                                                                                 .range(1.0f, 10.0f)
                                                                                 .step(0.1f))
                                                                 .build())
+                                                .option(Option.<Boolean>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.gpu_decode"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.gpu_decode.desc")))
+                                                                .binding(true, config::getGpuDecode,
+                                                                                config::setGpuDecode)
+                                                                .controller(BooleanControllerBuilder::create)
+                                                                .build())
+                                                .option(Option.<Boolean>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.depth_sort"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.depth_sort.desc")))
+                                                                .binding(false, config::getDepthSort,
+                                                                                config::setDepthSort)
+                                                                .controller(BooleanControllerBuilder::create)
+                                                                .build())
+                                                .option(Option.<Boolean>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.gpu_culling"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.gpu_culling.desc")))
+                                                                .binding(true, config::getGpuCulling,
+                                                                                config::setGpuCulling)
+                                                                .controller(BooleanControllerBuilder::create)
+                                                                .build())
+                                                .option(Option.<Boolean>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.lod_enabled"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.lod_enabled.desc")))
+                                                                .binding(true, config::getLodEnabled,
+                                                                                config::setLodEnabled)
+                                                                .controller(BooleanControllerBuilder::create)
+                                                                .build())
+                                                .option(Option.<Integer>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.lod_full_detail_pixels"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.lod_full_detail_pixels.desc")))
+                                                                .binding(256, config::getLodFullDetailPixels,
+                                                                                config::setLodFullDetailPixels)
+                                                                .controller(opt -> IntegerSliderControllerBuilder
+                                                                                .create(opt)
+                                                                                .range(32, 1024)
+                                                                                .step(16))
+                                                                .build())
+                                                .option(Option.<Integer>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.lod_max_stride"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.lod_max_stride.desc")))
+                                                                .binding(8, config::getLodMaxStride,
+                                                                                config::setLodMaxStride)
+                                                                .controller(opt -> IntegerSliderControllerBuilder
+                                                                                .create(opt)
+                                                                                .range(1, 16)
+                                                                                .step(1))
+                                                                .build())
+                                                .option(Option.<Integer>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.particle_budget"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.particle_budget.desc")))
+                                                                .binding(2_000_000, config::getParticleBudget,
+                                                                                config::setParticleBudget)
+                                                                .controller(opt -> IntegerSliderControllerBuilder
+                                                                                .create(opt)
+                                                                                .range(0, 10_000_000)
+                                                                                .step(250_000))
+                                                                .build())
+                                                .option(Option.<Boolean>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.adaptive_quality"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.adaptive_quality.desc")))
+                                                                .binding(true, config::getAdaptiveQuality,
+                                                                                config::setAdaptiveQuality)
+                                                                .controller(BooleanControllerBuilder::create)
+                                                                .build())
+                                                .option(Option.<Float>createBuilder()
+                                                                .name(Text.translatable(
+                                                                                "gui.nebula.config.adaptive_target_ms"))
+                                                                .description(OptionDescription.of(Text.translatable(
+                                                                                "gui.nebula.config.adaptive_target_ms.desc")))
+                                                                .binding(6.0f, config::getAdaptiveTargetMs,
+                                                                                config::setAdaptiveTargetMs)
+                                                                .controller(opt -> FloatSliderControllerBuilder
+                                                                                .create(opt)
+                                                                                .range(1.0f, 20.0f)
+                                                                                .step(0.5f))
+                                                                .build())
                                                 .build())
 
                                 .save(ConfigManager::saveConfig)
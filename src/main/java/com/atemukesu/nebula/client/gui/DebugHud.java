@@ -41,6 +41,7 @@ package com.atemukesu.nebula.client.gui;
 import com.atemukesu.nebula.Nebula;
 import com.atemukesu.nebula.client.gui.tools.PerformanceStats;
 import com.atemukesu.nebula.client.config.ModConfig;
+import com.atemukesu.nebula.client.render.AdaptiveQualityController;
 import com.mojang.blaze3d.systems.RenderSystem;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
 import net.minecraft.client.MinecraftClient;
@@ -97,7 +98,8 @@ public class DebugHud {
 
         // 1. 控制是否开启统计
         boolean showHud = config.getShowDebugHud();
-        stats.setEnabled(showHud);
+        // 自适应画质需要帧计时，HUD 关闭时也保持采集
+        stats.setEnabled(showHud || config.getAdaptiveQuality());
 
         if (!showHud)
             return;
@@ -188,6 +190,26 @@ public class DebugHud {
             cachedLines.add(new CachedLine(
                     String.format("Particles: %,d | Instances: %d", stats.getParticleCount(), stats.getInstanceCount()),
                     0xAAAAFF));
+            int budget = stats.getParticleBudget();
+            if (budget > 0) {
+                double utilization = stats.getParticleCount() * 100.0 / budget;
+                cachedLines.add(new CachedLine(
+                        String.format("Budget: %,d / %,d (%.0f%%) | Demand: %,d | Dropped: %d",
+                                stats.getParticleCount(), budget, utilization, stats.getParticleDemand(),
+                                stats.getBudgetDroppedInstances()),
+                        stats.getParticleDemand() > budget ? 0xFFAA55 : 0xAAAAFF));
+            } else {
+                cachedLines.add(new CachedLine(
+                        String.format("Budget: unlimited | Demand: %,d", stats.getParticleDemand()), 0xAAAAFF));
+            }
+            if (config.getAdaptiveQuality()) {
+                AdaptiveQualityController quality = AdaptiveQualityController.getInstance();
+                cachedLines.add(new CachedLine(
+                        String.format("Quality: %d/%d | Avg: %.2fms / %.2fms | OIT: %s", quality.getLevel(),
+                                AdaptiveQualityController.MAX_LEVEL, quality.getLastAverageMs(),
+                                config.getAdaptiveTargetMs(), quality.allowOit() ? "on" : "off"),
+                        quality.getLevel() == 0 ? 0xAAFFAA : 0xFFAA55));
+            }
             cachedLines.add(
                     new CachedLine(String.format("Buffer: %s / %s", stats.formatBufferSize(stats.getUsedBufferBytes()),
                             stats.formatBufferSize(stats.getBufferSizeBytes())), 0xAAFFAA));
@@ -39,6 +39,11 @@
 package com.atemukesu.nebula.client.gui.screen;
 
 import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.client.loader.AnimationDownloader;
+import com.atemukesu.nebula.client.config.ModConfig;
+import com.atemukesu.nebula.client.loader.AnimationStore;
+import com.atemukesu.nebula.client.util.ManifestCache;
+import com.atemukesu.nebula.networking.AnimationManifest;
 import com.atemukesu.nebula.particle.loader.AnimationLoader;
 import com.atemukesu.nebula.util.NebulaHashUtils;
 import net.minecraft.client.MinecraftClient;
@@ -56,12 +61,18 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class NblSyncScreen extends Screen {
 
     private Map<String, String> serverHashes;
+    // 与 serverHashes 对应的二进制清单，用于按摘要下载缺失 / 不一致的文件
+    private AnimationManifest manifest;
+    private volatile String downloadingName;
     private volatile boolean isSyncing = false;
     private volatile boolean syncCompleted = false;
     private final AtomicBoolean shouldAbort = new AtomicBoolean(false);
@@ -85,6 +96,8 @@ public class NblSyncScreen extends Screen {
 
     public void setServerHashes(Map<String, String> hashes) {
         this.serverHashes = hashes;
+        AnimationManifest current = ManifestCache.getInstance().getCurrent();
+        this.manifest = current != null && current.toHashes() == hashes ? current : null;
         this.totalFiles.set(hashes.size());
         startSyncProcess();
     }
@@ -157,6 +170,8 @@ public class NblSyncScreen extends Screen {
                 addLog(Text.translatable("nebula.sync.log.load_error", e.getMessage()), LogLevel.ERROR);
             }
 
+            List<PendingDownload> toDownload = new ArrayList<>();
+            AnimationStore store = AnimationStore.getInstance();
             for (Map.Entry<String, String> entry : serverHashes.entrySet()) {
                 if (shouldAbort.get()) {
                     addLog(Text.translatable("nebula.sync.log.aborted"), LogLevel.WARNING);
@@ -170,23 +185,37 @@ public class NblSyncScreen extends Screen {
 
                 Nebula.LOGGER.info("Validating file [{}/{}]: {}", processedFiles.get(), totalFiles.get(), name);
 
+                // 仓库中已有该内容：对象只来自校验过的数据，按摘要命中即可信任，无需哈希
+                AnimationManifest.Entry manifestEntry = manifest != null ? manifest.get(name) : null;
+                if (manifestEntry != null && manifestEntry.isValid() && store.find(manifestEntry) != null) {
+                    addLog(Text.translatable("nebula.sync.log.success", name, serverHash), LogLevel.SUCCESS);
+                    successCount.incrementAndGet();
+                    continue;
+                }
+
                 Path localPath = AnimationLoader.getAnimationPath(name);
 
                 if (localPath == null || !localPath.toFile().exists()) {
                     addLog(Text.translatable("nebula.sync.log.missing", name), LogLevel.ERROR);
                     failureCount.incrementAndGet();
+                    queueDownload(toDownload, manifestEntry);
                     continue;
                 }
 
                 try {
-                    String localHash = NebulaHashUtils.getSecureSampleHash(localPath);
+                    String localHash = NebulaHashUtils.getContentHash(localPath);
                     if (localHash.equals(serverHash)) {
                         addLog(Text.translatable("nebula.sync.log.success", name, localHash), LogLevel.SUCCESS);
                         successCount.incrementAndGet();
+                        // 导入仓库（硬链接 / 引用），之后切换服务器不再重新哈希
+                        if (manifestEntry != null && manifestEntry.isValid()) {
+                            store.importVerified(localPath, manifestEntry);
+                        }
                     } else {
                         addLog(Text.translatable("nebula.sync.log.hash_mismatch", name, localHash, serverHash),
                                 LogLevel.ERROR);
                         failureCount.incrementAndGet();
+                        queueDownload(toDownload, manifestEntry);
                     }
                 } catch (IOException e) {
                     addLog(Text.translatable("nebula.sync.log.io_error", name, e.getMessage()), LogLevel.ERROR);
@@ -194,6 +223,13 @@ public class NblSyncScreen extends Screen {
                 }
             }
 
+            if (!shouldAbort.get() && !toDownload.isEmpty()) {
+                downloadMissing(toDownload);
+            }
+            if (manifest != null) {
+                store.collectGarbage(ModConfig.getInstance().getStoreQuotaMb() * 1024L * 1024L);
+            }
+
             isSyncing = false;
             syncCompleted = true;
 
@@ -201,6 +237,9 @@ public class NblSyncScreen extends Screen {
                 addLog(Text.translatable("nebula.sync.log.sync_aborted"), LogLevel.WARNING);
             } else if (failureCount.get() == 0) {
                 addLog(Text.translatable("nebula.sync.log.all_success"), LogLevel.SUCCESS);
+                // 记录本次校验通过的清单，下次进入时清单未变即可跳过同步
+                Map<String, String> verified = serverHashes;
+                MinecraftClient.getInstance().execute(() -> ManifestCache.getInstance().markVerified(verified));
                 autoCloseStartTime = System.currentTimeMillis();
             } else {
                 addLog(Text.translatable("nebula.sync.log.complete_with_errors", failureCount.get()), LogLevel.ERROR);
@@ -217,6 +256,61 @@ public class NblSyncScreen extends Screen {
         });
     }
 
+    private record PendingDownload(AnimationManifest.Entry entry, Path target) {
+    }
+
+    /**
+     * 下载目标是内容寻址仓库，不覆盖 nebula/animations 中的同名文件
+     */
+    private void queueDownload(List<PendingDownload> toDownload, AnimationManifest.Entry entry) {
+        if (entry == null || !entry.isValid()) {
+            return;
+        }
+        toDownload.add(new PendingDownload(entry, AnimationStore.getInstance().getObjectPath(entry)));
+    }
+
+    /**
+     * 从服务端依次下载缺失 / 不一致的文件，成功的文件计为校验通过
+     */
+    private void downloadMissing(List<PendingDownload> toDownload) {
+        addLog(Text.translatable("nebula.sync.log.download_start", toDownload.size()), LogLevel.INFO);
+        AnimationDownloader downloader = AnimationDownloader.getInstance();
+        for (PendingDownload pending : toDownload) {
+            String name = pending.entry().name();
+            downloadingName = name;
+            CompletableFuture<Path> future = downloader.download(pending.entry(), pending.target());
+            try {
+                while (true) {
+                    if (shouldAbort.get()) {
+                        downloader.cancelAll();
+                        addLog(Text.translatable("nebula.sync.log.aborted"), LogLevel.WARNING);
+                        break;
+                    }
+                    try {
+                        future.get(100, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException ignored) {
+                    }
+                }
+                if (shouldAbort.get()) {
+                    break;
+                }
+                AnimationStore.getInstance().commitDownload(pending.entry());
+                addLog(Text.translatable("nebula.sync.log.downloaded", name), LogLevel.SUCCESS);
+                failureCount.decrementAndGet();
+                successCount.incrementAndGet();
+            } catch (ExecutionException e) {
+                String reason = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                addLog(Text.translatable("nebula.sync.log.download_failed", name, reason), LogLevel.ERROR);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // 下载的文件通过当前服务器视图直接解析（AnimationStore#resolve），无需重新索引
+        downloadingName = null;
+    }
+
     private void addLog(Text text, LogLevel level) {
         logHistory.add(new LogData(text, level));
         if (this.client != null) {
@@ -321,6 +415,14 @@ public class NblSyncScreen extends Screen {
             context.fill(barX, currentY, barX + fillWidth, currentY + barHeight, 0xFF00AA00);
 
             String progressText = processedFiles.get() + " / " + totalFiles.get();
+            String downloading = downloadingName;
+            float downloadProgress = AnimationDownloader.getInstance().getActiveProgress();
+            if (downloading != null && downloadProgress >= 0) {
+                fillWidth = (int) (barWidth * downloadProgress);
+                context.fill(barX, currentY, barX + fillWidth, currentY + barHeight, 0xFF0077CC);
+                progressText = Text.translatable("nebula.sync.status.downloading", downloading,
+                        (int) (downloadProgress * 100)).getString();
+            }
             context.drawCenteredTextWithShadow(this.textRenderer, Text.literal(progressText),
                     centerX, currentY + 1, 0xFFFFFF);
             currentY += 15;
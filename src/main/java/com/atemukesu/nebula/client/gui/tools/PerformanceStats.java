@@ -62,6 +62,9 @@ public class PerformanceStats {
     // ========== 渲染器统计 ==========
     private int particleCount = 0;
     private int instanceCount = 0;
+    private int particleBudget = 0;
+    private long particleDemand = 0;
+    private int budgetDroppedInstances = 0;
     private int bufferSizeBytes = 0;
     private int usedBufferBytes = 0;
     private boolean pmbSupported = false;
@@ -223,6 +226,19 @@ public class PerformanceStats {
         this.instanceCount = count;
     }
 
+    /**
+     * 更新全局粒子预算的统计
+     *
+     * @param budget  每帧预算，0 表示不限制
+     * @param demand  可见实例 LOD 之后的总需求
+     * @param dropped 因超出预算跳过绘制的实例数
+     */
+    public void setParticleBudget(int budget, long demand, int dropped) {
+        this.particleBudget = budget;
+        this.particleDemand = demand;
+        this.budgetDroppedInstances = dropped;
+    }
+
     public void setBufferSizeBytes(int size) {
         this.bufferSizeBytes = size;
     }
@@ -318,6 +334,18 @@ public class PerformanceStats {
         return instanceCount;
     }
 
+    public int getParticleBudget() {
+        return particleBudget;
+    }
+
+    public long getParticleDemand() {
+        return particleDemand;
+    }
+
+    public int getBudgetDroppedInstances() {
+        return budgetDroppedInstances;
+    }
+
     public int getBufferSizeBytes() {
         return bufferSizeBytes;
     }
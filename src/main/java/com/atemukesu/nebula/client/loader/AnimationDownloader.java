@@ -0,0 +1,463 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.client.loader;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.networking.AnimationManifest;
+import com.atemukesu.nebula.networking.ModPackets;
+import com.atemukesu.nebula.networking.TransferInfo;
+import com.atemukesu.nebula.util.NebulaHashUtils;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//? if < 1.21 {
+/*import net.minecraft.network.PacketByteBuf;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+*///? }
+
+/**
+ * 客户端动画下载器：从服务端按摘要拉取缺失 / 不一致的 .nbl 文件
+ * <p>
+ * [核心] 数据片到达后直接按偏移写入磁盘上的 .part 文件，不在堆中缓存整个文件；
+ * 每个校验块写满后立即重读并核对块摘要，再向服务端确认（失败则服务端重发该块）。
+ * </p>
+ * 断点续传：.part 文件以内容摘要命名，保存在 游戏目录/nebula/downloads/。
+ * 再次请求同一文件时先校验已有 .part 中的各块，只请求不完整的块。
+ * 所有状态只在下载线程上访问，同一时间只进行一个下载。
+ */
+public class AnimationDownloader {
+
+    private static final AnimationDownloader INSTANCE = new AnimationDownloader();
+    private static final Path DOWNLOAD_DIR = FabricLoader.getInstance().getGameDir()
+            .resolve("nebula").resolve("downloads");
+    /** 超过该时间没有收到任何数据则判定传输中断 */
+    private static final long STALL_TIMEOUT_MS = 30_000;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Nebula-Download");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ArrayDeque<Download> queue = new ArrayDeque<>();
+    private Download active;
+    private volatile long activeReceived;
+    private volatile long activeTotal;
+
+    private AnimationDownloader() {
+        executor.scheduleWithFixedDelay(this::checkStall, 5, 5, TimeUnit.SECONDS);
+    }
+
+    public static AnimationDownloader getInstance() {
+        return INSTANCE;
+    }
+
+    private static class Download {
+        final AnimationManifest.Entry entry;
+        final Path target;
+        final Path part;
+        final CompletableFuture<Path> future = new CompletableFuture<>();
+
+        int transferId = -1;
+        NebulaHashUtils.ContentDigest digest;
+        RandomAccessFile file;
+        FileChannel channel;
+        long[] received;
+        int remainingChunks;
+        long lastActivity = System.currentTimeMillis();
+
+        Download(AnimationManifest.Entry entry, Path target) {
+            this.entry = entry;
+            this.target = target;
+            this.part = DOWNLOAD_DIR.resolve(String.format("%016x%016x.part", entry.digestHi(), entry.digestLo()));
+        }
+
+        void closeFile() {
+            try {
+                if (file != null) {
+                    file.close();
+                }
+            } catch (IOException ignored) {
+            }
+            file = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * 排队下载一个文件
+     *
+     * @param entry  服务端清单条目（按其摘要请求）
+     * @param target 下载完成后写入的位置
+     * @return 文件校验完成并移动到 target 后完成的 Future
+     */
+    public CompletableFuture<Path> download(AnimationManifest.Entry entry, Path target) {
+        Download download = new Download(entry, target);
+        executor.execute(() -> {
+            queue.add(download);
+            startNext();
+        });
+        return download.future;
+    }
+
+    /**
+     * 取消所有下载（断开连接或用户中止时调用），已写入的 .part 文件保留用于续传
+     */
+    public void cancelAll() {
+        executor.execute(() -> {
+            if (active != null) {
+                fail(active, "Cancelled");
+            }
+            while (!queue.isEmpty()) {
+                queue.poll().future.completeExceptionally(new IOException("Cancelled"));
+            }
+        });
+    }
+
+    /**
+     * @return 当前下载的进度 [0, 1]，没有下载时为 -1
+     */
+    public float getActiveProgress() {
+        long total = activeTotal;
+        return total > 0 ? (float) activeReceived / total : -1f;
+    }
+
+    private void startNext() {
+        if (active != null || queue.isEmpty()) {
+            return;
+        }
+        active = queue.poll();
+        active.lastActivity = System.currentTimeMillis();
+        activeReceived = 0;
+        activeTotal = Math.max(0, active.entry.size());
+        if (!sendRequest(active.entry.digestHi(), active.entry.digestLo())) {
+            fail(active, "Not connected");
+        }
+    }
+
+    // ==================== 数据包处理（均在下载线程执行） ====================
+
+    private void handleInfo(byte[] data) {
+        Download download = active;
+        if (download == null || download.transferId != -1) {
+            return;
+        }
+        try {
+            TransferInfo info = TransferInfo.decode(data);
+            if (info.digestHi() != download.entry.digestHi() || info.digestLo() != download.entry.digestLo()) {
+                return;
+            }
+            if (info.chunkSize() != NebulaHashUtils.CONTENT_CHUNK_SIZE) {
+                fail(download, "Unsupported chunk size " + info.chunkSize());
+                return;
+            }
+            NebulaHashUtils.ContentDigest digest = new NebulaHashUtils.ContentDigest(info.size(), info.chunkSize(),
+                    info.chunkDigests());
+            // 块列表必须能还原出请求的摘要，否则后续的块校验没有意义
+            if (digest.getRoot() != info.digestLo() || digest.getRootHi() != info.digestHi()) {
+                fail(download, "Chunk list does not match digest");
+                return;
+            }
+            download.transferId = info.transferId();
+            download.digest = digest;
+            download.lastActivity = System.currentTimeMillis();
+
+            Files.createDirectories(DOWNLOAD_DIR);
+            boolean resume = Files.exists(download.part) && Files.size(download.part) == info.size();
+            int count = digest.getChunkCount();
+            boolean[] needed = new boolean[count];
+            if (resume) {
+                List<Integer> mismatched = NebulaHashUtils.findMismatchedChunks(download.part, digest, null);
+                mismatched.forEach(i -> needed[i] = true);
+                Nebula.LOGGER.info("[AnimationDownloader] Resuming {}: {} of {} chunks missing",
+                        download.entry.name(), mismatched.size(), count);
+            } else {
+                Arrays.fill(needed, true);
+            }
+
+            download.file = new RandomAccessFile(download.part.toFile(), "rw");
+            download.file.setLength(info.size());
+            download.channel = download.file.getChannel();
+            download.received = new long[count];
+
+            byte[] bitmap = new byte[(count + 7) / 8];
+            int remaining = 0;
+            for (int i = 0; i < count; i++) {
+                if (needed[i]) {
+                    bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+                    remaining++;
+                } else {
+                    activeReceived += chunkLength(download, i);
+                }
+            }
+            download.remainingChunks = remaining;
+            if (remaining == 0) {
+                finish(download);
+                return;
+            }
+            sendStart(download.transferId, bitmap);
+        } catch (IOException e) {
+            fail(download, e.getMessage());
+        }
+    }
+
+    private void handlePiece(int transferId, long offset, byte[] data) {
+        Download download = active;
+        if (download == null || download.transferId != transferId || download.channel == null) {
+            return;
+        }
+        download.lastActivity = System.currentTimeMillis();
+        // 分片必须落在文件范围内且不跨块，否则是损坏或恶意的数据，直接终止下载
+        long chunkSize = download.digest.getChunkSize();
+        if (data.length == 0 || offset < 0 || offset + data.length > download.digest.getSize()
+                || (offset + data.length - 1) / chunkSize != offset / chunkSize) {
+            fail(download, "Piece out of range (offset " + offset + ", length " + data.length + ")");
+            return;
+        }
+        int chunk = (int) (offset / chunkSize);
+        if (download.received[chunk] + data.length > chunkLength(download, chunk)) {
+            fail(download, "Chunk " + chunk + " received more data than its length");
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                download.channel.write(buffer, offset + buffer.position());
+            }
+            download.received[chunk] += data.length;
+            activeReceived += data.length;
+            if (download.received[chunk] < chunkLength(download, chunk)) {
+                return;
+            }
+
+            // 块已写满：重读校验
+            boolean ok = NebulaHashUtils.findMismatchedChunks(download.part, download.digest, new int[] { chunk })
+                    .isEmpty();
+            if (ok) {
+                download.remainingChunks--;
+            } else {
+                Nebula.LOGGER.warn("[AnimationDownloader] Chunk {} of {} failed verification, re-requesting",
+                        chunk, download.entry.name());
+                activeReceived -= download.received[chunk];
+                download.received[chunk] = 0;
+            }
+            sendAck(transferId, chunk, ok);
+            if (download.remainingChunks == 0) {
+                finish(download);
+            }
+        } catch (IOException e) {
+            fail(download, e.getMessage());
+        }
+    }
+
+    private void handleError(int transferId, String reason) {
+        Download download = active;
+        if (download != null && (download.transferId == transferId || transferId == -1)) {
+            fail(download, reason);
+        }
+    }
+
+    private void finish(Download download) {
+        download.closeFile();
+        try {
+            Files.createDirectories(download.target.getParent());
+            try {
+                Files.move(download.part, download.target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(download.part, download.target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Nebula.LOGGER.info("[AnimationDownloader] Downloaded {} -> {}", download.entry.name(), download.target);
+            download.future.complete(download.target);
+        } catch (IOException e) {
+            download.future.completeExceptionally(e);
+        }
+        clearActive(download);
+    }
+
+    private void fail(Download download, String reason) {
+        download.closeFile();
+        // 通知服务端释放会话，否则窗口被占满的会话会一直占用服务端的传输名额
+        sendCancel(download.transferId);
+        Nebula.LOGGER.warn("[AnimationDownloader] Download of {} failed: {}", download.entry.name(), reason);
+        download.future.completeExceptionally(new IOException(reason));
+        clearActive(download);
+    }
+
+    private void clearActive(Download download) {
+        if (active == download) {
+            active = null;
+            activeTotal = 0;
+            activeReceived = 0;
+            startNext();
+        }
+    }
+
+    private void checkStall() {
+        Download download = active;
+        if (download != null && System.currentTimeMillis() - download.lastActivity > STALL_TIMEOUT_MS) {
+            fail(download, "Transfer stalled");
+        }
+    }
+
+    private static long chunkLength(Download download, int chunk) {
+        long start = (long) chunk * download.digest.getChunkSize();
+        return Math.min(download.digest.getChunkSize(), download.digest.getSize() - start);
+    }
+
+    // ==================== 网络 ====================
+
+    private static boolean isConnected() {
+        return MinecraftClient.getInstance().getNetworkHandler() != null;
+    }
+
+    //? if >=1.21 {
+    public void registerReceivers() {
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.FileInfoPayload.ID,
+                (payload, context) -> executor.execute(() -> handleInfo(payload.data())));
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.FilePiecePayload.ID,
+                (payload, context) -> executor.execute(
+                        () -> handlePiece(payload.transferId(), payload.offset(), payload.data())));
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.FileErrorPayload.ID,
+                (payload, context) -> executor.execute(() -> handleError(payload.transferId(), payload.reason())));
+    }
+
+    private static boolean sendRequest(long digestHi, long digestLo) {
+        if (!isConnected()) {
+            return false;
+        }
+        ClientPlayNetworking.send(new ModPackets.FileRequestPayload(digestHi, digestLo));
+        return true;
+    }
+
+    private static void sendStart(int transferId, byte[] bitmap) {
+        if (isConnected()) {
+            ClientPlayNetworking.send(new ModPackets.FileStartPayload(transferId, bitmap));
+        }
+    }
+
+    private static void sendAck(int transferId, int chunk, boolean ok) {
+        if (isConnected()) {
+            ClientPlayNetworking.send(new ModPackets.FileAckPayload(transferId, chunk, ok));
+        }
+    }
+
+    private static void sendCancel(int transferId) {
+        if (isConnected()) {
+            ClientPlayNetworking.send(new ModPackets.FileCancelPayload(transferId));
+        }
+    }
+    //? } else {
+    
+    /*public void registerReceivers() {
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.FILE_INFO_S2C,
+                (client, handler, buf, responseSender) -> {
+                    byte[] data = buf.readByteArray();
+                    executor.execute(() -> handleInfo(data));
+                });
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.FILE_PIECE_S2C,
+                (client, handler, buf, responseSender) -> {
+                    int transferId = buf.readVarInt();
+                    long offset = buf.readVarLong();
+                    byte[] data = buf.readByteArray();
+                    executor.execute(() -> handlePiece(transferId, offset, data));
+                });
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.FILE_ERROR_S2C,
+                (client, handler, buf, responseSender) -> {
+                    int transferId = buf.readVarInt();
+                    String reason = buf.readString();
+                    executor.execute(() -> handleError(transferId, reason));
+                });
+    }
+
+    private static boolean sendRequest(long digestHi, long digestLo) {
+        if (!isConnected()) {
+            return false;
+        }
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeVarLong(digestHi);
+        buf.writeVarLong(digestLo);
+        ClientPlayNetworking.send(ModPackets.FILE_REQUEST_C2S, buf);
+        return true;
+    }
+
+    private static void sendStart(int transferId, byte[] bitmap) {
+        if (isConnected()) {
+            PacketByteBuf buf = PacketByteBufs.create();
+            buf.writeVarInt(transferId);
+            buf.writeByteArray(bitmap);
+            ClientPlayNetworking.send(ModPackets.FILE_START_C2S, buf);
+        }
+    }
+
+    private static void sendAck(int transferId, int chunk, boolean ok) {
+        if (isConnected()) {
+            PacketByteBuf buf = PacketByteBufs.create();
+            buf.writeVarInt(transferId);
+            buf.writeVarInt(chunk);
+            buf.writeBoolean(ok);
+            ClientPlayNetworking.send(ModPackets.FILE_ACK_C2S, buf);
+        }
+    }
+
+    private static void sendCancel(int transferId) {
+        if (isConnected()) {
+            PacketByteBuf buf = PacketByteBufs.create();
+            buf.writeVarInt(transferId);
+            ClientPlayNetworking.send(ModPackets.FILE_CANCEL_C2S, buf);
+        }
+    }
+    
+    *///? }
+}
@@ -0,0 +1,278 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.client.loader;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.client.render.ParticleTextureManager;
+import com.atemukesu.nebula.client.render.SharedTextureResource;
+import com.atemukesu.nebula.client.render.TextureCacheSystem;
+import com.atemukesu.nebula.networking.ModPackets;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.minecraft.client.MinecraftClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//? if < 1.21 {
+/*import net.minecraft.network.PacketByteBuf;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+*///? }
+
+/**
+ * 客户端动画预加载器
+ * <p>
+ * [优化] 首次播放时的开销（打开文件、解析索引、上传纹理数组）原本都在效果出现的那一刻发生在主线程上。
+ * 收到服务端的预加载提示后：
+ * <ul>
+ * <li>后台线程解析并缓存文件索引（{@link NblIndex}），读取首个关键帧让其进入系统页缓存</li>
+ * <li>主线程每 Tick 只上传一个动画的纹理数组，并持有引用直到被播放使用或超时，避免被立即回收</li>
+ * </ul>
+ * 全部完成后向服务端回报就绪状态。除后台读取外，所有方法仅在客户端主线程调用。
+ * </p>
+ */
+public class AnimationPreloader {
+
+    private static final AnimationPreloader INSTANCE = new AnimationPreloader();
+    /** 预加载的纹理至少保留的时长 */
+    private static final long PIN_DURATION_MS = 5 * 60 * 1000L;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Nebula-Preload");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    /** 后台阶段完成、等待上传纹理的动画 */
+    private final ArrayDeque<PendingUpload> uploads = new ArrayDeque<>();
+    /** 预加载持有的纹理资源（缓存键 -> 资源） */
+    private final Map<String, Pinned> pinned = new HashMap<>();
+    private final Map<Integer, RequestState> requests = new HashMap<>();
+
+    private record PendingUpload(int requestId, String cacheKey, List<ParticleTextureManager.TextureEntry> entries) {
+    }
+
+    private static final class Pinned {
+        final SharedTextureResource resource;
+        long expiresAt;
+
+        Pinned(SharedTextureResource resource, long expiresAt) {
+            this.resource = resource;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class RequestState {
+        int remaining;
+        int ready;
+        int missing;
+
+        RequestState(int remaining) {
+            this.remaining = remaining;
+        }
+    }
+
+    private AnimationPreloader() {
+    }
+
+    public static AnimationPreloader getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 开始预加载一组动画
+     */
+    public void preload(int requestId, List<String> animations) {
+        RequestState state = new RequestState(animations.size());
+        requests.put(requestId, state);
+        MinecraftClient client = MinecraftClient.getInstance();
+        for (String name : animations) {
+            Path path = ClientAnimationLoader.getAnimationPath(name);
+            if (path == null) {
+                Nebula.LOGGER.warn("[AnimationPreloader] Animation not found for preload: {}", name);
+                finish(requestId, false);
+                continue;
+            }
+            File file = path.toFile();
+            executor.execute(() -> {
+                try {
+                    NblIndex index = NblIndex.get(file);
+                    primeFirstKeyframe(file, index);
+                    List<ParticleTextureManager.TextureEntry> entries = index.getTextures();
+                    client.execute(() -> {
+                        // 期间断开连接则不再上传
+                        if (requests.containsKey(requestId)) {
+                            uploads.add(new PendingUpload(requestId, file.getAbsolutePath(), entries));
+                        }
+                    });
+                } catch (IOException e) {
+                    Nebula.LOGGER.warn("[AnimationPreloader] Failed to preload {}: {}", name, e.getMessage());
+                    client.execute(() -> finish(requestId, false));
+                }
+            });
+        }
+        if (animations.isEmpty()) {
+            finish(requestId, true);
+        }
+    }
+
+    /**
+     * 每个客户端 Tick 调用：上传一个动画的纹理，并释放过期的预加载资源
+     */
+    public void tick() {
+        PendingUpload upload = uploads.poll();
+        if (upload != null) {
+            long expiresAt = System.currentTimeMillis() + PIN_DURATION_MS;
+            Pinned existing = pinned.get(upload.cacheKey());
+            if (existing != null) {
+                existing.expiresAt = expiresAt;
+            } else {
+                // 与 ClientAnimationManager#playAnimation 使用相同的缓存键，播放时直接命中
+                SharedTextureResource resource = TextureCacheSystem.acquire(upload.cacheKey(), upload.entries());
+                pinned.put(upload.cacheKey(), new Pinned(resource, expiresAt));
+            }
+            finish(upload.requestId(), true);
+        }
+
+        if (!pinned.isEmpty()) {
+            long now = System.currentTimeMillis();
+            Iterator<Pinned> it = pinned.values().iterator();
+            while (it.hasNext()) {
+                Pinned pin = it.next();
+                if (now >= pin.expiresAt) {
+                    TextureCacheSystem.release(pin.resource);
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 断开连接时释放所有预加载资源
+     */
+    public void releaseAll() {
+        uploads.clear();
+        requests.clear();
+        for (Pinned pin : pinned.values()) {
+            TextureCacheSystem.release(pin.resource);
+        }
+        pinned.clear();
+    }
+
+    /**
+     * 读取首个关键帧的压缩数据，使其进入系统页缓存
+     */
+    private static void primeFirstKeyframe(File file, NblIndex index) throws IOException {
+        if (index.getTotalFrames() <= 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(index.getFrameSizes()[0]);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = index.getFrameOffsets()[0];
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        }
+    }
+
+    private void finish(int requestId, boolean ok) {
+        RequestState state = requests.get(requestId);
+        if (state == null) {
+            return;
+        }
+        if (ok) {
+            state.ready++;
+        } else {
+            state.missing++;
+        }
+        if (--state.remaining <= 0) {
+            requests.remove(requestId);
+            Nebula.LOGGER.info("[AnimationPreloader] Preload #{} finished: {} ready, {} missing",
+                    requestId, state.ready, state.missing);
+            sendReady(requestId, state.ready, state.missing);
+        }
+    }
+
+    //? if >=1.21 {
+    public void registerReceivers() {
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.PreloadPayload.ID, (payload, context) ->
+                context.client().execute(() -> preload(payload.requestId(), payload.animations())));
+    }
+
+    private static void sendReady(int requestId, int ready, int missing) {
+        if (ClientPlayNetworking.canSend(ModPackets.PreloadReadyPayload.ID)) {
+            ClientPlayNetworking.send(new ModPackets.PreloadReadyPayload(requestId, ready, missing));
+        }
+    }
+    //? } else {
+    
+    /*public void registerReceivers() {
+        ClientPlayNetworking.registerGlobalReceiver(ModPackets.PRELOAD_S2C,
+                (client, handler, buf, responseSender) -> {
+                    int requestId = buf.readVarInt();
+                    List<String> animations = buf.readList(PacketByteBuf::readString);
+                    client.execute(() -> preload(requestId, animations));
+                });
+    }
+
+    private static void sendReady(int requestId, int ready, int missing) {
+        if (ClientPlayNetworking.canSend(ModPackets.PRELOAD_READY_C2S)) {
+            PacketByteBuf buf = PacketByteBufs.create();
+            buf.writeVarInt(requestId);
+            buf.writeVarInt(ready);
+            buf.writeVarInt(missing);
+            ClientPlayNetworking.send(ModPackets.PRELOAD_READY_C2S, buf);
+        }
+    }
+    
+    *///? }
+}
@@ -0,0 +1,426 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.client.loader;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.networking.AnimationManifest;
+import com.atemukesu.nebula.util.XxHash64;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 客户端内容寻址动画仓库
+ * <p>
+ * [核心] 文件按全量内容摘要存放（游戏目录/nebula/store/objects/xx/摘要.nbl），
+ * 每个服务器只保存一份 名称 → 摘要 的视图。不同服务器的同名文件互不覆盖，
+ * 相同内容只存一份；切换服务器时已有对象直接命中，无需重新下载或重新哈希。
+ * </p>
+ * <ul>
+ * <li>仓库中的对象只来自校验通过的下载或已校验的本地文件，因此按摘要命中即可信任</li>
+ * <li>导入 nebula/animations 中已校验的文件时优先建立硬链接，不支持时退化为外部引用（不复制数据）</li>
+ * <li>按最近使用时间做 LRU 回收，使仓库自有对象总大小不超过配额；当前服务器视图引用的对象不会被回收</li>
+ * </ul>
+ */
+public class AnimationStore {
+
+    private static final AnimationStore INSTANCE = new AnimationStore();
+    private static final Path ROOT = FabricLoader.getInstance().getGameDir().resolve("nebula").resolve("store");
+    private static final Path OBJECTS = ROOT.resolve("objects");
+    private static final Path INDEX_FILE = ROOT.resolve("index.json");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * 仓库对象记录
+     */
+    private static class ObjectInfo {
+        long size;
+        long lastUsed;
+        /** 外部引用：对象数据实际位于该路径（无法建立硬链接时使用），null 表示仓库自有文件 */
+        String external;
+        /** 登记时的修改时间；硬链接与源文件共享数据，源文件被原地修改后对象随之失效 */
+        long mtime;
+    }
+
+    private static class Index {
+        Map<String, ObjectInfo> objects = new HashMap<>();
+        /** 服务器键哈希 → (动画名 → 摘要) */
+        Map<String, Map<String, String>> views = new HashMap<>();
+    }
+
+    /** 视图中已定位的对象 */
+    private record Resolved(String key, Path path) {
+    }
+
+    private Index index;
+    private boolean dirty = false;
+    private Map<String, String> activeView = Map.of();
+    /** [优化] 激活视图时一次性校验并缓存对象路径，resolve 不再加锁或访问文件系统 */
+    private volatile Map<String, Resolved> resolved = Map.of();
+    /** resolve 记录的访问时间，在持锁的操作中合并到索引 */
+    private final Map<String, Long> accessTimes = new ConcurrentHashMap<>();
+
+    public static AnimationStore getInstance() {
+        return INSTANCE;
+    }
+
+    private AnimationStore() {
+    }
+
+    public static String digestKey(long digestHi, long digestLo) {
+        return String.format("%016x%016x", digestHi, digestLo);
+    }
+
+    public static String digestKey(AnimationManifest.Entry entry) {
+        return digestKey(entry.digestHi(), entry.digestLo());
+    }
+
+    /**
+     * @return 仓库自有对象的存放路径（下载目标）
+     */
+    public Path getObjectPath(AnimationManifest.Entry entry) {
+        String key = digestKey(entry);
+        return OBJECTS.resolve(key.substring(0, 2)).resolve(key + ".nbl");
+    }
+
+    // ==================== 视图 ====================
+
+    /**
+     * 激活某个服务器的视图（收到与本地一致的清单后调用）
+     */
+    public synchronized void activateView(String serverKey, AnimationManifest manifest) {
+        ensureLoaded();
+        Map<String, String> view = new HashMap<>();
+        for (AnimationManifest.Entry entry : manifest.getEntries()) {
+            if (entry.isValid()) {
+                view.put(entry.name(), digestKey(entry));
+            }
+        }
+        String viewKey = viewKey(serverKey);
+        if (!view.equals(index.views.get(viewKey))) {
+            index.views.put(viewKey, view);
+            dirty = true;
+        }
+        activeView = view;
+        long now = System.currentTimeMillis();
+        Map<String, Resolved> located = new HashMap<>();
+        for (Map.Entry<String, String> e : view.entrySet()) {
+            Path path = locate(e.getValue());
+            if (path != null) {
+                index.objects.get(e.getValue()).lastUsed = now;
+                located.put(e.getKey(), new Resolved(e.getValue(), path));
+                dirty = true;
+            }
+        }
+        resolved = Map.copyOf(located);
+        save();
+    }
+
+    public synchronized void clearActiveView() {
+        activeView = Map.of();
+        resolved = Map.of();
+        save();
+    }
+
+    /**
+     * 按当前服务器视图解析动画名
+     *
+     * 对象在激活视图（或之后下载、导入）时已校验，这里只查缓存并记录访问时间。
+     *
+     * @return 仓库中的对象路径；视图中没有该名称或对象缺失时返回 null
+     */
+    public Path resolve(String name) {
+        Resolved entry = name != null ? resolved.get(name) : null;
+        if (entry == null) {
+            return null;
+        }
+        accessTimes.put(entry.key(), System.currentTimeMillis());
+        return entry.path();
+    }
+
+    // ==================== 对象 ====================
+
+    /**
+     * @return 仓库中存在且大小一致时返回对象路径，否则返回 null（无需哈希即可信任）
+     */
+    public synchronized Path find(AnimationManifest.Entry entry) {
+        ensureLoaded();
+        String key = digestKey(entry);
+        ObjectInfo info = index.objects.get(key);
+        if (info == null || info.size != entry.size()) {
+            return null;
+        }
+        return locate(key);
+    }
+
+    /**
+     * 登记一个已下载并校验完成的对象（文件已位于 {@link #getObjectPath}）
+     */
+    public synchronized void commitDownload(AnimationManifest.Entry entry) {
+        ensureLoaded();
+        ObjectInfo info = new ObjectInfo();
+        info.size = entry.size();
+        info.lastUsed = System.currentTimeMillis();
+        try {
+            info.mtime = Files.getLastModifiedTime(getObjectPath(entry)).toMillis();
+        } catch (IOException e) {
+            Nebula.LOGGER.warn("[AnimationStore] Downloaded object {} is missing", digestKey(entry), e);
+            return;
+        }
+        index.objects.put(digestKey(entry), info);
+        dirty = true;
+        publishResolved(entry, getObjectPath(entry));
+        save();
+    }
+
+    /**
+     * 导入一个已校验（内容摘要与 entry 一致）的本地文件。
+     * 优先建立硬链接，失败时记录为外部引用，均不复制数据。
+     */
+    public synchronized void importVerified(Path source, AnimationManifest.Entry entry) {
+        ensureLoaded();
+        String key = digestKey(entry);
+        Path existing = locate(key);
+        if (existing != null) {
+            publishResolved(entry, existing);
+            return;
+        }
+        ObjectInfo info = new ObjectInfo();
+        info.size = entry.size();
+        info.lastUsed = System.currentTimeMillis();
+        Path object = getObjectPath(entry);
+        try {
+            info.mtime = Files.getLastModifiedTime(source).toMillis();
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            Files.createDirectories(object.getParent());
+            Files.deleteIfExists(object);
+            Files.createLink(object, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            info.external = source.toAbsolutePath().toString();
+        }
+        index.objects.put(key, info);
+        dirty = true;
+        publishResolved(entry, info.external != null ? Path.of(info.external) : object);
+        save();
+    }
+
+    /**
+     * 对象属于当前视图时加入已定位缓存（视图激活后才下载或导入的对象）
+     */
+    private void publishResolved(AnimationManifest.Entry entry, Path path) {
+        String key = digestKey(entry);
+        if (!key.equals(activeView.get(entry.name()))) {
+            return;
+        }
+        Map<String, Resolved> next = new HashMap<>(resolved);
+        next.put(entry.name(), new Resolved(key, path));
+        resolved = Map.copyOf(next);
+    }
+
+    /**
+     * 定位对象数据；外部引用在源文件被修改或删除后失效
+     */
+    private Path locate(String key) {
+        ObjectInfo info = index.objects.get(key);
+        if (info == null) {
+            return null;
+        }
+        Path path = info.external != null
+                ? Path.of(info.external)
+                : OBJECTS.resolve(key.substring(0, 2)).resolve(key + ".nbl");
+        try {
+            if (Files.exists(path) && Files.size(path) == info.size
+                    && Files.getLastModifiedTime(path).toMillis() == info.mtime) {
+                return path;
+            }
+        } catch (IOException ignored) {
+        }
+        index.objects.remove(key);
+        dirty = true;
+        return null;
+    }
+
+    // ==================== 回收 ====================
+
+    /**
+     * LRU 回收：删除最久未使用的自有对象，直到总大小不超过配额。
+     * 当前视图引用的对象不会被删除；外部引用只移除记录。
+     *
+     * @param quotaBytes 配额，&lt;= 0 表示不限制
+     */
+    public synchronized void collectGarbage(long quotaBytes) {
+        ensureLoaded();
+        flushAccessTimes();
+        // 清理失效的外部引用
+        for (String key : new ArrayList<>(index.objects.keySet())) {
+            if (index.objects.get(key).external != null) {
+                locate(key);
+            }
+        }
+        if (quotaBytes <= 0) {
+            save();
+            return;
+        }
+        long total = 0;
+        List<Map.Entry<String, ObjectInfo>> owned = new ArrayList<>();
+        for (Map.Entry<String, ObjectInfo> e : index.objects.entrySet()) {
+            if (e.getValue().external == null) {
+                total += e.getValue().size;
+                owned.add(e);
+            }
+        }
+        if (total <= quotaBytes) {
+            save();
+            return;
+        }
+        Set<String> pinned = new HashSet<>(activeView.values());
+        owned.sort((a, b) -> Long.compare(a.getValue().lastUsed, b.getValue().lastUsed));
+        int removed = 0;
+        for (Map.Entry<String, ObjectInfo> e : owned) {
+            if (total <= quotaBytes) {
+                break;
+            }
+            if (pinned.contains(e.getKey())) {
+                continue;
+            }
+            String key = e.getKey();
+            try {
+                Files.deleteIfExists(OBJECTS.resolve(key.substring(0, 2)).resolve(key + ".nbl"));
+            } catch (IOException ex) {
+                Nebula.LOGGER.warn("[AnimationStore] Failed to delete object {}", key, ex);
+                continue;
+            }
+            index.objects.remove(key);
+            total -= e.getValue().size;
+            removed++;
+        }
+        if (removed > 0) {
+            Nebula.LOGGER.info("[AnimationStore] Evicted {} objects, store size now {} MB",
+                    removed, total / (1024 * 1024));
+            dirty = true;
+        }
+        save();
+    }
+
+    // ==================== 持久化 ====================
+
+    private void ensureLoaded() {
+        if (index != null) {
+            return;
+        }
+        index = new Index();
+        if (!Files.exists(INDEX_FILE)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(INDEX_FILE, StandardCharsets.UTF_8)) {
+            Index loaded = GSON.fromJson(reader, Index.class);
+            if (loaded != null) {
+                if (loaded.objects != null) {
+                    index.objects = loaded.objects;
+                }
+                if (loaded.views != null) {
+                    index.views = loaded.views;
+                }
+            }
+        } catch (Exception e) {
+            Nebula.LOGGER.warn("[AnimationStore] Failed to read store index, starting fresh.", e);
+        }
+    }
+
+    /**
+     * 把 resolve 记录的访问时间合并到索引
+     */
+    private void flushAccessTimes() {
+        if (index == null) {
+            return;
+        }
+        for (Map.Entry<String, Long> e : accessTimes.entrySet()) {
+            accessTimes.remove(e.getKey(), e.getValue());
+            ObjectInfo info = index.objects.get(e.getKey());
+            if (info != null && e.getValue() > info.lastUsed) {
+                info.lastUsed = e.getValue();
+                dirty = true;
+            }
+        }
+    }
+
+    private void save() {
+        flushAccessTimes();
+        if (!dirty || index == null) {
+            return;
+        }
+        Path tmp = INDEX_FILE.resolveSibling("index.json.tmp");
+        try {
+            Files.createDirectories(ROOT);
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                GSON.toJson(index, writer);
+            }
+            try {
+                Files.move(tmp, INDEX_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, INDEX_FILE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dirty = false;
+        } catch (IOException e) {
+            Nebula.LOGGER.error("[AnimationStore] Failed to save store index", e);
+        }
+    }
+
+    private static String viewKey(String serverKey) {
+        return String.format("%016x", XxHash64.hash(serverKey.getBytes(StandardCharsets.UTF_8), 0));
+    }
+}
@@ -115,9 +115,11 @@ public class ClientAnimationLoader {
 
     /**
      * 获取指定动画的文件路径
+     * 优先按当前服务器视图从内容寻址仓库解析，找不到时回退到 nebula/animations
      */
     public static Path getAnimationPath(String name) {
-        return AnimationLoader.getAnimationPath(name);
+        Path stored = AnimationStore.getInstance().resolve(name);
+        return stored != null ? stored : AnimationLoader.getAnimationPath(name);
     }
 
     /**
@@ -0,0 +1,139 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.loader;
+
+import com.atemukesu.nebula.client.render.AnimationFrame;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <h1>按帧号索引的帧环</h1>
+ * <hr>
+ * 离线渲染 (Replay Mod 导出视频) 时解码线程与渲染线程之间的交接结构。
+ * 帧放在 {@code frameIndex % capacity} 号槽位，渲染线程按帧号直接取出需要的那一帧，
+ * 不需要按 FIFO 顺序逐个 take，也不会因为中间帧而阻塞。
+ * <p>
+ * 槽位的所有权通过原子交换转移：取出的帧归调用方，由调用方负责归还 Buffer。
+ * 只有生产者会在槽位被占用时等待 (背压)，消费者的读取永远不会阻塞。
+ * </p>
+ */
+public class FrameRing {
+
+    private final AtomicReferenceArray<AnimationFrame> slots;
+    private final int mask;
+
+    /**
+     * @param capacity 槽位数量 (向上取整到 2 的幂)
+     */
+    public FrameRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 放入一帧 (解码线程)
+     * <p>
+     * 槽位仍被更早的帧占用时等待渲染线程消费，{@code keepWaiting} 返回 false 时放弃。
+     * </p>
+     *
+     * @param frame       帧
+     * @param keepWaiting 是否继续等待 (停止、Seek 时返回 false)
+     * @return 是否放入成功；失败时帧仍归调用方
+     */
+    public boolean put(AnimationFrame frame, BooleanSupplier keepWaiting) {
+        int slot = frame.frameIndex & mask;
+        while (true) {
+            AnimationFrame old = slots.get(slot);
+            if (old != null && old.frameIndex >= frame.frameIndex) {
+                // 槽位里是 Seek 之后重新解码的同一帧 (或更新的帧)，旧数据作废
+                if (slots.compareAndSet(slot, old, frame)) {
+                    NblStreamer.releaseFrame(old);
+                    return true;
+                }
+                continue;
+            }
+            if (old == null && slots.compareAndSet(slot, null, frame))
+                return true;
+            if (!keepWaiting.getAsBoolean())
+                return false;
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /**
+     * 取出指定帧 (渲染线程，不阻塞)
+     *
+     * @param frameIndex 帧号
+     * @return 帧，尚未解码 (或没有输出) 时返回 null
+     */
+    public AnimationFrame take(int frameIndex) {
+        int slot = frameIndex & mask;
+        AnimationFrame frame = slots.get(slot);
+        if (frame == null || frame.frameIndex != frameIndex)
+            return null;
+        return slots.compareAndSet(slot, frame, null) ? frame : null;
+    }
+
+    /**
+     * 归还所有早于指定帧的帧 (渲染线程)，为解码线程腾出槽位
+     *
+     * @param frameIndex 帧号
+     */
+    public void releaseBefore(int frameIndex) {
+        for (int i = 0; i < slots.length(); i++) {
+            AnimationFrame frame = slots.get(i);
+            if (frame != null && frame.frameIndex < frameIndex && slots.compareAndSet(i, frame, null))
+                NblStreamer.releaseFrame(frame);
+        }
+    }
+
+    /**
+     * 清空所有槽位 (任意线程)
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            AnimationFrame frame = slots.getAndSet(i, null);
+            if (frame != null)
+                NblStreamer.releaseFrame(frame);
+        }
+    }
+}
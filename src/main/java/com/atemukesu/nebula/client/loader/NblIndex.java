@@ -0,0 +1,284 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.client.loader;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.client.render.ParticleTextureManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>NBL 文件索引</h1>
+ * <hr>
+ * 文件头、纹理列表、帧索引表、关键帧表与可选的逐帧包围盒表的解析结果。
+ * <p>
+ * [优化] 解析结果按 (路径, 大小, 修改时间) 缓存：同一动画的多个实例、纹理预扫描和预加载共用一份，
+ * 播放时不再在主线程上读取和解析索引表。实例之间共享数组，调用方不得修改。
+ * </p>
+ */
+public final class NblIndex {
+
+    /** 属性位：文件带有逐帧 / 逐 GOP 包围盒表 */
+    public static final int ATTR_FRAME_BOUNDS = 0x04;
+    private static final int HEADER_SIZE = 48;
+    private static final int CACHE_CAPACITY = 64;
+
+    private static final Map<String, NblIndex> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, NblIndex> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    private final long fileSize;
+    private final long lastModified;
+    private final int targetFps;
+    private final int totalFrames;
+    private final float[] bboxMin;
+    private final float[] bboxMax;
+    private final List<ParticleTextureManager.TextureEntry> textures;
+    private final long[] frameOffsets;
+    private final int[] frameSizes;
+    private final int[] keyframeIndices;
+    private final float[] frameBounds;
+    private final int framesPerBoundsEntry;
+
+    private NblIndex(long fileSize, long lastModified, int targetFps, int totalFrames, float[] bboxMin,
+            float[] bboxMax, List<ParticleTextureManager.TextureEntry> textures, long[] frameOffsets,
+            int[] frameSizes, int[] keyframeIndices, float[] frameBounds, int framesPerBoundsEntry) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.targetFps = targetFps;
+        this.totalFrames = totalFrames;
+        this.bboxMin = bboxMin;
+        this.bboxMax = bboxMax;
+        this.textures = Collections.unmodifiableList(textures);
+        this.frameOffsets = frameOffsets;
+        this.frameSizes = frameSizes;
+        this.keyframeIndices = keyframeIndices;
+        this.frameBounds = frameBounds;
+        this.framesPerBoundsEntry = framesPerBoundsEntry;
+    }
+
+    /**
+     * 获取文件索引，文件未变化时直接返回缓存
+     */
+    public static NblIndex get(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long size = file.length();
+        long modified = file.lastModified();
+        synchronized (CACHE) {
+            NblIndex cached = CACHE.get(key);
+            if (cached != null && cached.fileSize == size && cached.lastModified == modified) {
+                return cached;
+            }
+        }
+        // 解析在锁外进行，并发解析同一文件时结果相同，后写入者覆盖即可
+        NblIndex index = read(file, size, modified);
+        synchronized (CACHE) {
+            CACHE.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * 丢弃指定文件的缓存索引
+     */
+    public static void invalidate(File file) {
+        synchronized (CACHE) {
+            CACHE.remove(file.getAbsolutePath());
+        }
+    }
+
+    private static NblIndex read(File file, long size, long modified) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            ByteBuffer headerBuf = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            raf.readFully(headerBuf.array());
+
+            byte[] magic = new byte[8];
+            headerBuf.get(magic);
+            if (!new String(magic, StandardCharsets.US_ASCII).equals("NEBULAFX")) {
+                throw new IOException("Invalid NBL file");
+            }
+
+            int targetFps = headerBuf.getShort(10) & 0xFFFF;
+            int totalFrames = headerBuf.getInt(12);
+            int textureCount = headerBuf.getShort(16) & 0xFFFF;
+            int attributes = headerBuf.getShort(18) & 0xFFFF;
+            long boundsTableOffset = headerBuf.getInt(44) & 0xFFFFFFFFL;
+            float[] bboxMin = { headerBuf.getFloat(20), headerBuf.getFloat(24), headerBuf.getFloat(28) };
+            float[] bboxMax = { headerBuf.getFloat(32), headerBuf.getFloat(36), headerBuf.getFloat(40) };
+
+            List<ParticleTextureManager.TextureEntry> textures = new ArrayList<>(textureCount);
+            for (int i = 0; i < textureCount; i++) {
+                int pathLen = readUnsignedShortLE(raf);
+                byte[] pathBytes = new byte[pathLen];
+                raf.readFully(pathBytes);
+                textures.add(new ParticleTextureManager.TextureEntry(
+                        new String(pathBytes, StandardCharsets.UTF_8),
+                        raf.read() & 0xFF, raf.read() & 0xFF));
+            }
+
+            long[] frameOffsets = new long[totalFrames];
+            int[] frameSizes = new int[totalFrames];
+            ByteBuffer indexBuf = ByteBuffer.allocate(totalFrames * 12).order(ByteOrder.LITTLE_ENDIAN);
+            raf.readFully(indexBuf.array());
+            for (int i = 0; i < totalFrames; i++) {
+                frameOffsets[i] = indexBuf.getLong();
+                frameSizes[i] = indexBuf.getInt();
+            }
+
+            byte[] countBytes = new byte[4];
+            raf.readFully(countBytes);
+            int keyframeCount = ByteBuffer.wrap(countBytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            ByteBuffer kfBuf = ByteBuffer.allocate(keyframeCount * 4).order(ByteOrder.LITTLE_ENDIAN);
+            raf.readFully(kfBuf.array());
+            int[] keyframeIndices = new int[keyframeCount];
+            for (int i = 0; i < keyframeCount; i++) {
+                keyframeIndices[i] = kfBuf.getInt();
+            }
+
+            float[] frameBounds = null;
+            int framesPerBoundsEntry = 1;
+            if ((attributes & ATTR_FRAME_BOUNDS) != 0 && boundsTableOffset > 0) {
+                int[] perEntry = new int[1];
+                frameBounds = readFrameBounds(raf, file, boundsTableOffset, totalFrames, perEntry);
+                if (frameBounds != null) {
+                    framesPerBoundsEntry = perEntry[0];
+                }
+            }
+
+            return new NblIndex(size, modified, targetFps, totalFrames, bboxMin, bboxMax, textures, frameOffsets,
+                    frameSizes, keyframeIndices, frameBounds, framesPerBoundsEntry);
+        }
+    }
+
+    /**
+     * 读取逐帧包围盒表
+     * <p>
+     * 表结构: [u32 每项帧数 F][u32 项数 E][E * f32[6]]，E 必须等于 ceil(总帧数 / F)。
+     * 表损坏时只打印警告并退回头部的整体包围盒。
+     * </p>
+     */
+    private static float[] readFrameBounds(RandomAccessFile raf, File file, long offset, int totalFrames,
+            int[] outFramesPerEntry) throws IOException {
+        if (offset + 8 > raf.length()) {
+            Nebula.LOGGER.warn("[NblStreamer] Frame bounds table out of range in {}", file.getName());
+            return null;
+        }
+        raf.seek(offset);
+        ByteBuffer headBuf = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        raf.readFully(headBuf.array());
+        int framesPerEntry = headBuf.getInt(0);
+        int entryCount = headBuf.getInt(4);
+
+        if (framesPerEntry <= 0 || totalFrames <= 0
+                || entryCount != (totalFrames + framesPerEntry - 1) / framesPerEntry
+                || offset + 8 + (long) entryCount * 24 > raf.length()) {
+            Nebula.LOGGER.warn("[NblStreamer] Invalid frame bounds table in {}, using header bbox",
+                    file.getName());
+            return null;
+        }
+
+        ByteBuffer boundsBuf = ByteBuffer.allocate(entryCount * 24).order(ByteOrder.LITTLE_ENDIAN);
+        raf.readFully(boundsBuf.array());
+        float[] bounds = new float[entryCount * 6];
+        boundsBuf.asFloatBuffer().get(bounds);
+        outFramesPerEntry[0] = framesPerEntry;
+        return bounds;
+    }
+
+    private static int readUnsignedShortLE(RandomAccessFile raf) throws IOException {
+        int b1 = raf.read();
+        int b2 = raf.read();
+        return (b2 << 8) | b1;
+    }
+
+    public int getTargetFps() {
+        return targetFps;
+    }
+
+    public int getTotalFrames() {
+        return totalFrames;
+    }
+
+    public float[] getBboxMin() {
+        return bboxMin;
+    }
+
+    public float[] getBboxMax() {
+        return bboxMax;
+    }
+
+    public List<ParticleTextureManager.TextureEntry> getTextures() {
+        return textures;
+    }
+
+    public long[] getFrameOffsets() {
+        return frameOffsets;
+    }
+
+    public int[] getFrameSizes() {
+        return frameSizes;
+    }
+
+    public int[] getKeyframeIndices() {
+        return keyframeIndices;
+    }
+
+    /**
+     * @return 逐帧包围盒表，没有或损坏时为 null
+     */
+    public float[] getFrameBounds() {
+        return frameBounds;
+    }
+
+    public int getFramesPerBoundsEntry() {
+        return framesPerBoundsEntry;
+    }
+}
@@ -39,10 +39,16 @@
 package com.atemukesu.nebula.client.loader;
 
 import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.client.config.ModConfig;
+import com.atemukesu.nebula.client.enums.BlendMode;
+import com.atemukesu.nebula.client.render.AnimationFrame;
+import com.atemukesu.nebula.client.render.GpuFrameHeap;
+import com.atemukesu.nebula.client.render.GpuParticleRenderer;
 import com.atemukesu.nebula.client.render.ParticleTextureManager;
 import com.atemukesu.nebula.client.render.SharedTextureResource;
 import com.atemukesu.nebula.client.render.TextureAtlasMap;
 import com.atemukesu.nebula.client.render.TextureCacheSystem;
+import com.atemukesu.nebula.client.util.CurrentTimeUtil;
 import com.atemukesu.nebula.particle.data.NblHeader;
 import com.github.luben.zstd.Zstd;
 import net.minecraft.client.MinecraftClient;
@@ -55,7 +61,6 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
@@ -88,10 +93,13 @@ public class NblStreamer implements Runnable {
     // [v2.0 新增] 关键帧索引表
     private int[] keyframeIndices;
 
-    private final List<ParticleTextureManager.TextureEntry> textureEntries = new ArrayList<>();
     private float[] bboxMin = new float[3];
     private float[] bboxMax = new float[3];
 
+    // [可选] 逐帧 / 逐 GOP 包围盒表 (Attributes 0x04)，每项 6 个 float: min xyz, max xyz
+    private float[] frameBounds = null;
+    private int framesPerBoundsEntry = 1;
+
     // 持有资源引用
     private final SharedTextureResource textureResource;
 
@@ -102,7 +110,9 @@ public class NblStreamer implements Runnable {
     // 默认分配 100w 粒子容量，避免频繁扩容
     private final ParticleStateData state = new ParticleStateData(1_050_000);
 
-    private final BlockingQueue<ByteBuffer> gpuBufferQueue;
+    private final BlockingQueue<AnimationFrame> gpuBufferQueue;
+    // GPU 解码模式：不在 CPU 上应用增量，只把原始列送给 GpuFrameDecoder
+    private final boolean gpuDecode;
     private final AtomicBoolean isRunning = new AtomicBoolean(true);
     private volatile boolean isFinished = false;
 
@@ -121,14 +131,68 @@ public class NblStreamer implements Runnable {
     // [新增字段] 用于 runImpl 内部通信
     private volatile int forceResetToFrame = -1;
     private volatile int fastForwardTo = -1;
+    // 离线渲染 (导出视频) 时按帧号交接的帧环，只用于 CPU 解码
+    private static final int OFFLINE_RING_CAPACITY = 16;
+    // 预测采样帧时允许的时间戳误差 (帧)
+    private static final double OFFLINE_SAMPLE_JITTER = 0.05;
+    private final FrameRing offlineRing = new FrameRing(OFFLINE_RING_CAPACITY);
+    // 渲染线程最近请求的帧号及其连续帧位置，用于推算之后哪些帧会被视频采样
+    private volatile double offlineAnchorPosition;
+    private volatile int offlineAnchorFrame = -1;
+    // 供播放时钟估算追帧 / Seek 代价：下一帧的解码位置与单帧解码耗时 (指数平均)
+    private volatile int decodePosition = 0;
+    private volatile double averageDecodeMs = 1.0;
 
     private static final int QUEUE_CAPACITY = 10;
+    /** Seek 目标在解码位置之后且不超过该帧数时只快进，否则回到关键帧重置 */
+    public static final int FAST_FORWARD_LIMIT = 30;
+    // 有效队列深度 (由自适应画质收紧，不超过容量)
+    private static volatile int queueDepth = QUEUE_CAPACITY;
 
     // 并行处理相关
     private static final ForkJoinPool PARALLEL_POOL = new ForkJoinPool(
             Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
     private static final int PARALLEL_THRESHOLD = 5000;
 
+    // 分区写出：按块计数再前缀和，结果与线程调度无关
+    private static final int EMIT_CHUNK = 4096;
+    // 顶点 alpha 低于该值 (< 0.5) 的粒子不可能产生不透明片元
+    private static final int OPAQUE_ALPHA_MIN = 128;
+    private int[] chunkOpaqueBase = new int[0];
+    private int[] chunkTranslucentBase = new int[0];
+
+    // ===== 深度排序 (标准混合模式) =====
+    // 渲染线程发布的视角：相对原点的相机位置 xyz + 视线方向 xyz
+    private volatile float[] sortView = null;
+    // 上次排序使用的视角，相机几乎不动且粒子 ID 序列不变时复用排序结果
+    private float[] lastSortView = null;
+    private int reusedSortFrames = 0;
+    private static final float SORT_REUSE_DISTANCE_SQ = 0.05f * 0.05f;
+    private static final float SORT_REUSE_MIN_DOT = 0.9995f;
+    private static final int SORT_REUSE_MAX_FRAMES = 4; // 粒子仍在运动，限制连续复用次数
+    private static final int RADIX = 256;
+    private int[] frameIds = new int[0];
+    private int[] prevFrameIds = new int[0];
+    private int prevFrameCount = -1;
+    private int[] sortKeys = new int[0];
+    private int[] sortIndex = new int[0];
+    private int[] sortTmpKeys = new int[0];
+    private int[] sortTmpIndex = new int[0];
+    private int[] chunkHistogram = new int[0];
+
+    // ===== 输出抽稀 (LOD) =====
+    // 渲染线程按实例在屏幕上的大小设置，只影响写出的渲染记录，粒子状态始终完整
+    private volatile int decimationStride = 1;
+    private int[] chunkKeepBase = new int[0];
+    // 最近一次写出的渲染记录数
+    private int emittedCount = 0;
+
+    // ===== 粒子尺寸 (供逐帧包围盒外扩) =====
+    // GPU 解码时 CPU 没有粒子状态，只能由尺寸列推出当前帧尺寸的上界 (I-Frame 精确，P-Frame 累加正增量)
+    private float frameSizeBound = 0;
+    // 播放以来见过的最大粒子尺寸，只增不减，解码线程领先渲染线程时也不会外扩不足
+    private volatile float maxParticleSize = 0;
+
     public NblStreamer(File nblFile, SharedTextureResource resource) throws IOException {
         this.file = nblFile;
         this.textureResource = resource;
@@ -141,63 +205,25 @@ public class NblStreamer implements Runnable {
         this.textureMap = resource != null ? resource.getMap() : TextureAtlasMap.EMPTY;
 
         this.gpuBufferQueue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        // 深度排序只在 CPU 解码路径上实现：开启排序时该流改用 CPU 解码
+        this.gpuDecode = ModConfig.getInstance().getGpuDecode() && !isDepthSortEnabled()
+                && GpuParticleRenderer.isGpuDecodeAvailable();
         parseHeader();
     }
 
     private void parseHeader() throws IOException {
-        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-            ByteBuffer headerBuf = ByteBuffer.allocate(48).order(ByteOrder.LITTLE_ENDIAN);
-            raf.readFully(headerBuf.array());
-
-            byte[] magic = new byte[8];
-            headerBuf.get(magic);
-            if (!new String(magic, StandardCharsets.US_ASCII).equals("NEBULAFX")) {
-                throw new IOException("Invalid NBL file");
-            }
-
-            this.targetFps = headerBuf.getShort(10) & 0xFFFF;
-            this.totalFrames = headerBuf.getInt(12);
-            int textureCount = headerBuf.getShort(16) & 0xFFFF;
-
-            bboxMin[0] = headerBuf.getFloat(20);
-            bboxMin[1] = headerBuf.getFloat(24);
-            bboxMin[2] = headerBuf.getFloat(28);
-            bboxMax[0] = headerBuf.getFloat(32);
-            bboxMax[1] = headerBuf.getFloat(36);
-            bboxMax[2] = headerBuf.getFloat(40);
-
-            textureEntries.clear();
-            for (int i = 0; i < textureCount; i++) {
-                int pathLen = readUnsignedShortLE(raf);
-                // Skip path bytes + rows (1 byte) + cols (1 byte)
-                raf.skipBytes(pathLen + 2);
-            }
-
-            this.frameOffsets = new long[totalFrames];
-            this.frameSizes = new int[totalFrames];
-            ByteBuffer indexBuf = ByteBuffer.allocate(totalFrames * 12).order(ByteOrder.LITTLE_ENDIAN);
-            raf.readFully(indexBuf.array());
-            for (int i = 0; i < totalFrames; i++) {
-                frameOffsets[i] = indexBuf.getLong();
-                frameSizes[i] = indexBuf.getInt();
-            }
-
-            // 读取数量
-            byte[] countBytes = new byte[4];
-            raf.readFully(countBytes);
-            int keyframeCount = ByteBuffer.wrap(countBytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
-
-            // 读取列表
-            ByteBuffer kfBuf = ByteBuffer.allocate(keyframeCount * 4).order(ByteOrder.LITTLE_ENDIAN);
-            raf.readFully(kfBuf.array());
-
-            keyframeIndices = new int[keyframeCount];
-            for (int i = 0; i < keyframeCount; i++) {
-                keyframeIndices[i] = kfBuf.getInt();
-            }
-
-            this.header = new NblHeader(targetFps, totalFrames, textureEntries);
-        }
+        // [优化] 索引表按文件缓存，同一动画的后续实例不再读盘解析
+        NblIndex index = NblIndex.get(file);
+        this.targetFps = index.getTargetFps();
+        this.totalFrames = index.getTotalFrames();
+        this.bboxMin = index.getBboxMin();
+        this.bboxMax = index.getBboxMax();
+        this.frameOffsets = index.getFrameOffsets();
+        this.frameSizes = index.getFrameSizes();
+        this.keyframeIndices = index.getKeyframeIndices();
+        this.frameBounds = index.getFrameBounds();
+        this.framesPerBoundsEntry = index.getFramesPerBoundsEntry();
+        this.header = new NblHeader(targetFps, totalFrames, index.getTextures());
     }
 
     /**
@@ -205,43 +231,7 @@ public class NblStreamer implements Runnable {
      * 用于在主线程提前加载纹理并生成 Map
      */
     public static List<ParticleTextureManager.TextureEntry> preScanTextures(File file) throws IOException {
-        List<ParticleTextureManager.TextureEntry> entries = new ArrayList<>();
-        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-            ByteBuffer headerBuf = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
-            raf.readFully(headerBuf.array()); // Read up to textureCount
-
-            byte[] magic = new byte[8];
-            headerBuf.get(magic);
-            if (!new String(magic, StandardCharsets.US_ASCII).equals("NEBULAFX")) {
-                throw new IOException("Invalid NBL file");
-            }
-
-            int textureCount = headerBuf.getShort(16) & 0xFFFF;
-
-            raf.seek(48);
-
-            for (int i = 0; i < textureCount; i++) {
-                int pathLen = readUnsignedShortLE_Static(raf);
-                byte[] pathBytes = new byte[pathLen];
-                raf.readFully(pathBytes);
-                entries.add(new ParticleTextureManager.TextureEntry(
-                        new String(pathBytes, StandardCharsets.UTF_8),
-                        raf.read() & 0xFF, raf.read() & 0xFF));
-            }
-        }
-        return entries;
-    }
-
-    private static int readUnsignedShortLE_Static(RandomAccessFile raf) throws IOException {
-        int b1 = raf.read();
-        int b2 = raf.read();
-        return (b2 << 8) | b1;
-    }
-
-    private int readUnsignedShortLE(RandomAccessFile raf) throws IOException {
-        int b1 = raf.read();
-        int b2 = raf.read();
-        return (b2 << 8) | b1;
+        return new ArrayList<>(NblIndex.get(file).getTextures());
     }
 
     public void seek(int frameIndex) {
@@ -262,6 +252,8 @@ public class NblStreamer implements Runnable {
                 FileChannel channel = raf.getChannel()) {
 
             int currentFrameIdx = 0;
+            // GPU 解码模式下通知解码器丢弃旧状态
+            boolean pendingReset = true;
             // 初始化
             fastForwardTo = -1;
             forceResetToFrame = -1;
@@ -280,20 +272,12 @@ public class NblStreamer implements Runnable {
                         targetFrame = totalFrames - 1;
 
                     // 1. 找最近关键帧
-                    int bestKeyframe = 0;
-                    if (keyframeIndices != null) {
-                        for (int kf : keyframeIndices) {
-                            if (kf <= targetFrame) {
-                                bestKeyframe = kf;
-                            } else {
-                                break;
-                            }
-                        }
-                    }
+                    int bestKeyframe = getKeyframeAtOrBefore(targetFrame);
 
                     // 2. 判断是否需要 Reset
                     // 如果需要回退，或者相距超过 30 帧，则重置
-                    boolean needReset = (targetFrame < currentFrameIdx) || (targetFrame - currentFrameIdx > 30);
+                    boolean needReset = (targetFrame < currentFrameIdx)
+                            || (targetFrame - currentFrameIdx > FAST_FORWARD_LIMIT);
 
                     if (needReset) {
                         forceResetToFrame = bestKeyframe;
@@ -312,14 +296,17 @@ public class NblStreamer implements Runnable {
                     // 1. 物理 Seek
                     if (resetPoint >= 0 && resetPoint < totalFrames) {
                         currentFrameIdx = resetPoint;
+                        decodePosition = resetPoint;
                         long offset = frameOffsets[currentFrameIdx];
                         channel.position(offset);
 
                         // 2. 状态清零 (I-Frame 特性：不依赖旧状态)
                         state.clear();
+                        pendingReset = true;
                         // 清空管道里的旧数据
-                        gpuBufferQueue.forEach(NblStreamer::releaseBuffer);
+                        gpuBufferQueue.forEach(NblStreamer::releaseFrame);
                         gpuBufferQueue.clear();
+                        offlineRing.clear();
                     }
                 }
 
@@ -328,8 +315,20 @@ public class NblStreamer implements Runnable {
                     break;
                 }
 
+                // [自适应] 队列深度被收紧到容量以下时，在读取下一帧前等待消费者
+                if (gpuBufferQueue.size() >= queueDepth) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    continue;
+                }
+
                 long offset = frameOffsets[currentFrameIdx];
                 int compressedSize = frameSizes[currentFrameIdx];
+                long decodeStart = System.nanoTime();
 
                 // 缓冲管理与解压 (Zstd)
                 ensureCompressedBuffer(compressedSize);
@@ -362,26 +361,44 @@ public class NblStreamer implements Runnable {
                     isSkipping = false;
                 }
 
+                // [离线渲染] 视频不会采样到的帧只更新状态，不输出渲染记录
+                boolean offline = CurrentTimeUtil.isRendering();
+                boolean stateOnly = isSkipping || (offline && !isSampledOffline(currentFrameIdx));
+
                 // 处理帧数据
-                ByteBuffer gpuBuffer = processFrameData(cachedDecompressedBuffer, isSkipping, currentFrameIdx);
+                AnimationFrame frame;
+                if (gpuDecode) {
+                    // 状态在 GPU 上，快进中的帧也必须入队，由渲染线程按顺序应用
+                    frame = packEncodedFrame(cachedDecompressedBuffer, stateOnly, currentFrameIdx, pendingReset);
+                    if (frame != null)
+                        pendingReset = false;
+                } else {
+                    frame = processFrameData(cachedDecompressedBuffer, stateOnly, currentFrameIdx);
+                }
 
-                // 只有不跳过的时候，才塞入队列
-                if (!isSkipping && gpuBuffer != null) {
+                if (offline && !gpuDecode) {
+                    // 按帧号放入帧环，渲染线程直接取所需的帧；等待中遇到 Seek 则放弃这一帧
+                    if (frame != null && !offlineRing.put(frame, () -> isRunning.get() && seekTargetFrame == -1))
+                        releaseFrame(frame);
+                } else if ((gpuDecode || !stateOnly) && frame != null) {
+                    // 只有不跳过的时候，才塞入队列
                     try {
-                        gpuBufferQueue.put(gpuBuffer);
+                        gpuBufferQueue.put(frame);
                     } catch (InterruptedException e) {
-                        releaseBuffer(gpuBuffer);
+                        releaseFrame(frame);
                         Thread.currentThread().interrupt();
                         break;
                     }
                 }
 
                 currentFrameIdx++;
+                decodePosition = currentFrameIdx;
+                averageDecodeMs = averageDecodeMs * 0.9 + (System.nanoTime() - decodeStart) / 1_000_000.0 * 0.1;
 
                 // 结束处理
                 if (currentFrameIdx >= totalFrames) {
                     try {
-                        gpuBufferQueue.put(BufferUtils.createByteBuffer(0)); // EOF
+                        gpuBufferQueue.put(AnimationFrame.EOF);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                         break;
@@ -412,28 +429,108 @@ public class NblStreamer implements Runnable {
     /**
      * 处理解压后的帧数据，生成 SSBO 格式数据
      */
-    private ByteBuffer processFrameData(ByteBuffer data, boolean skipOutput, int frameIdx) {
+    private AnimationFrame processFrameData(ByteBuffer data, boolean skipOutput, int frameIdx) {
         if (data.remaining() < 5)
             return null;
         int frameType = data.get() & 0xFF;
         int particleCount = data.getInt();
 
+        AnimationFrame frame = null;
         ByteBuffer gpuBuffer = null;
         if (!skipOutput) {
-            // [修改] 申请 48 字节/粒子的缓冲区 (SSBO std430)
-            int requiredSize = particleCount * 48;
-            gpuBuffer = acquireBuffer(requiredSize);
+            frame = acquireFrame(particleCount, frameIdx);
+            gpuBuffer = frame.gpuData;
         }
 
+        emittedCount = particleCount;
+        int opaqueCount;
         if (frameType == 0)
-            processIFrame(data, particleCount, gpuBuffer, frameIdx);
+            opaqueCount = processIFrame(data, particleCount, gpuBuffer, frameIdx);
         else
-            processPFrame(data, particleCount, gpuBuffer, frameIdx);
+            opaqueCount = processPFrame(data, particleCount, gpuBuffer, frameIdx);
+
+        if (frame != null) {
+            frame.particleCount = emittedCount;
+            frame.sourceParticleCount = particleCount;
+            frame.opaqueCount = opaqueCount;
+        }
+        return frame;
+    }
 
-        return gpuBuffer;
+    /**
+     * GPU 解码模式：把解压后的原始列 (不含帧头) 原样打包成帧
+     * <p>
+     * 优先写入 GPU 帧堆，解码器直接从映射内存读取；否则放入普通缓冲区由解码器上传。
+     * </p>
+     */
+    private AnimationFrame packEncodedFrame(ByteBuffer data, boolean decodeOnly, int frameIdx, boolean resetState) {
+        if (data.remaining() < 5)
+            return null;
+        int frameType = data.get() & 0xFF;
+        int particleCount = data.getInt();
+        int payloadBytes = data.remaining();
+
+        // 只扫描 ID 列，供解码器扩容状态缓冲区 (I-Frame 20 字节/粒子之后，P-Frame 14 字节/粒子之后)
+        int idOff = data.position() + particleCount * (frameType == 0 ? 20 : 14);
+        int maxId = -1;
+        for (int i = 0; i < particleCount; i++) {
+            int id = data.getInt(idOff + i * 4);
+            if (id > maxId)
+                maxId = id;
+        }
+        scanSizeColumn(data, frameType, particleCount);
+
+        AnimationFrame frame = null;
+        GpuFrameHeap heap = GpuParticleRenderer.getFrameHeap();
+        if (heap != null) {
+            GpuFrameHeap.Region region = heap.allocateBytes(payloadBytes);
+            if (region != null) {
+                frame = new AnimationFrame(region.getBuffer(), particleCount, region, frameIdx);
+            }
+        }
+        if (frame == null) {
+            frame = new AnimationFrame(acquireBuffer(payloadBytes), particleCount, null, frameIdx);
+        }
+        MemoryUtil.memCopy(MemoryUtil.memAddress(data), MemoryUtil.memAddress(frame.gpuData), payloadBytes);
+        frame.gpuData.limit(payloadBytes);
+
+        frame.encoded = true;
+        frame.frameType = frameType;
+        frame.maxParticleId = maxId;
+        frame.decodeOnly = decodeOnly;
+        frame.resetState = resetState;
+        return frame;
     }
 
-    private void processIFrame(ByteBuffer data, int particleCount, ByteBuffer gpuBuffer, int frameIdx) {
+    /**
+     * GPU 解码模式：扫描尺寸列，更新当前帧粒子尺寸的上界
+     * <p>
+     * I-Frame 的尺寸列是绝对值 (u16 / 100)；P-Frame 是增量 (i16 / 100)，新生粒子从 0 开始累加，
+     * 因此上一帧的上界加上本帧最大的正增量仍是上界。
+     * </p>
+     */
+    private void scanSizeColumn(ByteBuffer data, int frameType, int particleCount) {
+        // 尺寸列位于 I-Frame 16 字节/粒子之后，P-Frame 10 字节/粒子之后
+        int sizeOff = data.position() + particleCount * (frameType == 0 ? 16 : 10);
+        int maxRaw = 0;
+        if (frameType == 0) {
+            for (int i = 0; i < particleCount; i++)
+                maxRaw = Math.max(maxRaw, data.getShort(sizeOff + i * 2) & 0xFFFF);
+            frameSizeBound = maxRaw / 100.0f;
+        } else {
+            for (int i = 0; i < particleCount; i++)
+                maxRaw = Math.max(maxRaw, data.getShort(sizeOff + i * 2));
+            frameSizeBound += maxRaw / 100.0f;
+        }
+        recordParticleSize(frameSizeBound);
+    }
+
+    private void recordParticleSize(float size) {
+        if (size > maxParticleSize)
+            maxParticleSize = size;
+    }
+
+    private int processIFrame(ByteBuffer data, int particleCount, ByteBuffer gpuBuffer, int frameIdx) {
         // [优化] 计算所有字段的偏移量，避免循环内重复计算
         final int baseOffset = data.position();
         int N = particleCount;
@@ -460,6 +557,7 @@ public class NblStreamer implements Runnable {
         }
         state.ensureCapacity(maxId);
 
+        float maxSize = 0;
         for (int i = 0; i < particleCount; i++) {
             int id = data.getInt(idOff + i * 4);
 
@@ -483,13 +581,14 @@ public class NblStreamer implements Runnable {
             state.size[id] = Math.max(0.01f, (data.getShort(sizeOff + i * 2) & 0xFFFF) / 100.0f);
             state.tex[id] = data.get(texOff + i);
             state.seq[id] = data.get(seqOff + i);
-
-            if (bufferAddr != 0)
-                writeParticleToGpuDirect(bufferAddr, i, id, state);
+            maxSize = Math.max(maxSize, state.size[id]);
         }
+        recordParticleSize(maxSize);
+
+        return bufferAddr != 0 ? emitRecords(data, idOff, particleCount, bufferAddr) : 0;
     }
 
-    private void processPFrame(ByteBuffer data, int particleCount, ByteBuffer gpuBuffer, int frameIdx) {
+    private int processPFrame(ByteBuffer data, int particleCount, ByteBuffer gpuBuffer, int frameIdx) {
         final int baseOffset = data.position();
         int N = particleCount;
         // P-Frame 偏移计算 (final for lambda)
@@ -568,11 +667,6 @@ public class NblStreamer implements Runnable {
                 state.prevY[id] = oldY;
                 state.prevZ[id] = oldZ;
             }
-
-            // 直接写入 GPU Buffer
-            if (bufferAddr != 0) {
-                writeParticleToGpuDirect(bufferAddr, i, id, state);
-            }
         };
 
         // 决策：并行 vs 串行
@@ -591,20 +685,391 @@ public class NblStreamer implements Runnable {
                 processParticle.accept(i);
             }
         }
+
+        // 状态全部更新后统计本帧最大尺寸，再分区写入 GPU Buffer
+        float maxSize = 0;
+        for (int i = 0; i < particleCount; i++)
+            maxSize = Math.max(maxSize, state.size[data.getInt(idOff + i * 4)]);
+        recordParticleSize(maxSize);
+
+        return bufferAddr != 0 ? emitRecords(data, idOff, particleCount, bufferAddr) : 0;
+    }
+
+    /**
+     * 写出渲染记录
+     *
+     * @return 前段粒子数；深度排序后不分区，返回 -1
+     */
+    private int emitRecords(ByteBuffer data, int idOff, int particleCount, long bufferAddr) {
+        int stride = decimationStride;
+        int n = gatherIds(data, idOff, particleCount, stride);
+        // 抽稀后按 sqrt(stride) 放大粒子，保持屏幕覆盖面积与视觉密度
+        float sizeScale = stride > 1 ? (float) Math.sqrt(stride) : 1.0f;
+        emittedCount = n;
+
+        float[] view = sortView;
+        if (view != null && isDepthSortEnabled()) {
+            emitDepthSorted(n, bufferAddr, view, sizeScale);
+            return -1;
+        }
+        lastSortView = null;
+        return emitPartitioned(n, bufferAddr, sizeScale);
+    }
+
+    /**
+     * 把本帧要写出的粒子 ID 收集到 frameIds
+     * <p>
+     * stride > 1 时按 ID 的哈希只保留约 1/stride 的粒子。stride 为 2 的幂时，
+     * 高一级保留的粒子总是低一级的子集，LOD 切换时不会整体换一批粒子。
+     * 先按块计数再前缀和，结果保持文件顺序。
+     * </p>
+     *
+     * @return 保留的粒子数
+     */
+    private int gatherIds(ByteBuffer data, int idOff, int particleCount, int stride) {
+        int chunks = (particleCount + EMIT_CHUNK - 1) / EMIT_CHUNK;
+        ensureIdCapacity(particleCount);
+        final int[] ids = frameIds;
+
+        if (stride <= 1) {
+            runChunks(chunks, particleCount, c -> {
+                int start = c * EMIT_CHUNK;
+                int end = Math.min(start + EMIT_CHUNK, particleCount);
+                for (int i = start; i < end; i++) {
+                    ids[i] = data.getInt(idOff + i * 4);
+                }
+            });
+            return particleCount;
+        }
+
+        if (chunkKeepBase.length < chunks)
+            chunkKeepBase = new int[chunks];
+        final int[] keepBase = chunkKeepBase;
+
+        runChunks(chunks, particleCount, c -> {
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, particleCount);
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                if (isKept(data.getInt(idOff + i * 4), stride))
+                    count++;
+            }
+            keepBase[c] = count;
+        });
+
+        int total = 0;
+        for (int c = 0; c < chunks; c++) {
+            int count = keepBase[c];
+            keepBase[c] = total;
+            total += count;
+        }
+
+        runChunks(chunks, particleCount, c -> {
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, particleCount);
+            int dst = keepBase[c];
+            for (int i = start; i < end; i++) {
+                int id = data.getInt(idOff + i * 4);
+                if (isKept(id, stride))
+                    ids[dst++] = id;
+            }
+        });
+        return total;
+    }
+
+    private static boolean isKept(int id, int stride) {
+        // 乘法哈希打散连续 ID，取高位
+        return ((id * 0x9E3779B9) >>> 8) % stride == 0;
+    }
+
+    /**
+     * 设置所有流的有效解码队列深度
+     *
+     * @param depth 深度，限制在 [1, 容量] 之间
+     */
+    public static void setQueueDepth(int depth) {
+        queueDepth = Math.max(1, Math.min(depth, QUEUE_CAPACITY));
+    }
+
+    /**
+     * 设置输出抽稀步长 (渲染线程调用，从下一帧开始生效)
+     *
+     * @param stride 每 stride 个粒子保留约 1 个，1 = 完整输出
+     */
+    public void setDecimationStride(int stride) {
+        this.decimationStride = Math.max(1, stride);
+    }
+
+    public int getDecimationStride() {
+        return decimationStride;
+    }
+
+    /**
+     * 获取播放以来见过的最大粒子尺寸 (未乘 LOD 放大系数)
+     */
+    public float getMaxParticleSize() {
+        return maxParticleSize;
+    }
+
+    private static boolean isDepthSortEnabled() {
+        ModConfig config = ModConfig.getInstance();
+        return config.getDepthSort() && config.getBlendMode() != BlendMode.OIT;
+    }
+
+    /**
+     * 按视深从远到近写出渲染记录 (标准混合模式下半透明粒子才能正确叠加)
+     * <p>
+     * 以包围盒在视线方向上的投影范围把视深量化为 16 位键，
+     * 再做两趟 8 位 LSD 基数排序：每块统计直方图，按 (数位, 块) 顺序前缀和后每块并行分发，
+     * 结果稳定且与线程调度无关。相机几乎不动、粒子 ID 序列与上一帧相同时直接复用上一次的排序。
+     * 排序后整帧作为一个区间绘制 (两个 Pass 都需要全局有序)，因此不再分区。
+     * </p>
+     */
+    private void emitDepthSorted(int n, long bufferAddr, float[] view, float sizeScale) {
+        int chunks = (n + EMIT_CHUNK - 1) / EMIT_CHUNK;
+        ensureSortCapacity(n, chunks);
+
+        final int[] ids = frameIds;
+
+        boolean reuse = lastSortView != null && n == prevFrameCount && reusedSortFrames < SORT_REUSE_MAX_FRAMES
+                && isSameView(view, lastSortView) && Arrays.equals(ids, 0, n, prevFrameIds, 0, n);
+
+        if (reuse) {
+            reusedSortFrames++;
+        } else {
+            sortByDepth(n, chunks, view);
+            lastSortView = view;
+            reusedSortFrames = 0;
+        }
+
+        final int[] order = sortIndex;
+        runChunks(chunks, n, c -> {
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, n);
+            for (int r = start; r < end; r++) {
+                writeParticleToGpuDirect(bufferAddr, r, ids[order[r]], state, sizeScale);
+            }
+        });
+
+        // 保存本帧 ID 序列供下一帧判断能否复用
+        int[] swap = prevFrameIds;
+        prevFrameIds = frameIds;
+        frameIds = swap;
+        prevFrameCount = n;
+    }
+
+    private void sortByDepth(int n, int chunks, float[] view) {
+        final float camX = view[0], camY = view[1], camZ = view[2];
+        final float fwdX = view[3], fwdY = view[4], fwdZ = view[5];
+
+        // 包围盒 8 个角在视线方向上的投影范围
+        float minDepth = Float.MAX_VALUE;
+        float maxDepth = -Float.MAX_VALUE;
+        for (int corner = 0; corner < 8; corner++) {
+            float x = ((corner & 1) != 0 ? bboxMax[0] : bboxMin[0]) - camX;
+            float y = ((corner & 2) != 0 ? bboxMax[1] : bboxMin[1]) - camY;
+            float z = ((corner & 4) != 0 ? bboxMax[2] : bboxMin[2]) - camZ;
+            float depth = x * fwdX + y * fwdY + z * fwdZ;
+            minDepth = Math.min(minDepth, depth);
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        final float base = minDepth;
+        final float scale = maxDepth > minDepth ? 65535.0f / (maxDepth - minDepth) : 0.0f;
+
+        final int[] ids = frameIds;
+        final int[] keys = sortKeys;
+        final int[] index = sortIndex;
+        runChunks(chunks, n, c -> {
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, n);
+            for (int i = start; i < end; i++) {
+                int id = ids[i];
+                float depth = (state.x[id] - camX) * fwdX + (state.y[id] - camY) * fwdY + (state.z[id] - camZ) * fwdZ;
+                int q = (int) ((depth - base) * scale);
+                q = Math.max(0, Math.min(65535, q));
+                keys[i] = 65535 - q; // 升序排序 = 从远到近
+                index[i] = i;
+            }
+        });
+
+        radixPass(sortKeys, sortIndex, sortTmpKeys, sortTmpIndex, n, chunks, 0);
+        radixPass(sortTmpKeys, sortTmpIndex, sortKeys, sortIndex, n, chunks, 8);
+    }
+
+    private void radixPass(int[] srcKeys, int[] srcIndex, int[] dstKeys, int[] dstIndex, int n, int chunks,
+            int shift) {
+        final int[] histogram = chunkHistogram;
+        runChunks(chunks, n, c -> {
+            int offset = c * RADIX;
+            Arrays.fill(histogram, offset, offset + RADIX, 0);
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, n);
+            for (int i = start; i < end; i++) {
+                histogram[offset + ((srcKeys[i] >>> shift) & 0xFF)]++;
+            }
+        });
+
+        int sum = 0;
+        for (int digit = 0; digit < RADIX; digit++) {
+            for (int c = 0; c < chunks; c++) {
+                int slot = c * RADIX + digit;
+                int count = histogram[slot];
+                histogram[slot] = sum;
+                sum += count;
+            }
+        }
+
+        runChunks(chunks, n, c -> {
+            int offset = c * RADIX;
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, n);
+            for (int i = start; i < end; i++) {
+                int pos = histogram[offset + ((srcKeys[i] >>> shift) & 0xFF)]++;
+                dstKeys[pos] = srcKeys[i];
+                dstIndex[pos] = srcIndex[i];
+            }
+        });
+    }
+
+    private void ensureIdCapacity(int n) {
+        if (frameIds.length < n) {
+            int capacity = Math.max(n, (int) (frameIds.length * 1.5));
+            frameIds = new int[capacity];
+            prevFrameIds = new int[capacity];
+            prevFrameCount = -1;
+        }
+    }
+
+    private void ensureSortCapacity(int n, int chunks) {
+        if (sortKeys.length < n) {
+            int capacity = Math.max(n, (int) (sortKeys.length * 1.5));
+            sortKeys = new int[capacity];
+            sortIndex = new int[capacity];
+            sortTmpKeys = new int[capacity];
+            sortTmpIndex = new int[capacity];
+            lastSortView = null;
+        }
+        if (chunkHistogram.length < chunks * RADIX) {
+            chunkHistogram = new int[chunks * RADIX];
+        }
+    }
+
+    private static boolean isSameView(float[] a, float[] b) {
+        float dx = a[0] - b[0], dy = a[1] - b[1], dz = a[2] - b[2];
+        float dot = a[3] * b[3] + a[4] * b[4] + a[5] * b[5];
+        return dx * dx + dy * dy + dz * dz < SORT_REUSE_DISTANCE_SQ && dot > SORT_REUSE_MIN_DOT;
+    }
+
+    /**
+     * 发布最新的视角 (渲染线程调用)
+     *
+     * @param camX 相机相对动画原点的位置
+     * @param fwdX 视线方向 (单位向量)
+     */
+    public void updateSortView(float camX, float camY, float camZ, float fwdX, float fwdY, float fwdZ) {
+        float[] current = sortView;
+        // 变化很小时不替换，避免每帧分配
+        if (current != null) {
+            float dx = current[0] - camX, dy = current[1] - camY, dz = current[2] - camZ;
+            float dot = current[3] * fwdX + current[4] * fwdY + current[5] * fwdZ;
+            if (dx * dx + dy * dy + dz * dz < 1e-6f && dot > 0.999999f)
+                return;
+        }
+        sortView = new float[] { camX, camY, camZ, fwdX, fwdY, fwdZ };
+    }
+
+    /**
+     * 按 [可能不透明 | 仅半透明] 两段写出渲染记录
+     * <p>
+     * 顶点 alpha < 0.5 的粒子在 Opaque Pass 中必然被全部 discard (纹理 alpha 不超过 1)，
+     * 把它们放在帧末尾后，Opaque Pass 只需绘制前段。
+     * 先按块统计前段数量，串行前缀和得到每块的写入起点，再按块并行写出；
+     * 两段内部都保持文件顺序，与线程调度无关。
+     * </p>
+     *
+     * @return 前段 (顶点 alpha >= 128) 的粒子数
+     */
+    private int emitPartitioned(int particleCount, long bufferAddr, float sizeScale) {
+        final int[] ids = frameIds;
+        int chunks = (particleCount + EMIT_CHUNK - 1) / EMIT_CHUNK;
+        if (chunkOpaqueBase.length < chunks) {
+            chunkOpaqueBase = new int[chunks];
+            chunkTranslucentBase = new int[chunks];
+        }
+        final int[] opaqueBase = chunkOpaqueBase;
+        final int[] translucentBase = chunkTranslucentBase;
+
+        // 1. 每块统计前段数量
+        runChunks(chunks, particleCount, c -> {
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, particleCount);
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                if ((state.a[ids[i]] & 0xFF) >= OPAQUE_ALPHA_MIN)
+                    count++;
+            }
+            opaqueBase[c] = count;
+        });
+
+        // 2. 前缀和
+        int opaqueTotal = 0;
+        for (int c = 0; c < chunks; c++) {
+            int count = opaqueBase[c];
+            opaqueBase[c] = opaqueTotal;
+            opaqueTotal += count;
+        }
+        int translucentCursor = opaqueTotal;
+        for (int c = 0; c < chunks; c++) {
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, particleCount);
+            int nextOpaque = c + 1 < chunks ? opaqueBase[c + 1] : opaqueTotal;
+            translucentBase[c] = translucentCursor;
+            translucentCursor += (end - start) - (nextOpaque - opaqueBase[c]);
+        }
+
+        // 3. 每块写出到各自的位置
+        runChunks(chunks, particleCount, c -> {
+            int start = c * EMIT_CHUNK;
+            int end = Math.min(start + EMIT_CHUNK, particleCount);
+            int opaqueIndex = opaqueBase[c];
+            int translucentIndex = translucentBase[c];
+            for (int i = start; i < end; i++) {
+                int id = ids[i];
+                int dst = (state.a[id] & 0xFF) >= OPAQUE_ALPHA_MIN ? opaqueIndex++ : translucentIndex++;
+                writeParticleToGpuDirect(bufferAddr, dst, id, state, sizeScale);
+            }
+        });
+
+        return opaqueTotal;
+    }
+
+    private void runChunks(int chunks, int particleCount, java.util.function.IntConsumer task) {
+        if (particleCount >= PARALLEL_THRESHOLD && chunks > 1) {
+            try {
+                PARALLEL_POOL.submit(() -> IntStream.range(0, chunks).parallel().forEach(task)).get();
+                return;
+            } catch (Exception e) {
+                Nebula.LOGGER.error("Parallel processing failed", e);
+            }
+        }
+        for (int c = 0; c < chunks; c++) {
+            task.accept(c);
+        }
     }
 
     /**
      * 将粒子数据直接写入 GPU 缓冲区 (SSBO std430 格式)
      * 使用直接内存地址访问，避免 ByteBuffer 开销
      */
-    private void writeParticleToGpuDirect(long baseAddr, int index, int id, ParticleStateData state) {
+    private void writeParticleToGpuDirect(long baseAddr, int index, int id, ParticleStateData state,
+            float sizeScale) {
         long addr = baseAddr + index * 48L;
 
         // === Vec4 #1: PrevPos(xyz) + Size(w) ===
         MemoryUtil.memPutFloat(addr, state.prevX[id]);
         MemoryUtil.memPutFloat(addr + 4, state.prevY[id]);
         MemoryUtil.memPutFloat(addr + 8, state.prevZ[id]);
-        MemoryUtil.memPutFloat(addr + 12, state.size[id]);
+        MemoryUtil.memPutFloat(addr + 12, state.size[id] * sizeScale);
 
         // === Vec4 #2: CurPos(xyz) + Color(w) ===
         MemoryUtil.memPutFloat(addr + 16, state.x[id]);
@@ -732,10 +1197,11 @@ public class NblStreamer implements Runnable {
             totalAllocatedMemory.addAndGet(-cachedDecompressedBuffer.capacity());
             cachedDecompressedBuffer = null;
         }
-        List<ByteBuffer> cleanupList = new ArrayList<>();
+        List<AnimationFrame> cleanupList = new ArrayList<>();
         gpuBufferQueue.drainTo(cleanupList);
-        for (ByteBuffer buf : cleanupList)
-            releaseBuffer(buf);
+        for (AnimationFrame frame : cleanupList)
+            releaseFrame(frame);
+        offlineRing.clear();
             
         // 【关键】通知主线程释放纹理引用
         if (this.textureResource != null) {
@@ -745,10 +1211,54 @@ public class NblStreamer implements Runnable {
 
     }}
 
-    public BlockingQueue<ByteBuffer> getQueue() {
+    public BlockingQueue<AnimationFrame> getQueue() {
         return gpuBufferQueue;
     }
 
+    /**
+     * 离线渲染 (CPU 解码) 时的帧环
+     */
+    public FrameRing getOfflineRing() {
+        return offlineRing;
+    }
+
+    /**
+     * 离线渲染时告知解码线程当前视频帧需要的动画帧
+     * <p>
+     * 解码线程据此和视频帧率推算之后的采样位置，没有被采样的帧不输出渲染记录。
+     * </p>
+     *
+     * @param frameIndex 需要显示的帧号
+     * @param position   对应的连续帧位置
+     */
+    public void requestOfflineFrame(int frameIndex, double position) {
+        this.offlineAnchorPosition = position;
+        this.offlineAnchorFrame = frameIndex;
+    }
+
+    /**
+     * 离线渲染时某一帧是否会被视频采样
+     * <p>
+     * 视频每帧前进 targetFps / videoFps 个动画帧，位置 p 显示的是 ceil(p) - 1 号帧。
+     * 因此帧 i 会被采样，当且仅当存在 n >= 1 使 anchor + n * step 落在 (i, i + 1] 内。
+     * 还没有收到请求时保守地输出所有帧。
+     * </p>
+     */
+    private boolean isSampledOffline(int frameIdx) {
+        int anchorFrame = offlineAnchorFrame;
+        double step = (double) targetFps / Math.max(1, CurrentTimeUtil.getVideoFps());
+        if (anchorFrame < 0 || step <= 1.0)
+            return true;
+        if (frameIdx <= anchorFrame)
+            return frameIdx == anchorFrame;
+
+        double position = offlineAnchorPosition;
+        double lo = frameIdx - OFFLINE_SAMPLE_JITTER - position;
+        double hi = frameIdx + 1 + OFFLINE_SAMPLE_JITTER - position;
+        long n = Math.max(1, (long) Math.ceil(lo / step));
+        return n * step <= hi;
+    }
+
     public void loadTextures() {
         // Logically this is now handled externally before Streamer is created.
     }
@@ -761,6 +1271,45 @@ public class NblStreamer implements Runnable {
         return isFinished;
     }
 
+    /**
+     * 队列中的帧是否需要 GPU 解码
+     */
+    public boolean isGpuDecode() {
+        return gpuDecode;
+    }
+
+    /**
+     * @return 解码线程下一帧要处理的帧号
+     */
+    public int getDecodePosition() {
+        return decodePosition;
+    }
+
+    /**
+     * @return 最近若干帧的平均解码耗时 (毫秒，包含解压)
+     */
+    public double getAverageDecodeMs() {
+        return averageDecodeMs;
+    }
+
+    /**
+     * 查找不晚于指定帧的最近关键帧
+     *
+     * @param frameIndex 帧号
+     * @return 关键帧帧号，没有关键帧表时返回 0
+     */
+    public int getKeyframeAtOrBefore(int frameIndex) {
+        int best = 0;
+        if (keyframeIndices != null) {
+            for (int kf : keyframeIndices) {
+                if (kf > frameIndex)
+                    break;
+                best = kf;
+            }
+        }
+        return best;
+    }
+
     public int getTargetFps() {
         return targetFps;
     }
@@ -785,6 +1334,56 @@ public class NblStreamer implements Runnable {
         return bboxMax;
     }
 
+    public boolean hasFrameBounds() {
+        return frameBounds != null;
+    }
+
+    /**
+     * 获取某一帧附近的包围盒 (相对于原点)
+     * <p>
+     * 合并 frameIndex 前后各一帧所在的表项：渲染时在上一帧与当前帧之间插值，
+     * 解码线程也可能领先一帧。没有包围盒表或这几帧都没有粒子时返回 false，
+     * 调用方应退回 {@link #getBboxMin()} / {@link #getBboxMax()}。
+     * </p>
+     *
+     * @param frameIndex 帧号
+     * @param outMin     输出最小点
+     * @param outMax     输出最大点
+     * @return 是否写出了有效的包围盒
+     */
+    public boolean getFrameBounds(int frameIndex, float[] outMin, float[] outMax) {
+        float[] bounds = frameBounds;
+        if (bounds == null)
+            return false;
+
+        int lastEntry = bounds.length / 6 - 1;
+        int first = Math.max(0, Math.min(lastEntry, (frameIndex - 1) / framesPerBoundsEntry));
+        int last = Math.max(0, Math.min(lastEntry, (frameIndex + 1) / framesPerBoundsEntry));
+
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for (int entry = first; entry <= last; entry++) {
+            int base = entry * 6;
+            // 空表项的 min > max，合并时自然被忽略
+            minX = Math.min(minX, bounds[base]);
+            minY = Math.min(minY, bounds[base + 1]);
+            minZ = Math.min(minZ, bounds[base + 2]);
+            maxX = Math.max(maxX, bounds[base + 3]);
+            maxY = Math.max(maxY, bounds[base + 4]);
+            maxZ = Math.max(maxZ, bounds[base + 5]);
+        }
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+            return false;
+
+        outMin[0] = minX;
+        outMin[1] = minY;
+        outMin[2] = minZ;
+        outMax[0] = maxX;
+        outMax[1] = maxY;
+        outMax[2] = maxZ;
+        return true;
+    }
+
     /**
      * 获取当前分配的总堆外内存大小 (用于 DebugHud)
      */
@@ -792,6 +1391,47 @@ public class NblStreamer implements Runnable {
         return totalAllocatedMemory.get();
     }
 
+    /**
+     * 为一帧申请输出空间
+     * <p>
+     * [优化] 优先从 GPU 帧堆分配，解码结果直接写进持久映射内存，渲染线程零拷贝；
+     * 帧堆不可用或已满时退回普通缓冲池，由渲染线程拷贝到环形缓冲区。
+     * </p>
+     */
+    private AnimationFrame acquireFrame(int particleCount, int frameIdx) {
+        GpuFrameHeap heap = GpuParticleRenderer.getFrameHeap();
+        if (heap != null) {
+            GpuFrameHeap.Region region = heap.allocate(particleCount);
+            if (region != null) {
+                return new AnimationFrame(region.getBuffer(), particleCount, region, frameIdx);
+            }
+        }
+        // [修改] 申请 48 字节/粒子的缓冲区 (SSBO std430)
+        ByteBuffer buf = acquireBuffer(particleCount * AnimationFrame.BYTES_PER_PARTICLE);
+        return new AnimationFrame(buf, particleCount, null, frameIdx);
+    }
+
+    /**
+     * 归还一帧占用的空间
+     * 必须在渲染完成后调用！帧堆区间会等到对应 GPU 帧完成后才被复用。
+     *
+     * @param frame 要归还的帧
+     */
+    public static void releaseFrame(AnimationFrame frame) {
+        if (frame == null || frame == AnimationFrame.EOF)
+            return;
+        if (frame.region != null) {
+            GpuFrameHeap heap = GpuParticleRenderer.getFrameHeap();
+            if (heap != null) {
+                heap.release(frame.region);
+            }
+            frame.region = null;
+        } else {
+            releaseBuffer(frame.gpuData);
+        }
+        frame.gpuData = null;
+    }
+
     /**
      * 从池中获取 Buffer (如果不够大则新建)
      */
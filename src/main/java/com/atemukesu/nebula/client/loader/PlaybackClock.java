@@ -0,0 +1,298 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.loader;
+
+/**
+ * <h1>播放时钟</h1>
+ * <hr>
+ * 每个动画实例一个，统一负责：时间源 (动画时间 -> 帧位置)、漂移测量 (应显示帧 vs 已显示帧)
+ * 以及追帧策略 (本 Tick 消费多少帧 / 是否 Seek)。
+ * <p>
+ * <b>代价模型：</b>追帧的代价是解码线程把落后的帧逐一解完所需的时间 (同时播放还在继续前进)，
+ * Seek 的代价是固定开销加上从关键帧 (或当前解码位置) 快进到目标帧的解码时间。
+ * 只有 Seek 明显更便宜 ({@link #SEEK_ADVANTAGE}) 时才 Seek，并且 Seek 的目标会按预计耗时提前，
+ * 保证解码完成时恰好追上播放。
+ * </p>
+ * <p>
+ * <b>防 Seek 风暴：</b>一次 Seek 发出后，直到目标帧真正到达 (或超时) 之前不会再发出新的 Seek，
+ * 期间到达的旧帧直接丢弃；完成后还有一段冷却时间。
+ * </p>
+ * <p>
+ * 只在渲染线程使用。
+ * </p>
+ */
+public class PlaybackClock {
+
+    /** 漂移不超过该帧数时只追帧，不考虑 Seek */
+    private static final int MIN_SEEK_DRIFT = 3;
+    /** 已显示帧领先播放位置超过该帧数时回退 Seek (小幅领先只等待) */
+    private static final int BACKWARD_SEEK_DRIFT = 10;
+    /** Seek 的代价需要低于追帧代价的该比例 */
+    private static final double SEEK_ADVANTAGE = 1.0 / 1.5;
+    /** Seek 的固定开销 (清空管线、重新定位文件) */
+    private static final double SEEK_OVERHEAD_MS = 8.0;
+    /** 快进帧不输出渲染记录，按完整解码代价的该比例估算 */
+    private static final double SKIP_COST_FACTOR = 0.6;
+    /** 等待 Seek 完成的最长时间 */
+    private static final double SEEK_TIMEOUT_SECONDS = 2.0;
+    /** Seek 完成后的冷却时间 */
+    private static final double SEEK_COOLDOWN_SECONDS = 0.25;
+    /** 单个 Tick 最多消费的帧数 */
+    private static final int MAX_CATCH_UP = 10;
+
+    private final double startSeconds;
+    private final int targetFps;
+    private final int totalFrames;
+
+    // 已显示帧的下标 + 1 (0 表示还没有显示任何帧)
+    private int renderedFrames = 0;
+    // 正在等待的 Seek 目标，-1 表示没有
+    private int pendingSeekTarget = -1;
+    private double pendingSeekSince;
+    private double cooldownUntil = Double.NEGATIVE_INFINITY;
+    // 最近一次 Seek 的提前量：目标帧到达后领先播放位置属于预期，不能当作倒带
+    private int seekLead = 0;
+    private int seekCount = 0;
+
+    public PlaybackClock(double startSeconds, int targetFps, int totalFrames) {
+        this.startSeconds = startSeconds;
+        this.targetFps = Math.max(1, targetFps);
+        this.totalFrames = totalFrames;
+    }
+
+    /**
+     * @param now 当前动画时间 (秒)
+     * @return 连续的帧位置
+     */
+    public double getPosition(double now) {
+        return (now - startSeconds) * targetFps;
+    }
+
+    /**
+     * @param now 当前动画时间 (秒)
+     * @return 用于剔除、包围盒查询的当前帧号
+     */
+    public int getCurrentFrame(double now) {
+        return (int) getPosition(now);
+    }
+
+    /**
+     * @param now 当前动画时间 (秒)
+     * @return 此刻应当已经显示的帧数
+     */
+    public int getTargetCount(double now) {
+        int target = (int) Math.ceil(getPosition(now));
+        return Math.max(0, Math.min(target, totalFrames));
+    }
+
+    /**
+     * @param now 当前动画时间 (秒)
+     * @return 漂移 (正数表示落后)
+     */
+    public int getDrift(double now) {
+        return getTargetCount(now) - renderedFrames;
+    }
+
+    /**
+     * 当前显示帧相对播放位置的插值系数
+     *
+     * @param now 当前动画时间 (秒)
+     * @return [0, 1]
+     */
+    public float getPartialTicks(double now) {
+        float partial = (float) (getPosition(now) - (renderedFrames - 1));
+        if (partial < 0)
+            return 0;
+        return Math.min(partial, 1);
+    }
+
+    /**
+     * 制定本 Tick 的消费计划，需要时向解码线程发出 Seek
+     *
+     * @param now       当前动画时间 (秒)
+     * @param streamer  实例的流式读取器
+     * @param blocking  是否为逐帧渲染模式 (导出视频时必须精确，不做代价权衡)
+     * @return 本 Tick 最多消费的帧数 (0 表示保持当前帧)
+     */
+    public int plan(double now, NblStreamer streamer, boolean blocking) {
+        int target = getTargetCount(now);
+        int drift = target - renderedFrames;
+
+        if (pendingSeekTarget != -1) {
+            if (now - pendingSeekSince <= SEEK_TIMEOUT_SECONDS && now >= pendingSeekSince)
+                return blocking ? Math.max(drift, 1) : MAX_CATCH_UP;
+            // 超时 (或时间倒退) 后放弃等待，允许重新决策
+            pendingSeekTarget = -1;
+        }
+
+        if (drift < 0) {
+            // 小幅领先只等待播放追上；大幅领先 (倒带) 才回退
+            if (-drift > (blocking ? 0 : BACKWARD_SEEK_DRIFT + seekLead))
+                requestSeek(now, streamer, Math.max(0, target - 1), 0);
+            return 0;
+        }
+        seekLead = 0;
+
+        if (drift > MIN_SEEK_DRIFT && (blocking || now >= cooldownUntil)) {
+            int seekTarget = chooseSeekTarget(streamer, target, blocking);
+            if (seekTarget != -1) {
+                requestSeek(now, streamer, seekTarget, Math.max(0, seekTarget + 1 - target));
+                return blocking ? Math.max(drift, 1) : MAX_CATCH_UP;
+            }
+        }
+
+        return blocking ? drift : Math.min(drift, MAX_CATCH_UP);
+    }
+
+    /**
+     * 按代价模型判断是否 Seek
+     *
+     * @return Seek 目标帧，-1 表示继续追帧更划算
+     */
+    private int chooseSeekTarget(NblStreamer streamer, int target, boolean blocking) {
+        double decodeMs = Math.max(0.01, streamer.getAverageDecodeMs());
+        double frameMs = 1000.0 / targetFps;
+        int decodePosition = streamer.getDecodePosition();
+
+        // 追帧：队列里已解码的帧不需要再花时间，剩下的帧要逐一完整解码
+        int framesToDecode = Math.max(0, target - decodePosition);
+        double catchUpMs;
+        if (blocking) {
+            catchUpMs = framesToDecode * decodeMs;
+        } else if (decodeMs >= frameMs * 0.95) {
+            // 解码速度跟不上播放速度，永远追不上
+            catchUpMs = Double.POSITIVE_INFINITY;
+        } else {
+            catchUpMs = framesToDecode * decodeMs / (1.0 - decodeMs / frameMs);
+        }
+
+        // Seek：提前量按预计耗时估算 (逐帧渲染模式下时间不会前进，不需要提前)
+        double seekMs = estimateSeekMs(streamer, target, decodePosition, decodeMs);
+        int lead = blocking ? 0 : (int) Math.ceil(seekMs / frameMs);
+        int seekTarget = Math.min(target - 1 + lead, totalFrames - 1);
+        seekMs = estimateSeekMs(streamer, seekTarget, decodePosition, decodeMs);
+
+        if (seekMs < catchUpMs * SEEK_ADVANTAGE)
+            return seekTarget;
+        return -1;
+    }
+
+    private double estimateSeekMs(NblStreamer streamer, int seekTarget, int decodePosition, double decodeMs) {
+        int distance = seekTarget - decodePosition;
+        int skipFrames;
+        if (distance >= 0 && distance <= NblStreamer.FAST_FORWARD_LIMIT) {
+            // 与解码线程的规则一致：近距离向前只快进，不回到关键帧
+            skipFrames = distance;
+        } else {
+            skipFrames = seekTarget - streamer.getKeyframeAtOrBefore(seekTarget);
+        }
+        return SEEK_OVERHEAD_MS + skipFrames * decodeMs * SKIP_COST_FACTOR;
+    }
+
+    /**
+     * 登记一个已经直接交给解码线程的 Seek (实例从中途开始播放时使用)，
+     * 目标帧到达前不会再发出新的 Seek，更早的帧按过期处理
+     *
+     * @param seekTarget 目标帧
+     * @param now        当前动画时间 (秒)
+     */
+    public void expectSeek(int seekTarget, double now) {
+        pendingSeekTarget = seekTarget;
+        pendingSeekSince = now;
+        seekLead = 0;
+    }
+
+    private void requestSeek(double now, NblStreamer streamer, int seekTarget, int lead) {
+        streamer.seek(seekTarget);
+        // 倒带：已显示帧计数同步回退，否则 Seek 之后到达的帧都会被 isStale 当作过期帧丢弃
+        if (seekTarget < renderedFrames)
+            renderedFrames = seekTarget;
+        seekLead = lead;
+        pendingSeekTarget = seekTarget;
+        pendingSeekSince = now;
+        seekCount++;
+    }
+
+    /**
+     * 队列里取出的帧是否应当丢弃 (早于等待中的 Seek 目标，或早于已显示的帧)
+     *
+     * @param frameIndex 帧号
+     */
+    public boolean isStale(int frameIndex) {
+        if (pendingSeekTarget != -1 && frameIndex < pendingSeekTarget)
+            return true;
+        return frameIndex < renderedFrames - 1;
+    }
+
+    /**
+     * 记录一帧已显示
+     *
+     * @param frameIndex 帧号
+     * @param now        当前动画时间 (秒)
+     */
+    public void onFramePresented(int frameIndex, double now) {
+        renderedFrames = frameIndex + 1;
+        if (pendingSeekTarget != -1 && frameIndex >= pendingSeekTarget) {
+            pendingSeekTarget = -1;
+            cooldownUntil = now + SEEK_COOLDOWN_SECONDS;
+        }
+    }
+
+    /**
+     * 记录一帧被跳过 (追帧时只取最新的一帧显示)
+     *
+     * @param frameIndex 帧号
+     */
+    public void onFrameSkipped(int frameIndex) {
+        renderedFrames = Math.max(renderedFrames, frameIndex + 1);
+    }
+
+    public int getRenderedFrames() {
+        return renderedFrames;
+    }
+
+    public boolean isSeekPending() {
+        return pendingSeekTarget != -1;
+    }
+
+    /** @return 累计发出的 Seek 次数 */
+    public int getSeekCount() {
+        return seekCount;
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.render;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.client.loader.NblStreamer;
+
+/**
+ * <h1>自适应画质控制器</h1>
+ * <hr>
+ * 闭环控制 Nebula 每帧的渲染耗时：每 {@link #WINDOW_FRAMES} 帧取一次
+ * {@link com.atemukesu.nebula.client.gui.tools.PerformanceStats} 测得的渲染耗时平均值，
+ * 与目标毫秒数比较后在画质档位之间升降。
+ * <p>
+ * 档位越高画质越低，依次收紧：粒子预算、LOD 完整细节阈值、解码队列深度，最后两档禁用 OIT 改用标准混合。
+ * 控制器只计算有效值，不改写用户配置。
+ * </p>
+ * <p>
+ * 防振荡：降档需要连续 {@link #DEGRADE_WINDOWS} 个窗口超出目标，
+ * 升档需要连续 {@link #UPGRADE_WINDOWS} 个窗口低于目标的 {@link #UPGRADE_HEADROOM}，
+ * 每次切换后还有 {@link #COOLDOWN_WINDOWS} 个窗口的冷却期。
+ * </p>
+ */
+public class AdaptiveQualityController {
+
+    private static final AdaptiveQualityController INSTANCE = new AdaptiveQualityController();
+
+    /** 每个评估窗口的帧数 */
+    public static final int WINDOW_FRAMES = 30;
+    private static final int DEGRADE_WINDOWS = 2;
+    private static final int UPGRADE_WINDOWS = 4;
+    private static final int COOLDOWN_WINDOWS = 2;
+    /** 平均耗时低于目标的该比例才允许升档 */
+    private static final double UPGRADE_HEADROOM = 0.6;
+
+    // 各档位的参数 (下标 0 为完整画质)
+    private static final double[] BUDGET_SCALE = { 1.0, 0.75, 0.5, 0.35, 0.25 };
+    private static final double[] LOD_SCALE = { 1.0, 1.5, 2.0, 3.0, 4.0 };
+    private static final boolean[] ALLOW_OIT = { true, true, true, false, false };
+    private static final int[] QUEUE_DEPTH = { 10, 8, 6, 4, 4 };
+
+    public static final int MAX_LEVEL = BUDGET_SCALE.length - 1;
+
+    private int level = 0;
+    // 离开 0 档时记录的粒子数，配置不限制预算时以它为基准缩放
+    private int referenceBudget = 0;
+
+    private int frameCount = 0;
+    private double timeSum = 0;
+    private int particleSum = 0;
+    private double lastAverageMs = 0;
+
+    private int overWindows = 0;
+    private int underWindows = 0;
+    private int cooldown = 0;
+
+    private AdaptiveQualityController() {
+    }
+
+    public static AdaptiveQualityController getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 记录一帧的测量结果 (渲染线程)
+     *
+     * @param renderTimeMs      本帧 Nebula 的渲染耗时
+     * @param renderedParticles 本帧绘制的粒子数
+     * @param targetMs          目标耗时
+     */
+    public void onFrame(double renderTimeMs, int renderedParticles, double targetMs) {
+        frameCount++;
+        timeSum += renderTimeMs;
+        particleSum += renderedParticles / WINDOW_FRAMES;
+        if (frameCount < WINDOW_FRAMES)
+            return;
+
+        double average = timeSum / frameCount;
+        int averageParticles = particleSum;
+        lastAverageMs = average;
+        frameCount = 0;
+        timeSum = 0;
+        particleSum = 0;
+
+        if (cooldown > 0) {
+            cooldown--;
+            return;
+        }
+
+        if (average > targetMs) {
+            overWindows++;
+            underWindows = 0;
+        } else if (average < targetMs * UPGRADE_HEADROOM) {
+            underWindows++;
+            overWindows = 0;
+        } else {
+            // 处于目标附近的死区，两个计数都清零
+            overWindows = 0;
+            underWindows = 0;
+        }
+
+        if (overWindows >= DEGRADE_WINDOWS && level < MAX_LEVEL) {
+            // 没有绘制粒子时耗时与 Nebula 无关，降档也无济于事
+            if (level == 0 && averageParticles == 0)
+                return;
+            if (level == 0)
+                referenceBudget = averageParticles;
+            setLevel(level + 1, average, targetMs);
+        } else if (underWindows >= UPGRADE_WINDOWS && level > 0) {
+            setLevel(level - 1, average, targetMs);
+        }
+    }
+
+    private void setLevel(int newLevel, double average, double targetMs) {
+        Nebula.LOGGER.info("[AdaptiveQualityController] Quality level {} -> {} (avg {} ms, target {} ms)",
+                level, newLevel, String.format("%.2f", average), String.format("%.2f", targetMs));
+        level = newLevel;
+        overWindows = 0;
+        underWindows = 0;
+        cooldown = COOLDOWN_WINDOWS;
+        NblStreamer.setQueueDepth(QUEUE_DEPTH[level]);
+    }
+
+    /**
+     * 关闭自适应或切换世界时恢复完整画质
+     */
+    public void reset() {
+        if (level != 0)
+            NblStreamer.setQueueDepth(QUEUE_DEPTH[0]);
+        level = 0;
+        referenceBudget = 0;
+        frameCount = 0;
+        timeSum = 0;
+        particleSum = 0;
+        overWindows = 0;
+        underWindows = 0;
+        cooldown = 0;
+    }
+
+    /**
+     * @param configBudget 配置的预算，0 表示不限制
+     * @return 当前档位的有效预算，0 表示不限制
+     */
+    public int getEffectiveBudget(int configBudget) {
+        if (level == 0)
+            return configBudget;
+        int base = configBudget > 0 ? Math.min(configBudget, referenceBudget) : referenceBudget;
+        return Math.max(1, (int) (base * BUDGET_SCALE[level]));
+    }
+
+    /**
+     * @param configPixels 配置的 LOD 完整细节阈值 (像素)
+     * @return 当前档位的有效阈值 (越大越早开始抽稀)
+     */
+    public int getEffectiveLodPixels(int configPixels) {
+        return (int) Math.round(configPixels * LOD_SCALE[level]);
+    }
+
+    /** @return 当前档位是否允许 OIT */
+    public boolean allowOit() {
+        return ALLOW_OIT[level];
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /** @return 最近一个窗口的平均渲染耗时 */
+    public double getLastAverageMs() {
+        return lastAverageMs;
+    }
+}
@@ -65,6 +65,34 @@ public class AnimationFrame {
     public ByteBuffer gpuData;
     /** 当前帧包含的粒子数量 */
     public int particleCount;
+    /** 抽稀前文件中该帧的粒子数量 (预算分配按它计算需求) */
+    public int sourceParticleCount;
+    /** 数据所在的 GPU 帧堆区间；为 null 表示数据在普通堆外缓冲区中，绘制前需要拷贝 */
+    public GpuFrameHeap.Region region;
+    /** 帧序号 */
+    public int frameIndex;
+    /**
+     * 前段粒子数：记录按 [顶点 alpha >= 128 | 顶点 alpha < 128] 分成两段，
+     * -1 表示未分区 (GPU 解码输出)
+     */
+    public int opaqueCount = -1;
+
+    // ===== GPU 解码模式 =====
+    /** gpuData 中是解压后的原始列 (不含帧头)，需要由 GpuFrameDecoder 解码 */
+    public boolean encoded;
+    /** 原始帧类型 (0 = I-Frame, 1 = P-Frame) */
+    public int frameType;
+    /** 帧内最大的粒子 ID */
+    public int maxParticleId;
+    /** 只更新状态，不显示 (快进中的帧) */
+    public boolean decodeOnly;
+    /** 解码前需要丢弃旧状态 (Seek 到关键帧后的第一帧) */
+    public boolean resetState;
+    /** GPU 解码输出缓冲区 ID，0 表示数据不在解码器中 */
+    public int decodedBufferId;
+
+    /** 流结束标记 */
+    public static final AnimationFrame EOF = new AnimationFrame(null, 0, null, -1);
 
     /**
      * 创建一个新的动画帧
@@ -73,10 +101,27 @@ public class AnimationFrame {
      */
     public AnimationFrame(int particleCount) {
         this.particleCount = particleCount;
+        this.sourceParticleCount = particleCount;
         // 使用 Direct Buffer 提高 Native IO 传输速度
         this.gpuData = BufferUtils.createByteBuffer(particleCount * BYTES_PER_PARTICLE);
     }
 
+    /**
+     * 包装已有的帧数据 (不分配内存)
+     *
+     * @param gpuData       粒子记录
+     * @param particleCount 粒子数量
+     * @param region        GPU 帧堆区间，可为 null
+     * @param frameIndex    帧序号
+     */
+    public AnimationFrame(ByteBuffer gpuData, int particleCount, GpuFrameHeap.Region region, int frameIndex) {
+        this.gpuData = gpuData;
+        this.particleCount = particleCount;
+        this.sourceParticleCount = particleCount;
+        this.region = region;
+        this.frameIndex = frameIndex;
+    }
+
     /**
      * 准备读取数据 (翻转缓冲区)
      * <p>
@@ -0,0 +1,271 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.render;
+
+import com.atemukesu.nebula.Nebula;
+import com.mojang.blaze3d.systems.RenderSystem;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL42;
+import org.lwjgl.opengl.GL43;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * <h1>GPU 帧解码器</h1>
+ * <hr>
+ * 每个动画实例一个。粒子状态常驻 SSBO，Streamer 只上传解压后的原始列
+ * (P-Frame 约 18 字节/粒子，而渲染记录是 48 字节/粒子)，
+ * 由 Compute Shader 应用增量、处理生成规则并写出渲染记录。
+ * <p>
+ * 帧必须按顺序逐个 apply (包括快进与追帧时不显示的帧)，否则状态会错乱。
+ * 所有方法只能在渲染线程调用。
+ * </p>
+ */
+public class GpuFrameDecoder {
+
+    private static final int STATE_STRIDE = 32;
+    private static final int LOCAL_SIZE = 256;
+
+    private static final int FRAME_BINDING = 0;
+    private static final int STATE_BINDING = 1;
+    private static final int OUTPUT_BINDING = 2;
+    private static final int ATLAS_BINDING = 3;
+
+    // Uniform 位置 (所有实例共享同一个 Compute 程序)
+    private static int resolvedProgram = -1;
+    private static int uParticleCount, uFrameType, uSerial, uDataOffset, uWriteOutput, uAtlasCount, uStride;
+
+    private int stateBuffer = 0;
+    private int stateCapacity = 0; // 粒子 ID 数
+    private int outputBuffer = 0;
+    private int outputCapacity = 0; // 粒子数
+    private int inputBuffer = 0;
+    private int inputCapacity = 0; // 字节
+    private final int atlasBuffer;
+    private final int atlasCount;
+
+    // 解码序号：上一帧出现过的粒子 lastSeen == serial - 1
+    // 从 2 开始，保证清零后的状态 (lastSeen = 0) 不会被误认为上一帧出现过
+    private int serial = 1;
+
+    // 解码结果，作为实例当前帧交给渲染器
+    private final AnimationFrame output = new AnimationFrame(null, 0, null, -1);
+
+    public GpuFrameDecoder(TextureAtlasMap map) {
+        RenderSystem.assertOnRenderThread();
+
+        atlasCount = map.getTextureCount();
+        IntBuffer atlas = BufferUtils.createIntBuffer(Math.max(2, atlasCount * 2));
+        for (int i = 0; i < atlasCount; i++) {
+            atlas.put(map.getStartLayer(i)).put(map.getFrameCount(i));
+        }
+        atlas.clear();
+        atlasBuffer = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, atlasBuffer);
+        GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, atlas, GL15.GL_STATIC_DRAW);
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+    }
+
+    /**
+     * 在 GPU 上应用一帧
+     *
+     * @param frame       NblStreamer 产出的原始帧 ({@link AnimationFrame#encoded} 为 true)
+     * @param writeOutput 是否写出渲染记录；快进和追帧丢弃的帧只需更新状态
+     * @param stride      LOD 抽稀步长，未保留的粒子以零尺寸、零 alpha 写出 (1 = 完整输出)
+     */
+    public void apply(AnimationFrame frame, boolean writeOutput, int stride) {
+        int program = GpuParticleRenderer.getDecodeProgram();
+        if (program <= 0 || frame.gpuData == null)
+            return;
+
+        if (frame.resetState) {
+            // 跳号：之前所有状态都不再被视为"上一帧出现过"
+            serial++;
+        }
+        serial++;
+
+        int count = frame.particleCount;
+        if (count <= 0) {
+            if (writeOutput)
+                output.particleCount = 0;
+            return;
+        }
+
+        ensureStateCapacity(frame.maxParticleId + 1);
+        if (writeOutput)
+            ensureOutputCapacity(count);
+
+        // 绑定原始数据：位于帧堆中时直接绑定整个块，否则上传到自己的输入缓冲区
+        int dataOffsetWords;
+        if (frame.region != null) {
+            GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, FRAME_BINDING, frame.region.getBufferId());
+            dataOffsetWords = frame.region.getFirstParticle() * AnimationFrame.BYTES_PER_PARTICLE / 4;
+        } else {
+            uploadInput(frame.gpuData);
+            GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, FRAME_BINDING, inputBuffer);
+            dataOffsetWords = 0;
+        }
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, STATE_BINDING, stateBuffer);
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, OUTPUT_BINDING, outputBuffer);
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, ATLAS_BINDING, atlasBuffer);
+
+        int previousProgram = GL11.glGetInteger(GL20.GL_CURRENT_PROGRAM);
+        GL20.glUseProgram(program);
+        resolveUniforms(program);
+        GL30.glUniform1ui(uParticleCount, count);
+        GL20.glUniform1i(uFrameType, frame.frameType == 0 ? 0 : 1);
+        GL30.glUniform1ui(uSerial, serial);
+        GL30.glUniform1ui(uDataOffset, dataOffsetWords);
+        GL20.glUniform1i(uWriteOutput, writeOutput ? 1 : 0);
+        GL20.glUniform1i(uAtlasCount, atlasCount);
+        GL30.glUniform1ui(uStride, Math.max(1, stride));
+
+        GL43.glDispatchCompute((count + LOCAL_SIZE - 1) / LOCAL_SIZE, 1, 1);
+        // 状态与输出都会被下一次 Dispatch / 顶点着色器读取
+        GL42.glMemoryBarrier(GL43.GL_SHADER_STORAGE_BARRIER_BIT);
+
+        GL20.glUseProgram(previousProgram);
+        for (int binding = FRAME_BINDING; binding <= ATLAS_BINDING; binding++) {
+            GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, binding, 0);
+        }
+
+        if (writeOutput) {
+            output.particleCount = count;
+            output.sourceParticleCount = count;
+            output.frameIndex = frame.frameIndex;
+            output.decodedBufferId = outputBuffer;
+        }
+    }
+
+    /**
+     * @return 最近一次写出的渲染记录 (对象复用，particleCount 为 0 表示还没有输出)
+     */
+    public AnimationFrame getOutput() {
+        return output;
+    }
+
+    public void destroy() {
+        if (stateBuffer != 0)
+            GL15.glDeleteBuffers(stateBuffer);
+        if (outputBuffer != 0)
+            GL15.glDeleteBuffers(outputBuffer);
+        if (inputBuffer != 0)
+            GL15.glDeleteBuffers(inputBuffer);
+        GL15.glDeleteBuffers(atlasBuffer);
+        stateBuffer = outputBuffer = inputBuffer = 0;
+        output.particleCount = 0;
+        output.decodedBufferId = 0;
+    }
+
+    private static void resolveUniforms(int program) {
+        if (program == resolvedProgram)
+            return;
+        uParticleCount = GL20.glGetUniformLocation(program, "ParticleCount");
+        uFrameType = GL20.glGetUniformLocation(program, "FrameType");
+        uSerial = GL20.glGetUniformLocation(program, "Serial");
+        uDataOffset = GL20.glGetUniformLocation(program, "DataOffset");
+        uWriteOutput = GL20.glGetUniformLocation(program, "WriteOutput");
+        uAtlasCount = GL20.glGetUniformLocation(program, "AtlasCount");
+        uStride = GL20.glGetUniformLocation(program, "Stride");
+        resolvedProgram = program;
+    }
+
+    private void ensureStateCapacity(int required) {
+        if (required <= stateCapacity)
+            return;
+        int newCapacity = Math.max(required + 4096, stateCapacity * 2);
+        if (stateCapacity > 0)
+            Nebula.LOGGER.debug("[GpuFrameDecoder] Resizing state buffer from {} to {}", stateCapacity, newCapacity);
+        long newBytes = (long) newCapacity * STATE_STRIDE;
+
+        int newBuffer = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, newBuffer);
+        GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, newBytes, GL15.GL_DYNAMIC_COPY);
+        // 清零：lastSeen = 0 视为从未出现
+        GL43.glClearBufferData(GL43.GL_SHADER_STORAGE_BUFFER, GL30.GL_R32UI, GL30.GL_RED_INTEGER,
+                GL11.GL_UNSIGNED_INT, (ByteBuffer) null);
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+
+        if (stateBuffer != 0) {
+            GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, stateBuffer);
+            GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, newBuffer);
+            GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER, 0, 0,
+                    (long) stateCapacity * STATE_STRIDE);
+            GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+            GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+            GL15.glDeleteBuffers(stateBuffer);
+        }
+
+        stateBuffer = newBuffer;
+        stateCapacity = newCapacity;
+    }
+
+    private void ensureOutputCapacity(int required) {
+        if (required <= outputCapacity)
+            return;
+        int newCapacity = Math.max(required, (int) (outputCapacity * 1.5));
+        if (outputBuffer == 0)
+            outputBuffer = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, outputBuffer);
+        GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, (long) newCapacity * AnimationFrame.BYTES_PER_PARTICLE,
+                GL15.GL_DYNAMIC_COPY);
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+        outputCapacity = newCapacity;
+    }
+
+    private void uploadInput(ByteBuffer data) {
+        int bytes = data.remaining();
+        if (inputBuffer == 0)
+            inputBuffer = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, inputBuffer);
+        if (bytes > inputCapacity) {
+            inputCapacity = Math.max(bytes, (int) (inputCapacity * 1.5));
+        }
+        // Orphan 后上传，避免等待上一次 Dispatch
+        GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, inputCapacity, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL43.GL_SHADER_STORAGE_BUFFER, 0, data);
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+    }
+}
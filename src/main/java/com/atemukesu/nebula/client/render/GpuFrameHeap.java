@@ -0,0 +1,370 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.render;
+
+import com.atemukesu.nebula.Nebula;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <h1>GPU 帧堆 (Zero-Copy Frame Heap)</h1>
+ * <hr>
+ * 由若干持久映射 SSBO 块组成的区间分配器。NblStreamer 在后台线程中直接把粒子记录
+ * 写入这里分配的区间，渲染线程只需绑定缓冲区并记录偏移即可绘制，不再有整帧 memcpy。
+ * <p>
+ * - 以 48 字节 (一条粒子记录) 为分配单位，偏移即粒子下标，可直接写入每实例表。<br>
+ * - 帧数据的生命周期不固定 (预解码排队、暂停时长期持有)，所以这里使用
+ * 带合并的空闲链表，而不是按帧回收的环形缓冲区。<br>
+ * - 区间级 Fence：释放的区间记录当时的帧序号，只有该帧的 Fence 完成后才重新进入空闲链表。
+ * </p>
+ * allocate / release 可在任意线程调用；beginFrame / endFrame / destroy 只能在渲染线程调用。
+ */
+public class GpuFrameHeap {
+
+    private static final int UNIT = AnimationFrame.BYTES_PER_PARTICLE;
+    /** 单个块的默认大小 (约 32MB，取整到记录大小) */
+    private static final int BLOCK_UNITS = (32 * 1024 * 1024) / UNIT;
+    /** 所有块的总上限，超出后 Streamer 退回普通堆外缓冲区 */
+    private static final long MAX_TOTAL_BYTES = 256L * 1024 * 1024;
+    /** 空块闲置多少帧后归还 */
+    private static final int IDLE_BLOCK_FRAMES = 600;
+    private static final int MAX_PENDING_FENCES = 8;
+    private static final int FLAGS = GL44.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private final ArrayDeque<Region> retired = new ArrayDeque<>();
+    private long totalBytes = 0;
+
+    // 帧序号与对应的 Fence
+    private long frameSerial = 0;
+    private long completedSerial = -1;
+    private final long[] pendingFences = new long[MAX_PENDING_FENCES];
+    private final long[] pendingSerials = new long[MAX_PENDING_FENCES];
+    private int pendingHead = 0;
+    private int pendingSize = 0;
+
+    // 后台线程分配失败时请求的大小，由渲染线程在帧开始时扩充新块
+    private int requestedUnits = 0;
+
+    /**
+     * 堆中的一段区间，对应一帧粒子记录
+     */
+    public static class Region {
+        private final Block block;
+        private final int startUnit;
+        private final int units;
+        private final ByteBuffer view;
+        private long retireSerial = -1;
+
+        private Region(Block block, int startUnit, int units) {
+            this.block = block;
+            this.startUnit = startUnit;
+            this.units = units;
+            this.view = MemoryUtil.memByteBuffer(block.address + (long) startUnit * UNIT, units * UNIT);
+        }
+
+        /**
+         * @return 映射内存的写入视图 (容量 = 粒子数 * 48)
+         */
+        public ByteBuffer getBuffer() {
+            return view;
+        }
+
+        public int getBufferId() {
+            return block.bufferId;
+        }
+
+        /**
+         * @return 区间在所属缓冲区中的第一条粒子记录的下标
+         */
+        public int getFirstParticle() {
+            return startUnit;
+        }
+
+        public int getBufferBytes() {
+            return block.units * UNIT;
+        }
+    }
+
+    private static class Block {
+        final int bufferId;
+        final long address;
+        final int units;
+        // 起始单位 -> 长度 (单位)
+        final TreeMap<Integer, Integer> free = new TreeMap<>();
+        int usedUnits = 0;
+        int idleFrames = 0;
+
+        Block(int bufferId, long address, int units) {
+            this.bufferId = bufferId;
+            this.address = address;
+            this.units = units;
+            free.put(0, units);
+        }
+
+        int allocate(int count) {
+            for (Map.Entry<Integer, Integer> entry : free.entrySet()) {
+                int length = entry.getValue();
+                if (length >= count) {
+                    int start = entry.getKey();
+                    free.remove(start);
+                    if (length > count) {
+                        free.put(start + count, length - count);
+                    }
+                    usedUnits += count;
+                    return start;
+                }
+            }
+            return -1;
+        }
+
+        void free(int start, int count) {
+            usedUnits -= count;
+            int end = start + count;
+            // 与后一个空闲段合并
+            Integer nextLength = free.remove(end);
+            if (nextLength != null) {
+                count += nextLength;
+            }
+            // 与前一个空闲段合并
+            Map.Entry<Integer, Integer> prev = free.floorEntry(start);
+            if (prev != null && prev.getKey() + prev.getValue() == start) {
+                free.put(prev.getKey(), prev.getValue() + count);
+            } else {
+                free.put(start, count);
+            }
+        }
+    }
+
+    /**
+     * 为一帧分配区间
+     *
+     * @param particleCount 粒子数
+     * @return 区间；堆空间不足时返回 null (调用方应使用普通缓冲区)
+     */
+    public synchronized Region allocate(int particleCount) {
+        if (particleCount <= 0)
+            return null;
+        for (Block block : blocks) {
+            int start = block.allocate(particleCount);
+            if (start >= 0) {
+                block.idleFrames = 0;
+                return new Region(block, start, particleCount);
+            }
+        }
+        requestedUnits = Math.max(requestedUnits, particleCount);
+        return null;
+    }
+
+    /**
+     * 按字节数分配区间 (GPU 解码模式存放原始帧数据)
+     *
+     * @param bytes 字节数
+     * @return 区间；堆空间不足时返回 null
+     */
+    public Region allocateBytes(int bytes) {
+        return allocate((bytes + UNIT - 1) / UNIT);
+    }
+
+    /**
+     * 释放区间。区间可能仍被已提交的 Draw 读取，
+     * 因此要等当前帧的 Fence 完成后才会被重新分配。
+     */
+    public synchronized void release(Region region) {
+        if (region == null || region.retireSerial >= 0)
+            return;
+        region.retireSerial = frameSerial;
+        retired.add(region);
+    }
+
+    /**
+     * 帧开始：回收已完成帧的区间，按需扩充或归还块
+     */
+    public synchronized void beginFrame() {
+        while (pendingSize > 0) {
+            long fence = pendingFences[pendingHead];
+            int result = GL32.glClientWaitSync(fence, 0, 0);
+            if (result != GL32.GL_ALREADY_SIGNALED && result != GL32.GL_CONDITION_SATISFIED)
+                break;
+            GL32.glDeleteSync(fence);
+            completedSerial = pendingSerials[pendingHead];
+            pendingHead = (pendingHead + 1) % MAX_PENDING_FENCES;
+            pendingSize--;
+        }
+
+        Iterator<Region> it = retired.iterator();
+        while (it.hasNext()) {
+            Region region = it.next();
+            if (region.retireSerial > completedSerial)
+                break; // retired 按序号递增排列
+            region.block.free(region.startUnit, region.units);
+            it.remove();
+        }
+
+        if (requestedUnits > 0) {
+            int units = Math.max(BLOCK_UNITS, requestedUnits);
+            if (totalBytes + (long) units * UNIT <= MAX_TOTAL_BYTES) {
+                createBlock(units);
+            }
+            requestedUnits = 0;
+        }
+
+        // 归还长期闲置的多余空块
+        for (int i = blocks.size() - 1; i > 0; i--) {
+            Block block = blocks.get(i);
+            if (block.usedUnits == 0 && ++block.idleFrames > IDLE_BLOCK_FRAMES && !hasRetired(block)) {
+                deleteBlock(block);
+                blocks.remove(i);
+            }
+        }
+    }
+
+    /**
+     * 帧结束：为本帧插入 Fence
+     */
+    public synchronized void endFrame() {
+        if (pendingSize == MAX_PENDING_FENCES) {
+            // 在途帧过多，阻塞等待最旧的一帧
+            long fence = pendingFences[pendingHead];
+            GL32.glClientWaitSync(fence, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000_000L);
+            GL32.glDeleteSync(fence);
+            completedSerial = pendingSerials[pendingHead];
+            pendingHead = (pendingHead + 1) % MAX_PENDING_FENCES;
+            pendingSize--;
+        }
+        int slot = (pendingHead + pendingSize) % MAX_PENDING_FENCES;
+        pendingFences[slot] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        pendingSerials[slot] = frameSerial;
+        pendingSize++;
+        frameSerial++;
+    }
+
+    /**
+     * 释放所有 GL 资源。
+     * <p>
+     * 调用方必须先停止所有 Streamer 并释放全部区间：区间直接指向映射内存，
+     * 销毁后仍持有的区间会指向已删除的缓冲区，不会自动改用普通缓冲区。
+     * </p>
+     */
+    public synchronized void destroy() {
+        long outstanding = 0;
+        for (Block block : blocks) {
+            outstanding += block.usedUnits;
+        }
+        for (Region region : retired) {
+            outstanding -= region.units;
+        }
+        if (outstanding > 0) {
+            Nebula.LOGGER.warn("[GpuFrameHeap] Destroying heap with {} KB still held by streamers",
+                    outstanding * UNIT / 1024);
+        }
+        for (int i = 0; i < pendingSize; i++) {
+            GL32.glDeleteSync(pendingFences[(pendingHead + i) % MAX_PENDING_FENCES]);
+        }
+        pendingSize = 0;
+        for (Block block : blocks) {
+            deleteBlock(block);
+        }
+        blocks.clear();
+        retired.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * 创建第一个块
+     *
+     * @return 映射失败时返回 false
+     */
+    public synchronized boolean create() {
+        return createBlock(BLOCK_UNITS);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private boolean hasRetired(Block block) {
+        for (Region region : retired) {
+            if (region.block == block)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean createBlock(int units) {
+        long size = (long) units * UNIT;
+        int bufferId = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, bufferId);
+        GL44.glBufferStorage(GL43.GL_SHADER_STORAGE_BUFFER, size, FLAGS);
+        ByteBuffer mapped = GL30.glMapBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, 0, size, FLAGS);
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+
+        if (mapped == null) {
+            GL15.glDeleteBuffers(bufferId);
+            Nebula.LOGGER.error("[GpuFrameHeap] Failed to map frame heap block ({} MB)", size / 1024 / 1024);
+            return false;
+        }
+
+        blocks.add(new Block(bufferId, MemoryUtil.memAddress(mapped), units));
+        totalBytes += size;
+        Nebula.LOGGER.info("[GpuFrameHeap] Added block {} MB (total {} MB)", size / 1024 / 1024,
+                totalBytes / 1024 / 1024);
+        return true;
+    }
+
+    private void deleteBlock(Block block) {
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, block.bufferId);
+        GL15.glUnmapBuffer(GL43.GL_SHADER_STORAGE_BUFFER);
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+        GL15.glDeleteBuffers(block.bufferId);
+        totalBytes -= (long) block.units * UNIT;
+    }
+}
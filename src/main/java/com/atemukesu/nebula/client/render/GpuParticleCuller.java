@@ -0,0 +1,230 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.render;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import org.joml.Matrix4f;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL42;
+import org.lwjgl.opengl.GL43;
+
+import java.nio.FloatBuffer;
+
+/**
+ * <h1>GPU 粒子剔除器</h1>
+ * <hr>
+ * 在每个绘制分组之前运行 nebula_cull.csh：逐粒子测试插值后的位置是否在视锥内、投影尺寸是否足够大，
+ * 把可见粒子的 Draw 下标按原顺序压缩成列表，并写出两条间接绘制命令 (每个 Pass 一条)。
+ * 顶点着色器通过该列表取粒子，可见数量不需要回读到 CPU。
+ * <p>
+ * 所有分组的中间数据从同一块 GPU 暂存缓冲区按帧顺序分配，互不覆盖。
+ * 只能在渲染线程调用。
+ * </p>
+ */
+public class GpuParticleCuller {
+
+    private static final int LOCAL_SIZE = 256;
+    private static final int COMMAND_BYTES = 32; // 两条 DrawArraysIndirectCommand
+    private static final int COMMAND_STRIDE = 16;
+    private static final int INITIAL_SCRATCH_SIZE = 4 * 1024 * 1024;
+
+    public static final int VISIBLE_BINDING = 2;
+    private static final int GROUP_BINDING = 3;
+    private static final int COMMAND_BINDING = 4;
+
+    private final int program;
+    private final int alignment;
+    private final int uModelViewMat, uProjMat, uInstanceCount, uFirstCount, uSecondCount, uPaddedFirst,
+            uGroupCount, uStage, uMinProjectedSize;
+    private final FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+
+    private int scratchBuffer;
+    private int scratchCapacity;
+    private int scratchCursor = 0;
+
+    // 最近一次剔除写出的间接绘制命令
+    private int commandOffset = 0;
+
+    public GpuParticleCuller(int program, int alignment) {
+        RenderSystem.assertOnRenderThread();
+
+        this.program = program;
+        this.alignment = alignment;
+        uModelViewMat = GL20.glGetUniformLocation(program, "ModelViewMat");
+        uProjMat = GL20.glGetUniformLocation(program, "ProjMat");
+        uInstanceCount = GL20.glGetUniformLocation(program, "InstanceCount");
+        uFirstCount = GL20.glGetUniformLocation(program, "FirstCount");
+        uSecondCount = GL20.glGetUniformLocation(program, "SecondCount");
+        uPaddedFirst = GL20.glGetUniformLocation(program, "PaddedFirst");
+        uGroupCount = GL20.glGetUniformLocation(program, "GroupCount");
+        uStage = GL20.glGetUniformLocation(program, "Stage");
+        uMinProjectedSize = GL20.glGetUniformLocation(program, "MinProjectedSize");
+
+        scratchCapacity = INITIAL_SCRATCH_SIZE;
+        scratchBuffer = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, scratchBuffer);
+        GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, scratchCapacity, GL15.GL_DYNAMIC_COPY);
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+    }
+
+    /**
+     * 新的一帧：暂存区从头分配
+     */
+    public void beginFrame() {
+        scratchCursor = 0;
+    }
+
+    /**
+     * 剔除一个绘制分组
+     * <p>
+     * 调用前粒子数据与每实例表必须已绑定到 binding 0 / 1。
+     * 返回后可见列表绑定在 {@link #VISIBLE_BINDING}，间接绘制缓冲区已绑定，
+     * 当前程序恢复为调用前的程序。
+     * </p>
+     *
+     * @param firstCount       第一个 Pass 的 Draw 数
+     * @param secondCount      第二个 Pass 的 Draw 数
+     * @param instanceEntries  每实例表的项数
+     * @param minProjectedSize NDC 空间的最小投影直径
+     */
+    public void cull(int firstCount, int secondCount, int instanceEntries, Matrix4f modelViewMatrix,
+            Matrix4f projMatrix, float minProjectedSize) {
+        int firstGroups = (firstCount + LOCAL_SIZE - 1) / LOCAL_SIZE;
+        int secondGroups = (secondCount + LOCAL_SIZE - 1) / LOCAL_SIZE;
+        int groupCount = firstGroups + secondGroups;
+
+        int visibleBytes = (firstCount + secondCount) * 4;
+        int visibleOffset = alignUp(scratchCursor);
+        int groupOffset = alignUp(visibleOffset + visibleBytes);
+        int commandStart = alignUp(groupOffset + groupCount * 4);
+        int end = commandStart + COMMAND_BYTES;
+        if (end > scratchCapacity) {
+            // 重新分配存储；本帧之前的分组已经提交，驱动会保留旧存储直到它们完成
+            int required = end - visibleOffset;
+            scratchCapacity = Math.max(scratchCapacity * 2, alignUp(required) + alignment);
+            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, scratchBuffer);
+            GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, scratchCapacity, GL15.GL_DYNAMIC_COPY);
+            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+            scratchCursor = 0;
+            visibleOffset = 0;
+            groupOffset = alignUp(visibleBytes);
+            commandStart = alignUp(groupOffset + groupCount * 4);
+            end = commandStart + COMMAND_BYTES;
+        }
+        scratchCursor = end;
+        commandOffset = commandStart;
+
+        GL30.glBindBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, VISIBLE_BINDING, scratchBuffer, visibleOffset,
+                Math.max(4, visibleBytes));
+        GL30.glBindBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, GROUP_BINDING, scratchBuffer, groupOffset,
+                Math.max(4, groupCount * 4));
+        GL30.glBindBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, COMMAND_BINDING, scratchBuffer, commandStart,
+                COMMAND_BYTES);
+
+        int previousProgram = GL11.glGetInteger(GL20.GL_CURRENT_PROGRAM);
+        GL20.glUseProgram(program);
+        uploadMatrix(uModelViewMat, modelViewMatrix);
+        uploadMatrix(uProjMat, projMatrix);
+        GL20.glUniform1i(uInstanceCount, instanceEntries);
+        GL30.glUniform1ui(uFirstCount, firstCount);
+        GL30.glUniform1ui(uSecondCount, secondCount);
+        GL30.glUniform1ui(uPaddedFirst, firstGroups * LOCAL_SIZE);
+        GL30.glUniform1ui(uGroupCount, groupCount);
+        GL20.glUniform1f(uMinProjectedSize, minProjectedSize);
+
+        // 暂存区在帧之间复用：确保之前的写入已经完成
+        GL42.glMemoryBarrier(GL43.GL_SHADER_STORAGE_BARRIER_BIT);
+
+        // Stage 0: 每组计数
+        GL20.glUniform1i(uStage, 0);
+        if (groupCount > 0)
+            GL43.glDispatchCompute(groupCount, 1, 1);
+        GL42.glMemoryBarrier(GL43.GL_SHADER_STORAGE_BARRIER_BIT);
+
+        // Stage 1: 组间前缀和 + 间接绘制命令 (没有粒子时也要写出 0 命令)
+        GL20.glUniform1i(uStage, 1);
+        GL43.glDispatchCompute(1, 1, 1);
+        GL42.glMemoryBarrier(GL43.GL_SHADER_STORAGE_BARRIER_BIT);
+
+        // Stage 2: 按序写出可见下标
+        GL20.glUniform1i(uStage, 2);
+        if (groupCount > 0)
+            GL43.glDispatchCompute(groupCount, 1, 1);
+        GL42.glMemoryBarrier(GL43.GL_SHADER_STORAGE_BARRIER_BIT | GL42.GL_COMMAND_BARRIER_BIT);
+
+        GL20.glUseProgram(previousProgram);
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, GROUP_BINDING, 0);
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, COMMAND_BINDING, 0);
+        GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, scratchBuffer);
+    }
+
+    /**
+     * 用最近一次剔除的结果绘制一个 Pass
+     *
+     * @param pass 0 = 第一个 Pass，1 = 第二个 Pass
+     */
+    public void drawIndirect(int pass) {
+        GL40.glDrawArraysIndirect(GL11.GL_TRIANGLE_FAN, (long) commandOffset + (long) pass * COMMAND_STRIDE);
+    }
+
+    public void destroy() {
+        if (scratchBuffer != 0) {
+            GL15.glDeleteBuffers(scratchBuffer);
+            scratchBuffer = 0;
+        }
+    }
+
+    private int alignUp(int value) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    private void uploadMatrix(int location, Matrix4f matrix) {
+        if (location >= 0 && matrix != null) {
+            matrixBuffer.clear();
+            matrix.get(matrixBuffer);
+            matrixBuffer.rewind();
+            GL20.glUniformMatrix4fv(location, false, matrixBuffer);
+        }
+    }
+}
@@ -58,17 +58,20 @@ import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import com.atemukesu.nebula.client.util.IrisUtil;
+import com.atemukesu.nebula.client.util.FrameSnapshot;
 
 /**
  * GPU 粒子渲染器 (PMB)
  * <p>
  * 使用 OpenGL 4.4+ Persistent Mapped Buffer 技术：
  * - 持久映射缓冲区，整个程序生命周期内保持映射状态
- * - 使用 Triple Buffering 避免 CPU-GPU 同步等待
- * - 使用 Fence Sync 确保安全写入
+ * - 单个环形缓冲区按批次分配区间 ({@link PersistentRingBuffer})
+ * - 每帧一个 Fence Sync 确保安全写入
  * </p>
  * 
  * 相比传统的 glBufferSubData：
@@ -84,6 +87,10 @@ public class GpuParticleRenderer {
     // OIT Shader
     private static final Identifier OIT_VSH_ID = Identifier.of(Nebula.MOD_ID, "shaders/oit_composite.vsh");
     private static final Identifier OIT_FSH_ID = Identifier.of(Nebula.MOD_ID, "shaders/oit_composite.fsh");
+    // GPU 帧解码
+    private static final Identifier DECODE_CSH_ID = Identifier.of(Nebula.MOD_ID, "shaders/nebula_decode.csh");
+    // GPU 粒子剔除
+    private static final Identifier CULL_CSH_ID = Identifier.of(Nebula.MOD_ID, "shaders/nebula_cull.csh");
     //? } else {
     
     /*private static final Identifier VERTEX_SHADER_ID = new Identifier(Nebula.MOD_ID, "shaders/nebula_particle.vsh");
@@ -92,6 +99,12 @@ public class GpuParticleRenderer {
     // OIT Shader
     private static final Identifier OIT_VSH_ID = new Identifier(Nebula.MOD_ID, "shaders/oit_composite.vsh");
     private static final Identifier OIT_FSH_ID = new Identifier(Nebula.MOD_ID, "shaders/oit_composite.fsh");
+
+    // GPU 帧解码
+    private static final Identifier DECODE_CSH_ID = new Identifier(Nebula.MOD_ID, "shaders/nebula_decode.csh");
+
+    // GPU 粒子剔除
+    private static final Identifier CULL_CSH_ID = new Identifier(Nebula.MOD_ID, "shaders/nebula_cull.csh");
     
     *///? }
 
@@ -104,17 +117,31 @@ public class GpuParticleRenderer {
     private static OitFramebuffer oitFbo;
     private static int oitProgram = -1;
 
+    // GPU 帧解码 (Compute Shader，需要 OpenGL 4.3)
+    private static int decodeProgram = -1;
+
+    // GPU 粒子剔除 + 间接绘制 (Compute Shader，需要 OpenGL 4.3)
+    private static int cullProgram = -1;
+    private static GpuParticleCuller culler = null;
+    // 分组的 Draw 数少于该值时直接绘制，省去三次 Dispatch
+    private static final int CULL_MIN_DRAWS = 2048;
+    // 投影直径小于该像素数的粒子不绘制
+    private static final float MIN_PROJECTED_PIXELS = 0.5f;
+    // 当前分组是否使用剔除结果绘制
+    private static boolean groupCulled = false;
+
     private static boolean initialized = false;
     private static boolean shaderCompiled = false;
 
     // Uniform locations
     private static int uModelViewMat = -1;
     private static int uProjMat = -1;
-    private static int uOrigin = -1;
     private static int uSampler0 = -1;
     private static int uUseTexture = -1;
-    private static int uPartialTicks = -1;
     private static int uEmissiveStrength = -1;
+    private static int uInstanceCount = -1;
+    private static int uDrawOffset = -1;
+    private static int uUseVisibleList = -1;
 
     private static int uRenderPass = -1;
 
@@ -129,17 +156,21 @@ public class GpuParticleRenderer {
 
     // ========== Persistent Mapped Buffer 相关 ==========
 
-    // Triple Buffering: 3 个缓冲区轮流使用，避免 CPU-GPU 同步
-    private static final int BUFFER_COUNT = 3;
-    private static final int INITIAL_BUFFER_SIZE = 8 * 1024 * 1024; // 每个缓冲区 8MB
+    // 单个大的持久映射环形缓冲区，按批次分配区间，按帧放置 Fence
+    private static final int INITIAL_BUFFER_SIZE = 24 * 1024 * 1024; // 初始 24MB，按峰值用量自动扩容
+
+    private static PersistentRingBuffer ring = null;
 
-    private static int[] ssbos = new int[BUFFER_COUNT];
-    private static ByteBuffer[] mappedBuffers = new ByteBuffer[BUFFER_COUNT];
-    private static long[] fences = new long[BUFFER_COUNT];
-    private static int currentBufferIndex = 0;
+    // GPU 帧堆：Streamer 直接把解码结果写入其中，绘制时零拷贝绑定
+    private static volatile GpuFrameHeap frameHeap = null;
+
+    // 降级模式：单个传统 SSBO，每组数据 orphan 后整体上传
+    private static int fallbackSsbo = 0;
     private static int currentBufferSize = INITIAL_BUFFER_SIZE;
 
     private static int lastFrameUsedBytes = 0;
+    // SSBO 绑定偏移的对齐要求 (GL_SHADER_STORAGE_BUFFER_OFFSET_ALIGNMENT)
+    private static int ssboOffsetAlignment = 256;
     private static boolean pmbSupported = false;
     private static boolean useFallback = false;
 
@@ -166,6 +197,8 @@ public class GpuParticleRenderer {
             pmbSupported = GL.getCapabilities().GL_ARB_buffer_storage;
             Nebula.LOGGER.info("[GpuParticleRenderer] Persistent Mapped Buffer supported: {}", pmbSupported);
 
+            ssboOffsetAlignment = Math.max(4, GL11.glGetInteger(GL43.GL_SHADER_STORAGE_BUFFER_OFFSET_ALIGNMENT));
+
             // 1. 编译 Shader
             shaderProgram = createShaderProgram();
             if (shaderProgram > 0) {
@@ -182,7 +215,21 @@ public class GpuParticleRenderer {
                 Nebula.LOGGER.error("[GpuParticleRenderer] Failed to compile OIT shader");
             }
 
-            // 1.2 初始化 OIT FBO
+            // 1.2 编译 GPU 解码 Compute Shader (失败时使用 CPU 解码)
+            if (GL.getCapabilities().OpenGL43) {
+                decodeProgram = createComputeProgram(DECODE_CSH_ID);
+            }
+            Nebula.LOGGER.info("[GpuParticleRenderer] GPU frame decoding available: {}", decodeProgram > 0);
+
+            // 1.3 编译 GPU 粒子剔除 Compute Shader (失败时直接绘制全部粒子)
+            if (GL.getCapabilities().OpenGL43) {
+                cullProgram = createComputeProgram(CULL_CSH_ID);
+                if (cullProgram > 0)
+                    culler = new GpuParticleCuller(cullProgram, ssboOffsetAlignment);
+            }
+            Nebula.LOGGER.info("[GpuParticleRenderer] GPU particle culling available: {}", culler != null);
+
+            // 1.4 初始化 OIT FBO
             oitFbo = new OitFramebuffer();
 
             // 2. 创建 VAO (仅用于绘制 Quad)
@@ -224,49 +271,42 @@ public class GpuParticleRenderer {
     }
 
     /**
-     * 创建 Persistent Mapped Buffers (Triple Buffering)
+     * 创建持久映射环形缓冲区
      */
     private static void createPersistentMappedBuffers() {
-        int flags = GL44.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
-
-        for (int i = 0; i < BUFFER_COUNT; i++) {
-            ssbos[i] = GL15.glGenBuffers();
-            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, ssbos[i]);
-
-            // 使用 glBufferStorage 创建不可变存储，启用持久映射
-            GL44.glBufferStorage(GL43.GL_SHADER_STORAGE_BUFFER, currentBufferSize, flags);
-
-            // 获取持久映射指针
-            mappedBuffers[i] = GL30.glMapBufferRange(
-                    GL43.GL_SHADER_STORAGE_BUFFER,
-                    0,
-                    currentBufferSize,
-                    flags);
-
-            if (mappedBuffers[i] == null) {
-                Nebula.LOGGER.error("[GpuParticleRenderer] Failed to map buffer {}", i);
-                useFallback = true;
-                break;
-            }
-
-            fences[i] = 0; // 初始无 fence
+        ring = new PersistentRingBuffer(INITIAL_BUFFER_SIZE, ssboOffsetAlignment);
+        if (!ring.create()) {
+            Nebula.LOGGER.error("[GpuParticleRenderer] Failed to map persistent ring buffer");
+            ring = null;
+            createFallbackBuffer();
+            return;
         }
 
-        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
-
-        if (!useFallback) {
-            Nebula.LOGGER.info("[GpuParticleRenderer] Created {} Persistent Mapped Buffers ({} MB each)",
-                    BUFFER_COUNT, currentBufferSize / 1024 / 1024);
+        GpuFrameHeap heap = new GpuFrameHeap();
+        if (heap.create()) {
+            frameHeap = heap;
+        } else {
+            // 帧堆不可用时 Streamer 退回普通缓冲区，由环形缓冲区拷贝上传
+            heap.destroy();
         }
     }
 
+    /**
+     * 获取 GPU 帧堆 (可在任意线程调用)
+     *
+     * @return 帧堆；降级模式或尚未初始化时为 null
+     */
+    public static GpuFrameHeap getFrameHeap() {
+        return frameHeap;
+    }
+
     /**
      * 降级方案：创建传统 SSBO
      */
     private static void createFallbackBuffer() {
         useFallback = true;
-        ssbos[0] = GL15.glGenBuffers();
-        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, ssbos[0]);
+        fallbackSsbo = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, fallbackSsbo);
         GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, currentBufferSize, GL15.GL_STREAM_DRAW);
         GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
         Nebula.LOGGER.info("[GpuParticleRenderer] Using fallback SSBO mode ({} MB)", currentBufferSize / 1024 / 1024);
@@ -278,11 +318,12 @@ public class GpuParticleRenderer {
         // 移除 CameraRight 和 CameraUp uniform 获取
         // uCameraRight = GL20.glGetUniformLocation(shaderProgram, "CameraRight");
         // uCameraUp = GL20.glGetUniformLocation(shaderProgram, "CameraUp");
-        uOrigin = GL20.glGetUniformLocation(shaderProgram, "Origin");
         uSampler0 = GL20.glGetUniformLocation(shaderProgram, "Sampler0");
         uUseTexture = GL20.glGetUniformLocation(shaderProgram, "UseTexture");
-        uPartialTicks = GL20.glGetUniformLocation(shaderProgram, "PartialTicks");
         uEmissiveStrength = GL20.glGetUniformLocation(shaderProgram, "EmissiveStrength");
+        uInstanceCount = GL20.glGetUniformLocation(shaderProgram, "InstanceCount");
+        uDrawOffset = GL20.glGetUniformLocation(shaderProgram, "DrawOffset");
+        uUseVisibleList = GL20.glGetUniformLocation(shaderProgram, "UseVisibleList");
 
         uRenderPass = GL20.glGetUniformLocation(shaderProgram, "uRenderPass");
 
@@ -291,9 +332,8 @@ public class GpuParticleRenderer {
         Nebula.LOGGER.info("  ModelViewMat={}, ProjMat={}", uModelViewMat, uProjMat);
         // 移除 CameraRight 和 CameraUp 日志输出
         // Nebula.LOGGER.info("  CameraRight={}, CameraUp={}, Origin={}", uCameraRight, uCameraUp, uOrigin);
-        Nebula.LOGGER.info("  Origin={}", uOrigin);
         Nebula.LOGGER.info("  Sampler0={}, UseTexture={}", uSampler0, uUseTexture);
-        Nebula.LOGGER.info("  PartialTicks={}, EmissiveStrength={}", uPartialTicks, uEmissiveStrength);
+        Nebula.LOGGER.info("  InstanceCount={}, EmissiveStrength={}", uInstanceCount, uEmissiveStrength);
         Nebula.LOGGER.info("  RenderPass={}", uRenderPass);
     }
 
@@ -303,23 +343,34 @@ public class GpuParticleRenderer {
     private static boolean globalOitCleared = false; // 确保每帧只清空一次
     @SuppressWarnings("unused")
     private static int globalOitViewportWidth = 0;
-    @SuppressWarnings("unused")
     private static int globalOitViewportHeight = 0;
     private static final int[] oitCachedViewport = new int[4];
+    private static Matrix4f oitModelViewMatrix;
+    private static Matrix4f oitProjMatrix;
 
     /**
      * 开始 OIT 全局阶段
-     * 必须在批量绘制粒子之前调用。
+     * 必须在提交粒子实例之前调用。
      * 只做初始化，不立即绑定 OIT FBO（因为 Pass 1 需要绘制到主 FBO）
      */
-    public static void beginOIT(int targetFboId, int viewportWidth, int viewportHeight) {
+    public static void beginOIT(int targetFboId, int viewportWidth, int viewportHeight,
+            Matrix4f modelViewMatrix, Matrix4f projMatrix) {
         if (!initialized || oitFbo == null || oitProgram <= 0)
             return;
 
         RenderSystem.assertOnRenderThread();
 
         // 保存状态供后续使用
+        oitModelViewMatrix = modelViewMatrix;
+        oitProjMatrix = projMatrix;
         globalOitTargetFboId = targetFboId;
+        if (ring != null)
+            ring.beginFrame();
+        if (culler != null)
+            culler.beginFrame();
+        GpuFrameHeap heap = frameHeap;
+        if (heap != null)
+            heap.beginFrame();
         globalOitActive = true;
         globalOitCleared = false; // 新帧开始，重置清空标志
         globalOitViewportWidth = viewportWidth;
@@ -332,7 +383,7 @@ public class GpuParticleRenderer {
         GL11.glGetIntegerv(GL11.GL_VIEWPORT, oitCachedViewport);
         oitFbo.bindAndShareDepth(targetFboId);
         oitFbo.clear(); // 强制清空：Accum=0, Reveal=1 (背景可见)
-        globalOitCleared = true; // 标记已清空，防止 renderOITBatch 重复清空(虽然重复清空也没事)
+        globalOitCleared = true; // 标记已清空，防止合并绘制时重复清空(虽然重复清空也没事)
         // 切回目标 FBO，准备给 Pass 1 (不透明粒子) 使用
         if (targetFboId == MinecraftClient.getInstance().getFramebuffer().fbo) {
             MinecraftClient.getInstance().getFramebuffer().beginWrite(false);
@@ -343,7 +394,8 @@ public class GpuParticleRenderer {
 
     /**
      * 结束 OIT 全局阶段并合成
-     * 必须在所有粒子绘制完成后调用。
+     * 必须在所有粒子实例提交完成后调用。
+     * - 合并绘制所有实例 (Pass 1 + 2)
      * - 切回主 FBO
      * - 执行全屏合成 Pass
      * - 恢复状态
@@ -356,8 +408,16 @@ public class GpuParticleRenderer {
 
         RenderSystem.assertOnRenderThread();
 
+        // Pass 1 + 2: 合并绘制本帧提交的所有实例
+        flushPendingInstances(true);
+        if (ring != null)
+            ring.endFrame();
+        GpuFrameHeap heap = frameHeap;
+        if (heap != null)
+            heap.endFrame();
+
         // Pass 3: Composite
-        if (!IrisUtil.isIrisRenderingActive() && targetFboId == MinecraftClient.getInstance().getFramebuffer().fbo) {
+        if (!FrameSnapshot.current().isIrisActive() && targetFboId == MinecraftClient.getInstance().getFramebuffer().fbo) {
             MinecraftClient.getInstance().getFramebuffer().beginWrite(false);
         } else {
             GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, targetFboId);
@@ -426,82 +486,416 @@ public class GpuParticleRenderer {
         GL11.glViewport(oitCachedViewport[0], oitCachedViewport[1], oitCachedViewport[2], oitCachedViewport[3]);
     }
 
+    // ========== 合并绘制 (Merged Draw) ==========
+
     /**
-     * OIT 批量绘制 (Two-Pass: Opaque + Translucent)
-     * 
-     * 执行两次绘制：
-     * - Pass 1: 不透明粒子绘制到主 FBO
-     * - Pass 2: 半透明粒子绘制到 OIT FBO（积累阶段）
-     * 
-     * 必须在 beginOIT 之后、endOITAndComposite 之前调用。
+     * 每实例表的绑定点与步长 (std430)
+     * vec4(Origin.xyz, PartialTicks) + uvec4(DrawStart, FirstParticle, LayerBase, 0)
+     * <p>
+     * 每个实例占两项：前半张表是 Opaque Pass 要画的区间，后半张表是第二个 Pass 要画的区间。
+     * </p>
      */
-    public static void renderOITBatch(ByteBuffer data, int particleCount,
-            Matrix4f modelViewMatrix, Matrix4f projMatrix,
-            // 移除 cameraRight 和 cameraUp 参数，因为现在使用视空间 Billboarding
-            // float[] cameraRight, float[] cameraUp,
+    private static final int INSTANCE_BINDING_INDEX = 1;
+    private static final int INSTANCE_STRIDE = 32;
+
+    // 本帧待绘制的实例 (对象复用，避免每帧分配)
+    private static final List<PendingInstance> pendingInstances = new ArrayList<>();
+    private static int pendingCount = 0;
+
+    // 降级模式下用于拼装数据的 CPU 暂存区
+    private static ByteBuffer fallbackStaging = null;
+
+    private static class PendingInstance {
+        ByteBuffer data;
+        GpuFrameHeap.Region region;
+        int sourceBuffer; // 帧堆或解码输出缓冲区 ID，0 表示需要拷贝到环形缓冲区
+        int particleCount;
+        float originX, originY, originZ;
+        float partialTicks;
+        int textureKey; // 0 表示无纹理
+        int layerBase;
+        int opaqueCount; // 帧内前段 (可能不透明) 的粒子数，-1 表示未分区
+        boolean binaryAlpha; // 纹理 alpha 只有 0/255
+        boolean flushed;
+    }
+
+    private static final Comparator<PendingInstance> FAR_TO_NEAR = Comparator.comparingDouble(
+            (PendingInstance p) -> p.originX * p.originX + p.originY * p.originY + p.originZ * p.originZ)
+            .reversed();
+
+    /**
+     * 提交一个实例到本帧的合并批次
+     * <p>
+     * 必须在 beginOIT / beginStandardRendering 与对应的 end 方法之间调用。
+     * 真正的上传和绘制推迟到 end 方法中：同一纹理数组的所有实例被打包进同一段 SSBO，
+     * 并附带一张每实例表 (原点、插值系数、纹理基准层)，每个 Pass 只需一次 Draw。
+     * 位于 GPU 帧堆中的帧直接按偏移引用，不做拷贝。
+     * frame 在 end 方法返回前必须保持有效。
+     * </p>
+     */
+    public static void submitInstance(AnimationFrame frame,
             float originX, float originY, float originZ,
-            boolean useTexture, int glTextureId, float partialTicks) {
+            boolean useTexture, int glTextureId, int layerBase, boolean binaryAlpha, float partialTicks) {
 
-        if (particleCount <= 0 || data == null || !initialized || !shaderCompiled)
+        if (frame == null || frame.particleCount <= 0 || !initialized || !shaderCompiled)
+            return;
+        if (frame.gpuData == null && frame.decodedBufferId == 0)
             return;
 
-        if (!globalOitActive || oitFbo == null) {
-            Nebula.LOGGER.warn("[GpuParticleRenderer] renderOITBatch called without beginOIT!");
+        if (!standardBatchActive && !globalOitActive) {
+            Nebula.LOGGER.warn("[GpuParticleRenderer] submitInstance called outside of a batch!");
             return;
         }
 
+        if (pendingCount == pendingInstances.size()) {
+            pendingInstances.add(new PendingInstance());
+        }
+        PendingInstance instance = pendingInstances.get(pendingCount++);
+        instance.data = frame.gpuData;
+        instance.region = frame.region;
+        // GPU 帧堆或 GPU 解码输出中的数据直接绑定，其余需要拷贝
+        instance.sourceBuffer = frame.region != null ? frame.region.getBufferId() : frame.decodedBufferId;
+        instance.particleCount = frame.particleCount;
+        instance.originX = originX;
+        instance.originY = originY;
+        instance.originZ = originZ;
+        instance.partialTicks = partialTicks;
+        instance.textureKey = useTexture && glTextureId > 0 ? glTextureId : 0;
+        instance.layerBase = layerBase;
+        instance.opaqueCount = frame.opaqueCount;
+        instance.binaryAlpha = instance.textureKey != 0 && binaryAlpha;
+        instance.flushed = false;
+    }
+
+    /**
+     * 上传并绘制本帧所有待绘制实例
+     * <p>
+     * 按 (纹理数组, 数据来源缓冲区) 分组，每组一次上传、一次纹理绑定，每个 Pass 一次 Draw。
+     * 帧堆中的帧只上传每实例表；其余帧拷贝到环形缓冲区。
+     * 深度排序且非加法混合时只合并排序后相邻的实例。
+     * </p>
+     */
+    private static void flushPendingInstances(boolean oit) {
+        if (pendingCount == 0)
+            return;
+
         RenderSystem.assertOnRenderThread();
 
-        int dataSize = data.remaining();
-        lastFrameUsedBytes = dataSize;
+        GL30.glBindVertexArray(vao);
+        GL20.glUseProgram(shaderProgram);
+
+        if (oit) {
+            uploadMatrix(uModelViewMat, oitModelViewMatrix);
+            uploadMatrix(uProjMat, oitProjMatrix);
+            float currentEmissive = FrameSnapshot.current().isIrisActive() ? ModConfig.getInstance().getEmissiveStrength()
+                    : 1.0f;
+            if (uEmissiveStrength != -1)
+                GL20.glUniform1f(uEmissiveStrength, currentEmissive);
+        }
+
+        // [优化] 标准混合模式下开启深度排序时，实例按从远到近的顺序分组和绘制
+        // 加法混合与顺序无关，可以跨越排序合并同纹理实例；其余混合模式只合并相邻的同组实例，保持远近顺序
+        boolean sorted = !oit && pendingCount > 1 && ModConfig.getInstance().getDepthSort();
+        if (sorted) {
+            pendingInstances.subList(0, pendingCount).sort(FAR_TO_NEAR);
+        }
+        boolean contiguousOnly = sorted && ModConfig.getInstance().getBlendMode() != BlendMode.ADDITIVE;
+
+        boolean cullEnabled = culler != null && ModConfig.getInstance().getGpuCulling();
+        Matrix4f cullModelView = oit ? oitModelViewMatrix : standardModelViewMatrix;
+        Matrix4f cullProj = oit ? oitProjMatrix : standardProjMatrix;
+        int viewportHeight = oit ? globalOitViewportHeight : standardViewport[3];
+        float minProjectedSize = viewportHeight > 0 ? 2.0f * MIN_PROJECTED_PIXELS / viewportHeight : 0.0f;
+
+        int ssbo = 0;
+        int frameBytes = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            PendingInstance first = pendingInstances.get(i);
+            if (first.flushed)
+                continue;
+
+            int textureKey = first.textureKey;
+            int sourceBuffer = first.sourceBuffer;
+
+            // 1. 统计本组大小
+            int instanceCount = 0;
+            int groupParticles = 0;
+            int opaqueDraws = 0;
+            int secondDraws = 0;
+            int groupEnd = pendingCount;
+            for (int j = i; j < pendingCount; j++) {
+                PendingInstance p = pendingInstances.get(j);
+                if (!p.flushed && p.textureKey == textureKey && p.sourceBuffer == sourceBuffer) {
+                    instanceCount++;
+                    groupParticles += p.particleCount;
+                    opaqueDraws += opaqueDrawCount(p);
+                    secondDraws += secondDrawCount(p, oit);
+                } else if (contiguousOnly) {
+                    groupEnd = j;
+                    break;
+                }
+            }
+            // 帧堆中的数据无需拷贝
+            int particleBytes = sourceBuffer == 0 ? groupParticles * AnimationFrame.BYTES_PER_PARTICLE : 0;
+            int tableBytes = instanceCount * 2 * INSTANCE_STRIDE;
+            frameBytes += particleBytes;
+
+            // 2. 分配区间并打包上传 (粒子数据 + 每实例表)
+            uploadGroup(i, groupEnd, textureKey, sourceBuffer, particleBytes, tableBytes, instanceCount, opaqueDraws,
+                    oit);
+            ssbo = groupParticleBuffer;
+
+            if (sourceBuffer != 0) {
+                GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, SSBO_BINDING_INDEX, sourceBuffer);
+            } else {
+                GL30.glBindBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, SSBO_BINDING_INDEX, groupParticleBuffer,
+                        groupParticleOffset, particleBytes);
+            }
+            GL30.glBindBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, INSTANCE_BINDING_INDEX, groupTableBuffer,
+                    groupTableOffset, tableBytes);
+            if (uInstanceCount != -1)
+                GL20.glUniform1i(uInstanceCount, instanceCount * 2);
+
+            // [优化] 逐粒子视锥剔除，可见粒子压缩成列表后间接绘制
+            groupCulled = cullEnabled && opaqueDraws + secondDraws >= CULL_MIN_DRAWS;
+            if (groupCulled) {
+                culler.cull(opaqueDraws, secondDraws, instanceCount * 2, cullModelView, cullProj, minProjectedSize);
+            }
+            if (uUseVisibleList != -1)
+                GL20.glUniform1i(uUseVisibleList, groupCulled ? 1 : 0);
+
+            // 3. 纹理 (整组共享同一个竞技场数组)
+            GL13.glActiveTexture(GL13.GL_TEXTURE0);
+            if (textureKey > 0) {
+                GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, textureKey);
+                if (uSampler0 != -1)
+                    GL20.glUniform1i(uSampler0, 0);
+                if (uUseTexture != -1)
+                    GL20.glUniform1i(uUseTexture, 1);
+            } else {
+                GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+                if (uUseTexture != -1)
+                    GL20.glUniform1i(uUseTexture, 0);
+            }
+
+            // 4. 绘制 (Fence 在帧结束时由环形缓冲区统一放置)
+            if (oit) {
+                drawOITPasses(opaqueDraws, secondDraws);
+            } else {
+                drawStandardPasses(opaqueDraws, secondDraws);
+            }
+        }
+
+        lastFrameUsedBytes = frameBytes;
+
+        // Stats
+        PendingInstance head = pendingInstances.get(0);
+        PerformanceStats stats = PerformanceStats.getInstance();
+        stats.setShaderProgram(shaderProgram);
+        stats.setVao(vao);
+        stats.setSsbo(ssbo);
+        stats.setBufferSizeBytes(getBufferSize());
+        stats.setUsedBufferBytes(lastFrameUsedBytes);
+        stats.setPmbSupported(pmbSupported);
+        stats.setUsingFallback(useFallback);
+        stats.setIrisMode(FrameSnapshot.current().isIrisActive());
+        stats.setTargetFboId(oit ? globalOitTargetFboId : standardRestoreFboId);
+        stats.setOrigin(head.originX, head.originY, head.originZ);
+        stats.setLastGlError(GL11.glGetError(), oit ? "Post-OIT-Batch" : "Post-Standard-Batch");
+
+        // 释放对帧数据的引用
+        for (int i = 0; i < pendingCount; i++) {
+            PendingInstance p = pendingInstances.get(i);
+            p.data = null;
+            p.region = null;
+        }
+        pendingCount = 0;
+
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, SSBO_BINDING_INDEX, 0);
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, INSTANCE_BINDING_INDEX, 0);
+        if (cullEnabled) {
+            GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, GpuParticleCuller.VISIBLE_BINDING, 0);
+            GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+        }
+        groupCulled = false;
+    }
+
+    // 最近一次 uploadGroup 的结果 (避免每组分配结果对象)
+    private static int groupParticleBuffer;
+    private static int groupParticleOffset;
+    private static int groupTableBuffer;
+    private static int groupTableOffset;
+
+    /**
+     * 把一个分组的所有实例写入 GPU 缓冲区
+     * <p>
+     * PMB 模式下粒子数据与每实例表各自从环形缓冲区分配一段对齐的区间；
+     * 数据已在帧堆中 (sourceBuffer != 0) 时只分配每实例表；
+     * 降级模式下拼装到 CPU 暂存区后 orphan 上传，布局为 [粒子数据][对齐填充][每实例表]。
+     * 只处理 [firstIndex, endIndex) 内的实例。
+     * 结果写入 groupParticleBuffer/Offset 与 groupTableBuffer/Offset。
+     * </p>
+     */
+    private static void uploadGroup(int firstIndex, int endIndex, int textureKey, int sourceBuffer, int particleBytes,
+            int tableBytes, int instanceCount, int opaqueDraws, boolean oit) {
+        PerformanceStats stats = PerformanceStats.getInstance();
+        stats.beginDataUpload();
+
+        long particleAddress = 0;
+        long tableAddress = 0;
+        int totalBytes = 0;
+        if (!useFallback) {
+            if (sourceBuffer != 0) {
+                groupTableOffset = ring.allocate(tableBytes);
+                groupTableBuffer = ring.getBufferId();
+                groupParticleBuffer = sourceBuffer;
+                groupParticleOffset = 0;
+            } else {
+                // 注意：分配可能触发扩容并更换缓冲区，每次分配后立即读取缓冲区 ID
+                groupParticleOffset = ring.allocate(particleBytes);
+                groupParticleBuffer = ring.getBufferId();
+                groupTableOffset = ring.allocate(tableBytes);
+                groupTableBuffer = ring.getBufferId();
+                if (groupParticleOffset >= 0 && groupTableOffset >= 0 && groupParticleBuffer != groupTableBuffer) {
+                    // 表分配时触发了扩容，粒子数据也改到新缓冲区中
+                    groupParticleOffset = ring.allocate(particleBytes);
+                    groupParticleBuffer = ring.getBufferId();
+                }
+                particleAddress = ring.address(groupParticleOffset);
+            }
+            tableAddress = ring.address(groupTableOffset);
+            if (groupParticleOffset < 0 || groupTableOffset < 0) {
+                // 环形缓冲区无法扩容：本次会话改用普通 SSBO 上传
+                Nebula.LOGGER.error("[GpuParticleRenderer] Persistent ring exhausted, switching to fallback SSBO");
+                ring.destroy();
+                ring = null;
+                createFallbackBuffer();
+            }
+        }
+        if (useFallback) {
+            int tableOffset = alignUp(particleBytes, ssboOffsetAlignment);
+            totalBytes = tableOffset + tableBytes;
+            if (totalBytes > currentBufferSize) {
+                currentBufferSize = Math.max(currentBufferSize * 2, totalBytes);
+                Nebula.LOGGER.info("[GpuParticleRenderer] Expanding fallback buffer to {} MB",
+                        currentBufferSize / 1024 / 1024);
+            }
+            if (fallbackStaging == null || fallbackStaging.capacity() < totalBytes) {
+                fallbackStaging = BufferUtils.createByteBuffer(currentBufferSize);
+            }
+            particleAddress = MemoryUtil.memAddress0(fallbackStaging);
+            tableAddress = particleAddress + tableOffset;
+            groupParticleBuffer = sourceBuffer != 0 ? sourceBuffer : fallbackSsbo;
+            groupParticleOffset = 0;
+            groupTableBuffer = fallbackSsbo;
+            groupTableOffset = tableOffset;
+        }
+
+        int particleOffset = 0;
+        long secondTableAddress = tableAddress + (long) instanceCount * INSTANCE_STRIDE;
+        int drawStart = 0;
+        int secondDrawStart = opaqueDraws;
+        for (int j = firstIndex; j < endIndex; j++) {
+            PendingInstance p = pendingInstances.get(j);
+            if (p.flushed || p.textureKey != textureKey || p.sourceBuffer != sourceBuffer)
+                continue;
+
+            int firstParticle;
+            if (sourceBuffer != 0) {
+                // 零拷贝：直接引用帧堆中的区间 (解码输出缓冲区从 0 开始)
+                firstParticle = p.region != null ? p.region.getFirstParticle() : 0;
+            } else {
+                int bytes = p.particleCount * AnimationFrame.BYTES_PER_PARTICLE;
+                // 【性能优化】使用 MemoryUtil.memCopy 直接内存拷贝，消除 Java NIO 的边界检查开销
+                MemoryUtil.memCopy(MemoryUtil.memAddress(p.data), particleAddress + particleOffset, bytes);
+                firstParticle = particleOffset / AnimationFrame.BYTES_PER_PARTICLE;
+                particleOffset += bytes;
+            }
 
-        // Ensure buffer capacity
-        if (dataSize > currentBufferSize) {
-            expandBuffers(dataSize);
+            // 前段：Opaque Pass；后段：第二个 Pass
+            int secondCount = secondDrawCount(p, oit);
+            int secondFirst = firstParticle + (p.particleCount - secondCount);
+            putInstanceEntry(tableAddress, p, drawStart, firstParticle);
+            putInstanceEntry(secondTableAddress, p, secondDrawStart, secondFirst);
+
+            tableAddress += INSTANCE_STRIDE;
+            secondTableAddress += INSTANCE_STRIDE;
+            drawStart += opaqueDrawCount(p);
+            secondDrawStart += secondCount;
+            p.flushed = true;
         }
 
-        // Upload Data
-        int ssbo;
         if (useFallback) {
-            ssbo = uploadDataFallback(data, dataSize);
-        } else {
-            ssbo = uploadDataPMB(data, dataSize);
+            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, fallbackSsbo);
+            // Orphan the buffer (废弃旧数据，避免同步等待)
+            GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, currentBufferSize, GL15.GL_STREAM_DRAW);
+            fallbackStaging.clear().limit(totalBytes);
+            GL15.glBufferSubData(GL43.GL_SHADER_STORAGE_BUFFER, 0, fallbackStaging);
+            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
         }
 
-        // Bind VAO & SSBO
-        GL30.glBindVertexArray(vao);
-        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, SSBO_BINDING_INDEX, ssbo);
+        stats.endDataUpload(); // 计时
+    }
 
-        // Use Particle Shader
-        GL20.glUseProgram(shaderProgram);
+    private static void putInstanceEntry(long address, PendingInstance p, int drawStart, int firstParticle) {
+        MemoryUtil.memPutFloat(address, p.originX);
+        MemoryUtil.memPutFloat(address + 4, p.originY);
+        MemoryUtil.memPutFloat(address + 8, p.originZ);
+        MemoryUtil.memPutFloat(address + 12, p.partialTicks);
+        MemoryUtil.memPutInt(address + 16, drawStart);
+        MemoryUtil.memPutInt(address + 20, firstParticle);
+        MemoryUtil.memPutInt(address + 24, p.layerBase);
+        MemoryUtil.memPutInt(address + 28, 0);
+    }
 
-        // Upload Uniforms
-        uploadMatrix(uModelViewMat, modelViewMatrix);
-        uploadMatrix(uProjMat, projMatrix);
-        if (uOrigin != -1)
-            GL20.glUniform3f(uOrigin, originX, originY, originZ);
-        if (uPartialTicks != -1)
-            GL20.glUniform1f(uPartialTicks, partialTicks);
-
-        // 动态设置 HDR 强度: Iris 开启时使用用户自定义的亮度，关闭时保持原色(1.0)
-        // 移至此处以确保同时应用于 Pass 1 (Opaque) 和 Pass 2 (Translucent)
-        float currentEmissive = IrisUtil.isIrisRenderingActive() ? ModConfig.getInstance().getEmissiveStrength() : 1.0f;
-        if (uEmissiveStrength != -1)
-            GL20.glUniform1f(uEmissiveStrength, currentEmissive);
+    /**
+     * Opaque Pass 需要绘制的粒子数
+     * <p>
+     * 帧已分区时只有前段 (顶点 alpha >= 0.5) 可能产生不透明片元。
+     * </p>
+     */
+    private static int opaqueDrawCount(PendingInstance p) {
+        return p.opaqueCount >= 0 ? p.opaqueCount : p.particleCount;
+    }
 
-        // Textures
-        if (useTexture && glTextureId > 0) {
-            GL13.glActiveTexture(GL13.GL_TEXTURE0);
-            GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, glTextureId);
-            if (uSampler0 != -1)
-                GL20.glUniform1i(uSampler0, 0);
-            if (uUseTexture != -1)
-                GL20.glUniform1i(uUseTexture, 1);
+    /**
+     * 第二个 Pass 需要绘制的粒子数 (区间总在帧末尾)
+     * <p>
+     * 纹理 alpha 只有 0/255 时，前段粒子的片元 alpha 只能是 0 或 >= 0.5，
+     * OIT 半透明 Pass 只需绘制后段；否则 (软边纹理、标准模式) 仍需绘制全部。
+     * </p>
+     */
+    private static int secondDrawCount(PendingInstance p, boolean oit) {
+        if (oit && p.binaryAlpha && p.opaqueCount >= 0)
+            return p.particleCount - p.opaqueCount;
+        return p.particleCount;
+    }
+
+    /**
+     * 绘制一个 Pass
+     *
+     * @param pass       0 = 第一个 Pass，1 = 第二个 Pass (选择对应的间接绘制命令)
+     * @param drawOffset 该 Pass 在每实例表 / 可见列表中的起始 Draw 下标
+     * @param count      该 Pass 的 Draw 数 (剔除前)
+     */
+    private static void drawInstances(int pass, int drawOffset, int count) {
+        if (count <= 0)
+            return;
+        if (uDrawOffset != -1)
+            GL20.glUniform1i(uDrawOffset, drawOffset);
+        if (groupCulled) {
+            culler.drawIndirect(pass);
         } else {
-            if (uUseTexture != -1)
-                GL20.glUniform1i(uUseTexture, 0);
+            GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_FAN, 0, 4, count);
         }
+    }
 
+    /**
+     * OIT 两个 Pass：
+     * - Pass 1: 不透明粒子绘制到主 FBO (只画分区前段)
+     * - Pass 2: 半透明粒子绘制到 OIT FBO（积累阶段）
+     */
+    private static void drawOITPasses(int opaqueDraws, int secondDraws) {
         RenderSystem.disableCull();
         RenderSystem.enableDepthTest();
         RenderSystem.depthFunc(GL11.GL_LEQUAL);
@@ -517,20 +911,20 @@ public class GpuParticleRenderer {
         RenderSystem.depthMask(true);
         RenderSystem.enableBlend();
 
-        // 显式重置 GL Blend Func，防止上一次 Batch 的 Pass 2 (OIT Blend) 状态残留。
-        // RenderSystem 可能会误以为状态未变而跳过指令，导致第二个 Batch 的不透明粒子
+        // 显式重置 GL Blend Func，防止上一组的 Pass 2 (OIT Blend) 状态残留。
+        // RenderSystem 可能会误以为状态未变而跳过指令，导致下一组的不透明粒子
         // 继承了 OIT 的混合模式 (Additive)，从而变成半透明/发亮。
         GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
         RenderSystem.blendFunc(GlStateManager.SrcFactor.SRC_ALPHA, GlStateManager.DstFactor.ONE_MINUS_SRC_ALPHA);
 
-        GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_FAN, 0, 4, particleCount);
+        drawInstances(0, 0, opaqueDraws);
 
         // ==========================================
         // Pass 2: 半透明粒子 (Translucent)
         // 目标: OIT FBO
         // ==========================================
         oitFbo.bindAndShareDepth(globalOitTargetFboId);
-        // 只在第一个 batch 时清空 OIT FBO
+        // 只在第一组时清空 OIT FBO
         if (!globalOitCleared) {
             oitFbo.clear();
             globalOitCleared = true;
@@ -545,46 +939,61 @@ public class GpuParticleRenderer {
         GL40.glBlendFunci(0, GL11.GL_ONE, GL11.GL_ONE); // Accum
         GL40.glBlendFunci(1, GL11.GL_ZERO, GL11.GL_ONE_MINUS_SRC_COLOR); // Reveal
 
-        GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_FAN, 0, 4, particleCount);
+        drawInstances(1, opaqueDraws, secondDraws);
+    }
 
-        // Cleanup (部分，完整清理在 endOITAndComposite 中)
-        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, SSBO_BINDING_INDEX, 0);
-        GL30.glBindVertexArray(0);
+    /**
+     * 标准模式两个 Pass：Opaque (只画分区前段) + Translucent (ADDITIVE / ALPHA)
+     */
+    private static void drawStandardPasses(int opaqueDraws, int secondDraws) {
+        BlendMode blendMode = ModConfig.getInstance().getBlendMode();
 
-        // Stats
-        PerformanceStats stats = PerformanceStats.getInstance();
-        stats.setShaderProgram(shaderProgram);
-        stats.setVao(vao);
-        stats.setSsbo(ssbo);
-        stats.setBufferSizeBytes(currentBufferSize);
-        stats.setUsedBufferBytes(lastFrameUsedBytes);
-        stats.setPmbSupported(pmbSupported);
-        stats.setUsingFallback(useFallback);
-        stats.setIrisMode(IrisUtil.isIrisRenderingActive());
-        stats.setTargetFboId(globalOitTargetFboId);
-        stats.setOrigin(originX, originY, originZ);
-        stats.setLastGlError(GL11.glGetError(), "Post-OIT-Batch");
+        // Pass 1: Opaque
+        if (uRenderPass != -1)
+            GL20.glUniform1i(uRenderPass, 0); // Opaque Pass
 
-        // PMB Fence Logic
-        if (!useFallback) {
-            if (fences[currentBufferIndex] != 0) {
-                GL32.glDeleteSync(fences[currentBufferIndex]);
-            }
-            fences[currentBufferIndex] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
-            currentBufferIndex = (currentBufferIndex + 1) % BUFFER_COUNT;
+        RenderSystem.depthMask(true);
+        RenderSystem.enableBlend();
+        RenderSystem.blendFunc(GlStateManager.SrcFactor.SRC_ALPHA, GlStateManager.DstFactor.ONE_MINUS_SRC_ALPHA);
+
+        drawInstances(0, 0, opaqueDraws);
+
+        // Pass 2: Translucent
+        if (uRenderPass != -1)
+            GL20.glUniform1i(uRenderPass, 2); // Translucent Pass (Standard)
+
+        RenderSystem.depthMask(false);
+
+        switch (blendMode) {
+            case ADDITIVE:
+                RenderSystem.blendFunc(GlStateManager.SrcFactor.SRC_ALPHA, GlStateManager.DstFactor.ONE);
+                break;
+            case ALPHA:
+            default:
+                RenderSystem.blendFunc(GlStateManager.SrcFactor.SRC_ALPHA,
+                        GlStateManager.DstFactor.ONE_MINUS_SRC_ALPHA);
+                break;
         }
+
+        drawInstances(1, opaqueDraws, secondDraws);
+    }
+
+    private static int alignUp(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
     }
 
     // Standard Batch Rendering State
     private static boolean standardBatchActive = false;
     private static int standardRestoreFboId = -1;
     private static int[] standardViewport = new int[4];
+    private static Matrix4f standardModelViewMatrix;
+    private static Matrix4f standardProjMatrix;
 
     /**
      * 开始标准渲染批量 (Standard/Additive)
      * <p>
      * 初始化渲染状态，绑定 Shader 和 VAO，上传通用 Uniform。
-     * 必须在调用 renderStandardBatch 之前调用。
+     * 必须在调用 submitInstance 之前调用。
      * </p>
      * 
      * @param restoreFboId 渲染结束后需要恢复的 FBO ID。如果为 -1，则不执行恢复。
@@ -605,6 +1014,15 @@ public class GpuParticleRenderer {
 
         standardBatchActive = true;
         standardRestoreFboId = restoreFboId;
+        standardModelViewMatrix = modelViewMatrix;
+        standardProjMatrix = projMatrix;
+        if (ring != null)
+            ring.beginFrame();
+        if (culler != null)
+            culler.beginFrame();
+        GpuFrameHeap heap = frameHeap;
+        if (heap != null)
+            heap.beginFrame();
 
         // Backup Viewport
         GL11.glGetIntegerv(GL11.GL_VIEWPORT, standardViewport);
@@ -629,7 +1047,7 @@ public class GpuParticleRenderer {
         //     GL20.glUniform3f(uCameraUp, cameraUp[0], cameraUp[1], cameraUp[2]);
 
         // Emissive Strength
-        float currentEmissive = IrisUtil.isIrisRenderingActive() ? ModConfig.getInstance().getEmissiveStrength() : 1.0f;
+        float currentEmissive = FrameSnapshot.current().isIrisActive() ? ModConfig.getInstance().getEmissiveStrength() : 1.0f;
         if (uEmissiveStrength != -1)
             GL20.glUniform1f(uEmissiveStrength, currentEmissive);
     }
@@ -637,7 +1055,7 @@ public class GpuParticleRenderer {
     /**
      * 结束标准渲染批量
      * <p>
-     * 恢复渲染状态，解绑资源。
+     * 合并绘制所有已提交的实例，然后恢复渲染状态，解绑资源。
      * </p>
      */
     public static void endStandardRendering() {
@@ -646,10 +1064,18 @@ public class GpuParticleRenderer {
 
         RenderSystem.assertOnRenderThread();
 
+        // 0. 合并绘制本帧提交的所有实例，并为本帧放置 Fence
+        flushPendingInstances(false);
+        if (ring != null)
+            ring.endFrame();
+        GpuFrameHeap heap = frameHeap;
+        if (heap != null)
+            heap.endFrame();
+
         // 1. Unbind Resources
         GL30.glBindVertexArray(0);
         GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, SSBO_BINDING_INDEX, 0);
-        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, SSBO_BINDING_INDEX, 0);
+        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, INSTANCE_BINDING_INDEX, 0);
         // ParticleTextureManager.unbind(); // Removed
         GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
 
@@ -685,211 +1111,22 @@ public class GpuParticleRenderer {
         standardRestoreFboId = -1;
     }
 
-    /**
-     * 渲染标准批量中的一个实例
-     * <p>
-     * 必须在 beginStandardRendering 和 endStandardRendering 之间调用。
-     * </p>
-     */
-    public static void renderStandardBatch(ByteBuffer data, int particleCount,
-            float originX, float originY, float originZ,
-            boolean useTexture, int glTextureId, float partialTicks) {
-
-        if (!standardBatchActive) {
-            Nebula.LOGGER.warn("[GpuParticleRenderer] renderStandardBatch called without beginStandardRendering!");
-            return;
-        }
-
-        if (particleCount <= 0 || data == null)
-            return;
-
-        RenderSystem.assertOnRenderThread();
-
-        int dataSize = data.remaining();
-        lastFrameUsedBytes = dataSize;
-
-        // Buffer Management
-        if (dataSize > currentBufferSize) {
-            expandBuffers(dataSize);
-        }
-
-        int ssbo;
-        if (useFallback) {
-            ssbo = uploadDataFallback(data, dataSize);
-        } else {
-            ssbo = uploadDataPMB(data, dataSize);
-        }
-
-        // Bind SSBO
-        GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, SSBO_BINDING_INDEX, ssbo);
-
-        // Upload Instance-Specific Uniforms
-        if (uOrigin != -1)
-            GL20.glUniform3f(uOrigin, originX, originY, originZ);
-        if (uPartialTicks != -1)
-            GL20.glUniform1f(uPartialTicks, partialTicks);
-
-        // Texture Binding
-        if (useTexture && glTextureId > 0) {
-            GL13.glActiveTexture(GL13.GL_TEXTURE0);
-            GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, glTextureId);
-            if (uSampler0 != -1)
-                GL20.glUniform1i(uSampler0, 0);
-            if (uUseTexture != -1)
-                GL20.glUniform1i(uUseTexture, 1);
-        } else {
-            GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
-            if (uUseTexture != -1)
-                GL20.glUniform1i(uUseTexture, 0);
-        }
-
-        // Drawing Passes (2-Pass: Opaque + Translucent)
-        BlendMode blendMode = ModConfig.getInstance().getBlendMode();
-
-        // Pass 1: Opaque
-        if (uRenderPass != -1)
-            GL20.glUniform1i(uRenderPass, 0); // Opaque Pass
-
-        RenderSystem.depthMask(true);
-        RenderSystem.enableBlend();
-        RenderSystem.blendFunc(GlStateManager.SrcFactor.SRC_ALPHA, GlStateManager.DstFactor.ONE_MINUS_SRC_ALPHA);
-
-        GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_FAN, 0, 4, particleCount);
-
-        // Pass 2: Translucent
-        if (uRenderPass != -1)
-            GL20.glUniform1i(uRenderPass, 2); // Translucent Pass (Standard)
-
-        RenderSystem.depthMask(false);
-
-        switch (blendMode) {
-            case ADDITIVE:
-                RenderSystem.blendFunc(GlStateManager.SrcFactor.SRC_ALPHA, GlStateManager.DstFactor.ONE);
-                break;
-            case ALPHA:
-            default:
-                RenderSystem.blendFunc(GlStateManager.SrcFactor.SRC_ALPHA,
-                        GlStateManager.DstFactor.ONE_MINUS_SRC_ALPHA);
-                break;
-        }
-
-        GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_FAN, 0, 4, particleCount);
-
-        // Stats
-        PerformanceStats stats = PerformanceStats.getInstance();
-        stats.setShaderProgram(shaderProgram);
-        stats.setVao(vao);
-        stats.setSsbo(ssbo);
-        stats.setBufferSizeBytes(currentBufferSize);
-        stats.setUsedBufferBytes(lastFrameUsedBytes);
-        stats.setPmbSupported(pmbSupported);
-        stats.setUsingFallback(useFallback);
-        stats.setIrisMode(IrisUtil.isIrisRenderingActive());
-        stats.setTargetFboId(standardRestoreFboId);
-        stats.setOrigin(originX, originY, originZ);
-        stats.setLastGlError(GL11.glGetError(), "Post-Standard-Batch-Instance");
-        // Other stats are set per frame in Manager
-
-        // Fence Logic
-        if (!useFallback) {
-            if (fences[currentBufferIndex] != 0) {
-                GL32.glDeleteSync(fences[currentBufferIndex]);
-            }
-            fences[currentBufferIndex] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
-            currentBufferIndex = (currentBufferIndex + 1) % BUFFER_COUNT;
-        }
-    }
-
-    /**
-     * PMB 模式数据上传
-     */
-    private static int uploadDataPMB(ByteBuffer data, int dataSize) {
-        PerformanceStats stats = PerformanceStats.getInstance();
-        stats.beginDataUpload();
-        int bufferIndex = currentBufferIndex;
-
-        // 等待 GPU 完成对这个缓冲区的使用
-        if (fences[bufferIndex] != 0) {
-            int waitResult = GL32.glClientWaitSync(fences[bufferIndex], GL32.GL_SYNC_FLUSH_COMMANDS_BIT,
-                    1_000_000_000L); // 1秒超时
-            if (waitResult == GL32.GL_WAIT_FAILED) {
-                Nebula.LOGGER.warn("[GpuParticleRenderer] Fence wait failed");
-            } else if (waitResult == GL32.GL_TIMEOUT_EXPIRED) {
-                Nebula.LOGGER.warn("[GpuParticleRenderer] Fence wait timeout");
-            }
-            GL32.glDeleteSync(fences[bufferIndex]);
-            fences[bufferIndex] = 0;
-        }
-
-        // 【性能优化】使用 MemoryUtil.memCopy 直接内存拷贝
-        // 相比 ByteBuffer.put()，消除了 Java NIO 的边界检查开销
-        // 对于 20MB+ 数据，CPU 占用显著降低
-        ByteBuffer mappedBuffer = mappedBuffers[bufferIndex];
-        long destAddress = MemoryUtil.memAddress(mappedBuffer);
-        long srcAddress = MemoryUtil.memAddress(data);
-        MemoryUtil.memCopy(srcAddress, destAddress, dataSize);
-        stats.endDataUpload(); // 计时
-        return ssbos[bufferIndex];
-    }
-
-    /**
-     * 降级模式数据上传（传统 glBufferSubData）
-     */
-    private static int uploadDataFallback(ByteBuffer data, int dataSize) {
-        PerformanceStats stats = PerformanceStats.getInstance();
-        stats.beginDataUpload(); // 统计数据
-        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, ssbos[0]);
-
-        // Orphan the buffer (废弃旧数据，避免同步等待)
-        GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, currentBufferSize, GL15.GL_STREAM_DRAW);
-
-        // 写入数据
-        GL15.glBufferSubData(GL43.GL_SHADER_STORAGE_BUFFER, 0, data);
-        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
-        stats.endDataUpload(); // 计时
-        return ssbos[0];
-    }
-
-    /**
-     * 扩容缓冲区
-     */
-    private static void expandBuffers(int needed) {
-        int newSize = Math.max(currentBufferSize * 2, needed);
-        Nebula.LOGGER.info("[GpuParticleRenderer] Expanding buffers: {} MB -> {} MB",
-                currentBufferSize / 1024 / 1024, newSize / 1024 / 1024);
-
-        // 清理旧缓冲区
-        cleanupBuffers();
-
-        currentBufferSize = newSize;
-
-        // 重新创建缓冲区
-        if (pmbSupported && !useFallback) {
-            createPersistentMappedBuffers();
-        } else {
-            createFallbackBuffer();
-        }
-    }
-
     /**
      * 清理缓冲区（不清理 shader 和 VAO）
      */
     private static void cleanupBuffers() {
-        for (int i = 0; i < BUFFER_COUNT; i++) {
-            if (fences[i] != 0) {
-                GL32.glDeleteSync(fences[i]);
-                fences[i] = 0;
-            }
-            if (mappedBuffers[i] != null) {
-                // 解除映射
-                GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, ssbos[i]);
-                GL15.glUnmapBuffer(GL43.GL_SHADER_STORAGE_BUFFER);
-                mappedBuffers[i] = null;
-            }
-            if (ssbos[i] != 0) {
-                GL15.glDeleteBuffers(ssbos[i]);
-                ssbos[i] = 0;
-            }
+        if (ring != null) {
+            ring.destroy();
+            ring = null;
+        }
+        GpuFrameHeap heap = frameHeap;
+        if (heap != null) {
+            frameHeap = null;
+            heap.destroy();
+        }
+        if (fallbackSsbo != 0) {
+            GL15.glDeleteBuffers(fallbackSsbo);
+            fallbackSsbo = 0;
         }
         GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
     }
@@ -921,6 +1158,18 @@ public class GpuParticleRenderer {
             GL20.glDeleteProgram(shaderProgram);
             shaderProgram = -1;
         }
+        if (decodeProgram > 0) {
+            GL20.glDeleteProgram(decodeProgram);
+            decodeProgram = -1;
+        }
+        if (culler != null) {
+            culler.destroy();
+            culler = null;
+        }
+        if (cullProgram > 0) {
+            GL20.glDeleteProgram(cullProgram);
+            cullProgram = -1;
+        }
 
         if (oitFbo != null) {
             // oitFbo.delete(); // Commenting out until method verified
@@ -1019,6 +1268,55 @@ public class GpuParticleRenderer {
         }
     }
 
+    /**
+     * 创建 Compute Shader 程序
+     *
+     * @param cshId 计算着色器 ID
+     * @return 程序句柄；编译或链接失败时返回 -1
+     */
+    private static int createComputeProgram(Identifier cshId) {
+        String source = loadShaderSource(cshId);
+        if (source == null)
+            return -1;
+        int shader = GL20.glCreateShader(GL43.GL_COMPUTE_SHADER);
+        try {
+            GL20.glShaderSource(shader, source);
+            GL20.glCompileShader(shader);
+            if (GL20.glGetShaderi(shader, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+                Nebula.LOGGER.error("[GpuParticleRenderer] Compute shader compile error ({}): {}", cshId,
+                        GL20.glGetShaderInfoLog(shader));
+                return -1;
+            }
+
+            int program = GL20.glCreateProgram();
+            GL20.glAttachShader(program, shader);
+            GL20.glLinkProgram(program);
+            if (GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+                Nebula.LOGGER.error("[GpuParticleRenderer] Compute program link error: {}",
+                        GL20.glGetProgramInfoLog(program));
+                GL20.glDeleteProgram(program);
+                return -1;
+            }
+            return program;
+        } finally {
+            GL20.glDeleteShader(shader);
+        }
+    }
+
+    /**
+     * @return GPU 帧解码程序；不可用时为 -1
+     */
+    public static int getDecodeProgram() {
+        return decodeProgram;
+    }
+
+    /**
+     * GPU 帧解码是否可用 (Compute Shader 编译成功)
+     */
+    public static boolean isGpuDecodeAvailable() {
+        return initialized && decodeProgram > 0;
+    }
+
     /**
      * 检查是否初始化
      * 
@@ -1033,7 +1331,7 @@ public class GpuParticleRenderer {
     }
 
     public static int getBufferSize() {
-        return currentBufferSize;
+        return ring != null ? ring.getCapacity() : currentBufferSize;
     }
 
     public static int getTypeSize() {
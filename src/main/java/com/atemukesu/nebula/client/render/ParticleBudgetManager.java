@@ -0,0 +1,260 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.render;
+
+import com.atemukesu.nebula.client.loader.NblStreamer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <h1>全局粒子预算</h1>
+ * <hr>
+ * 限制每帧绘制的粒子总数。每帧收集所有可见实例的需求，按优先级 (屏幕覆盖、距离、播放时长)
+ * 分配预算份额，再把份额换算成抽稀步长交给各自的 {@link NblStreamer}。
+ * <p>
+ * 抽稀在解码线程上生效，分配结果要到之后的帧才体现出来；
+ * 因此提交绘制时还要按优先级顺序做一次硬性截断 ({@link #tryConsume})，保证单帧永远不超过预算。
+ * </p>
+ *
+ * @param <T> 请求附带的调用方数据
+ */
+public class ParticleBudgetManager<T> {
+
+    /** 预算换算出的最大步长 (至少保留 1/64) */
+    public static final int MAX_BUDGET_STRIDE = 64;
+    /** 距离衰减的参考距离 (格) */
+    private static final double DISTANCE_FALLOFF = 64.0;
+    /** 刚开始播放的实例在该时长 (秒) 内逐渐获得完整优先级 */
+    private static final double AGE_RAMP_SECONDS = 2.0;
+
+    private static final Comparator<Request<?>> BY_PRIORITY = (a, b) -> Double.compare(b.priority, a.priority);
+    // 注水法分配：先满足 "需求 / 权重" 最小的请求，剩余预算继续按权重分给其余请求
+    private static final Comparator<Request<?>> BY_DEMAND_PER_WEIGHT = (a, b) -> Double
+            .compare(a.demand / a.priority, b.demand / b.priority);
+
+    /**
+     * 单个实例在本帧的预算请求
+     */
+    public static final class Request<T> {
+        private T owner;
+        private NblStreamer streamer;
+        private int sourceCount;
+        private int lodStride;
+        private int demand;
+        private double priority;
+        private int granted;
+        private int stride;
+
+        public T getOwner() {
+            return owner;
+        }
+
+        /** @return 分配到的粒子数 */
+        public int getGranted() {
+            return granted;
+        }
+
+        /** @return 最终抽稀步长 (LOD 与预算取较大值) */
+        public int getStride() {
+            return stride;
+        }
+    }
+
+    private final List<Request<T>> requests = new ArrayList<>();
+    // 复用请求对象，避免每帧分配
+    private final List<Request<T>> pool = new ArrayList<>();
+    private final List<Request<T>> scratch = new ArrayList<>();
+
+    private int budget;
+    // 多个大实例的需求之和可能超出 int 范围
+    private long totalDemand;
+    private long consumed;
+    private int dropped;
+
+    /**
+     * 开始新的一帧
+     *
+     * @param budget 每帧粒子上限，0 表示不限制
+     */
+    public void begin(int budget) {
+        pool.addAll(requests);
+        requests.clear();
+        this.budget = Math.max(0, budget);
+        this.totalDemand = 0;
+        this.consumed = 0;
+        this.dropped = 0;
+    }
+
+    /**
+     * 登记一个可见实例
+     *
+     * @param owner       调用方数据
+     * @param streamer    实例的流式读取器
+     * @param sourceCount 抽稀前的粒子数
+     * @param lodStride   距离 LOD 选出的步长
+     * @param pixels      包围盒的投影半径 (像素)
+     * @param distance    到相机的距离 (格)
+     * @param age         已播放的时长 (秒)
+     */
+    public void add(T owner, NblStreamer streamer, int sourceCount, int lodStride, double pixels, double distance,
+            double age) {
+        Request<T> request = pool.isEmpty() ? new Request<>() : pool.remove(pool.size() - 1);
+        request.owner = owner;
+        request.streamer = streamer;
+        request.sourceCount = Math.max(0, sourceCount);
+        request.lodStride = Math.max(1, lodStride);
+        request.demand = (request.sourceCount + request.lodStride - 1) / request.lodStride;
+
+        // 覆盖面积 (像素半径的平方) 为主，远处和刚出现的实例降低权重
+        double coverage = Math.max(1.0, pixels * pixels);
+        double falloff = 1.0 / (1.0 + Math.max(0.0, distance) / DISTANCE_FALLOFF);
+        double ramp = 0.5 + 0.5 * Math.min(1.0, Math.max(0.0, age) / AGE_RAMP_SECONDS);
+        request.priority = coverage * falloff * ramp;
+
+        request.granted = request.demand;
+        request.stride = request.lodStride;
+        requests.add(request);
+        totalDemand += request.demand;
+    }
+
+    /**
+     * 分配预算并更新各实例的抽稀步长
+     * <p>
+     * 分配后请求按优先级从高到低排列，调用方应按该顺序提交绘制。
+     * </p>
+     */
+    public void allocate() {
+        if (budget > 0 && totalDemand > budget) {
+            scratch.clear();
+            double weight = 0;
+            for (Request<T> request : requests) {
+                if (request.demand > 0) {
+                    scratch.add(request);
+                    weight += request.priority;
+                }
+            }
+            scratch.sort(BY_DEMAND_PER_WEIGHT);
+
+            long remaining = budget;
+            for (Request<T> request : scratch) {
+                long share = weight > 0 ? (long) (remaining * (request.priority / weight)) : 0;
+                int granted = (int) Math.min(request.demand, share);
+                request.granted = granted;
+                remaining -= granted;
+                weight -= request.priority;
+
+                // 份额换算成 2 的幂步长 (向上取整)，保证保留的子集与 LOD 档位嵌套
+                int budgetStride = granted > 0
+                        ? ceilPowerOfTwo((request.sourceCount + granted - 1) / granted)
+                        : MAX_BUDGET_STRIDE;
+                request.stride = Math.max(request.lodStride, Math.min(budgetStride, MAX_BUDGET_STRIDE));
+            }
+            scratch.clear();
+        }
+
+        for (Request<T> request : requests) {
+            request.streamer.setDecimationStride(request.stride);
+        }
+        requests.sort(BY_PRIORITY);
+    }
+
+    /**
+     * 提交绘制前的硬性截断
+     * <p>
+     * 抽稀滞后时实际帧可能仍超出份额。超过预算的实例跳过本帧绘制，优先级最高的实例总是允许绘制。
+     * </p>
+     *
+     * @param particleCount 本帧实际要绘制的粒子数
+     * @return 是否允许绘制
+     */
+    public boolean tryConsume(int particleCount) {
+        if (budget > 0 && consumed > 0 && consumed + particleCount > budget) {
+            dropped++;
+            return false;
+        }
+        consumed += particleCount;
+        return true;
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    public Request<T> get(int index) {
+        return requests.get(index);
+    }
+
+    /**
+     * 帧结束后释放对调用方对象的引用
+     */
+    public void end() {
+        for (Request<T> request : requests) {
+            request.owner = null;
+            request.streamer = null;
+        }
+    }
+
+    /** @return 每帧预算，0 表示不限制 */
+    public int getBudget() {
+        return budget;
+    }
+
+    /** @return 所有可见实例在 LOD 之后的总需求 */
+    public long getTotalDemand() {
+        return totalDemand;
+    }
+
+    /** @return 本帧实际绘制的粒子数 */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    /** @return 本帧因超出预算被跳过的实例数 */
+    public int getDropped() {
+        return dropped;
+    }
+
+    private static int ceilPowerOfTwo(int value) {
+        if (value <= 1)
+            return 1;
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+}
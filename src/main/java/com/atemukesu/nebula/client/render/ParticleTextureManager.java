@@ -44,9 +44,6 @@ import net.minecraft.client.texture.NativeImage;
 import net.minecraft.resource.Resource;
 import net.minecraft.util.Identifier;
 import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL12;
-import org.lwjgl.opengl.GL30;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -57,7 +54,7 @@ import java.util.Optional;
 
 /**
  * 粒子纹理管理器
- * 负责加载和管理粒子纹理到 GL_TEXTURE_2D_ARRAY
+ * 负责解码粒子纹理并上传到 {@link TextureArena} 分配的层区间
  * 无状态工具类，配合 TextureCacheSystem 使用
  */
 public class ParticleTextureManager {
@@ -98,11 +95,11 @@ public class ParticleTextureManager {
      * 加载结果封装
      */
     public static class LoadedResult {
-        public final int glTextureId;
+        public final TextureArena.Allocation allocation;
         public final TextureAtlasMap map;
 
-        public LoadedResult(int glTextureId, TextureAtlasMap map) {
-            this.glTextureId = glTextureId;
+        public LoadedResult(TextureArena.Allocation allocation, TextureAtlasMap map) {
+            this.allocation = allocation;
             this.map = map;
         }
     }
@@ -141,23 +138,17 @@ public class ParticleTextureManager {
             Nebula.LOGGER.warn("Default particle texture not found, created fallback procedural texture.");
         }
 
-        int textureArrayId = GL30.glGenTextures();
-        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, textureArrayId);
-
-        GL30.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_RGBA8,
-                textureWidth, textureHeight, 1, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
-
-        GL30.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0,
-                0, 0, 0, textureWidth, textureHeight, 1,
-                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, data);
-
-        setupTextureParams();
-        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+        // 从共享竞技场分配 1 层
+        TextureArena.Allocation allocation = TextureArena.allocate(textureWidth, textureHeight, 1);
+        if (allocation == null) {
+            return new LoadedResult(null, TextureAtlasMap.EMPTY);
+        }
+        allocation.upload(0, data);
 
         List<TextureLayerInfo> infos = new ArrayList<>();
         infos.add(new TextureLayerInfo(0, 1, 1));
 
-        return new LoadedResult(textureArrayId, new TextureAtlasMap(infos));
+        return new LoadedResult(allocation, new TextureAtlasMap(infos, allocation, isBinaryAlpha(data)));
     }
 
     /**
@@ -194,17 +185,18 @@ public class ParticleTextureManager {
         Nebula.LOGGER.info("Uploading {} textures with {} total layers (frame size: {}x{})",
                 entries.size(), totalLayers, textureWidth, textureHeight);
 
-        // 创建纹理数组
-        int textureArrayId = GL30.glGenTextures();
-        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, textureArrayId);
-
-        GL30.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_RGBA8,
-                textureWidth, textureHeight, totalLayers, 0,
-                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        // 从同分辨率的共享竞技场中分配层区间 (层号均为区间内的相对值)
+        TextureArena.Allocation allocation = TextureArena.allocate(textureWidth, textureHeight, totalLayers);
+        if (allocation == null) {
+            firstImage.close();
+            return uploadDefaultTexture();
+        }
 
         // 上传每个纹理的每帧
         int currentLayer = 0;
         List<TextureLayerInfo> textureLayerInfos = new ArrayList<>();
+        // 所有帧的 alpha 是否只有 0/255 (用于 OIT 分区绘制)
+        boolean binaryAlpha = true;
 
         for (int i = 0; i < entries.size(); i++) {
             TextureEntry entry = entries.get(i);
@@ -231,10 +223,8 @@ public class ParticleTextureManager {
                                     textureWidth, textureHeight);
                         }
 
-                        GL30.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0,
-                                0, 0, currentLayer,
-                                textureWidth, textureHeight, 1,
-                                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, frameData);
+                        binaryAlpha &= isBinaryAlpha(frameData);
+                        allocation.upload(currentLayer, frameData);
 
                         currentLayer++;
                     }
@@ -249,10 +239,7 @@ public class ParticleTextureManager {
                 ByteBuffer blank = createBlankFrame(textureWidth, textureHeight);
                 for (int f = 0; f < framesToFill; f++) {
                     blank.rewind();
-                    GL30.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0,
-                            0, 0, currentLayer++,
-                            textureWidth, textureHeight, 1,
-                            GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, blank);
+                    allocation.upload(currentLayer++, blank);
                 }
             }
 
@@ -260,10 +247,8 @@ public class ParticleTextureManager {
         }
 
         firstImage.close();
-        setupTextureParams();
-        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
 
-        return new LoadedResult(textureArrayId, new TextureAtlasMap(textureLayerInfos));
+        return new LoadedResult(allocation, new TextureAtlasMap(textureLayerInfos, allocation, binaryAlpha));
     }
 
     /**
@@ -401,6 +386,20 @@ public class ParticleTextureManager {
         return dst;
     }
 
+    /**
+     * 检查 RGBA 数据的 alpha 是否只有 0 或 255
+     */
+    private static boolean isBinaryAlpha(ByteBuffer rgba) {
+        int start = rgba.position();
+        int end = rgba.limit();
+        for (int i = start + 3; i < end; i += 4) {
+            int a = rgba.get(i) & 0xFF;
+            if (a != 0 && a != 255)
+                return false;
+        }
+        return true;
+    }
+
     private static ByteBuffer createBlankFrame(int width, int height) {
         ByteBuffer data = BufferUtils.createByteBuffer(width * height * 4);
         for (int i = 0; i < width * height; i++) {
@@ -412,11 +411,4 @@ public class ParticleTextureManager {
         data.flip();
         return data;
     }
-
-    private static void setupTextureParams() {
-        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
-        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
-        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
-    }
 }
@@ -0,0 +1,388 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.render;
+
+import com.atemukesu.nebula.Nebula;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h1>帧作用域环形缓冲区 (Persistent Mapped Ring)</h1>
+ * <hr>
+ * 一个大的持久映射 SSBO，每个批次从中按需分配变长区间 (满足 SSBO 偏移对齐)。
+ * <p>
+ * - Fence 按帧放置：{@link #endFrame()} 为本帧所有分配插入一个 Fence，
+ * 只有当环形空间真正不够时才会等待最旧的一帧。<br>
+ * - 根据最近若干帧的峰值用量 (High-Water Mark) 在帧边界扩容，
+ * 旧缓冲区延迟到其最后一帧的 Fence 完成后再删除，不会阻塞。
+ * </p>
+ * 所有方法只能在渲染线程调用。
+ */
+public class PersistentRingBuffer {
+
+    /** 允许同时在 GPU 上排队的最大帧数 */
+    private static final int MAX_FRAMES_IN_FLIGHT = 4;
+    /** 容量至少为峰值帧用量的倍数，保证正常情况下不需要等待 */
+    private static final int HEADROOM_FRAMES = 3;
+    /** 峰值统计窗口 (帧) */
+    private static final int HIGH_WATER_WINDOW = 120;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int FLAGS = GL44.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+
+    private final int alignment;
+
+    private int bufferId = 0;
+    private long baseAddress = 0;
+    private int capacity;
+    /** 扩容上限；扩容映射失败后降为当前容量，不再重试 */
+    private int capacityLimit = MAX_CAPACITY;
+
+    // 下一次分配的位置，以及 [tail, head) 中仍被 GPU 使用的字节数 (含对齐与回绕浪费)
+    private int head = 0;
+    private int used = 0;
+
+    // 在途帧队列 (环形)：每帧的 Fence 与占用字节数
+    private final long[] frameFences = new long[MAX_FRAMES_IN_FLIGHT];
+    private final int[] frameBytes = new int[MAX_FRAMES_IN_FLIGHT];
+    private int frameQueueHead = 0;
+    private int frameQueueSize = 0;
+
+    // 当前帧
+    private int currentFrameBytes = 0;
+    private int currentFramePayload = 0;
+
+    // 峰值统计
+    private int highWater = 0;
+    private int windowPeak = 0;
+    private int windowFrames = 0;
+
+    // 已被替换但可能仍被 GPU 读取的旧缓冲区
+    private final List<RetiredBuffer> retired = new ArrayList<>();
+
+    private static class RetiredBuffer {
+        final int bufferId;
+        long fence;
+
+        RetiredBuffer(int bufferId, long fence) {
+            this.bufferId = bufferId;
+            this.fence = fence;
+        }
+    }
+
+    public PersistentRingBuffer(int initialCapacity, int alignment) {
+        this.capacity = initialCapacity;
+        this.alignment = Math.max(4, alignment);
+    }
+
+    /**
+     * 创建并映射缓冲区
+     *
+     * @return 映射失败时返回 false (调用方应降级)
+     */
+    public boolean create() {
+        return allocateStorage(capacity);
+    }
+
+    /**
+     * 帧开始：回收已完成的帧，并按峰值用量决定是否扩容
+     */
+    public void beginFrame() {
+        reclaimCompleted(false);
+        reclaimRetired();
+
+        int desired = highWater * HEADROOM_FRAMES;
+        if (desired > capacity && capacity < capacityLimit) {
+            replaceStorage(nextCapacity(desired));
+        }
+    }
+
+    /**
+     * 在环中分配一段区间
+     *
+     * @param size 字节数
+     * @return 相对于 {@link #getBufferId()} 的偏移。扩容可能改变缓冲区，调用方必须在分配后立即读取缓冲区 ID；
+     *         本帧装不下且无法扩容时返回 -1，调用方应改走普通 SSBO 上传
+     */
+    public int allocate(int size) {
+        if (size < 0 || size > MAX_CAPACITY - alignment) {
+            throw new IllegalArgumentException("Ring allocation too large: " + size);
+        }
+        currentFramePayload += size;
+        while (true) {
+            int start = alignUp(head);
+            int cost;
+            if (start + size <= capacity) {
+                cost = start - head + size;
+            } else {
+                // 尾部放不下，回绕到开头，尾部剩余空间视为浪费
+                start = 0;
+                cost = capacity - head + size;
+            }
+
+            if (used + cost <= capacity) {
+                head = start + size;
+                used += cost;
+                currentFrameBytes += cost;
+                return start;
+            }
+
+            if (frameQueueSize > 0) {
+                // 空间不足：等待最旧的一帧完成
+                reclaimCompleted(true);
+            } else if (capacity >= capacityLimit
+                    || !replaceStorage(nextCapacity(Math.max(capacity * 2, (currentFrameBytes + size + alignment) * 2)))) {
+                // 本帧自身就装不下且无法扩容
+                currentFramePayload -= size;
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * 帧结束：为本帧的所有分配插入一个 Fence
+     */
+    public void endFrame() {
+        if (currentFrameBytes > 0) {
+            long fence = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            if (frameQueueSize == MAX_FRAMES_IN_FLIGHT) {
+                reclaimCompleted(true);
+            }
+            int slot = (frameQueueHead + frameQueueSize) % MAX_FRAMES_IN_FLIGHT;
+            frameFences[slot] = fence;
+            frameBytes[slot] = currentFrameBytes;
+            frameQueueSize++;
+        }
+
+        // 刚被替换的旧缓冲区等待本帧 (最新) 的 Fence
+        for (RetiredBuffer buffer : retired) {
+            if (buffer.fence == 0) {
+                buffer.fence = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            }
+        }
+
+        windowPeak = Math.max(windowPeak, currentFramePayload);
+        if (++windowFrames >= HIGH_WATER_WINDOW) {
+            highWater = windowPeak;
+            windowPeak = 0;
+            windowFrames = 0;
+        } else {
+            highWater = Math.max(highWater, windowPeak);
+        }
+
+        currentFrameBytes = 0;
+        currentFramePayload = 0;
+    }
+
+    /**
+     * 释放所有 GL 资源
+     */
+    public void destroy() {
+        for (int i = 0; i < frameQueueSize; i++) {
+            GL32.glDeleteSync(frameFences[(frameQueueHead + i) % MAX_FRAMES_IN_FLIGHT]);
+        }
+        frameQueueSize = 0;
+        for (RetiredBuffer buffer : retired) {
+            if (buffer.fence != 0) {
+                GL32.glDeleteSync(buffer.fence);
+            }
+            GL15.glDeleteBuffers(buffer.bufferId);
+        }
+        retired.clear();
+        releaseStorage();
+    }
+
+    public int getBufferId() {
+        return bufferId;
+    }
+
+    /**
+     * @param offset {@link #allocate(int)} 返回的偏移
+     * @return 映射内存中的地址
+     */
+    public long address(int offset) {
+        return baseAddress + offset;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getHighWater() {
+        return highWater;
+    }
+
+    // ========== 内部实现 ==========
+
+    private void reclaimCompleted(boolean blockOldest) {
+        while (frameQueueSize > 0) {
+            long fence = frameFences[frameQueueHead];
+            int result;
+            if (blockOldest) {
+                result = GL32.glClientWaitSync(fence, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000_000L); // 1秒超时
+                if (result == GL32.GL_TIMEOUT_EXPIRED || result == GL32.GL_WAIT_FAILED) {
+                    Nebula.LOGGER.warn("[PersistentRingBuffer] Fence wait failed or timed out ({})", result);
+                }
+                blockOldest = false; // 只阻塞等待一帧
+            } else {
+                result = GL32.glClientWaitSync(fence, 0, 0);
+                if (result != GL32.GL_ALREADY_SIGNALED && result != GL32.GL_CONDITION_SATISFIED) {
+                    break;
+                }
+            }
+            GL32.glDeleteSync(fence);
+            used -= frameBytes[frameQueueHead];
+            frameQueueHead = (frameQueueHead + 1) % MAX_FRAMES_IN_FLIGHT;
+            frameQueueSize--;
+        }
+        if (frameQueueSize == 0 && currentFrameBytes == 0) {
+            // 环已完全空闲，从头开始可以减少回绕浪费
+            head = 0;
+            used = 0;
+        }
+    }
+
+    private void reclaimRetired() {
+        for (int i = retired.size() - 1; i >= 0; i--) {
+            RetiredBuffer buffer = retired.get(i);
+            if (buffer.fence == 0)
+                continue;
+            int result = GL32.glClientWaitSync(buffer.fence, 0, 0);
+            if (result == GL32.GL_ALREADY_SIGNALED || result == GL32.GL_CONDITION_SATISFIED) {
+                GL32.glDeleteSync(buffer.fence);
+                GL15.glDeleteBuffers(buffer.bufferId);
+                retired.remove(i);
+            }
+        }
+    }
+
+    /**
+     * 换成新容量的缓冲区。旧缓冲区中的数据可能仍被已提交的 Draw 使用，
+     * 因此只解除映射并挂入 retired 列表，等 Fence 完成后再删除。
+     *
+     * @return 新缓冲区映射失败时返回 false，此时仍使用旧缓冲区
+     */
+    private boolean replaceStorage(int newCapacity) {
+        Nebula.LOGGER.info("[PersistentRingBuffer] Growing ring: {} MB -> {} MB (high-water {} KB)",
+                capacity / 1024 / 1024, newCapacity / 1024 / 1024, highWater / 1024);
+
+        // 先映射新缓冲区，成功后再退役旧缓冲区；失败时旧缓冲区保持原样可用
+        int oldBufferId = bufferId;
+        if (!allocateStorage(newCapacity)) {
+            Nebula.LOGGER.error("[PersistentRingBuffer] Failed to map grown ring buffer ({} MB), keeping {} MB",
+                    newCapacity / 1024 / 1024, capacity / 1024 / 1024);
+            capacityLimit = capacity;
+            return false;
+        }
+
+        if (oldBufferId != 0) {
+            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, oldBufferId);
+            GL15.glUnmapBuffer(GL43.GL_SHADER_STORAGE_BUFFER);
+            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+            // 旧缓冲区最后一次被使用的是当前帧 (Fence 在 endFrame 插入)，
+            // 或者已经提交的最新一帧
+            long fence = 0;
+            if (currentFrameBytes == 0 && frameQueueSize > 0) {
+                fence = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            }
+            retired.add(new RetiredBuffer(oldBufferId, fence));
+        }
+
+        // 在途帧的 Fence 只约束旧缓冲区，新缓冲区从空开始
+        for (int i = 0; i < frameQueueSize; i++) {
+            GL32.glDeleteSync(frameFences[(frameQueueHead + i) % MAX_FRAMES_IN_FLIGHT]);
+        }
+        frameQueueSize = 0;
+        frameQueueHead = 0;
+        head = 0;
+        used = 0;
+        currentFrameBytes = 0;
+        return true;
+    }
+
+    private boolean allocateStorage(int size) {
+        int id = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, id);
+        // 使用 glBufferStorage 创建不可变存储，启用持久映射
+        GL44.glBufferStorage(GL43.GL_SHADER_STORAGE_BUFFER, size, FLAGS);
+        ByteBuffer mapped = GL30.glMapBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, 0, size, FLAGS);
+        GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+
+        if (mapped == null) {
+            GL15.glDeleteBuffers(id);
+            return false;
+        }
+
+        bufferId = id;
+        baseAddress = MemoryUtil.memAddress(mapped);
+        capacity = size;
+        Nebula.LOGGER.info("[PersistentRingBuffer] Created persistent ring ({} MB, alignment {})",
+                size / 1024 / 1024, alignment);
+        return true;
+    }
+
+    private void releaseStorage() {
+        if (bufferId != 0) {
+            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, bufferId);
+            GL15.glUnmapBuffer(GL43.GL_SHADER_STORAGE_BUFFER);
+            GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+            GL15.glDeleteBuffers(bufferId);
+            bufferId = 0;
+            baseAddress = 0;
+        }
+    }
+
+    private int alignUp(int value) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    private static int nextCapacity(int needed) {
+        if (needed >= MAX_CAPACITY / 2) {
+            return MAX_CAPACITY;
+        }
+        return Integer.highestOneBit(Math.max(needed, 2) - 1) << 1;
+    }
+}
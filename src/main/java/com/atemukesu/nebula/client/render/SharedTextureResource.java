@@ -43,15 +43,11 @@ import org.lwjgl.opengl.GL30;
 
 /**
  * 共享纹理资源
- * 代表显存中实际存在的一个 TextureArray
+ * 代表共享纹理竞技场 ({@link TextureArena}) 中的一段层区间
  */
 public class SharedTextureResource {
     /**
-     * opengl 纹理 ID
-     */
-    private final int glTextureId;
-    /**
-     * 纹理图集映射表
+     * 纹理图集映射表 (记录了所在的竞技场区间)
      */
     private final TextureAtlasMap atlasMap;
     /**
@@ -61,9 +57,8 @@ public class SharedTextureResource {
 
     private int referenceCount = 0; // 引用计数
 
-    public SharedTextureResource(String key, int glId, TextureAtlasMap map) {
+    public SharedTextureResource(String key, TextureAtlasMap map) {
         this.resourceKey = key;
-        this.glTextureId = glId;
         this.atlasMap = map;
     }
 
@@ -85,25 +80,37 @@ public class SharedTextureResource {
     // === 渲染与逻辑 ===
 
     public void bind() {
-        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, glTextureId);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, getGlTextureId());
     }
 
     public TextureAtlasMap getMap() {
         return atlasMap;
     }
 
+    /**
+     * @return 所在竞技场的纹理数组 ID (竞技场扩容后会变化，不要缓存)
+     */
     public int getGlTextureId() {
-        return glTextureId;
+        TextureArena.Allocation allocation = atlasMap.getAllocation();
+        return allocation != null ? allocation.getGlTextureId() : 0;
+    }
+
+    /**
+     * @return 当前的起始层 (竞技场压缩后会变化，不要缓存)
+     */
+    public int getLayerBase() {
+        return atlasMap.getBaseLayer();
     }
 
     public String getResourceKey() {
         return resourceKey;
     }
 
-    // 真正的销毁逻辑
+    // 真正的销毁逻辑：归还竞技场中的层区间
     void dispose() {
-        if (glTextureId != -1) {
-            GL11.glDeleteTextures(glTextureId);
+        TextureArena.Allocation allocation = atlasMap.getAllocation();
+        if (allocation != null) {
+            allocation.free();
         }
     }
 }
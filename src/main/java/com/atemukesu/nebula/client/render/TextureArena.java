@@ -0,0 +1,339 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.render;
+
+import com.atemukesu.nebula.Nebula;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL43;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>纹理数组竞技场 (Texture Array Arena)</h1>
+ * <hr>
+ * 每种分辨率 (帧宽 x 帧高) 共享一个 GL_TEXTURE_2D_ARRAY，
+ * 各个纹理列表只从中分配一段连续的层区间。<br>
+ * 这样同分辨率的所有动画实例只需要一次纹理绑定，是合并绘制的前提。
+ * <p>
+ * 被释放的区间留下空洞，在空洞过多或尾部空间不足时通过
+ * glCopyImageSubData 整体前移 (压缩) 回收；容量不足时扩容为更大的数组。
+ * 压缩只会改变 {@link Allocation#getBaseLayer()}，Streamer 写入的相对层号不受影响，
+ * 绘制时由 Shader 加上当前的基准层。
+ * </p>
+ * 所有方法只能在渲染线程调用。
+ */
+public class TextureArena {
+
+    /** 新建竞技场的初始层数 */
+    private static final int INITIAL_LAYERS = 16;
+
+    // 分辨率类别 -> 该分辨率下的竞技场列表 (单个数组达到层数上限时才会出现多个)
+    private static final Map<Long, List<TextureArena>> arenas = new HashMap<>();
+    private static int maxLayers = -1;
+
+    private final long classKey;
+    private final int width;
+    private final int height;
+    private int glTextureId;
+    private int capacity;
+    // 已使用区间的末尾 (下一次顺序分配的位置)
+    private int tail = 0;
+    // tail 之前被释放的空洞层数
+    private int freedLayers = 0;
+    // 存活的分配，按 baseLayer 升序排列
+    private final List<Allocation> allocations = new ArrayList<>();
+
+    private TextureArena(long classKey, int width, int height, int capacity) {
+        this.classKey = classKey;
+        this.width = width;
+        this.height = height;
+        this.capacity = capacity;
+        this.glTextureId = createArrayTexture(width, height, capacity);
+    }
+
+    /**
+     * 在对应分辨率的竞技场中分配一段连续的层
+     *
+     * @param width      单帧宽度
+     * @param height     单帧高度
+     * @param layerCount 需要的层数
+     * @return 分配结果，层数超过硬件上限时返回 null
+     */
+    public static synchronized Allocation allocate(int width, int height, int layerCount) {
+        int limit = getMaxLayers();
+        if (layerCount <= 0 || layerCount > limit) {
+            Nebula.LOGGER.error("[TextureArena] Cannot allocate {} layers (limit {})", layerCount, limit);
+            return null;
+        }
+
+        long key = ((long) width << 32) | (height & 0xFFFFFFFFL);
+        List<TextureArena> list = arenas.computeIfAbsent(key, k -> new ArrayList<>());
+
+        for (TextureArena arena : list) {
+            Allocation allocation = arena.tryAllocate(layerCount, limit);
+            if (allocation != null) {
+                return allocation;
+            }
+        }
+
+        int initial = Math.min(limit, Math.max(INITIAL_LAYERS, Integer.highestOneBit(layerCount - 1) << 1));
+        TextureArena arena = new TextureArena(key, width, height, Math.max(initial, layerCount));
+        list.add(arena);
+        Nebula.LOGGER.info("[TextureArena] Created arena {}x{} ({} layers)", width, height, arena.capacity);
+        return arena.tryAllocate(layerCount, limit);
+    }
+
+    private Allocation tryAllocate(int layerCount, int limit) {
+        if (tail + layerCount > capacity) {
+            int live = tail - freedLayers;
+            if (live + layerCount > limit) {
+                return null;
+            }
+            if (live + layerCount <= capacity) {
+                // 空洞足够，压缩即可
+                compact();
+            } else {
+                int newCapacity = Math.max(capacity * 2, live + layerCount);
+                grow(Math.min(newCapacity, limit));
+            }
+        }
+
+        Allocation allocation = new Allocation(this, tail, layerCount);
+        allocations.add(allocation);
+        tail += layerCount;
+        return allocation;
+    }
+
+    private void release(Allocation allocation) {
+        allocations.remove(allocation);
+        if (allocations.isEmpty()) {
+            // 竞技场已空，直接归还显存
+            dispose();
+            return;
+        }
+
+        if (allocation.baseLayer + allocation.layerCount == tail) {
+            // 释放的是最后一段，尾指针直接回退到最后一个存活区间之后
+            Allocation last = allocations.get(allocations.size() - 1);
+            tail = last.baseLayer + last.layerCount;
+            recountFreed();
+        } else {
+            freedLayers += allocation.layerCount;
+        }
+
+        // 空洞超过一半容量时主动压缩
+        if (freedLayers > capacity / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * 压缩：把所有存活区间前移，消除空洞
+     */
+    private void compact() {
+        int cursor = 0;
+        for (Allocation allocation : allocations) {
+            if (allocation.baseLayer != cursor) {
+                moveLayers(glTextureId, allocation.baseLayer, glTextureId, cursor, allocation.layerCount);
+                allocation.baseLayer = cursor;
+            }
+            cursor += allocation.layerCount;
+        }
+        tail = cursor;
+        freedLayers = 0;
+    }
+
+    /**
+     * 扩容：创建更大的数组并把存活区间紧凑地拷贝过去
+     */
+    private void grow(int newCapacity) {
+        Nebula.LOGGER.info("[TextureArena] Growing arena {}x{}: {} -> {} layers", width, height, capacity,
+                newCapacity);
+        int newTexture = createArrayTexture(width, height, newCapacity);
+        int cursor = 0;
+        for (Allocation allocation : allocations) {
+            moveLayers(glTextureId, allocation.baseLayer, newTexture, cursor, allocation.layerCount);
+            allocation.baseLayer = cursor;
+            cursor += allocation.layerCount;
+        }
+        GL11.glDeleteTextures(glTextureId);
+        glTextureId = newTexture;
+        capacity = newCapacity;
+        tail = cursor;
+        freedLayers = 0;
+    }
+
+    private void moveLayers(int srcTexture, int srcLayer, int dstTexture, int dstLayer, int count) {
+        if (srcTexture == dstTexture && srcLayer == dstLayer) {
+            return;
+        }
+        // 同一纹理内源与目标区间不能重叠，按不重叠的步长分段拷贝 (目标总在源之前)
+        int step = srcTexture == dstTexture ? Math.max(1, srcLayer - dstLayer) : count;
+        for (int done = 0; done < count; done += step) {
+            int depth = Math.min(step, count - done);
+            GL43.glCopyImageSubData(
+                    srcTexture, GL30.GL_TEXTURE_2D_ARRAY, 0, 0, 0, srcLayer + done,
+                    dstTexture, GL30.GL_TEXTURE_2D_ARRAY, 0, 0, 0, dstLayer + done,
+                    width, height, depth);
+        }
+    }
+
+    private void recountFreed() {
+        int live = 0;
+        for (Allocation allocation : allocations) {
+            live += allocation.layerCount;
+        }
+        freedLayers = tail - live;
+    }
+
+    private void dispose() {
+        if (glTextureId != 0) {
+            GL11.glDeleteTextures(glTextureId);
+            glTextureId = 0;
+        }
+        List<TextureArena> list = arenas.get(classKey);
+        if (list != null) {
+            list.remove(this);
+            if (list.isEmpty()) {
+                arenas.remove(classKey);
+            }
+        }
+        Nebula.LOGGER.info("[TextureArena] Disposed empty arena {}x{}", width, height);
+    }
+
+    private static int createArrayTexture(int width, int height, int layers) {
+        int textureId = GL30.glGenTextures();
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, textureId);
+        GL30.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_RGBA8,
+                width, height, layers, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+        return textureId;
+    }
+
+    private static int getMaxLayers() {
+        if (maxLayers <= 0) {
+            maxLayers = GL11.glGetInteger(GL30.GL_MAX_ARRAY_TEXTURE_LAYERS);
+            if (maxLayers <= 0) {
+                maxLayers = 256; // GL 3.0 规范保证的最小值
+            }
+        }
+        return maxLayers;
+    }
+
+    /**
+     * 竞技场中的一段层区间
+     * <p>
+     * baseLayer 会在压缩/扩容时改变，因此必须在绘制时读取，不能缓存到粒子数据中。
+     * </p>
+     */
+    public static class Allocation {
+        private final TextureArena arena;
+        private final int layerCount;
+        private volatile int baseLayer;
+        private boolean freed = false;
+
+        private Allocation(TextureArena arena, int baseLayer, int layerCount) {
+            this.arena = arena;
+            this.baseLayer = baseLayer;
+            this.layerCount = layerCount;
+        }
+
+        /**
+         * 上传区间内的一层 (RGBA8)
+         *
+         * @param localLayer 区间内的相对层号
+         * @param rgba       像素数据，尺寸必须与竞技场分辨率一致
+         */
+        public void upload(int localLayer, ByteBuffer rgba) {
+            if (freed || localLayer < 0 || localLayer >= layerCount)
+                return;
+            GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, arena.glTextureId);
+            GL30.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0,
+                    0, 0, baseLayer + localLayer,
+                    arena.width, arena.height, 1,
+                    GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, rgba);
+            GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+        }
+
+        /**
+         * 归还区间，空洞会在之后的压缩中被回收
+         */
+        public void free() {
+            synchronized (TextureArena.class) {
+                if (freed)
+                    return;
+                freed = true;
+                arena.release(this);
+            }
+        }
+
+        public int getBaseLayer() {
+            return baseLayer;
+        }
+
+        public int getLayerCount() {
+            return layerCount;
+        }
+
+        /**
+         * @return 当前承载该区间的纹理数组 ID (扩容后会变化)
+         */
+        public int getGlTextureId() {
+            return arena.glTextureId;
+        }
+
+        public int getWidth() {
+            return arena.width;
+        }
+
+        public int getHeight() {
+            return arena.height;
+        }
+    }
+}
@@ -50,13 +50,37 @@ import java.util.List;
  */
 public class TextureAtlasMap {
     private final LayerData[] layers;
+    /**
+     * 在共享纹理竞技场中的层区间 (层号相对于该区间的起点)
+     */
+    private final TextureArena.Allocation allocation;
+    /**
+     * 所有层的 alpha 都只有 0 或 255
+     */
+    private final boolean binaryAlpha;
 
     /**
      * 构造函数
      * 
-     * @param infoList 纹理图集信息列表
+     * @param infoList   纹理图集信息列表
+     * @param allocation 所属的竞技场层区间，可为 null
+     */
+    public TextureAtlasMap(List<ParticleTextureManager.TextureLayerInfo> infoList,
+            TextureArena.Allocation allocation) {
+        this(infoList, allocation, false);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param infoList    纹理图集信息列表
+     * @param allocation  所属的竞技场层区间，可为 null
+     * @param binaryAlpha 纹理 alpha 是否只有 0/255
      */
-    public TextureAtlasMap(List<ParticleTextureManager.TextureLayerInfo> infoList) {
+    public TextureAtlasMap(List<ParticleTextureManager.TextureLayerInfo> infoList,
+            TextureArena.Allocation allocation, boolean binaryAlpha) {
+        this.allocation = allocation;
+        this.binaryAlpha = binaryAlpha;
         // 将 List 转为数组，进一步提升访问性能 (去虚方法调用)
         this.layers = new LayerData[infoList.size()];
         for (int i = 0; i < infoList.size(); i++) {
@@ -80,6 +104,48 @@ public class TextureAtlasMap {
         return data.start + (seqIdx % data.count);
     }
 
+    /**
+     * 获取区间当前的起始层
+     * <p>
+     * 竞技场压缩后会变化，必须在绘制时读取。{@link #getLayer} 返回的是相对层号，
+     * Shader 会把两者相加得到真实层号。
+     * </p>
+     *
+     * @return 起始层
+     */
+    public int getBaseLayer() {
+        return allocation != null ? allocation.getBaseLayer() : 0;
+    }
+
+    public TextureArena.Allocation getAllocation() {
+        return allocation;
+    }
+
+    /**
+     * 纹理 alpha 是否只有 0/255
+     * <p>
+     * 为 true 时顶点 alpha >= 0.5 的粒子不会产生半透明片元，OIT 半透明 Pass 可以跳过它们。
+     * </p>
+     */
+    public boolean hasBinaryAlpha() {
+        return binaryAlpha;
+    }
+
+    /**
+     * @return 纹理数量 (GPU 解码时用于构建图集表)
+     */
+    public int getTextureCount() {
+        return layers.length;
+    }
+
+    public int getStartLayer(int texId) {
+        return layers[texId].start;
+    }
+
+    public int getFrameCount(int texId) {
+        return layers[texId].count;
+    }
+
     private static class LayerData {
         final int start;
         final int count;
@@ -90,5 +156,5 @@ public class TextureAtlasMap {
         }
     }
 
-    public static final TextureAtlasMap EMPTY = new TextureAtlasMap(java.util.Collections.emptyList());
+    public static final TextureAtlasMap EMPTY = new TextureAtlasMap(java.util.Collections.emptyList(), null);
 }
@@ -79,15 +79,14 @@ public class TextureCacheSystem {
             result = ParticleTextureManager.uploadTextures(entries);
         }
 
-        SharedTextureResource newResource = new SharedTextureResource(
-                cacheKey,
-                result.glTextureId,
-                result.map);
+        SharedTextureResource newResource = new SharedTextureResource(cacheKey, result.map);
 
         newResource.grab(); // 引用 = 1
         cache.put(cacheKey, newResource);
 
-        Nebula.LOGGER.info("Texture cache miss: {}. Loaded new resource (ID: {}).", cacheKey, result.glTextureId);
+        Nebula.LOGGER.info("Texture cache miss: {}. Loaded new resource (ID: {}, layers: {}+{}).", cacheKey,
+                newResource.getGlTextureId(), newResource.getLayerBase(),
+                result.allocation != null ? result.allocation.getLayerCount() : 0);
 
         return newResource;
     }
@@ -109,7 +108,7 @@ public class TextureCacheSystem {
             // 没人用了，彻底删除
             String key = resource.getResourceKey();
             cache.remove(key);
-            resource.dispose(); // 删除 GL 纹理
+            resource.dispose(); // 归还竞技场层区间
             Nebula.LOGGER.info("Disposed texture resource: {}", key);
         }
     }
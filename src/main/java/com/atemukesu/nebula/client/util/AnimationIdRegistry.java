@@ -0,0 +1,91 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.client.util;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.networking.AnimationManifest;
+import com.atemukesu.nebula.networking.PlayBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 客户端动画数字 ID 表
+ * <p>
+ * 数字 ID 由服务端分配，来源有两个：同步完成的清单条目，以及批量播放包中附带的定义。
+ * 仅对当前连接有效，断开连接时清空。所有方法仅在客户端主线程调用。
+ * </p>
+ */
+public class AnimationIdRegistry {
+
+    private static final AnimationIdRegistry INSTANCE = new AnimationIdRegistry();
+
+    private final Map<Integer, String> names = new HashMap<>();
+
+    private AnimationIdRegistry() {
+    }
+
+    public static AnimationIdRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public void loadFrom(AnimationManifest manifest) {
+        for (AnimationManifest.Entry entry : manifest.getEntries()) {
+            names.put(entry.id(), entry.name());
+        }
+    }
+
+    public void define(PlayBatch.Definition definition) {
+        String previous = names.put(definition.id(), definition.name());
+        if (previous != null && !previous.equals(definition.name())) {
+            Nebula.LOGGER.warn("[AnimationIdRegistry] Animation id {} remapped from {} to {}",
+                    definition.id(), previous, definition.name());
+        }
+    }
+
+    /**
+     * @return 对应的动画名称，未知 ID 返回 null
+     */
+    public String getName(int id) {
+        return names.get(id);
+    }
+
+    public void reset() {
+        names.clear();
+    }
+}
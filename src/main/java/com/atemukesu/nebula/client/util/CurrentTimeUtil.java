@@ -39,6 +39,7 @@
 package com.atemukesu.nebula.client.util;
 
 import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.client.bridge.ReplayBridge;
 
 /**
  * 获取当前动画时间的工具类
@@ -54,10 +55,21 @@ public class CurrentTimeUtil {
      * 这是一个"智能"方法，自动判断环境：
      * 1. Replay 预览/渲染模式 -> 从 ReplaySender 获取精确时间
      * 2. 普通游戏模式 -> 使用真实墙钟时间（避免 TPS 波动导致的时间跳变）
+     * <p>
+     * 渲染路径上请使用 {@link FrameSnapshot}，每帧只查询一次。
+     * </p>
      */
     public static double getCurrentAnimationTime() {
+        return getCurrentAnimationTime(getReplayTime());
+    }
+
+    /**
+     * 根据已查询到的 Replay 时间计算动画时间 (避免重复查询 Replay Mod)
+     *
+     * @param replayTime Replay 时间，不在回放中时为 null
+     */
+    static double getCurrentAnimationTime(Double replayTime) {
         // 1. 尝试从 Replay Mod 获取时间（预览或渲染模式）
-        Double replayTime = getReplayTime();
         if (replayTime != null) {
             return replayTime;
         }
@@ -76,63 +88,17 @@ public class CurrentTimeUtil {
 
     /**
      * 尝试从 Replay Mod 获取当前时间
-     * 使用反射避免编译时依赖
+     * 通过 {@link ReplayBridge} 预先解析的方法句柄调用，避免编译时依赖和每次反射查找
      */
     public static Double getReplayTime() {
-        try {
-            // 获取 ReplayModReplay 单例
-            Class<?> replayModClass = Class.forName("com.replaymod.replay.ReplayModReplay");
-            Object instance = replayModClass.getField("instance").get(null);
-
-            if (instance == null)
-                return null;
-
-            // 获取 ReplayHandler
-            java.lang.reflect.Method getReplayHandler = replayModClass.getMethod("getReplayHandler");
-            Object handler = getReplayHandler.invoke(instance);
-
-            if (handler == null)
-                return null;
-
-            // 获取 ReplaySender
-            java.lang.reflect.Method getReplaySender = handler.getClass().getMethod("getReplaySender");
-            Object sender = getReplaySender.invoke(handler);
-
-            if (sender == null)
-                return null;
-
-            // 获取 currentTimeStamp() - 返回毫秒
-            java.lang.reflect.Method currentTimeStamp = sender.getClass().getMethod("currentTimeStamp");
-            Object timeObj = currentTimeStamp.invoke(sender);
-
-            if (timeObj instanceof Number) {
-                return ((Number) timeObj).doubleValue() / 1000.0;
-            }
-        } catch (ClassNotFoundException e) {
-            // Replay Mod 未安装，静默忽略
-        } catch (Exception e) {
-            // 其他错误（版本不兼容等），记录一次后静默
-            Nebula.LOGGER.debug("Failed to get Replay time: {}", e.getMessage());
-        }
-
-        return null;
+        return ReplayBridge.getInstance().getReplayTime();
     }
 
     /**
      * 检查是否在 Replay 环境中
      */
     public static boolean isInReplay() {
-        try {
-            Class<?> replayModClass = Class.forName("com.replaymod.replay.ReplayModReplay");
-            Object instance = replayModClass.getField("instance").get(null);
-            if (instance == null)
-                return false;
-
-            java.lang.reflect.Method getReplayHandler = replayModClass.getMethod("getReplayHandler");
-            return getReplayHandler.invoke(instance) != null;
-        } catch (Exception e) {
-            return false;
-        }
+        return ReplayBridge.getInstance().isInReplay();
     }
 
     /**
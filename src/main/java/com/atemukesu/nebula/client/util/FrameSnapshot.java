@@ -0,0 +1,119 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+
+package com.atemukesu.nebula.client.util;
+
+import com.atemukesu.nebula.client.bridge.IrisBridge;
+
+/**
+ * 每个渲染帧一次的环境快照
+ * <p>
+ * 在渲染入口调用 {@link #capture()} 采集动画时间、Replay 时间、离线渲染状态和 Iris 状态，
+ * 本帧内所有实例、所有批次都读取同一份快照，不再各自查询 Replay Mod / Iris。
+ * 同一帧内所有实例看到的时间完全一致，也避免了跨实例的时间抖动。
+ * </p>
+ */
+public final class FrameSnapshot {
+
+    private static volatile FrameSnapshot current;
+
+    private final double animationTime;
+    // null 表示不在回放中
+    private final Double replayTime;
+    private final boolean rendering;
+    private final int videoFps;
+    private final boolean irisActive;
+
+    private FrameSnapshot(double animationTime, Double replayTime, boolean rendering, int videoFps,
+            boolean irisActive) {
+        this.animationTime = animationTime;
+        this.replayTime = replayTime;
+        this.rendering = rendering;
+        this.videoFps = videoFps;
+        this.irisActive = irisActive;
+    }
+
+    /**
+     * 采集新的快照并设为当前快照 (渲染线程，每帧一次)
+     *
+     * @return 新快照
+     */
+    public static FrameSnapshot capture() {
+        Double replayTime = CurrentTimeUtil.getReplayTime();
+        FrameSnapshot snapshot = new FrameSnapshot(
+                CurrentTimeUtil.getCurrentAnimationTime(replayTime),
+                replayTime,
+                CurrentTimeUtil.isRendering(),
+                CurrentTimeUtil.getVideoFps(),
+                IrisBridge.getInstance().isIrisRenderingActive());
+        current = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @return 本帧的快照，还没有采集过时立即采集一次
+     */
+    public static FrameSnapshot current() {
+        FrameSnapshot snapshot = current;
+        return snapshot != null ? snapshot : capture();
+    }
+
+    /** @return 动画时间 (秒) */
+    public double getAnimationTime() {
+        return animationTime;
+    }
+
+    /** @return Replay 时间 (秒)，不在回放中时为 null */
+    public Double getReplayTime() {
+        return replayTime;
+    }
+
+    /** @return 是否正在进行 Replay Mod 离线渲染 */
+    public boolean isRendering() {
+        return rendering;
+    }
+
+    public int getVideoFps() {
+        return videoFps;
+    }
+
+    /** @return Iris 光影是否启用 */
+    public boolean isIrisActive() {
+        return irisActive;
+    }
+}
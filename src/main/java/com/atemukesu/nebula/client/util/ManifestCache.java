@@ -0,0 +1,268 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.client.util;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.networking.AnimationManifest;
+import com.atemukesu.nebula.client.loader.ClientAnimationLoader;
+import com.atemukesu.nebula.util.XxHash64;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 客户端清单缓存
+ * <p>
+ * 按服务器地址保存上一次收到的二进制清单，以及该清单是否已被同步界面完整校验通过。
+ * 收到服务端摘要后：摘要一致且已校验 → 跳过同步；摘要一致但未校验 → 直接使用缓存清单；
+ * 摘要不一致 → 只请求桶摘要不同的部分并与缓存合并。
+ * </p>
+ * 缓存文件位于 游戏目录/nebula/manifest_cache/，所有方法仅在客户端主线程调用。
+ */
+public class ManifestCache {
+
+    private static final ManifestCache INSTANCE = new ManifestCache();
+    private static final Path CACHE_DIR = FabricLoader.getInstance().getGameDir()
+            .resolve("nebula").resolve("manifest_cache");
+
+    private String serverKey;
+    private AnimationManifest cached;
+    private boolean cachedVerified;
+    private AnimationManifest current;
+    // 正在接收的分片回复
+    private long partsDigest;
+    private long partsMask;
+    private List<AnimationManifest.Entry>[] parts;
+
+    public static ManifestCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 切换到指定服务器，并加载其缓存
+     */
+    public void begin(String key) {
+        if (key.equals(serverKey)) {
+            return;
+        }
+        serverKey = key;
+        parts = null;
+        cached = null;
+        cachedVerified = false;
+        current = null;
+        Path file = cacheFile(key);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            byte[] data = Files.readAllBytes(file);
+            if (data.length > 1) {
+                cachedVerified = data[0] == 1;
+                byte[] encoded = new byte[data.length - 1];
+                System.arraycopy(data, 1, encoded, 0, encoded.length);
+                cached = AnimationManifest.decode(encoded);
+            }
+        } catch (IOException e) {
+            Nebula.LOGGER.warn("[ManifestCache] Failed to read manifest cache for {}, ignoring.", key, e);
+            cached = null;
+            cachedVerified = false;
+        }
+    }
+
+    /**
+     * 处理服务端摘要
+     *
+     * @return 需要请求的桶掩码；0 表示缓存清单与服务端一致，可用 {@link #getCurrent()}
+     */
+    public long onSummary(AnimationManifest.Summary summary) {
+        if (cached != null && cached.getDigest() == summary.digest()) {
+            current = cached;
+            return 0;
+        }
+        current = null;
+        if (cached == null) {
+            return AnimationManifest.ALL_BUCKETS;
+        }
+        long mask = cached.diffMask(summary.bucketDigests());
+        return mask != 0 ? mask : AnimationManifest.ALL_BUCKETS;
+    }
+
+    /**
+     * 收集条目分片
+     *
+     * @return 所有分片到齐后拼成的完整回复；还有分片未到或回复无效时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public AnimationManifest.EntriesChunk collectPart(AnimationManifest.EntriesChunk chunk) {
+        if (chunk.partCount() == 1) {
+            parts = null;
+            return chunk;
+        }
+        // 新的回复（摘要、掩码或分片数不同）替换未收齐的旧回复
+        if (parts == null || parts.length != chunk.partCount() || partsDigest != chunk.digest()
+                || partsMask != chunk.bucketMask()) {
+            parts = new List[chunk.partCount()];
+            partsDigest = chunk.digest();
+            partsMask = chunk.bucketMask();
+        }
+        parts[chunk.part()] = chunk.entries();
+        int total = 0;
+        for (List<AnimationManifest.Entry> part : parts) {
+            if (part == null) {
+                return null;
+            }
+            total += part.size();
+        }
+        List<AnimationManifest.Entry>[] received = parts;
+        parts = null;
+        if (total > AnimationManifest.MAX_ENTRIES) {
+            Nebula.LOGGER.warn("[ManifestCache] Manifest reply has too many entries ({}), ignoring.", total);
+            return null;
+        }
+        List<AnimationManifest.Entry> entries = new ArrayList<>(total);
+        for (List<AnimationManifest.Entry> part : received) {
+            entries.addAll(part);
+        }
+        return new AnimationManifest.EntriesChunk(partsDigest, partsMask, 0, 1, entries);
+    }
+
+    /**
+     * 合并服务端返回的桶
+     *
+     * @return 合并后的清单；摘要校验失败且还可以重试全量时返回 null
+     */
+    public AnimationManifest onEntries(AnimationManifest.EntriesChunk chunk) {
+        AnimationManifest base = cached != null ? cached : new AnimationManifest(List.of());
+        AnimationManifest merged = base.merge(chunk.bucketMask(), chunk.entries());
+        if (merged.getDigest() != chunk.digest()) {
+            if (chunk.bucketMask() != AnimationManifest.ALL_BUCKETS) {
+                Nebula.LOGGER.info("[ManifestCache] Partial manifest merge mismatched, requesting full manifest.");
+                return null;
+            }
+            Nebula.LOGGER.warn("[ManifestCache] Full manifest digest mismatch ({} != {}), using it anyway.",
+                    Long.toHexString(merged.getDigest()), Long.toHexString(chunk.digest()));
+        }
+        cached = merged;
+        cachedVerified = false;
+        current = merged;
+        save();
+        return merged;
+    }
+
+    public AnimationManifest getCurrent() {
+        return current;
+    }
+
+    public boolean isCurrentVerified() {
+        return current != null && current == cached && cachedVerified;
+    }
+
+    /**
+     * 同步界面全部校验通过后调用，下次进入同一服务器且清单未变时将跳过同步
+     */
+    public void markVerified(Map<String, String> verifiedHashes) {
+        if (current == null || current != cached || !current.toHashes().equals(verifiedHashes)) {
+            return;
+        }
+        cachedVerified = true;
+        save();
+    }
+
+    /**
+     * 快速检查：本地文件仍然存在且大小与清单一致（防止校验后本地文件被删除或替换）
+     */
+    public boolean localFilesMatch() {
+        if (current == null) {
+            return false;
+        }
+        for (AnimationManifest.Entry entry : current.getEntries()) {
+            Path path = ClientAnimationLoader.getAnimationPath(entry.name());
+            try {
+                if (path == null || !entry.isValid() || Files.size(path) != entry.size()) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void reset() {
+        serverKey = null;
+        cached = null;
+        cachedVerified = false;
+        current = null;
+    }
+
+    private void save() {
+        if (serverKey == null || cached == null) {
+            return;
+        }
+        Path file = cacheFile(serverKey);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(CACHE_DIR);
+            byte[] encoded = cached.encode();
+            byte[] data = new byte[encoded.length + 1];
+            data[0] = (byte) (cachedVerified ? 1 : 0);
+            System.arraycopy(encoded, 0, data, 1, encoded.length);
+            Files.write(tmp, data);
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Nebula.LOGGER.error("[ManifestCache] Failed to save manifest cache", e);
+        }
+    }
+
+    private static Path cacheFile(String key) {
+        long hash = XxHash64.hash(key.getBytes(StandardCharsets.UTF_8), 0);
+        return CACHE_DIR.resolve(String.format("%016x.bin", hash));
+    }
+}
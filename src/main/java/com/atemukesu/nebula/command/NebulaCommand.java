@@ -41,6 +41,7 @@ package com.atemukesu.nebula.command;
 import com.atemukesu.nebula.networking.ModPackets;
 import com.atemukesu.nebula.particle.loader.AnimationLoader;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.suggestion.Suggestions;
@@ -49,21 +50,26 @@ import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 
 import net.minecraft.command.CommandSource;
 import net.minecraft.command.argument.Vec3ArgumentType;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 import net.minecraft.util.math.Vec3d;
+import com.atemukesu.nebula.server.PlayBroadcaster;
+import com.atemukesu.nebula.server.PreloadCoordinator;
 import com.atemukesu.nebula.server.ServerAnimationSyncer;
+import com.atemukesu.nebula.server.ServerConfig;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import static net.minecraft.server.command.CommandManager.argument;
 import static net.minecraft.server.command.CommandManager.literal;
 
 //? if < 1.21 {
-/*import net.minecraft.network.PacketByteBuf;
-import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+/*import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
 *///? }
 
 public class NebulaCommand {
@@ -82,37 +88,66 @@ public class NebulaCommand {
                                                                                                                                 "animation"),
                                                                                                 Vec3ArgumentType.getVec3(
                                                                                                                 context,
-                                                                                                                "position"))))
+                                                                                                                "position"),
+                                                                                                0))
+                                                                                .then(argument("delay", IntegerArgumentType.integer(0, 72000))
+                                                                                                .executes(context -> executePlay(
+                                                                                                                context.getSource(),
+                                                                                                                StringArgumentType
+                                                                                                                                .getString(context,
+                                                                                                                                                "animation"),
+                                                                                                                Vec3ArgumentType.getVec3(
+                                                                                                                                context,
+                                                                                                                                "position"),
+                                                                                                                IntegerArgumentType.getInteger(
+                                                                                                                                context,
+                                                                                                                                "delay")))))
                                                                 .executes(context -> executePlay(context.getSource(),
                                                                                 StringArgumentType.getString(context,
                                                                                                 "animation"),
-                                                                                context.getSource().getPosition()))))
+                                                                                context.getSource().getPosition(), 0))))
+
+                                .then(literal("preload")
+                                                .then(argument("animations", StringArgumentType.greedyString())
+                                                                .suggests(NebulaCommand::getAnimationListSuggestions)
+                                                                .executes(context -> executePreload(
+                                                                                context.getSource(),
+                                                                                StringArgumentType.getString(context,
+                                                                                                "animations")))))
 
                                 .then(literal("reload")
                                                 .executes(context -> {
-                                                        AnimationLoader.discoverAnimations();
-                                                        ServerAnimationSyncer.reload(); // Reload server hashes
-                                                        
-                                                        // 发送同步数据到所有玩家（包括单人模式）
-                                                        ServerAnimationSyncer.sendToAll(context.getSource().getServer());
-                                                        
-                                                        // 向所有玩家发送重载通知
-                                                        for (ServerPlayerEntity player : context.getSource().getServer().getPlayerManager().getPlayerList()) {
-                                                            //? if < 1.21 {
-                                                            
-                                                            /*ServerPlayNetworking.send(player, ModPackets.RELOAD_CLIENT_S2C, PacketByteBufs.empty());
-                                                            
-                                                            *///? } else {
-                                                            ServerPlayNetworking.send(player, new ModPackets.ReloadClientPayload());
-                                                            //? }
-                                                        }
-
-                                                    context.getSource().sendFeedback(
-                                                            () -> Text.translatable(
-                                                                                        "command.nebula.reload.success")
-                                                                    .formatted(Formatting.GREEN),
-                                                            true);
-                                                    return 1;
+                                                        ServerCommandSource source = context.getSource();
+                                                        MinecraftServer server = source.getServer();
+                                                        ServerConfig.load();
+                                                        // [优化] 目录重扫与哈希都在后台线程执行，只重新哈希变化的文件，完成后回到主线程再广播
+                                                        ServerAnimationSyncer.reloadAsync(true).whenCompleteAsync((manifest, error) -> {
+                                                            if (error != null) {
+                                                                source.sendError(Text.literal("Nebula reload failed: " + error.getMessage()));
+                                                                return;
+                                                            }
+
+                                                            // 发送同步数据到所有玩家（包括单人模式）
+                                                            ServerAnimationSyncer.sendToAll(server);
+
+                                                            // 向所有玩家发送重载通知
+                                                            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+                                                                //? if < 1.21 {
+                                                                
+                                                                /*ServerPlayNetworking.send(player, ModPackets.RELOAD_CLIENT_S2C, PacketByteBufs.empty());
+                                                                
+                                                                *///? } else {
+                                                                ServerPlayNetworking.send(player, new ModPackets.ReloadClientPayload());
+                                                                //? }
+                                                            }
+
+                                                            source.sendFeedback(
+                                                                    () -> Text.translatable(
+                                                                                                "command.nebula.reload.success")
+                                                                            .formatted(Formatting.GREEN),
+                                                                    true);
+                                                        }, server);
+                                                        return 1;
                                                 }))
 
                                 .then(literal("get_hash")
@@ -141,6 +176,7 @@ public class NebulaCommand {
 
                                 .then(literal("clear")
                                                 .executes(context -> {
+                                                        PlayBroadcaster.getInstance().clear();
                                                         // 向所有玩家发送清除数据包
                                                     for (ServerPlayerEntity player : context.getSource().getServer().getPlayerManager().getPlayerList()) {
                                                         //? if < 1.21 {
@@ -160,39 +196,55 @@ public class NebulaCommand {
                                                 })));
         }
 
-    private static int executePlay(ServerCommandSource source, String animationName, Vec3d position) {
+    private static int executePlay(ServerCommandSource source, String animationName, Vec3d position,
+            int delayTicks) {
         if (!AnimationLoader.getAnimations().containsKey(animationName)) {
             source.sendError(Text.translatable("command.nebula.play.not_found", animationName)
                     .formatted(Formatting.RED));
             return 0;
         }
 
-        //? if < 1.21 {
-        
-        /*PacketByteBuf buf = PacketByteBufs.create();
-        buf.writeString(animationName);
-        buf.writeDouble(position.x);
-        buf.writeDouble(position.y);
-        buf.writeDouble(position.z);
+        // [优化] 不再向全服逐人立即发包：广播器只挑出同维度、范围内的玩家，并在 Tick 结束时按玩家合并为一个批量包
+        PlayBroadcaster.getInstance().play(animationName, source.getWorld(), position, delayTicks);
 
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            ServerPlayNetworking.send(player, ModPackets.PLAY_ANIMATION_S2C, new PacketByteBuf(buf.copy()));
-        }
-        
-        *///? } else {
-        // 1.21 写法：创建一个 Payload 对象，然后发给所有人
-        ModPackets.PlayAnimationPayload payload = new ModPackets.PlayAnimationPayload(animationName, position);
+        source.sendFeedback(() -> Text.translatable("command.nebula.play.success", animationName)
+                .formatted(Formatting.GREEN), true);
+        return 1;
+    }
 
-        for (ServerPlayerEntity player : source.getServer().getPlayerManager().getPlayerList()) {
-            ServerPlayNetworking.send(player, payload);
+    private static int executePreload(ServerCommandSource source, String animations) {
+        List<String> names = new ArrayList<>();
+        for (String name : animations.trim().split("\\s+")) {
+            if (!AnimationLoader.getAnimations().containsKey(name)) {
+                source.sendError(Text.translatable("command.nebula.play.not_found", name)
+                        .formatted(Formatting.RED));
+                return 0;
+            }
+            if (!names.contains(name)) {
+                names.add(name);
+            }
         }
-        //? }
 
-        source.sendFeedback(() -> Text.translatable("command.nebula.play.success", animationName)
-                .formatted(Formatting.GREEN), true);
+        // 只发给发起者所在维度的玩家，其余玩家进入范围时按迟到加入处理
+        List<ServerPlayerEntity> targets = source.getWorld().getPlayers();
+        int requestId = PreloadCoordinator.getInstance().request(source, names, targets);
+        source.sendFeedback(() -> Text.translatable("command.nebula.preload.sent", requestId, names.size(),
+                targets.size()).formatted(Formatting.GREEN), true);
         return 1;
     }
 
+        /**
+         * 空格分隔的动画列表：只补全最后一个名称
+         */
+        private static CompletableFuture<Suggestions> getAnimationListSuggestions(
+                        CommandContext<ServerCommandSource> context,
+                        SuggestionsBuilder builder) {
+                String remaining = builder.getRemaining();
+                int lastSpace = remaining.lastIndexOf(' ');
+                SuggestionsBuilder offset = builder.createOffset(builder.getStart() + lastSpace + 1);
+                return CommandSource.suggestMatching(AnimationLoader.getAnimations().keySet(), offset);
+        }
+
         private static CompletableFuture<Suggestions> getAnimationSuggestions(
                         CommandContext<ServerCommandSource> context,
                         SuggestionsBuilder builder) {
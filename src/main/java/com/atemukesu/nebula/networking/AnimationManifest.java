@@ -0,0 +1,348 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.networking;
+
+import com.atemukesu.nebula.util.XxHash64;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.atemukesu.nebula.networking.VarIntIO.readVarInt;
+import static com.atemukesu.nebula.networking.VarIntIO.readVarLong;
+import static com.atemukesu.nebula.networking.VarIntIO.writeVarInt;
+import static com.atemukesu.nebula.networking.VarIntIO.writeVarLong;
+
+/**
+ * 紧凑二进制动画清单
+ * <p>
+ * 每个条目包含 数字 ID、名称、文件大小与 16 字节内容摘要，整数使用 varint 编码。
+ * 条目按名称哈希分入 {@link #BUCKETS} 个桶，每个桶有独立摘要，整份清单的摘要由桶摘要计算得出。
+ * </p>
+ * 握手流程：服务端先只发送摘要（{@link #encodeSummary()}），客户端与本地缓存比对，
+ * 完全一致则跳过同步；否则只请求摘要不同的桶（{@link #encodeEntries(long)}）。
+ */
+public final class AnimationManifest {
+
+    public static final int FORMAT_VERSION = 2;
+    public static final int BUCKETS = 64;
+    public static final long ALL_BUCKETS = -1L;
+    private static final int MAX_NAME_BYTES = 1024;
+    public static final int MAX_ENTRIES = 1 << 16;
+    /** 单个条目包的目标大小，远低于自定义数据包 1 MiB 的上限 */
+    private static final int MAX_PART_BYTES = 256 * 1024;
+    private static final int MAX_PARTS = 1024;
+
+    /**
+     * 清单条目，size 为 -1 表示服务端哈希失败
+     */
+    public record Entry(int id, String name, long size, long digestHi, long digestLo) {
+        public boolean isValid() {
+            return size >= 0;
+        }
+
+        /**
+         * @return 与 {@code NebulaHashUtils.ContentDigest#toHashString()} 相同格式的哈希字符串
+         */
+        public String toHashString() {
+            return isValid() ? "X-" + Long.toHexString(size) + "-" + String.format("%016x", digestLo) : "ERROR";
+        }
+    }
+
+    /**
+     * 摘要包内容：格式版本、条目数、整体摘要与全部桶摘要
+     */
+    public record Summary(int version, int count, long digest, long[] bucketDigests) {
+    }
+
+    /**
+     * 条目包内容：对应的清单摘要、本次回复的桶掩码、分片序号 / 分片数与条目。
+     * 掩码内的条目按大小拆成多个分片，全部到齐后才能合并。
+     */
+    public record EntriesChunk(long digest, long bucketMask, int part, int partCount, List<Entry> entries) {
+    }
+
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+    private final long[] bucketDigests = new long[BUCKETS];
+    private final long digest;
+    private Map<String, String> hashes;
+
+    public AnimationManifest(Collection<Entry> source) {
+        for (Entry entry : source) {
+            entries.put(entry.name(), entry);
+        }
+        List<List<Entry>> buckets = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        // TreeMap 保证桶内顺序稳定
+        for (Entry entry : entries.values()) {
+            buckets.get(bucketOf(entry.name())).add(entry);
+        }
+        ByteBuffer summary = ByteBuffer.allocate(8 + BUCKETS * 8).order(ByteOrder.LITTLE_ENDIAN);
+        summary.putInt(FORMAT_VERSION).putInt(entries.size());
+        for (int i = 0; i < BUCKETS; i++) {
+            byte[] encoded = encodeEntryList(buckets.get(i));
+            bucketDigests[i] = XxHash64.hash(encoded, i);
+            summary.putLong(bucketDigests[i]);
+        }
+        this.digest = XxHash64.hash(summary, 0, summary.capacity(), 0);
+    }
+
+    public static int bucketOf(String name) {
+        return (int) (XxHash64.hash(name.getBytes(StandardCharsets.UTF_8), 0) & (BUCKETS - 1));
+    }
+
+    public long getDigest() {
+        return digest;
+    }
+
+    public long getBucketDigest(int bucket) {
+        return bucketDigests[bucket];
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * @return 名称到哈希字符串的只读映射（兼容同步界面）
+     */
+    public synchronized Map<String, String> toHashes() {
+        if (hashes == null) {
+            Map<String, String> map = new HashMap<>(entries.size() * 2);
+            entries.values().forEach(e -> map.put(e.name(), e.toHashString()));
+            hashes = Collections.unmodifiableMap(map);
+        }
+        return hashes;
+    }
+
+    /**
+     * 计算与给定桶摘要不一致的桶掩码
+     */
+    public long diffMask(long[] otherBucketDigests) {
+        long mask = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (otherBucketDigests == null || otherBucketDigests[i] != bucketDigests[i]) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 用新收到的条目替换掩码内的桶，其余桶沿用本清单
+     */
+    public AnimationManifest merge(long bucketMask, Collection<Entry> replacement) {
+        List<Entry> merged = new ArrayList<>(entries.size() + replacement.size());
+        for (Entry entry : entries.values()) {
+            if ((bucketMask & (1L << bucketOf(entry.name()))) == 0) {
+                merged.add(entry);
+            }
+        }
+        merged.addAll(replacement);
+        return new AnimationManifest(merged);
+    }
+
+    // ==================== 编码 ====================
+
+    public byte[] encodeSummary() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + BUCKETS * 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeVarInt(out, FORMAT_VERSION);
+            writeVarInt(out, entries.size());
+            out.writeLong(digest);
+            for (long bucket : bucketDigests) {
+                out.writeLong(bucket);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Summary decodeSummary(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = readVarInt(in);
+            if (version != FORMAT_VERSION) {
+                return new Summary(version, 0, 0, null);
+            }
+            int count = readVarInt(in);
+            long digest = in.readLong();
+            long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = in.readLong();
+            }
+            return new Summary(version, count, digest, buckets);
+        }
+    }
+
+    /**
+     * 编码掩码内所有桶的条目
+     * <p>
+     * 条目较多时拆成多个分片，每片不超过 {@link #MAX_PART_BYTES}，避免单个数据包超过大小上限。
+     * 掩码内没有条目时也会返回一个空分片。
+     * </p>
+     *
+     * @return 依次发送的分片
+     */
+    public List<byte[]> encodeEntries(long bucketMask) {
+        List<List<Entry>> parts = new ArrayList<>();
+        List<Entry> part = new ArrayList<>();
+        int partBytes = 0;
+        for (Entry entry : entries.values()) {
+            if ((bucketMask & (1L << bucketOf(entry.name()))) == 0) {
+                continue;
+            }
+            // 估算：名称 + ID / 大小的 VarInt + 两个 long
+            int entryBytes = entry.name().getBytes(StandardCharsets.UTF_8).length + 40;
+            if (!part.isEmpty() && partBytes + entryBytes > MAX_PART_BYTES) {
+                parts.add(part);
+                part = new ArrayList<>();
+                partBytes = 0;
+            }
+            part.add(entry);
+            partBytes += entryBytes;
+        }
+        parts.add(part);
+
+        List<byte[]> encoded = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            encoded.add(encodePart(bucketMask, i, parts.size(), parts.get(i)));
+        }
+        return encoded;
+    }
+
+    private byte[] encodePart(long bucketMask, int part, int partCount, List<Entry> list) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + list.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeVarInt(out, FORMAT_VERSION);
+            out.writeLong(digest);
+            out.writeLong(bucketMask);
+            writeVarInt(out, part);
+            writeVarInt(out, partCount);
+            out.write(encodeEntryList(list));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static EntriesChunk decodeEntries(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = readVarInt(in);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported manifest version " + version);
+            }
+            long digest = in.readLong();
+            long mask = in.readLong();
+            int part = readVarInt(in);
+            int partCount = readVarInt(in);
+            if (partCount < 1 || partCount > MAX_PARTS || part < 0 || part >= partCount) {
+                throw new IOException("Invalid manifest part " + part + "/" + partCount);
+            }
+            return new EntriesChunk(digest, mask, part, partCount, readEntryList(in));
+        }
+    }
+
+    /**
+     * 完整编码（用于客户端本地缓存，不分片）
+     */
+    public byte[] encode() {
+        return encodePart(ALL_BUCKETS, 0, 1, new ArrayList<>(entries.values()));
+    }
+
+    public static AnimationManifest decode(byte[] data) throws IOException {
+        return new AnimationManifest(decodeEntries(data).entries());
+    }
+
+    private static byte[] encodeEntryList(List<Entry> list) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + list.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeVarInt(out, list.size());
+            for (Entry entry : list) {
+                writeVarInt(out, entry.id());
+                VarIntIO.writeString(out, entry.name());
+                // size + 1，使哈希失败的 -1 编码为 0
+                writeVarLong(out, entry.size() + 1);
+                out.writeLong(entry.digestHi());
+                out.writeLong(entry.digestLo());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Entry> readEntryList(DataInputStream in) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0 || count > MAX_ENTRIES) {
+            throw new IOException("Invalid manifest entry count: " + count);
+        }
+        List<Entry> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = readVarInt(in);
+            String name = VarIntIO.readString(in, MAX_NAME_BYTES);
+            long size = readVarLong(in) - 1;
+            long hi = in.readLong();
+            long lo = in.readLong();
+            list.add(new Entry(id, name, size, hi, lo));
+        }
+        return list;
+    }
+}
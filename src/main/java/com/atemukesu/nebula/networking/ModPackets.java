@@ -48,8 +48,8 @@ import net.minecraft.network.codec.PacketCodecs;
 import net.minecraft.network.packet.CustomPayload;
 import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
 import net.minecraft.util.math.Vec3d;
-import java.util.Map;
-import java.util.HashMap;
+
+import java.util.List;
 //? }
 
 public class ModPackets {
@@ -60,7 +60,19 @@ public class ModPackets {
     public static final Identifier PLAY_ANIMATION_S2C = new Identifier(Nebula.MOD_ID, "play_animation");
     public static final Identifier CLEAR_ANIMATIONS_S2C = new Identifier(Nebula.MOD_ID, "clear_animations");
     public static final Identifier RELOAD_CLIENT_S2C = new Identifier(Nebula.MOD_ID, "reload_client");
-    public static final Identifier SYNC_DATA = new Identifier(Nebula.MOD_ID, "sync_data");
+    public static final Identifier MANIFEST_SUMMARY_S2C = new Identifier(Nebula.MOD_ID, "manifest_summary");
+    public static final Identifier MANIFEST_ENTRIES_S2C = new Identifier(Nebula.MOD_ID, "manifest_entries");
+    public static final Identifier MANIFEST_REQUEST_C2S = new Identifier(Nebula.MOD_ID, "manifest_request");
+    public static final Identifier FILE_INFO_S2C = new Identifier(Nebula.MOD_ID, "file_info");
+    public static final Identifier FILE_PIECE_S2C = new Identifier(Nebula.MOD_ID, "file_piece");
+    public static final Identifier FILE_ERROR_S2C = new Identifier(Nebula.MOD_ID, "file_error");
+    public static final Identifier FILE_REQUEST_C2S = new Identifier(Nebula.MOD_ID, "file_request");
+    public static final Identifier FILE_START_C2S = new Identifier(Nebula.MOD_ID, "file_start");
+    public static final Identifier FILE_ACK_C2S = new Identifier(Nebula.MOD_ID, "file_ack");
+    public static final Identifier PLAY_BATCH_S2C = new Identifier(Nebula.MOD_ID, "play_batch");
+    public static final Identifier PRELOAD_S2C = new Identifier(Nebula.MOD_ID, "preload");
+    public static final Identifier PRELOAD_READY_C2S = new Identifier(Nebula.MOD_ID, "preload_ready");
+    public static final Identifier FILE_CANCEL_C2S = new Identifier(Nebula.MOD_ID, "file_cancel");
 
     public static void registerCommon() {
     }
@@ -102,12 +114,167 @@ public class ModPackets {
         public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
     }
 
-    // 4. 同步数据包
-    public record SyncDataPayload(Map<String, String> hashes) implements CustomPayload {
-        public static final CustomPayload.Id<SyncDataPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "sync_data"));
-        public static final PacketCodec<RegistryByteBuf, SyncDataPayload> CODEC = PacketCodec.tuple(
-                PacketCodecs.map(HashMap::new, PacketCodecs.STRING, PacketCodecs.STRING), SyncDataPayload::hashes,
-                SyncDataPayload::new
+    // 4. 清单摘要包：只含整体摘要与桶摘要（见 AnimationManifest#encodeSummary）
+    public record ManifestSummaryPayload(byte[] data) implements CustomPayload {
+        public static final CustomPayload.Id<ManifestSummaryPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "manifest_summary"));
+        public static final PacketCodec<RegistryByteBuf, ManifestSummaryPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.BYTE_ARRAY, ManifestSummaryPayload::data,
+                ManifestSummaryPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 5. 清单条目包：客户端请求的桶内条目（见 AnimationManifest#encodeEntries）
+    public record ManifestEntriesPayload(byte[] data) implements CustomPayload {
+        public static final CustomPayload.Id<ManifestEntriesPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "manifest_entries"));
+        public static final PacketCodec<RegistryByteBuf, ManifestEntriesPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.BYTE_ARRAY, ManifestEntriesPayload::data,
+                ManifestEntriesPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 6. 清单请求包 (C2S)：客户端已知的摘要 + 需要的桶掩码
+    public record ManifestRequestPayload(long digest, long bucketMask) implements CustomPayload {
+        public static final CustomPayload.Id<ManifestRequestPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "manifest_request"));
+        public static final PacketCodec<RegistryByteBuf, ManifestRequestPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_LONG, ManifestRequestPayload::digest,
+                PacketCodecs.VAR_LONG, ManifestRequestPayload::bucketMask,
+                ManifestRequestPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 7. 文件传输描述 (S2C)：见 TransferInfo
+    public record FileInfoPayload(byte[] data) implements CustomPayload {
+        public static final CustomPayload.Id<FileInfoPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "file_info"));
+        public static final PacketCodec<RegistryByteBuf, FileInfoPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.BYTE_ARRAY, FileInfoPayload::data,
+                FileInfoPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 8. 文件数据片 (S2C)：传输 ID + 文件内偏移 + 数据
+    public record FilePiecePayload(int transferId, long offset, byte[] data) implements CustomPayload {
+        public static final CustomPayload.Id<FilePiecePayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "file_piece"));
+        public static final PacketCodec<RegistryByteBuf, FilePiecePayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_INT, FilePiecePayload::transferId,
+                PacketCodecs.VAR_LONG, FilePiecePayload::offset,
+                PacketCodecs.BYTE_ARRAY, FilePiecePayload::data,
+                FilePiecePayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 9. 文件传输错误 (S2C)，transferId 为 -1 表示请求阶段即失败
+    public record FileErrorPayload(int transferId, String reason) implements CustomPayload {
+        public static final CustomPayload.Id<FileErrorPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "file_error"));
+        public static final PacketCodec<RegistryByteBuf, FileErrorPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_INT, FileErrorPayload::transferId,
+                PacketCodecs.STRING, FileErrorPayload::reason,
+                FileErrorPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 10. 按摘要请求文件 (C2S)
+    public record FileRequestPayload(long digestHi, long digestLo) implements CustomPayload {
+        public static final CustomPayload.Id<FileRequestPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "file_request"));
+        public static final PacketCodec<RegistryByteBuf, FileRequestPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_LONG, FileRequestPayload::digestHi,
+                PacketCodecs.VAR_LONG, FileRequestPayload::digestLo,
+                FileRequestPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 11. 开始传输 (C2S)：需要的块位图（断点续传时跳过已完整的块）
+    public record FileStartPayload(int transferId, byte[] neededChunks) implements CustomPayload {
+        public static final CustomPayload.Id<FileStartPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "file_start"));
+        public static final PacketCodec<RegistryByteBuf, FileStartPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_INT, FileStartPayload::transferId,
+                PacketCodecs.BYTE_ARRAY, FileStartPayload::neededChunks,
+                FileStartPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 12. 块确认 (C2S)：块校验成功 / 失败（失败时服务端重发该块）
+    public record FileAckPayload(int transferId, int chunk, boolean ok) implements CustomPayload {
+        public static final CustomPayload.Id<FileAckPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "file_ack"));
+        public static final PacketCodec<RegistryByteBuf, FileAckPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_INT, FileAckPayload::transferId,
+                PacketCodecs.VAR_INT, FileAckPayload::chunk,
+                PacketCodecs.BOOL, FileAckPayload::ok,
+                FileAckPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 13. 批量播放包：一个 Tick 内发给该玩家的所有播放（见 PlayBatch）
+    public record PlayBatchPayload(byte[] data) implements CustomPayload {
+        public static final CustomPayload.Id<PlayBatchPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "play_batch"));
+        public static final PacketCodec<RegistryByteBuf, PlayBatchPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.BYTE_ARRAY, PlayBatchPayload::data,
+                PlayBatchPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 14. 预加载提示：客户端在后台预热索引、首个关键帧与纹理数组
+    public record PreloadPayload(int requestId, List<String> animations) implements CustomPayload {
+        public static final CustomPayload.Id<PreloadPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "preload"));
+        public static final PacketCodec<RegistryByteBuf, PreloadPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_INT, PreloadPayload::requestId,
+                PacketCodecs.STRING.collect(PacketCodecs.toList()), PreloadPayload::animations,
+                PreloadPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 15. 预加载完成 (C2S)：已就绪与本地缺失的动画数
+    public record PreloadReadyPayload(int requestId, int ready, int missing) implements CustomPayload {
+        public static final CustomPayload.Id<PreloadReadyPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "preload_ready"));
+        public static final PacketCodec<RegistryByteBuf, PreloadReadyPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_INT, PreloadReadyPayload::requestId,
+                PacketCodecs.VAR_INT, PreloadReadyPayload::ready,
+                PacketCodecs.VAR_INT, PreloadReadyPayload::missing,
+                PreloadReadyPayload::new
+        );
+
+        @Override
+        public CustomPayload.Id<? extends CustomPayload> getId() { return ID; }
+    }
+
+    // 16. 取消传输 (C2S)：客户端中止或本地失败时通知服务端释放会话，-1 表示取消该玩家的任何传输
+    public record FileCancelPayload(int transferId) implements CustomPayload {
+        public static final CustomPayload.Id<FileCancelPayload> ID = new CustomPayload.Id<>(Identifier.of(Nebula.MOD_ID, "file_cancel"));
+        public static final PacketCodec<RegistryByteBuf, FileCancelPayload> CODEC = PacketCodec.tuple(
+                PacketCodecs.VAR_INT, FileCancelPayload::transferId,
+                FileCancelPayload::new
         );
 
         @Override
@@ -118,7 +285,19 @@ public class ModPackets {
         PayloadTypeRegistry.playS2C().register(PlayAnimationPayload.ID, PlayAnimationPayload.CODEC);
         PayloadTypeRegistry.playS2C().register(ClearAnimationsPayload.ID, ClearAnimationsPayload.CODEC);
         PayloadTypeRegistry.playS2C().register(ReloadClientPayload.ID, ReloadClientPayload.CODEC);
-        PayloadTypeRegistry.playS2C().register(SyncDataPayload.ID, SyncDataPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(ManifestSummaryPayload.ID, ManifestSummaryPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(ManifestEntriesPayload.ID, ManifestEntriesPayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(ManifestRequestPayload.ID, ManifestRequestPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(FileInfoPayload.ID, FileInfoPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(FilePiecePayload.ID, FilePiecePayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(FileErrorPayload.ID, FileErrorPayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(FileRequestPayload.ID, FileRequestPayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(FileStartPayload.ID, FileStartPayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(FileAckPayload.ID, FileAckPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(PlayBatchPayload.ID, PlayBatchPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(PreloadPayload.ID, PreloadPayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(PreloadReadyPayload.ID, PreloadReadyPayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(FileCancelPayload.ID, FileCancelPayload.CODEC);
     }
     //? }
 
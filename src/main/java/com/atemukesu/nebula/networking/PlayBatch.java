@@ -0,0 +1,158 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.networking;
+
+import net.minecraft.util.math.Vec3d;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.atemukesu.nebula.networking.VarIntIO.readSignedVarLong;
+import static com.atemukesu.nebula.networking.VarIntIO.readVarInt;
+import static com.atemukesu.nebula.networking.VarIntIO.writeSignedVarLong;
+import static com.atemukesu.nebula.networking.VarIntIO.writeVarInt;
+
+/**
+ * 批量播放包的二进制格式
+ * <p>
+ * 同一服务端 Tick 内发给同一玩家的所有播放合并为一个包：
+ * <ul>
+ * <li>定义段：该玩家本连接内尚未见过的 [数字 ID, 名称]（ID 与清单条目一致）</li>
+ * <li>播放段：[ID, 起始 Tick 偏移（ZigZag）, 原点]，原点量化到 1/32 方块，
+ * 并以 ZigZag varlong 存储相对上一条播放的差值（同一位置连续播放只占 3 字节）</li>
+ * </ul>
+ */
+public final class PlayBatch {
+
+    /** 原点量化精度：1/32 方块 */
+    public static final double ORIGIN_SCALE = 32.0;
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final int MAX_COUNT = 1 << 16;
+
+    private PlayBatch() {
+    }
+
+    /**
+     * 数字 ID 定义
+     */
+    public record Definition(int id, String name) {
+    }
+
+    /**
+     * 单次播放
+     *
+     * @param tickOffset 相对收到本包时延后的 Tick 数；负数表示动画已经开始了这么多 Tick（迟到加入）
+     */
+    public record Play(int id, Vec3d origin, int tickOffset) {
+    }
+
+    /**
+     * 解码结果
+     */
+    public record Decoded(List<Definition> definitions, List<Play> plays) {
+    }
+
+    public static byte[] encode(List<Definition> definitions, List<Play> plays) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + definitions.size() * 24 + plays.size() * 6);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeVarInt(out, definitions.size());
+            for (Definition definition : definitions) {
+                writeVarInt(out, definition.id());
+                VarIntIO.writeString(out, definition.name());
+            }
+            writeVarInt(out, plays.size());
+            long lastX = 0, lastY = 0, lastZ = 0;
+            for (Play play : plays) {
+                long x = quantize(play.origin().x);
+                long y = quantize(play.origin().y);
+                long z = quantize(play.origin().z);
+                writeVarInt(out, play.id());
+                writeSignedVarLong(out, play.tickOffset());
+                writeSignedVarLong(out, x - lastX);
+                writeSignedVarLong(out, y - lastY);
+                writeSignedVarLong(out, z - lastZ);
+                lastX = x;
+                lastY = y;
+                lastZ = z;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Decoded decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int definitionCount = readCount(in);
+            List<Definition> definitions = new ArrayList<>(definitionCount);
+            for (int i = 0; i < definitionCount; i++) {
+                int id = readVarInt(in);
+                definitions.add(new Definition(id, VarIntIO.readString(in, MAX_NAME_BYTES)));
+            }
+            int playCount = readCount(in);
+            List<Play> plays = new ArrayList<>(playCount);
+            long x = 0, y = 0, z = 0;
+            for (int i = 0; i < playCount; i++) {
+                int id = readVarInt(in);
+                int tickOffset = (int) readSignedVarLong(in);
+                x += readSignedVarLong(in);
+                y += readSignedVarLong(in);
+                z += readSignedVarLong(in);
+                plays.add(new Play(id, new Vec3d(x / ORIGIN_SCALE, y / ORIGIN_SCALE, z / ORIGIN_SCALE), tickOffset));
+            }
+            return new Decoded(definitions, plays);
+        }
+    }
+
+    private static long quantize(double value) {
+        return Math.round(value * ORIGIN_SCALE);
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IOException("Invalid play batch count: " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.networking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 文件传输描述：服务端在开始传输前发给客户端
+ * <p>
+ * 包含 128 位内容摘要、文件大小以及每个校验块的 XXH64 摘要。
+ * 客户端用块摘要重算根摘要并与请求的摘要比对，确认块列表可信后再逐块校验写入的数据，
+ * 同时据此判断断点续传时本地 .part 文件中哪些块已经完整。
+ * </p>
+ */
+public record TransferInfo(int transferId, long digestHi, long digestLo, long size, int chunkSize,
+        long[] chunkDigests) {
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(40 + chunkDigests.length * 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(transferId);
+            out.writeLong(digestHi);
+            out.writeLong(digestLo);
+            out.writeLong(size);
+            out.writeInt(chunkSize);
+            out.writeInt(chunkDigests.length);
+            for (long chunk : chunkDigests) {
+                out.writeLong(chunk);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static TransferInfo decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int transferId = in.readInt();
+            long hi = in.readLong();
+            long lo = in.readLong();
+            long size = in.readLong();
+            int chunkSize = in.readInt();
+            int count = in.readInt();
+            if (count < 0 || count > data.length / 8) {
+                throw new IOException("Invalid chunk count " + count);
+            }
+            long[] chunks = new long[count];
+            for (int i = 0; i < count; i++) {
+                chunks[i] = in.readLong();
+            }
+            return new TransferInfo(transferId, hi, lo, size, chunkSize, chunks);
+        }
+    }
+}
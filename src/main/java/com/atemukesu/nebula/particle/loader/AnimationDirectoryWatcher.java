@@ -0,0 +1,167 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.particle.loader;
+
+import com.atemukesu.nebula.Nebula;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 动画目录监听器
+ * <p>
+ * 用 {@link WatchService} 监听动画目录及其一级子目录，把事件合并后增量更新 {@link AnimationLoader} 的索引。
+ * [优化] 防抖：收到事件后等待 {@link #DEBOUNCE_MS} 内没有新事件再统一处理，
+ * 复制大文件时持续产生的修改事件只会触发一次更新。事件溢出时退回完整扫描。
+ * </p>
+ */
+final class AnimationDirectoryWatcher implements Runnable {
+
+    private static final long DEBOUNCE_MS = 500;
+
+    private final Path root;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    private final Set<Path> pending = new HashSet<>();
+    private boolean overflow = false;
+
+    AnimationDirectoryWatcher(Path root) throws IOException {
+        this.root = root;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        register(root);
+        try (Stream<Path> children = Files.list(root)) {
+            for (Path child : (Iterable<Path>) children::iterator) {
+                if (Files.isDirectory(child)) {
+                    register(child);
+                }
+            }
+        }
+    }
+
+    void start() {
+        Thread thread = new Thread(this, "Nebula-AnimationWatcher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        Nebula.LOGGER.info("Watching animations directory: {}", root);
+    }
+
+    private void register(Path dir) throws IOException {
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        keys.put(key, dir);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty() && !overflow
+                        ? watchService.take()
+                        : watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    flush();
+                    continue;
+                }
+                Path dir = keys.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                        continue;
+                    }
+                    if (dir == null) {
+                        continue;
+                    }
+                    Path child = dir.resolve((Path) event.context());
+                    pending.add(child);
+                    // 新建的一级子目录：开始监听，并收录其中已有的文件（监听注册前写入的文件不会产生事件）
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && dir.equals(root)
+                            && Files.isDirectory(child)) {
+                        try {
+                            register(child);
+                            try (Stream<Path> files = Files.list(child)) {
+                                files.forEach(pending::add);
+                            }
+                        } catch (IOException | UncheckedIOException e) {
+                            // 目录在处理前又被删除或无法访问：跳过，删除事件会随后到达
+                            Nebula.LOGGER.debug("Skipping animation subdirectory {}: {}", child, e.toString());
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    keys.remove(key);
+                    if (root.equals(dir)) {
+                        Nebula.LOGGER.warn("Animations directory is no longer accessible, stopped watching: {}", root);
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 正常退出
+        }
+    }
+
+    private void flush() {
+        if (overflow) {
+            overflow = false;
+            pending.clear();
+            Nebula.LOGGER.info("Animation watch events overflowed, rescanning directory.");
+            AnimationLoader.rescan();
+            return;
+        }
+        Set<Path> changed = Set.copyOf(pending);
+        pending.clear();
+        AnimationLoader.applyChanges(changed);
+    }
+}
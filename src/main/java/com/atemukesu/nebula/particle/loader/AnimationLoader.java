@@ -45,7 +45,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 import java.util.stream.Stream;
@@ -53,57 +53,163 @@ import java.util.stream.Stream;
 /**
  * 服务端/共享动画加载器
  * 负责发现和管理动画文件
+ * <p>
+ * [优化] 索引是一份不可变快照，通过 volatile 引用整体替换：查询无锁，且从不访问文件系统。
+ * 启动时完整扫描一次，之后由 {@link AnimationDirectoryWatcher} 增量更新（新增 / 删除 / 修改），
+ * 变化的动画名称会通知给已注册的监听器（元数据缓存、哈希清单等）。
+ * </p>
  */
 public class AnimationLoader {
 
-    private static final Map<String, Path> animations = new ConcurrentHashMap<>();
+    /** 扫描深度：动画目录本身及其一级子目录 */
+    static final int SCAN_DEPTH = 2;
+    private static final String EXTENSION = ".nbl";
+
+    private static volatile Map<String, Path> animations = Map.of();
     private static Path animationsDir = FabricLoader.getInstance().getGameDir().resolve("nebula").resolve("animations");
+    private static final List<Consumer<Set<String>>> changeListeners = new CopyOnWriteArrayList<>();
+    private static AnimationDirectoryWatcher watcher;
 
     /**
-     * 发现并索引所有动画文件
+     * 发现并索引所有动画文件（完整扫描，用于启动和手动重载）
      */
-    public static void discoverAnimations() {
-        animations.clear();
-
+    public static synchronized void discoverAnimations() {
         if (!Files.exists(animationsDir)) {
             Nebula.LOGGER.warn("Animations directory does not exist: {}", animationsDir);
+            animations = Map.of();
             return;
         }
 
-        try (Stream<Path> stream = Files.walk(animationsDir, 2)) {
+        Map<String, Path> found = new HashMap<>();
+        try (Stream<Path> stream = Files.walk(animationsDir, SCAN_DEPTH)) {
             stream.filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".nbl"))
+                    .filter(AnimationLoader::isAnimationFile)
                     .forEach(path -> {
-                        String name = path.getFileName().toString();
-                        name = name.substring(0, name.lastIndexOf('.'));
-                        animations.put(name, path);
-                        Nebula.LOGGER.info("Discovered animation: {}", name);
+                        String name = nameOf(path);
+                        found.put(name, path);
+                        Nebula.LOGGER.debug("Discovered animation: {}", name);
                     });
         } catch (IOException e) {
             Nebula.LOGGER.error("Failed to discover animations", e);
+            return;
         }
 
-        Nebula.LOGGER.info("Discovered {} animations", animations.size());
+        animations = Map.copyOf(found);
+        Nebula.LOGGER.info("Discovered {} animations", found.size());
     }
 
     /**
-     * 获取所有动画文件列表
+     * 启动目录监听（只启动一次），之后的文件变化增量更新索引
      */
-    public static List<Path> getAnimationFiles() throws IOException {
-        if (animations.isEmpty()) {
+    public static synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        if (!Files.isDirectory(animationsDir)) {
+            Nebula.LOGGER.warn("Animations directory does not exist, not watching: {}", animationsDir);
+            return;
+        }
+        try {
+            watcher = new AnimationDirectoryWatcher(animationsDir);
+            watcher.start();
+        } catch (IOException e) {
+            Nebula.LOGGER.error("Failed to watch animations directory, changes require /nebula reload", e);
+            watcher = null;
+        }
+    }
+
+    /**
+     * 注册索引变化监听器，参数为新增、删除或修改的动画名称（在监听线程上调用）
+     */
+    public static void addChangeListener(Consumer<Set<String>> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * 按变化的路径增量更新索引
+     *
+     * @param changed 新增 / 修改 / 删除的文件或目录
+     */
+    static void applyChanges(Set<Path> changed) {
+        Set<String> names = new HashSet<>();
+        synchronized (AnimationLoader.class) {
+            Map<String, Path> next = new HashMap<>(animations);
+            for (Path path : changed) {
+                if (Files.isRegularFile(path)) {
+                    if (isAnimationFile(path)) {
+                        String name = nameOf(path);
+                        next.put(name, path);
+                        names.add(name);
+                    }
+                } else if (!Files.exists(path)) {
+                    // 删除的文件或整个子目录
+                    next.entrySet().removeIf(entry -> {
+                        if (entry.getValue().startsWith(path)) {
+                            names.add(entry.getKey());
+                            return true;
+                        }
+                        return false;
+                    });
+                }
+            }
+            if (names.isEmpty()) {
+                return;
+            }
+            animations = Map.copyOf(next);
+        }
+        notifyListeners(names);
+    }
+
+    /**
+     * 完整重扫并通知监听器（监听事件丢失时使用）
+     * <p>
+     * 无法得知具体哪些文件被修改，因此通知扫描前后出现过的所有名称，已删除的动画也包含在内。
+     * </p>
+     */
+    static void rescan() {
+        Set<String> names;
+        synchronized (AnimationLoader.class) {
+            names = new HashSet<>(animations.keySet());
             discoverAnimations();
+            names.addAll(animations.keySet());
+        }
+        if (!names.isEmpty()) {
+            notifyListeners(names);
         }
+    }
+
+    private static void notifyListeners(Set<String> names) {
+        Nebula.LOGGER.info("Animations changed on disk: {}", names);
+        for (Consumer<Set<String>> listener : changeListeners) {
+            try {
+                listener.accept(Collections.unmodifiableSet(names));
+            } catch (Exception e) {
+                Nebula.LOGGER.error("Animation change listener failed", e);
+            }
+        }
+    }
+
+    static boolean isAnimationFile(Path path) {
+        return path.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    private static String nameOf(Path path) {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    /**
+     * 获取所有动画文件列表
+     */
+    public static List<Path> getAnimationFiles() throws IOException {
         return new ArrayList<>(animations.values());
     }
 
     /**
-     * 获取动画名称到路径的映射
+     * 获取动画名称到路径的映射（不可变快照）
      */
     public static Map<String, Path> getAnimations() {
-        if (animations.isEmpty()) {
-            discoverAnimations();
-        }
-        return Collections.unmodifiableMap(animations);
+        return animations;
     }
 
     /**
@@ -124,7 +230,8 @@ public class AnimationLoader {
      * 获取指定动画的文件路径
      */
     public static Path getAnimationPath(String name) {
-        return animations.get(name);
+        // 不可变 Map 不接受 null 键
+        return name != null ? animations.get(name) : null;
     }
 
     /**
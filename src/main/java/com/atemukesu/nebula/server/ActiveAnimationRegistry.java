@@ -0,0 +1,196 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.server;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 服务端活跃动画表
+ * <p>
+ * 记录每次播放的动画 ID、维度、原点、开始 Tick 与时长（来自文件头），直到播放结束。
+ * 新加入、重生或切换维度的玩家据此收到仍在播放的动画及其已播放时长，客户端直接从对应关键帧开始，
+ * 而不是等到下一次播放。
+ * </p>
+ * 所有方法仅在服务端主线程调用。
+ */
+public class ActiveAnimationRegistry {
+
+    private static final ActiveAnimationRegistry INSTANCE = new ActiveAnimationRegistry();
+
+    /** 按维度分组，迟到检查只需遍历玩家所在维度 */
+    private final Map<RegistryKey<World>, List<ActiveAnimation>> byDimension = new HashMap<>();
+
+    /**
+     * 一次仍在播放（或等待开始）的动画
+     */
+    public static final class ActiveAnimation {
+        private final int animationId;
+        private final RegistryKey<World> dimension;
+        private final Vec3d origin;
+        private final Box box;
+        private final long startTick;
+        private final int durationTicks;
+        /** 已收到该播放的玩家（仅对当前所在维度有效） */
+        private final Set<UUID> notified = new HashSet<>();
+
+        ActiveAnimation(int animationId, RegistryKey<World> dimension, Vec3d origin, Box box, long startTick,
+                int durationTicks) {
+            this.animationId = animationId;
+            this.dimension = dimension;
+            this.origin = origin;
+            this.box = box;
+            this.startTick = startTick;
+            this.durationTicks = durationTicks;
+        }
+
+        public int getAnimationId() {
+            return animationId;
+        }
+
+        public RegistryKey<World> getDimension() {
+            return dimension;
+        }
+
+        public Vec3d getOrigin() {
+            return origin;
+        }
+
+        /**
+         * @return 世界坐标包围盒，文件头包围盒无效时为 null
+         */
+        public Box getBox() {
+            return box;
+        }
+
+        public long getStartTick() {
+            return startTick;
+        }
+
+        public long getEndTick() {
+            return startTick + durationTicks;
+        }
+
+        /**
+         * @return 已播放的 Tick 数；尚未开始时为负数（距开始还有多少 Tick）
+         */
+        public long getElapsedTicks(long now) {
+            return now - startTick;
+        }
+
+        /**
+         * 标记玩家已收到该播放
+         *
+         * @return 之前是否未收到
+         */
+        public boolean markNotified(UUID player) {
+            return notified.add(player);
+        }
+    }
+
+    private ActiveAnimationRegistry() {
+    }
+
+    public static ActiveAnimationRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public ActiveAnimation add(int animationId, RegistryKey<World> dimension, Vec3d origin, Box box, long startTick,
+            int durationTicks) {
+        ActiveAnimation active = new ActiveAnimation(animationId, dimension, origin, box, startTick, durationTicks);
+        byDimension.computeIfAbsent(dimension, key -> new ArrayList<>()).add(active);
+        return active;
+    }
+
+    /**
+     * @return 指定维度中仍在播放的动画（只读视图）
+     */
+    public List<ActiveAnimation> getActive(RegistryKey<World> dimension) {
+        List<ActiveAnimation> list = byDimension.get(dimension);
+        return list != null ? Collections.unmodifiableList(list) : List.of();
+    }
+
+    /**
+     * 移除已经播放结束的动画
+     */
+    public void removeExpired(long now) {
+        Iterator<List<ActiveAnimation>> it = byDimension.values().iterator();
+        while (it.hasNext()) {
+            List<ActiveAnimation> list = it.next();
+            list.removeIf(active -> now >= active.getEndTick());
+            if (list.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 忘记玩家已收到的播放（断开连接、重生、切换维度后客户端已丢弃它们）
+     */
+    public void forgetPlayer(UUID player) {
+        for (List<ActiveAnimation> list : byDimension.values()) {
+            for (ActiveAnimation active : list) {
+                active.notified.remove(player);
+            }
+        }
+    }
+
+    public int size() {
+        int count = 0;
+        for (List<ActiveAnimation> list : byDimension.values()) {
+            count += list.size();
+        }
+        return count;
+    }
+
+    public void clear() {
+        byDimension.clear();
+    }
+}
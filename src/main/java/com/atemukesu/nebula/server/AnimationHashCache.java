@@ -0,0 +1,202 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.server;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.util.NebulaHashUtils;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端哈希持久化缓存
+ * <p>
+ * 以 路径 + 文件大小 + 修改时间 为键记录哈希结果，未变化的文件在重启 / 重载后
+ * 无需再次读取。缓存文件位于 游戏目录/nebula/hash_cache.json。
+ * </p>
+ */
+public class AnimationHashCache {
+
+    private static final Path CACHE_FILE = FabricLoader.getInstance().getGameDir()
+            .resolve("nebula").resolve("hash_cache.json");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * 单个文件的缓存条目
+     */
+    public static class Entry {
+        public long size;
+        public long mtime;
+        public String hash;
+        /** 每块 XXH64 摘要，供增量校验 / 分块传输使用 */
+        public long[] chunks;
+
+        public Entry() {
+        }
+
+        public Entry(long size, long mtime, String hash, long[] chunks) {
+            this.size = size;
+            this.mtime = mtime;
+            this.hash = hash;
+            this.chunks = chunks;
+        }
+    }
+
+    /**
+     * 磁盘格式：算法标识 + 条目表，算法变化时整体失效
+     */
+    private static class CacheFile {
+        String algorithm;
+        Map<String, Entry> entries;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    /**
+     * 从磁盘加载缓存，文件缺失或损坏时返回空缓存
+     */
+    public static AnimationHashCache load() {
+        AnimationHashCache cache = new AnimationHashCache();
+        if (!Files.exists(CACHE_FILE)) {
+            return cache;
+        }
+        try (Reader reader = Files.newBufferedReader(CACHE_FILE, StandardCharsets.UTF_8)) {
+            CacheFile file = GSON.fromJson(reader, new TypeToken<CacheFile>() {
+            }.getType());
+            if (file == null || file.entries == null) {
+                return cache;
+            }
+            if (!NebulaHashUtils.ALGORITHM.equals(file.algorithm)) {
+                // 哈希算法已变更，旧条目全部作废
+                Nebula.LOGGER.info("[AnimationHashCache] Hash algorithm changed ({} -> {}), discarding cache.",
+                        file.algorithm, NebulaHashUtils.ALGORITHM);
+                cache.dirty = true;
+                return cache;
+            }
+            file.entries.forEach((key, entry) -> {
+                if (entry != null && entry.hash != null) {
+                    cache.entries.put(key, entry);
+                }
+            });
+            Nebula.LOGGER.info("[AnimationHashCache] Loaded {} cached hashes.", cache.entries.size());
+        } catch (Exception e) {
+            Nebula.LOGGER.warn("[AnimationHashCache] Failed to read hash cache, starting fresh.", e);
+        }
+        return cache;
+    }
+
+    /**
+     * 查找缓存命中
+     *
+     * @return 文件大小与修改时间都一致时返回缓存的哈希，否则返回 null
+     */
+    public String lookup(String key, long size, long mtime) {
+        Entry entry = getEntry(key, size, mtime);
+        return entry != null ? entry.hash : null;
+    }
+
+    /**
+     * @return 文件大小与修改时间都一致时返回完整条目（含块摘要），否则返回 null
+     */
+    public Entry getEntry(String key, long size, long mtime) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.size == size && entry.mtime == mtime) {
+            return entry;
+        }
+        return null;
+    }
+
+    public void put(String key, long size, long mtime, String hash, long[] chunks) {
+        entries.put(key, new Entry(size, mtime, hash, chunks));
+        dirty = true;
+    }
+
+    /**
+     * 移除已不存在的文件条目
+     */
+    public void retainAll(Collection<String> keys) {
+        Set<String> keep = new HashSet<>(keys);
+        if (entries.keySet().retainAll(keep)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * 写回磁盘（仅在有变化时）。先写临时文件再原子替换，避免崩溃时留下半个文件。
+     */
+    public synchronized void saveIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        CacheFile file = new CacheFile();
+        file.algorithm = NebulaHashUtils.ALGORITHM;
+        file.entries = new HashMap<>(entries);
+        Path tmp = CACHE_FILE.resolveSibling(CACHE_FILE.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(CACHE_FILE.getParent());
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                GSON.toJson(file, writer);
+            }
+            try {
+                Files.move(tmp, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dirty = false;
+        } catch (IOException e) {
+            Nebula.LOGGER.error("[AnimationHashCache] Failed to save hash cache", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.server;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.particle.loader.AnimationLoader;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端动画元数据缓存
+ * <p>
+ * 只读取 .nbl 文件头的 48 字节（帧率、总帧数、包围盒），供兴趣管理和活跃动画追踪使用。
+ * 每个动画首次查询时读取一次，重载时整体失效。
+ * </p>
+ */
+public class AnimationMetadataCache {
+
+    private static final AnimationMetadataCache INSTANCE = new AnimationMetadataCache();
+    private static final int HEADER_SIZE = 48;
+    private static final int TICKS_PER_SECOND = 20;
+
+    /** 读取失败的动画同样缓存（Optional.empty），避免每次播放都重试 */
+    private final Map<String, Optional<Metadata>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 文件头元数据，包围盒相对动画原点
+     */
+    public record Metadata(int targetFps, int totalFrames, float[] bboxMin, float[] bboxMax) {
+
+        /**
+         * @return 时长（服务端 Tick，向上取整）
+         */
+        public int getDurationTicks() {
+            return (int) Math.ceil((double) totalFrames * TICKS_PER_SECOND / Math.max(1, targetFps));
+        }
+
+        /**
+         * @return 放置在 origin 处的世界坐标包围盒；头部包围盒无效时返回 null
+         */
+        public Box getWorldBox(Vec3d origin) {
+            for (int i = 0; i < 3; i++) {
+                if (!Float.isFinite(bboxMin[i]) || !Float.isFinite(bboxMax[i]) || bboxMin[i] > bboxMax[i]) {
+                    return null;
+                }
+            }
+            return new Box(origin.x + bboxMin[0], origin.y + bboxMin[1], origin.z + bboxMin[2],
+                    origin.x + bboxMax[0], origin.y + bboxMax[1], origin.z + bboxMax[2]);
+        }
+    }
+
+    private AnimationMetadataCache() {
+    }
+
+    public static AnimationMetadataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return 动画元数据；动画不存在或文件头无效时返回 null
+     */
+    public Metadata get(String name) {
+        return cache.computeIfAbsent(name, n -> {
+            Path path = AnimationLoader.getAnimationPath(n);
+            return path == null ? Optional.empty() : Optional.ofNullable(read(path));
+        }).orElse(null);
+    }
+
+    public void invalidate(String name) {
+        cache.remove(name);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    static Metadata read(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Truncated NBL header");
+                }
+            }
+            if (!new String(header.array(), 0, 8, StandardCharsets.US_ASCII).equals("NEBULAFX")) {
+                throw new IOException("Invalid NBL file");
+            }
+            int targetFps = header.getShort(10) & 0xFFFF;
+            int totalFrames = header.getInt(12);
+            float[] bboxMin = { header.getFloat(20), header.getFloat(24), header.getFloat(28) };
+            float[] bboxMax = { header.getFloat(32), header.getFloat(36), header.getFloat(40) };
+            return new Metadata(targetFps, totalFrames, bboxMin, bboxMax);
+        } catch (IOException e) {
+            Nebula.LOGGER.warn("[AnimationMetadataCache] Failed to read header of {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.server;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.networking.AnimationManifest;
+import com.atemukesu.nebula.networking.ModPackets;
+import com.atemukesu.nebula.networking.TransferInfo;
+import com.atemukesu.nebula.particle.loader.AnimationLoader;
+import com.atemukesu.nebula.util.NebulaHashUtils;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//? if < 1.21 {
+/*import net.minecraft.network.PacketByteBuf;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+*///? }
+
+/**
+ * 服务端 .nbl 文件分块传输
+ * <p>
+ * [核心] 所有会话状态只在单独的传输线程上读写：收到的请求 / 确认包直接投递到该线程，
+ * 磁盘读取和发包也都在该线程完成，服务器主线程（tick）完全不参与。
+ * </p>
+ * <ul>
+ * <li>文件按 {@link NebulaHashUtils#CONTENT_CHUNK_SIZE} 分为校验块，每块拆成 {@link #PIECE_SIZE} 的数据片发送</li>
+ * <li>每个连接最多 {@link #WINDOW_CHUNKS} 个未确认的块，并受令牌桶限速 {@link #BYTES_PER_SECOND}</li>
+ * <li>同时最多推进 {@link #MAX_ACTIVE_SESSIONS} 个会话，其余排队，限制在途数据总量；
+ * 窗口已满、只在等待确认的会话不占名额</li>
+ * <li>超过 {@link #ACK_TIMEOUT_MS} 没有收到客户端响应的会话会被关闭，客户端中止时也会主动取消</li>
+ * <li>缓存未命中时的全量摘要在哈希线程池计算，不阻塞传输线程</li>
+ * <li>客户端校验失败的块会被重发，超过 {@link #MAX_CHUNK_RETRIES} 次则终止传输</li>
+ * </ul>
+ */
+public class AnimationTransferService {
+
+    public static final int PIECE_SIZE = 256 * 1024;
+    public static final int WINDOW_CHUNKS = 2;
+    public static final long BYTES_PER_SECOND = 8L * 1024 * 1024;
+    public static final int MAX_ACTIVE_SESSIONS = 8;
+    public static final int MAX_CHUNK_RETRIES = 3;
+    /** 等待客户端开始 / 确认的最长时间 */
+    public static final long ACK_TIMEOUT_MS = 30_000;
+    private static final long PUMP_INTERVAL_MS = 5;
+    /** 令牌桶容量：约 100ms 的突发量，至少一个数据片 */
+    private static final double BUCKET_CAPACITY = Math.max(PIECE_SIZE, BYTES_PER_SECOND / 10.0);
+
+    private static final AnimationTransferService INSTANCE = new AnimationTransferService();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Nebula-Transfer");
+        t.setDaemon(true);
+        return t;
+    });
+    /** 按创建顺序排列，前 MAX_ACTIVE_SESSIONS 个会话被推进（仅传输线程访问） */
+    private final Map<UUID, Session> sessions = new LinkedHashMap<>();
+    /** 每个玩家最近一次请求的序号：摘要计算完成时请求已被取代或取消则丢弃（仅传输线程访问） */
+    private final Map<UUID, Integer> requestSerials = new HashMap<>();
+    private int nextRequestSerial = 1;
+    private int nextTransferId = 1;
+
+    private AnimationTransferService() {
+        executor.scheduleWithFixedDelay(this::pump, PUMP_INTERVAL_MS, PUMP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static AnimationTransferService getInstance() {
+        return INSTANCE;
+    }
+
+    private static class Session {
+        final ServerPlayerEntity player;
+        final int transferId;
+        final FileChannel channel;
+        final NebulaHashUtils.ContentDigest digest;
+        final ArrayDeque<Integer> pending = new ArrayDeque<>();
+        final Set<Integer> outstanding = new HashSet<>();
+        final int[] retries;
+        boolean started = false;
+
+        int currentChunk = -1;
+        long currentOffset;
+        long chunkEnd;
+
+        double tokens = PIECE_SIZE;
+        long lastRefill = System.nanoTime();
+        /** 最近一次收到客户端开始 / 确认的时间 */
+        long lastResponse = System.currentTimeMillis();
+
+        Session(ServerPlayerEntity player, int transferId, FileChannel channel, NebulaHashUtils.ContentDigest digest) {
+            this.player = player;
+            this.transferId = transferId;
+            this.channel = channel;
+            this.digest = digest;
+            this.retries = new int[digest.getChunkCount()];
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // ==================== 请求处理（均在传输线程执行） ====================
+
+    private void handleRequest(ServerPlayerEntity player, long digestHi, long digestLo) {
+        AnimationManifest.Entry entry = findEntry(digestHi, digestLo);
+        if (entry == null) {
+            sendError(player, -1, "Unknown animation digest");
+            return;
+        }
+        Path path = AnimationLoader.getAnimationPath(entry.name());
+        if (path == null) {
+            sendError(player, -1, "Animation not found: " + entry.name());
+            return;
+        }
+        // 每个玩家同一时间只有一个传输
+        UUID uuid = player.getUuid();
+        closeSession(uuid);
+        int serial = nextRequestSerial++;
+        requestSerials.put(uuid, serial);
+
+        // [优化] 摘要在哈希线程池计算，完成后回到传输线程创建会话
+        ServerAnimationSyncer.getContentDigestAsync(path).whenCompleteAsync((digest, error) -> {
+            if (!Integer.valueOf(serial).equals(requestSerials.get(uuid))) {
+                return;
+            }
+            requestSerials.remove(uuid);
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                Nebula.LOGGER.error("[AnimationTransferService] Failed to hash {}", entry.name(), cause);
+                sendError(player, -1, "Failed to read animation: " + cause.getMessage());
+                return;
+            }
+            openSession(player, entry, path, digest, digestHi, digestLo);
+        }, executor);
+    }
+
+    private void openSession(ServerPlayerEntity player, AnimationManifest.Entry entry, Path path,
+            NebulaHashUtils.ContentDigest digest, long digestHi, long digestLo) {
+        if (player.isDisconnected()) {
+            return;
+        }
+        FileChannel channel = null;
+        try {
+            if (digest.getRoot() != digestLo || digest.getRootHi() != digestHi) {
+                sendError(player, -1, "Animation changed on server: " + entry.name());
+                return;
+            }
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            Session session = new Session(player, nextTransferId++, channel, digest);
+            sessions.put(player.getUuid(), session);
+            sendInfo(player, new TransferInfo(session.transferId, digestHi, digestLo, digest.getSize(),
+                    digest.getChunkSize(), digest.getChunks()));
+            Nebula.LOGGER.info("[AnimationTransferService] {} requested {} ({} bytes)",
+                    player.getName().getString(), entry.name(), digest.getSize());
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            Nebula.LOGGER.error("[AnimationTransferService] Failed to open {}", entry.name(), e);
+            sendError(player, -1, "Failed to read animation: " + e.getMessage());
+        }
+    }
+
+    private void handleStart(ServerPlayerEntity player, int transferId, byte[] neededChunks) {
+        Session session = sessions.get(player.getUuid());
+        if (session == null || session.transferId != transferId || session.started) {
+            return;
+        }
+        int count = session.digest.getChunkCount();
+        for (int i = 0; i < count; i++) {
+            int byteIndex = i >>> 3;
+            if (byteIndex < neededChunks.length && (neededChunks[byteIndex] & (1 << (i & 7))) != 0) {
+                session.pending.add(i);
+            }
+        }
+        session.started = true;
+        session.lastResponse = System.currentTimeMillis();
+        if (session.pending.isEmpty()) {
+            closeSession(player.getUuid());
+        }
+    }
+
+    private void handleAck(ServerPlayerEntity player, int transferId, int chunk, boolean ok) {
+        Session session = sessions.get(player.getUuid());
+        if (session == null || session.transferId != transferId || !session.outstanding.remove(chunk)) {
+            return;
+        }
+        session.lastResponse = System.currentTimeMillis();
+        if (!ok) {
+            if (++session.retries[chunk] > MAX_CHUNK_RETRIES) {
+                sendError(player, transferId, "Chunk " + chunk + " failed verification too many times");
+                closeSession(player.getUuid());
+                return;
+            }
+            // 优先重发失败的块
+            session.pending.addFirst(chunk);
+        }
+        if (session.pending.isEmpty() && session.outstanding.isEmpty() && session.currentChunk < 0) {
+            Nebula.LOGGER.info("[AnimationTransferService] Transfer {} to {} complete",
+                    transferId, player.getName().getString());
+            closeSession(player.getUuid());
+        }
+    }
+
+    /**
+     * 客户端中止：transferId 为 -1 时取消该玩家的任何传输（包括仍在计算摘要的请求）
+     */
+    private void handleCancel(ServerPlayerEntity player, int transferId) {
+        UUID uuid = player.getUuid();
+        Session session = sessions.get(uuid);
+        if (transferId == -1) {
+            requestSerials.remove(uuid);
+        }
+        if (session != null && (transferId == -1 || session.transferId == transferId)) {
+            Nebula.LOGGER.info("[AnimationTransferService] Transfer {} cancelled by {}",
+                    session.transferId, player.getName().getString());
+            closeSession(uuid);
+        }
+    }
+
+    private void closeSession(UUID uuid) {
+        Session session = sessions.remove(uuid);
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    // ==================== 发送泵 ====================
+
+    private void pump() {
+        try {
+            int active = 0;
+            long nowMs = System.currentTimeMillis();
+            Iterator<Session> it = sessions.values().iterator();
+            while (it.hasNext()) {
+                Session session = it.next();
+                if (session.player.isDisconnected()) {
+                    session.close();
+                    it.remove();
+                    continue;
+                }
+                boolean waiting = !session.started || (session.currentChunk < 0
+                        && (session.outstanding.size() >= WINDOW_CHUNKS || session.pending.isEmpty()));
+                if (waiting) {
+                    // 只在等待客户端的会话不占名额，但长时间没有响应就关闭
+                    if (nowMs - session.lastResponse > ACK_TIMEOUT_MS) {
+                        Nebula.LOGGER.warn("[AnimationTransferService] Transfer {} to {} timed out",
+                                session.transferId, session.player.getName().getString());
+                        sendError(session.player, session.transferId, "Transfer timed out");
+                        session.close();
+                        it.remove();
+                    }
+                    continue;
+                }
+                if (active >= MAX_ACTIVE_SESSIONS) {
+                    continue;
+                }
+                active++;
+                try {
+                    pumpSession(session);
+                } catch (IOException e) {
+                    Nebula.LOGGER.error("[AnimationTransferService] Transfer {} failed", session.transferId, e);
+                    sendError(session.player, session.transferId, "Server read error: " + e.getMessage());
+                    session.close();
+                    it.remove();
+                }
+            }
+        } catch (Throwable t) {
+            // 不能让异常终止定时任务
+            Nebula.LOGGER.error("[AnimationTransferService] Pump failed", t);
+        }
+    }
+
+    private void pumpSession(Session session) throws IOException {
+        long now = System.nanoTime();
+        session.tokens = Math.min(BUCKET_CAPACITY,
+                session.tokens + (now - session.lastRefill) * (BYTES_PER_SECOND / 1e9));
+        session.lastRefill = now;
+
+        while (session.tokens >= Math.min(PIECE_SIZE, session.chunkEnd - session.currentOffset)
+                || session.currentChunk < 0) {
+            if (session.currentChunk < 0) {
+                if (session.outstanding.size() >= WINDOW_CHUNKS || session.pending.isEmpty()) {
+                    return;
+                }
+                int chunk = session.pending.poll();
+                session.currentChunk = chunk;
+                session.currentOffset = (long) chunk * session.digest.getChunkSize();
+                session.chunkEnd = Math.min(session.digest.getSize(), session.currentOffset + session.digest.getChunkSize());
+                session.outstanding.add(chunk);
+                continue;
+            }
+
+            int length = (int) Math.min(PIECE_SIZE, session.chunkEnd - session.currentOffset);
+            byte[] data = new byte[length];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                if (session.channel.read(buffer, session.currentOffset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+            sendPiece(session.player, session.transferId, session.currentOffset, data);
+            session.tokens -= length;
+            session.currentOffset += length;
+            if (session.currentOffset >= session.chunkEnd) {
+                session.currentChunk = -1;
+            }
+        }
+    }
+
+    private static AnimationManifest.Entry findEntry(long digestHi, long digestLo) {
+        for (AnimationManifest.Entry entry : ServerAnimationSyncer.getManifest().getEntries()) {
+            if (entry.isValid() && entry.digestHi() == digestHi && entry.digestLo() == digestLo) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // ==================== 网络 ====================
+
+    public void register() {
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            UUID uuid = handler.getPlayer().getUuid();
+            executor.execute(() -> {
+                requestSerials.remove(uuid);
+                closeSession(uuid);
+            });
+        });
+        registerReceivers();
+    }
+
+    //? if >=1.21 {
+    private void registerReceivers() {
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.FileRequestPayload.ID, (payload, context) -> {
+            ServerPlayerEntity player = context.player();
+            executor.execute(() -> handleRequest(player, payload.digestHi(), payload.digestLo()));
+        });
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.FileStartPayload.ID, (payload, context) -> {
+            ServerPlayerEntity player = context.player();
+            executor.execute(() -> handleStart(player, payload.transferId(), payload.neededChunks()));
+        });
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.FileAckPayload.ID, (payload, context) -> {
+            ServerPlayerEntity player = context.player();
+            executor.execute(() -> handleAck(player, payload.transferId(), payload.chunk(), payload.ok()));
+        });
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.FileCancelPayload.ID, (payload, context) -> {
+            ServerPlayerEntity player = context.player();
+            executor.execute(() -> handleCancel(player, payload.transferId()));
+        });
+    }
+
+    private static void sendInfo(ServerPlayerEntity player, TransferInfo info) {
+        ServerPlayNetworking.send(player, new ModPackets.FileInfoPayload(info.encode()));
+    }
+
+    private static void sendPiece(ServerPlayerEntity player, int transferId, long offset, byte[] data) {
+        ServerPlayNetworking.send(player, new ModPackets.FilePiecePayload(transferId, offset, data));
+    }
+
+    private static void sendError(ServerPlayerEntity player, int transferId, String reason) {
+        ServerPlayNetworking.send(player, new ModPackets.FileErrorPayload(transferId, reason));
+    }
+    //? } else {
+    
+    /*private void registerReceivers() {
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.FILE_REQUEST_C2S,
+                (server, player, handler, buf, responseSender) -> {
+                    long digestHi = buf.readVarLong();
+                    long digestLo = buf.readVarLong();
+                    executor.execute(() -> handleRequest(player, digestHi, digestLo));
+                });
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.FILE_START_C2S,
+                (server, player, handler, buf, responseSender) -> {
+                    int transferId = buf.readVarInt();
+                    byte[] needed = buf.readByteArray();
+                    executor.execute(() -> handleStart(player, transferId, needed));
+                });
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.FILE_ACK_C2S,
+                (server, player, handler, buf, responseSender) -> {
+                    int transferId = buf.readVarInt();
+                    int chunk = buf.readVarInt();
+                    boolean ok = buf.readBoolean();
+                    executor.execute(() -> handleAck(player, transferId, chunk, ok));
+                });
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.FILE_CANCEL_C2S,
+                (server, player, handler, buf, responseSender) -> {
+                    int transferId = buf.readVarInt();
+                    executor.execute(() -> handleCancel(player, transferId));
+                });
+    }
+
+    private static void sendInfo(ServerPlayerEntity player, TransferInfo info) {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeByteArray(info.encode());
+        ServerPlayNetworking.send(player, ModPackets.FILE_INFO_S2C, buf);
+    }
+
+    private static void sendPiece(ServerPlayerEntity player, int transferId, long offset, byte[] data) {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeVarInt(transferId);
+        buf.writeVarLong(offset);
+        buf.writeByteArray(data);
+        ServerPlayNetworking.send(player, ModPackets.FILE_PIECE_S2C, buf);
+    }
+
+    private static void sendError(ServerPlayerEntity player, int transferId, String reason) {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeVarInt(transferId);
+        buf.writeString(reason);
+        ServerPlayNetworking.send(player, ModPackets.FILE_ERROR_S2C, buf);
+    }
+    
+    *///? }
+}
@@ -0,0 +1,283 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.server;
+
+import com.atemukesu.nebula.networking.ModPackets;
+import com.atemukesu.nebula.networking.PlayBatch;
+import net.fabricmc.fabric.api.entity.event.v1.ServerEntityWorldChangeEvents;
+import net.fabricmc.fabric.api.entity.event.v1.ServerPlayerEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+//? if < 1.21 {
+/*import net.minecraft.network.PacketByteBuf;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+*///? }
+
+/**
+ * 服务端播放广播器
+ * <p>
+ * [优化] 播放请求不再逐条逐人发包：同一 Tick 内的所有播放按玩家累积，
+ * 在 Tick 结束时每个玩家只发送一个 {@link PlayBatch}。动画名称用清单中的数字 ID 代替，
+ * 每个 ID 在每个连接内只随包附带一次名称定义。
+ * </p>
+ * <p>
+ * [优化] 兴趣管理：播放只发给同一维度、且与动画包围盒（文件头元数据）的距离不超过
+ * {@link ServerConfig#getViewRadius()} 的玩家。播放记录在 {@link ActiveAnimationRegistry} 中，
+ * 播放期间进入范围、加入、重生或切换维度的玩家会收到带负 Tick 偏移的迟到通知，
+ * 客户端据此从当前进度开始播放。
+ * </p>
+ * 所有方法仅在服务端主线程调用。
+ */
+public class PlayBroadcaster {
+
+    private static final PlayBroadcaster INSTANCE = new PlayBroadcaster();
+    /** 单个包内最多的播放数，超出部分拆分为多个包 */
+    private static final int MAX_PLAYS_PER_BATCH = 2048;
+    /** 迟到加入检查的间隔（Tick） */
+    private static final int LATE_JOIN_INTERVAL = 10;
+
+    /** 本 Tick 待发送的播放（按玩家，保持入队顺序） */
+    private final Map<UUID, List<PlayBatch.Play>> pending = new LinkedHashMap<>();
+    /** 每个连接已收到过名称定义的 ID */
+    private final Map<UUID, Set<Integer>> knownIds = new HashMap<>();
+    /** 刚加入 / 重生 / 切换维度的玩家，本 Tick 结束时立即补发活跃动画，不等检查间隔 */
+    private final Set<UUID> urgent = new HashSet<>();
+
+    private PlayBroadcaster() {
+    }
+
+    public static PlayBroadcaster getInstance() {
+        return INSTANCE;
+    }
+
+    public void register() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            long now = server.getTicks();
+            if (now % LATE_JOIN_INTERVAL == 0) {
+                ActiveAnimationRegistry.getInstance().removeExpired(now);
+                checkLateJoins(server, now, null);
+            } else if (!urgent.isEmpty()) {
+                checkLateJoins(server, now, urgent);
+            }
+            urgent.clear();
+            flush(server);
+        });
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> urgent.add(handler.getPlayer().getUuid()));
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> server.execute(() -> {
+            UUID uuid = handler.getPlayer().getUuid();
+            pending.remove(uuid);
+            knownIds.remove(uuid);
+            urgent.remove(uuid);
+            // 重新连接后需要重新通知
+            ActiveAnimationRegistry.getInstance().forgetPlayer(uuid);
+        }));
+        // 重生与切换维度：客户端丢弃旧维度的动画，再按新位置补发仍在播放的动画
+        ServerPlayerEvents.AFTER_RESPAWN.register((oldPlayer, newPlayer, alive) -> resetPlayer(newPlayer));
+        ServerEntityWorldChangeEvents.AFTER_PLAYER_CHANGE_WORLD
+                .register((player, origin, destination) -> resetPlayer(player));
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            pending.clear();
+            knownIds.clear();
+            urgent.clear();
+            ActiveAnimationRegistry.getInstance().clear();
+        });
+    }
+
+    /**
+     * 在指定维度播放动画，只发给能看到它的玩家
+     *
+     * @param delayTicks 客户端收到后延后开始的 Tick 数
+     */
+    public void play(String name, ServerWorld world, Vec3d origin, int delayTicks) {
+        int id = ServerAnimationSyncer.getAnimationId(name);
+        int delay = Math.max(0, delayTicks);
+        AnimationMetadataCache.Metadata metadata = AnimationMetadataCache.getInstance().get(name);
+        Box box = metadata != null ? metadata.getWorldBox(origin) : null;
+
+        ActiveAnimationRegistry.ActiveAnimation active = null;
+        if (metadata != null) {
+            active = ActiveAnimationRegistry.getInstance().add(id, world.getRegistryKey(), origin, box,
+                    world.getServer().getTicks() + delay, metadata.getDurationTicks());
+        }
+
+        PlayBatch.Play play = new PlayBatch.Play(id, origin, delay);
+        for (ServerPlayerEntity player : world.getPlayers()) {
+            if (isInRange(player, box, origin)) {
+                enqueue(player, play);
+                if (active != null) {
+                    active.markNotified(player.getUuid());
+                }
+            }
+        }
+    }
+
+    /**
+     * 清除所有活跃播放（客户端同时收到清除包）
+     */
+    public void clear() {
+        pending.clear();
+        ActiveAnimationRegistry.getInstance().clear();
+    }
+
+    private void resetPlayer(ServerPlayerEntity player) {
+        UUID uuid = player.getUuid();
+        pending.remove(uuid);
+        ActiveAnimationRegistry.getInstance().forgetPlayer(uuid);
+        sendClear(player);
+        urgent.add(uuid);
+    }
+
+    /**
+     * 向范围内尚未收到的玩家补发活跃动画
+     *
+     * @param only 只检查这些玩家，null 表示全部
+     */
+    private void checkLateJoins(MinecraftServer server, long now, Set<UUID> only) {
+        ActiveAnimationRegistry registry = ActiveAnimationRegistry.getInstance();
+        if (registry.size() == 0) {
+            return;
+        }
+        for (ServerWorld world : server.getWorlds()) {
+            List<ActiveAnimationRegistry.ActiveAnimation> actives = registry.getActive(world.getRegistryKey());
+            if (actives.isEmpty()) {
+                continue;
+            }
+            for (ServerPlayerEntity player : world.getPlayers()) {
+                UUID uuid = player.getUuid();
+                if (only != null && !only.contains(uuid)) {
+                    continue;
+                }
+                for (ActiveAnimationRegistry.ActiveAnimation active : actives) {
+                    if (now < active.getEndTick() && isInRange(player, active.getBox(), active.getOrigin())
+                            && active.markNotified(uuid)) {
+                        // 已开始的播放偏移为负，表示已经过的 Tick 数，客户端从对应关键帧开始
+                        enqueue(player, new PlayBatch.Play(active.getAnimationId(), active.getOrigin(),
+                                (int) -active.getElapsedTicks(now)));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isInRange(ServerPlayerEntity player, Box box, Vec3d origin) {
+        int radius = ServerConfig.getInstance().getViewRadius();
+        if (radius <= 0) {
+            return true;
+        }
+        double x = player.getX(), y = player.getY(), z = player.getZ();
+        double dx, dy, dz;
+        if (box != null) {
+            dx = Math.max(0, Math.max(box.minX - x, x - box.maxX));
+            dy = Math.max(0, Math.max(box.minY - y, y - box.maxY));
+            dz = Math.max(0, Math.max(box.minZ - z, z - box.maxZ));
+        } else {
+            dx = origin.x - x;
+            dy = origin.y - y;
+            dz = origin.z - z;
+        }
+        return dx * dx + dy * dy + dz * dz <= (double) radius * radius;
+    }
+
+    private void enqueue(ServerPlayerEntity player, PlayBatch.Play play) {
+        pending.computeIfAbsent(player.getUuid(), uuid -> new ArrayList<>()).add(play);
+    }
+
+    private void flush(MinecraftServer server) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<UUID, List<PlayBatch.Play>> entry : pending.entrySet()) {
+            ServerPlayerEntity player = server.getPlayerManager().getPlayer(entry.getKey());
+            if (player == null) {
+                continue;
+            }
+            Set<Integer> known = knownIds.computeIfAbsent(entry.getKey(), uuid -> new HashSet<>());
+            List<PlayBatch.Play> plays = entry.getValue();
+            for (int from = 0; from < plays.size(); from += MAX_PLAYS_PER_BATCH) {
+                List<PlayBatch.Play> slice = plays.subList(from, Math.min(plays.size(), from + MAX_PLAYS_PER_BATCH));
+                List<PlayBatch.Definition> definitions = new ArrayList<>();
+                for (PlayBatch.Play play : slice) {
+                    if (known.add(play.id())) {
+                        definitions.add(new PlayBatch.Definition(play.id(), ServerAnimationSyncer.getAnimationName(play.id())));
+                    }
+                }
+                send(player, PlayBatch.encode(definitions, slice));
+            }
+        }
+        pending.clear();
+    }
+
+    //? if >=1.21 {
+    private static void send(ServerPlayerEntity player, byte[] data) {
+        ServerPlayNetworking.send(player, new ModPackets.PlayBatchPayload(data));
+    }
+
+    private static void sendClear(ServerPlayerEntity player) {
+        ServerPlayNetworking.send(player, new ModPackets.ClearAnimationsPayload());
+    }
+    //? } else {
+    
+    /*private static void send(ServerPlayerEntity player, byte[] data) {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeByteArray(data);
+        ServerPlayNetworking.send(player, ModPackets.PLAY_BATCH_S2C, buf);
+    }
+
+    private static void sendClear(ServerPlayerEntity player) {
+        ServerPlayNetworking.send(player, ModPackets.CLEAR_ANIMATIONS_S2C, PacketByteBufs.empty());
+    }
+    
+    *///? }
+}
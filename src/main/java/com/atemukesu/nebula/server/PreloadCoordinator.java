@@ -0,0 +1,218 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.server;
+
+import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.networking.ModPackets;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+//? if < 1.21 {
+/*import net.minecraft.network.PacketByteBuf;
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+*///? }
+
+/**
+ * 预加载协调器
+ * <p>
+ * [优化] 在演出开始前向客户端发送预加载提示：客户端在后台预热文件索引与首个关键帧，
+ * 并逐 Tick 上传纹理数组，完成后回报就绪状态。所有客户端回报（或超时）后向发起者汇总。
+ * </p>
+ * 所有方法仅在服务端主线程调用。
+ */
+public class PreloadCoordinator {
+
+    private static final PreloadCoordinator INSTANCE = new PreloadCoordinator();
+    /** 等待客户端回报的最长时间（Tick） */
+    private static final int TIMEOUT_TICKS = 20 * 30;
+
+    private final Map<Integer, PendingPreload> pending = new LinkedHashMap<>();
+    private int nextRequestId = 1;
+    private long currentTick;
+
+    private static final class PendingPreload {
+        final int requestId;
+        final ServerCommandSource source;
+        final int playerCount;
+        final long deadline;
+        final Set<UUID> waiting = new HashSet<>();
+        int readyPlayers;
+        int playersWithMissing;
+
+        PendingPreload(int requestId, ServerCommandSource source, int playerCount, long deadline) {
+            this.requestId = requestId;
+            this.source = source;
+            this.playerCount = playerCount;
+            this.deadline = deadline;
+        }
+    }
+
+    private PreloadCoordinator() {
+    }
+
+    public static PreloadCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    public void register() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            currentTick = server.getTicks();
+            if (pending.isEmpty()) {
+                return;
+            }
+            Iterator<PendingPreload> it = pending.values().iterator();
+            while (it.hasNext()) {
+                PendingPreload preload = it.next();
+                if (currentTick >= preload.deadline) {
+                    it.remove();
+                    preload.source.sendFeedback(() -> Text.translatable("command.nebula.preload.timeout",
+                            preload.requestId, preload.readyPlayers, preload.playerCount)
+                            .formatted(Formatting.YELLOW), false);
+                }
+            }
+        });
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            UUID uuid = handler.getPlayer().getUuid();
+            server.execute(() -> {
+                for (PendingPreload preload : List.copyOf(pending.values())) {
+                    if (preload.waiting.remove(uuid)) {
+                        completeIfDone(preload);
+                    }
+                }
+            });
+        });
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> pending.clear());
+        registerReceivers();
+    }
+
+    /**
+     * 向目标玩家发送预加载提示
+     *
+     * @return 请求编号
+     */
+    public int request(ServerCommandSource source, List<String> animations,
+            Collection<ServerPlayerEntity> targets) {
+        int requestId = nextRequestId++;
+        // 服务端同样预热文件头元数据，首次播放时兴趣管理不再读盘
+        for (String name : animations) {
+            AnimationMetadataCache.getInstance().get(name);
+        }
+        PendingPreload preload = new PendingPreload(requestId, source, targets.size(),
+                currentTick + TIMEOUT_TICKS);
+        for (ServerPlayerEntity player : targets) {
+            preload.waiting.add(player.getUuid());
+            send(player, requestId, animations);
+        }
+        if (!preload.waiting.isEmpty()) {
+            pending.put(requestId, preload);
+        }
+        return requestId;
+    }
+
+    private void onReady(ServerPlayerEntity player, int requestId, int ready, int missing) {
+        PendingPreload preload = pending.get(requestId);
+        if (preload == null || !preload.waiting.remove(player.getUuid())) {
+            return;
+        }
+        if (missing > 0) {
+            preload.playersWithMissing++;
+            Nebula.LOGGER.info("[PreloadCoordinator] {} is missing {} animation(s) for preload #{}",
+                    player.getName().getString(), missing, requestId);
+        } else {
+            preload.readyPlayers++;
+        }
+        completeIfDone(preload);
+    }
+
+    private void completeIfDone(PendingPreload preload) {
+        if (!preload.waiting.isEmpty()) {
+            return;
+        }
+        pending.remove(preload.requestId);
+        preload.source.sendFeedback(() -> Text.translatable("command.nebula.preload.done",
+                preload.requestId, preload.readyPlayers, preload.playerCount, preload.playersWithMissing)
+                .formatted(Formatting.GREEN), false);
+    }
+
+    //? if >=1.21 {
+    private void registerReceivers() {
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.PreloadReadyPayload.ID, (payload, context) -> {
+            ServerPlayerEntity player = context.player();
+            context.server().execute(() -> onReady(player, payload.requestId(), payload.ready(), payload.missing()));
+        });
+    }
+
+    private static void send(ServerPlayerEntity player, int requestId, List<String> animations) {
+        ServerPlayNetworking.send(player, new ModPackets.PreloadPayload(requestId, animations));
+    }
+    //? } else {
+    
+    /*private void registerReceivers() {
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.PRELOAD_READY_C2S,
+                (server, player, handler, buf, responseSender) -> {
+                    int requestId = buf.readVarInt();
+                    int ready = buf.readVarInt();
+                    int missing = buf.readVarInt();
+                    server.execute(() -> onReady(player, requestId, ready, missing));
+                });
+    }
+
+    private static void send(ServerPlayerEntity player, int requestId, List<String> animations) {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeVarInt(requestId);
+        buf.writeCollection(animations, PacketByteBuf::writeString);
+        ServerPlayNetworking.send(player, ModPackets.PRELOAD_S2C, buf);
+    }
+    
+    *///? }
+}
@@ -39,6 +39,7 @@
 package com.atemukesu.nebula.server;
 
 import com.atemukesu.nebula.Nebula;
+import com.atemukesu.nebula.networking.AnimationManifest;
 import com.atemukesu.nebula.networking.ModPackets;
 import com.atemukesu.nebula.particle.loader.AnimationLoader;
 import com.atemukesu.nebula.util.NebulaHashUtils;
@@ -48,65 +49,272 @@ import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 //? if < 1.21 {
 /*import net.minecraft.network.PacketByteBuf;
 import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
 *///? }
 
+/**
+ * 服务端动画哈希同步
+ * <p>
+ * [优化] 哈希计算在后台线程池中并行执行，结果持久化到 {@link AnimationHashCache}，
+ * 未变化的文件（路径 + 大小 + 修改时间一致）不会被重新读取。
+ * 每次重载完成后以原子方式整体替换清单，玩家任何时刻看到的都是一份完整的清单。
+ * </p>
+ * [优化] 玩家加入时只发送清单摘要，客户端按需请求摘要不同的桶（见 {@link AnimationManifest}）。
+ */
 public class ServerAnimationSyncer {
-    private static final Map<String, String> serverHashes = new HashMap<>();
 
-    public static void reload() {
-        serverHashes.clear();
+    private static final int HASH_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService HASH_POOL = Executors.newFixedThreadPool(HASH_THREADS, r -> {
+        Thread t = new Thread(r, "Nebula-Hash-" + THREAD_COUNTER.incrementAndGet());
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    /** 当前已发布的清单（不可变），只会被整体替换 */
+    private static final AtomicReference<AnimationManifest> manifest = new AtomicReference<>(
+            new AnimationManifest(List.of()));
+    private static volatile boolean published = false;
+
+    /** 名称到数字 ID 的映射，进程内只增不改，保证重载前后 ID 稳定 */
+    private static final Map<String, Integer> nameIds = new ConcurrentHashMap<>();
+    private static final Map<Integer, String> idNames = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private static volatile AnimationHashCache cache;
+    /** 重载链：新的重载排在上一次之后执行，避免两次重载交错写缓存 */
+    private static CompletableFuture<AnimationManifest> reloadChain = CompletableFuture
+            .completedFuture(manifest.get());
+
+    /**
+     * 异步重载哈希清单
+     *
+     * @return 新清单发布后完成的 Future
+     */
+    public static CompletableFuture<AnimationManifest> reloadAsync() {
+        return reloadAsync(false);
+    }
+
+    /**
+     * 异步重载哈希清单
+     *
+     * @param rescan 是否先完整重扫动画目录（在后台线程执行，扫描后清空元数据缓存）
+     * @return 新清单发布后完成的 Future
+     */
+    public static synchronized CompletableFuture<AnimationManifest> reloadAsync(boolean rescan) {
+        reloadChain = reloadChain
+                .handle((ignored, error) -> null)
+                .thenComposeAsync(ignored -> {
+                    if (rescan) {
+                        AnimationLoader.discoverAnimations();
+                        AnimationMetadataCache.getInstance().invalidateAll();
+                    }
+                    return computeManifest();
+                }, HASH_POOL)
+                .thenApply(result -> {
+                    manifest.set(result);
+                    published = true;
+                    return result;
+                });
+        return reloadChain;
+    }
+
+    private static CompletableFuture<AnimationManifest> computeManifest() {
         // Ensure animations are discovered
-        if (AnimationLoader.getAnimations().isEmpty()) {
-            AnimationLoader.discoverAnimations();
+        Map<String, Path> animations = new HashMap<>(AnimationLoader.getAnimations());
+        if (cache == null) {
+            cache = AnimationHashCache.load();
+        }
+        AnimationHashCache currentCache = cache;
+        long start = System.nanoTime();
+        AtomicInteger hashed = new AtomicInteger();
+
+        Nebula.LOGGER.info("[ServerAnimationSyncer] Syncing hashes for {} animations on {} threads...",
+                animations.size(), HASH_THREADS);
+
+        List<String> names = new ArrayList<>(animations.keySet());
+        // 按名称顺序分配 ID，使相同动画集合在服务器重启后得到相同的 ID（清单摘要因此保持不变）
+        Collections.sort(names);
+        List<String> keys = new ArrayList<>(names.size());
+        List<CompletableFuture<AnimationManifest.Entry>> tasks = new ArrayList<>(names.size());
+        for (String name : names) {
+            Path path = animations.get(name);
+            String key = cacheKey(path);
+            int id = getAnimationId(name);
+            keys.add(key);
+            tasks.add(CompletableFuture.supplyAsync(() -> hashOne(id, name, path, key, currentCache, hashed),
+                    HASH_POOL));
+        }
+
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<AnimationManifest.Entry> entries = new ArrayList<>(names.size());
+            for (CompletableFuture<AnimationManifest.Entry> task : tasks) {
+                entries.add(task.join());
+            }
+            currentCache.retainAll(keys);
+            currentCache.saveIfDirty();
+            AnimationManifest result = new AnimationManifest(entries);
+            Nebula.LOGGER.info("[ServerAnimationSyncer] Hashes ready. Count: {}, re-hashed: {}, took {} ms",
+                    result.size(), hashed.get(), (System.nanoTime() - start) / 1_000_000);
+            return result;
+        });
+    }
+
+    private static AnimationManifest.Entry hashOne(int id, String name, Path path, String key,
+            AnimationHashCache cache, AtomicInteger hashed) {
+        try {
+            long size = Files.size(path);
+            long mtime = Files.getLastModifiedTime(path).toMillis();
+            AnimationHashCache.Entry cached = cache.getEntry(key, size, mtime);
+            NebulaHashUtils.ContentDigest digest;
+            if (cached != null && cached.chunks != null) {
+                // 块摘要已缓存，根摘要可直接重建，无需读文件
+                digest = new NebulaHashUtils.ContentDigest(size, NebulaHashUtils.CONTENT_CHUNK_SIZE, cached.chunks);
+            } else {
+                digest = NebulaHashUtils.computeContentDigest(path);
+                cache.put(key, size, mtime, digest.toHashString(), digest.getChunks());
+                hashed.incrementAndGet();
+            }
+            return new AnimationManifest.Entry(id, name, size, digest.getRootHi(), digest.getRoot());
+        } catch (IOException e) {
+            Nebula.LOGGER.error("Failed to hash animation: {}", name, e);
+            return new AnimationManifest.Entry(id, name, -1, 0, 0);
         }
-        Map<String, Path> animations = AnimationLoader.getAnimations();
+    }
 
-        Nebula.LOGGER.info("Server syncing hashes for {} animations...", animations.size());
+    /**
+     * 获取文件的全量内容摘要（含块摘要）：优先使用缓存，文件有变化时重新计算。
+     * 供分块传输使用，可在任意线程调用。
+     */
+    public static NebulaHashUtils.ContentDigest getContentDigest(Path path) throws IOException {
+        AnimationHashCache current = cache;
+        if (current != null) {
+            long size = Files.size(path);
+            long mtime = Files.getLastModifiedTime(path).toMillis();
+            AnimationHashCache.Entry entry = current.getEntry(cacheKey(path), size, mtime);
+            if (entry != null && entry.chunks != null) {
+                return new NebulaHashUtils.ContentDigest(size, NebulaHashUtils.CONTENT_CHUNK_SIZE, entry.chunks);
+            }
+        }
+        return NebulaHashUtils.computeContentDigest(path);
+    }
 
-        animations.forEach((name, path) -> {
+    /**
+     * 在哈希线程池上获取文件的全量内容摘要（缓存未命中时可能读取整个文件）
+     */
+    public static CompletableFuture<NebulaHashUtils.ContentDigest> getContentDigestAsync(Path path) {
+        return CompletableFuture.supplyAsync(() -> {
             try {
-                String hash = NebulaHashUtils.getSecureSampleHash(path);
-                serverHashes.put(name, hash);
+                return getContentDigest(path);
             } catch (IOException e) {
-                Nebula.LOGGER.error("Failed to hash animation: {}", name, e);
-                serverHashes.put(name, "ERROR");
+                throw new UncheckedIOException(e);
             }
-        });
-        Nebula.LOGGER.info("Server hashes ready. Count: {}", serverHashes.size());
+        }, HASH_POOL);
     }
 
-    //? if >=1.21 {
+    /**
+     * 缓存键：相对动画目录的路径，目录迁移后缓存依然有效
+     */
+    private static String cacheKey(Path path) {
+        Path dir = AnimationLoader.getAnimationsDir();
+        Path normalized = path.toAbsolutePath().normalize();
+        Path base = dir.toAbsolutePath().normalize();
+        Path key = normalized.startsWith(base) ? base.relativize(normalized) : normalized;
+        return key.toString().replace('\\', '/');
+    }
+
+    /**
+     * 向玩家发送清单摘要。首次重载尚未完成时不阻塞服务器线程，待清单发布后再在主线程补发。
+     */
     public static void sendToPlayer(ServerPlayerEntity player) {
-        // Ensure we have hashes
-        if (serverHashes.isEmpty()) {
-            reload();
+        if (published) {
+            sendSummary(player, manifest.get());
+            return;
         }
-        ServerPlayNetworking.send(player, new ModPackets.SyncDataPayload(serverHashes));
+        MinecraftServer server = player.getServer();
+        CompletableFuture<AnimationManifest> pending;
+        synchronized (ServerAnimationSyncer.class) {
+            pending = reloadChain;
+        }
+        if (server == null) {
+            return;
+        }
+        pending.thenRunAsync(() -> {
+            if (!player.isDisconnected()) {
+                sendSummary(player, manifest.get());
+            }
+        }, server);
     }
-    //? } else {
-    
-    /*public static void sendToPlayer(ServerPlayerEntity player) {
 
-        // Ensure we have hashes
-        if (serverHashes.isEmpty()) {
-            reload();
+    /**
+     * 处理客户端的清单请求：返回当前清单中掩码内的桶。
+     * 若请求的摘要已过期（期间发生过重载），客户端会在合并校验失败后重新请求全部桶。
+     */
+    private static void handleManifestRequest(ServerPlayerEntity player, long digest, long bucketMask) {
+        AnimationManifest current = manifest.get();
+        if (digest != current.getDigest()) {
+            Nebula.LOGGER.debug("[ServerAnimationSyncer] {} requested stale manifest {}, serving current.",
+                    player.getName().getString(), Long.toHexString(digest));
+        }
+        // 条目较多时分多个包发送，客户端收齐后再合并
+        for (byte[] part : current.encodeEntries(bucketMask)) {
+            sendEntries(player, part);
         }
+    }
 
+    //? if >=1.21 {
+    public static void registerReceivers() {
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.ManifestRequestPayload.ID, (payload, context) ->
+                context.server().execute(() ->
+                        handleManifestRequest(context.player(), payload.digest(), payload.bucketMask())));
+    }
+
+    private static void sendSummary(ServerPlayerEntity player, AnimationManifest current) {
+        ServerPlayNetworking.send(player, new ModPackets.ManifestSummaryPayload(current.encodeSummary()));
+    }
+
+    private static void sendEntries(ServerPlayerEntity player, byte[] data) {
+        ServerPlayNetworking.send(player, new ModPackets.ManifestEntriesPayload(data));
+    }
+    //? } else {
+    
+    /*public static void registerReceivers() {
+        ServerPlayNetworking.registerGlobalReceiver(ModPackets.MANIFEST_REQUEST_C2S,
+                (server, player, handler, buf, responseSender) -> {
+                    long digest = buf.readVarLong();
+                    long bucketMask = buf.readVarLong();
+                    server.execute(() -> handleManifestRequest(player, digest, bucketMask));
+                });
+    }
+
+    private static void sendSummary(ServerPlayerEntity player, AnimationManifest current) {
         PacketByteBuf buf = PacketByteBufs.create();
-        buf.writeInt(serverHashes.size());
-        serverHashes.forEach((name, hash) -> {
-            buf.writeString(name);
-            buf.writeString(hash);
-        });
+        buf.writeByteArray(current.encodeSummary());
+        ServerPlayNetworking.send(player, ModPackets.MANIFEST_SUMMARY_S2C, buf);
+    }
 
-        ServerPlayNetworking.send(player, ModPackets.SYNC_DATA, buf);
+    private static void sendEntries(ServerPlayerEntity player, byte[] data) {
+        PacketByteBuf buf = PacketByteBufs.create();
+        buf.writeByteArray(data);
+        ServerPlayNetworking.send(player, ModPackets.MANIFEST_ENTRIES_S2C, buf);
     }
     
     *///? }
@@ -118,7 +326,26 @@ public class ServerAnimationSyncer {
         }
     }
 
+    /**
+     * 获取动画的数字 ID（与清单条目中的 ID 一致），未出现过的名称会分配新 ID
+     */
+    public static int getAnimationId(String name) {
+        return nameIds.computeIfAbsent(name, n -> {
+            int id = nextId.getAndIncrement();
+            idNames.put(id, n);
+            return id;
+        });
+    }
+
+    public static String getAnimationName(int id) {
+        return idNames.get(id);
+    }
+
     public static Map<String, String> getHashes() {
-        return serverHashes;
+        return manifest.get().toHashes();
+    }
+
+    public static AnimationManifest getManifest() {
+        return manifest.get();
     }
 }
@@ -0,0 +1,105 @@
+/**
+ * [AI GENERATION & MODIFICATION NOTICE / AI 编写与调整声明]
+ *
+ * ENGLISH:
+ * This code was authored, modified, optimized, or adjusted by one or more of the
+ * following AI models: Gemini 3 Pro, Gemini 3 Flash, and Claude 3.5 Opus.
+ * Although efforts have been made to ensure functionality through testing, the
+ * code is provided "AS IS". Please perform a thorough code audit before using,
+ * reading, distributing, or modifying.
+ *
+ * 中文版：
+ * 本代码由以下一个或多个 AI 模型编写、修改、优化或调整：
+ * Gemini 3 Pro, Gemini 3 Flash, 以及 Claude 3.5 Opus。
+ * 代码虽经努力测试以确保其功能实现，但仍按“原样”提供。在您进行使用、阅读、
+ * 分发或修改前，请务必进行仔细的代码审计与测试。
+ *
+ * ----------------------------------------------------------------------------------
+ * [LICENSE & WARRANTY / 开源协议与免责声明]
+ *
+ * ENGLISH:
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details <https://www.gnu.org/licenses/>.
+ *
+ * 中文版：
+ * 本程序为自由软件：您可以根据自由软件基金会发布的 GNU 通用公共许可协议（GPL）条款
+ *（可以选择版本 3 或更高版本）对本程序进行重新分发和/或修改。
+ *
+ * 本程序的发布是希望其能发挥作用，但【不附带任何担保】，甚至不包括对【适销性】或
+ * 【特定用途适用性】的暗示保证。开发者不对因使用本代码产生的任何损害承担责任。
+ * 详情请参阅 GNU 通用公共许可协议官方页面 <https://www.gnu.org/licenses/>。
+ * ----------------------------------------------------------------------------------
+ */
+package com.atemukesu.nebula.server;
+
+import com.atemukesu.nebula.Nebula;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 服务端配置（config/nebula-server.json）
+ * <p>
+ * 与客户端的 ModConfig 分开保存，专用服务器上不会加载客户端配置。
+ * </p>
+ */
+public class ServerConfig {
+
+    private static final Path CONFIG_FILE = FabricLoader.getInstance().getConfigDir().resolve("nebula-server.json");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static ServerConfig instance = new ServerConfig();
+
+    /** 播放的可见半径（方块）：玩家到动画包围盒的距离超过该值时不发送，0 表示不限距离（仍按维度过滤） */
+    private int viewRadius;
+
+    public ServerConfig() {
+        this.viewRadius = 512;
+    }
+
+    public static ServerConfig getInstance() {
+        return instance;
+    }
+
+    public static void load() {
+        try {
+            if (CONFIG_FILE.toFile().exists()) {
+                try (FileReader reader = new FileReader(CONFIG_FILE.toFile())) {
+                    ServerConfig config = GSON.fromJson(reader, ServerConfig.class);
+                    instance = config != null ? config : new ServerConfig();
+                }
+            } else {
+                instance = new ServerConfig();
+                save();
+            }
+        } catch (Exception e) {
+            Nebula.LOGGER.error("[ServerConfig] Failed to load server config! Using defaults.", e);
+            instance = new ServerConfig();
+        }
+    }
+
+    public static void save() {
+        try (FileWriter writer = new FileWriter(CONFIG_FILE.toFile())) {
+            GSON.toJson(instance, writer);
+        } catch (IOException e) {
+            Nebula.LOGGER.error("[ServerConfig] Failed to save server config!", e);
+        }
+    }
+
+    public int getViewRadius() {
+        return viewRadius;
+    }
+
+    public void setViewRadius(Integer viewRadius) {
+        this.viewRadius = Math.max(0, viewRadius);
+    }
+}
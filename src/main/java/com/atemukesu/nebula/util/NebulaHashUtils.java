@@ -38,20 +38,206 @@
 
 package com.atemukesu.nebula.util;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 import java.util.zip.CRC32;
 
 /**
- * 升级版：跨步式采样校验工具
- * 适用于 10MB - 1GB 的超大动画文件同步
+ * 动画文件校验工具
+ * <p>
+ * [核心] 全量内容哈希：文件按 {@link #CONTENT_CHUNK_SIZE} 切块，每块并行计算 XXH64，
+ * 再对 (文件大小, 块大小, 全部块摘要) 计算一次 XXH64 作为根哈希。
+ * 块摘要会被保留，之后只需重算变化的块即可增量校验。
+ * </p>
+ * 旧的跨步采样模式（{@link #getSecureSampleHash}）仍保留，仅用于快速预览。
  */
 public class NebulaHashUtils {
 
+    /** 哈希算法标识，写入持久化缓存；算法变化时旧缓存自动失效 */
+    public static final String ALGORITHM = "xxh64-tree-v1";
+
+    /** 全量哈希的分块大小：4 MB，4 GB 文件约 1024 块 */
+    public static final int CONTENT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final long ROOT_HI_SEED = 0x9E3779B97F4A7C15L;
+
+    /** 每个工作线程复用一块直接内存读缓冲，避免在堆上分配大数组 */
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER = ThreadLocal
+            .withInitial(() -> ByteBuffer.allocateDirect(CONTENT_CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+
     private static final int CHUNK_SIZE = 8192; // 提升单块采样到 8KB
     private static final int TOTAL_SAMPLES = 10; // 全文件等距采样 10 个点
 
+    /**
+     * 全量内容摘要：文件大小 + 块大小 + 每块 XXH64 + 根哈希
+     */
+    public static final class ContentDigest {
+        private final long size;
+        private final int chunkSize;
+        private final long[] chunks;
+        private final long root;
+        private final long rootHi;
+
+        public ContentDigest(long size, int chunkSize, long[] chunks) {
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunks = chunks;
+            this.root = computeRoot(size, chunkSize, chunks, 0);
+            this.rootHi = computeRoot(size, chunkSize, chunks, ROOT_HI_SEED);
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public int getChunkCount() {
+            return chunks.length;
+        }
+
+        public long getChunk(int index) {
+            return chunks[index];
+        }
+
+        public long[] getChunks() {
+            return chunks.clone();
+        }
+
+        public long getRoot() {
+            return root;
+        }
+
+        /**
+         * @return 128 位摘要的高 64 位（同一输入、不同种子），用于二进制清单
+         */
+        public long getRootHi() {
+            return rootHi;
+        }
+
+        /**
+         * @return 格式为 "X-文件大小-根哈希" 的字符串
+         */
+        public String toHashString() {
+            return "X-" + Long.toHexString(size) + "-" + String.format("%016x", root);
+        }
+    }
+
+    /**
+     * 计算全量内容哈希字符串
+     *
+     * @param path 文件路径
+     * @return 格式为 "X-文件大小-根哈希"
+     * @throws IOException 如果文件读取失败
+     */
+    public static String getContentHash(Path path) throws IOException {
+        return computeContentDigest(path).toHashString();
+    }
+
+    /**
+     * 并行计算全量内容摘要
+     * 块之间互不依赖，交给公共 ForkJoin 池并行读取与计算。
+     *
+     * @param path 文件路径
+     * @return 包含全部块摘要的 {@link ContentDigest}
+     * @throws IOException 如果文件读取失败
+     */
+    public static ContentDigest computeContentDigest(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = chunkCount(size, CONTENT_CHUNK_SIZE);
+            long[] chunks = new long[count];
+            try {
+                IntStream.range(0, count).parallel().forEach(i -> {
+                    try {
+                        chunks[i] = digestChunk(channel, i, size);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return new ContentDigest(size, CONTENT_CHUNK_SIZE, chunks);
+        }
+    }
+
+    /**
+     * 增量校验：只重算指定的块，返回与期望摘要不一致的块序号
+     *
+     * @param path     文件路径
+     * @param expected 期望摘要（通常来自缓存或服务端）
+     * @param indices  需要校验的块序号；为 null 时校验全部块
+     * @return 不一致的块序号列表；文件大小不一致时返回全部块
+     * @throws IOException 如果文件读取失败
+     */
+    public static List<Integer> findMismatchedChunks(Path path, ContentDigest expected, int[] indices)
+            throws IOException {
+        List<Integer> mismatched = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size != expected.getSize() || expected.getChunkSize() != CONTENT_CHUNK_SIZE) {
+                for (int i = 0; i < expected.getChunkCount(); i++) {
+                    mismatched.add(i);
+                }
+                return mismatched;
+            }
+            int[] targets = indices != null ? indices : IntStream.range(0, expected.getChunkCount()).toArray();
+            for (int i : targets) {
+                if (i < 0 || i >= expected.getChunkCount()) {
+                    continue;
+                }
+                if (digestChunk(channel, i, size) != expected.getChunk(i)) {
+                    mismatched.add(i);
+                }
+            }
+        }
+        return mismatched;
+    }
+
+    /**
+     * 计算单个块的 XXH64，种子为块序号，保证相同内容出现在不同位置时摘要不同
+     */
+    private static long digestChunk(FileChannel channel, int index, long fileSize) throws IOException {
+        long offset = (long) index * CONTENT_CHUNK_SIZE;
+        int length = (int) Math.min(CONTENT_CHUNK_SIZE, fileSize - offset);
+        ByteBuffer buffer = READ_BUFFER.get();
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            // 定位读取，多个线程可安全共享同一个 FileChannel
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at chunk " + index);
+            }
+        }
+        return XxHash64.hash(buffer, 0, length, index);
+    }
+
+    private static long computeRoot(long size, int chunkSize, long[] chunks, long seed) {
+        ByteBuffer buf = ByteBuffer.allocate(16 + chunks.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putLong(size).putLong(chunkSize);
+        for (long chunk : chunks) {
+            buf.putLong(chunk);
+        }
+        return XxHash64.hash(buf, 0, buf.capacity(), seed);
+    }
+
+    public static int chunkCount(long size, int chunkSize) {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
     /**
      * 跨步采样哈希：在文件中等距选取 10 个点进行校验
      * 无论文件多大，只读取约 80KB 数据，平衡了覆盖率与速度
@@ -87,7 +273,7 @@ public class NebulaHashUtils {
     }
 
     /**
-     * 对小文件进行全量 CRC32 校验
+     * 对小文件进行全量 CRC32 校验（流式读取，不一次性分配整个文件）
      * 
      * @param path 文件路径
      * @return 16进制特征字符串
@@ -95,8 +281,17 @@ public class NebulaHashUtils {
      */
     private static String getFullFileCRC32(Path path) throws IOException {
         CRC32 crc = new CRC32();
-        byte[] allBytes = java.nio.file.Files.readAllBytes(path);
-        crc.update(allBytes);
-        return Long.toHexString(allBytes.length) + "-" + Long.toHexString(crc.getValue());
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+                total += read;
+            }
+        }
+        return Long.toHexString(total) + "-" + Long.toHexString(crc.getValue());
     }
 }
\ No newline at end of file
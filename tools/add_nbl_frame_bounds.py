@@ -0,0 +1,168 @@
+import struct
+import zstandard as zstd
+import argparse
+import os
+import numpy as np
+from tqdm import tqdm
+
+# ==========================================
+# NBL 规范定义
+# ==========================================
+MAGIC = b'NEBULAFX'
+HEADER_SIZE = 48
+ATTR_FRAME_BOUNDS = 0x04
+FLT_MAX = np.finfo(np.float32).max
+
+
+class NBLBoundsBuilder:
+    """
+    为已有的 .nbl 文件补充 (或重建) 逐帧包围盒表 (Attributes 0x04)
+
+    逐帧还原粒子位置并统计每个表项的 AABB。压缩帧数据原样拷贝，不重新压缩。
+    """
+
+    def __init__(self, input_path):
+        self.input_path = input_path
+        self.data = b''
+        self.meta = {}
+
+    def load(self):
+        if not os.path.exists(self.input_path):
+            raise FileNotFoundError(f"文件未找到: {self.input_path}")
+
+        with open(self.input_path, 'rb') as f:
+            self.data = f.read()
+
+        if len(self.data) < HEADER_SIZE:
+            raise ValueError("文件头错误")
+
+        if self.data[0:8] != MAGIC:
+            raise ValueError("Magic 校验失败")
+
+        self.meta['total_frames'] = struct.unpack_from('<I', self.data, 0x0C)[0]
+        self.meta['tex_count'] = struct.unpack_from('<H', self.data, 0x10)[0]
+        self.meta['attrs'] = struct.unpack_from('<H', self.data, 0x12)[0]
+
+    def process(self, output_path, interval):
+        total_frames = self.meta['total_frames']
+
+        # 1. 定位纹理块之后的索引表和关键帧表
+        offset = HEADER_SIZE
+        for _ in range(self.meta['tex_count']):
+            path_len = struct.unpack_from('<H', self.data, offset)[0]
+            offset += 2 + path_len + 2
+
+        frame_index_start = offset
+        frame_index_size = total_frames * 12
+        offset += frame_index_size
+
+        kf_count = struct.unpack_from('<I', self.data, offset)[0]
+        kf_table = self.data[offset: offset + 4 + kf_count * 4]
+
+        chunks = []
+        for i in range(total_frames):
+            c_offset, c_size = struct.unpack_from('<QI', self.data, frame_index_start + i * 12)
+            chunks.append((c_offset, c_size))
+
+        # 2. 逐帧还原位置并统计包围盒
+        bounds_count = (total_frames + interval - 1) // interval
+        bounds_min = np.full((bounds_count, 3), FLT_MAX, dtype=np.float32)
+        bounds_max = np.full((bounds_count, 3), -FLT_MAX, dtype=np.float32)
+
+        state_pos = np.zeros((0, 3), dtype=np.float32)
+        last_seen = np.zeros(0, dtype=np.int64)
+
+        dctx = zstd.ZstdDecompressor()
+        print(f"[*] 正在计算包围盒: 每项 {interval} 帧, 共 {bounds_count} 项")
+
+        for i in tqdm(range(total_frames), unit="frame", colour="cyan"):
+            c_offset, c_size = chunks[i]
+            raw = dctx.decompress(self.data[c_offset: c_offset + c_size])
+            f_type = raw[0]
+            n = struct.unpack_from('<I', raw, 1)[0]
+            if n == 0:
+                continue
+
+            if f_type == 0:
+                xyz = np.frombuffer(raw, dtype='<f4', count=3 * n, offset=5).reshape(3, n).T
+                ids = np.frombuffer(raw, dtype='<i4', count=n, offset=5 + 20 * n)
+            else:
+                d = np.frombuffer(raw, dtype='<i2', count=3 * n, offset=5).reshape(3, n).T
+                ids = np.frombuffer(raw, dtype='<i4', count=n, offset=5 + 14 * n)
+
+            # 按需扩容状态表
+            max_id = int(ids.max()) + 1
+            if max_id > len(state_pos):
+                grow = max(max_id, int(len(state_pos) * 1.5))
+                state_pos = np.concatenate([state_pos, np.zeros((grow - len(state_pos), 3), dtype=np.float32)])
+                last_seen = np.concatenate([last_seen, np.full(grow - len(last_seen), -2, dtype=np.int64)])
+
+            if f_type == 0:
+                pos = xyz.astype(np.float32)
+            else:
+                # 生成规则：上一帧未出现的粒子从零基准开始累加
+                spawn = last_seen[ids] != i - 1
+                base = np.where(spawn[:, None], np.float32(0), state_pos[ids])
+                pos = (base + d.astype(np.float32) / np.float32(1000.0)).astype(np.float32)
+
+            state_pos[ids] = pos
+            last_seen[ids] = i
+
+            entry = i // interval
+            bounds_min[entry] = np.minimum(bounds_min[entry], pos.min(axis=0))
+            bounds_max[entry] = np.maximum(bounds_max[entry], pos.max(axis=0))
+
+        # 3. 组装新文件: 头部 + 纹理块 + 帧索引 + 关键帧表 + 包围盒表 + 原压缩帧
+        header = bytearray(self.data[:frame_index_start])
+        struct.pack_into('<H', header, 0x12, self.meta['attrs'] | ATTR_FRAME_BOUNDS)
+
+        bounds_table_pos = frame_index_start + frame_index_size + len(kf_table)
+        struct.pack_into('<I', header, 0x2C, bounds_table_pos)
+
+        bounds_table = bytearray(struct.pack('<II', interval, bounds_count))
+        bounds_table.extend(np.concatenate([bounds_min, bounds_max], axis=1).astype('<f4').tobytes())
+
+        write_pos = bounds_table_pos + len(bounds_table)
+        index_table = bytearray()
+        for c_offset, c_size in chunks:
+            index_table.extend(struct.pack('<QI', write_pos, c_size))
+            write_pos += c_size
+
+        with open(output_path, 'wb') as f:
+            f.write(header)
+            f.write(index_table)
+            f.write(kf_table)
+            f.write(bounds_table)
+            for c_offset, c_size in chunks:
+                f.write(self.data[c_offset: c_offset + c_size])
+
+
+# ==========================================
+# 入口逻辑
+# ==========================================
+def main():
+    parser = argparse.ArgumentParser(description="NBL 逐帧包围盒表生成工具")
+    parser.add_argument("input", help="输入的 .nbl 文件路径")
+    parser.add_argument("-o", "--output", help="输出文件路径 (默认: <输入>_bounds.nbl)")
+    parser.add_argument("-i", "--interval", type=int, default=1,
+                        help="每个表项覆盖的帧数 (1 = 逐帧，填关键帧间隔即逐 GOP)")
+    args = parser.parse_args()
+
+    if not os.path.exists(args.input):
+        print(f"❌ 错误: 文件 '{args.input}' 不存在。")
+        return
+
+    interval = max(1, args.interval)
+    output_file = args.output or os.path.splitext(args.input)[0] + "_bounds.nbl"
+
+    try:
+        worker = NBLBoundsBuilder(args.input)
+        worker.load()
+        worker.process(output_file, interval)
+        print(f"\n✅ 处理完成! 输出文件: {output_file}")
+    except Exception as e:
+        print(f"\n❌ 发生错误: {e}")
+
+
+if __name__ == "__main__":
+    main()
@@ -60,6 +60,15 @@ class NBLResizer:
         kf_count = struct.unpack_from('<I', self.data, offset)[0]
         offset += 4 + (kf_count * 4)
         
+        # 关键帧表与第一个数据块之间可能还有可选表 (如 0x04 逐帧包围盒表，其偏移记录在文件头中)
+        # 原样保留这段数据，保证这些偏移在新文件中仍然有效
+        if self.meta['total_frames'] > 0:
+            first_chunk = min(
+                struct.unpack_from('<Q', self.data, frame_index_start + i * 12)[0]
+                for i in range(self.meta['total_frames'])
+            )
+            offset = max(offset, first_chunk)
+        
         chunks_start_offset = offset
         
         # 2. 构建新文件结构
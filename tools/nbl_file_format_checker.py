@@ -146,6 +146,35 @@ class NBLValidator:
                     return False, "关键帧索引表数据越界", self.metadata
                 f.seek(seek_amount, 1)  # relative seek
 
+                # --- 4.1 Frame Bounds Table Check (可选, Attributes 0x04) ---
+                if attrs & 0x04:
+                    self.log(">> 正在检查逐帧包围盒表 (Frame Bounds Table)...")
+                    bounds_offset = struct.unpack("<I", reserved)[0]
+                    if bounds_offset == 0 or bounds_offset + 8 > file_size:
+                        return False, "包围盒表偏移无效", self.metadata
+                    f.seek(bounds_offset)
+                    frames_per_entry, entry_count = struct.unpack("<II", f.read(8))
+                    if frames_per_entry == 0:
+                        return False, "包围盒表每项帧数为 0", self.metadata
+                    expected_entries = (
+                        total_frames + frames_per_entry - 1
+                    ) // frames_per_entry
+                    if entry_count != expected_entries:
+                        return (
+                            False,
+                            f"包围盒表项数不匹配 (期望 {expected_entries}, 实际 {entry_count})",
+                            self.metadata,
+                        )
+                    if bounds_offset + 8 + entry_count * 24 > file_size:
+                        return False, "包围盒表数据越界", self.metadata
+                    first_chunk = min((o for o, _ in frame_indices), default=file_size)
+                    if bounds_offset + 8 + entry_count * 24 > first_chunk:
+                        self.log("[Warning] 包围盒表与帧数据块重叠。")
+                    self.metadata["bounds_interval"] = frames_per_entry
+                    self.log(
+                        f"包围盒表: 每项 {frames_per_entry} 帧, 共 {entry_count} 项"
+                    )
+
                 # --- 5. Frame Data Chunk Check (Deep Scan) ---
                 self.log(">> 正在进行帧数据深度扫描 (Zstd解压与结构校验)...")
                 dctx = zstd.ZstdDecompressor()
@@ -448,6 +477,10 @@ class NBLCheckerApp(QMainWindow):
                     attr_list.append("Alpha")
                 if attrs & 0x02:
                     attr_list.append("Size")
+                if attrs & 0x04:
+                    attr_list.append(
+                        f"FrameBounds/{metadata.get('bounds_interval', '?')}"
+                    )
                 display_text += f"属性掩码 (Attrs): {attrs} ({', '.join(attr_list)})\n"
 
                 b_min = metadata.get("bbox_min", (0, 0, 0))